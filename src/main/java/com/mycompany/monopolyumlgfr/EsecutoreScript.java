@@ -0,0 +1,171 @@
+package com.mycompany.monopolyumlgfr;
+
+import com.mycompany.monopolyumlgfr.autenticazione.*;
+import com.mycompany.monopolyumlgfr.gioco.*;
+import com.mycompany.monopolyumlgfr.metriche.Istogramma;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Esecuzione non interattiva delle interfacce testuali del Monopoly UML GFR.
+ * <p>
+ * Legge da un file (o da qualunque flusso) gli stessi comandi che un utente
+ * digiterebbe nella console, una riga per risposta, e li passa a
+ * {@link AutentificazioneConsole} e {@link GiocoConsole} senza pause. Lo script
+ * può contenere più partite di seguito: ogni partita inizia con il login
+ * multiplayer e finisce con il comando {@code 0} (Esci) del menu di gioco.
+ * </p>
+ *
+ * <h2>Esempio di script</h2>
+ * <pre>
+ * 2          numero di giocatori
+ * r          registrazione...
+ * Mario Rossi
+ * mario
+ * pwd123
+ * mario      ...e login automatico
+ * pwd123
+ * l          login
+ * luigi
+ * pwd456
+ * 1          esegui turno (ripetibile)
+ * 0          esci
+ * </pre>
+ * (i commenti a destra non fanno parte dello script)
+ *
+ * <h2>Misure</h2>
+ * Il {@link Risultato} riporta numero di partite e tempo totale. Con le metriche
+ * abilitate ({@code -Dmonopoly.metriche=true}) il tempo di ogni partita, login
+ * compresi, è registrato anche in un {@link Istogramma} e il riepilogo ne
+ * riporta i percentili.
+ * Con l'output scartato la misura comprende comunque la composizione delle schermate.
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Le due console condividono lo stesso {@link Scanner}, che legge in anticipo
+ *       dal flusso: due scanner distinti sullo stesso flusso perderebbero comandi.</li>
+ *   <li>In modalità silenziosa l'output è scartato e le partite girano in
+ *       {@linkplain Partita#setSilenziosa(boolean) modalità silenziosa}.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class EsecutoreScript {
+
+    /**
+     * Risultato di un'esecuzione.
+     */
+    public static final class Risultato {
+
+        /** Partite giocate. */
+        private final int partite;
+
+        /** Durata totale (ns). */
+        private final long nanos;
+
+        /** Durate delle singole partite. */
+        private final Istogramma durate;
+
+        private Risultato(int partite, long nanos, Istogramma durate) {
+            this.partite = partite;
+            this.nanos = nanos;
+            this.durate = durate;
+        }
+
+        /** @return numero di partite giocate */
+        public int getPartite() {
+            return partite;
+        }
+
+        /** @return durata totale dell'esecuzione in nanosecondi */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /** @return durate delle singole partite (vuoto se le metriche sono disabilitate) */
+        public Istogramma getDurate() {
+            return durate;
+        }
+
+        @Override
+        public String toString() {
+            String s = String.format("Partite: %d, tempo totale: %.1f ms", partite, nanos / 1e6);
+            if (durate.getConteggio() > 0) {
+                s += String.format(", per partita p50=%.3f ms p99=%.3f ms max=%.3f ms",
+                        durate.getP50Millis(), durate.getP99Millis(), durate.getMassimoMillis());
+            }
+            return s;
+        }
+    }
+
+    /** Sistema di autenticazione. */
+    private final Sistema sistema;
+
+    /** Destinazione dell'output delle console. */
+    private final PrintStream out;
+
+    /** True per partite silenziose. */
+    private final boolean silenzioso;
+
+    /**
+     * Crea un esecutore.
+     *
+     * @param sistema    sistema di autenticazione
+     * @param out        destinazione dell'output delle console
+     * @param silenzioso true per partite in modalità silenziosa
+     */
+    public EsecutoreScript(Sistema sistema, PrintStream out, boolean silenzioso) {
+        this.sistema = sistema;
+        this.out = out;
+        this.silenzioso = silenzioso;
+    }
+
+    /**
+     * Crea un esecutore che scarta tutto l'output e usa partite silenziose.
+     *
+     * @param sistema sistema di autenticazione
+     * @return esecutore silenzioso
+     */
+    public static EsecutoreScript silenzioso(Sistema sistema) {
+        return new EsecutoreScript(sistema, new PrintStream(OutputStream.nullOutputStream()), true);
+    }
+
+    /**
+     * Esegue tutte le partite dello script, fino alla fine del flusso.
+     *
+     * @param comandi flusso dei comandi (UTF-8)
+     * @return numero di partite e tempi
+     */
+    public Risultato esegui(InputStream comandi) {
+        Scanner scanner = new Scanner(comandi, StandardCharsets.UTF_8);
+        AutentificazioneConsole login = new AutentificazioneConsole(sistema, scanner, out);
+        RendererConsole renderer = new RendererConsole(out, false);
+        Istogramma durate = new Istogramma("script.partite");
+
+        int partite = 0;
+        long inizio = System.nanoTime();
+        while (scanner.hasNextLine()) {
+            long t0 = System.nanoTime();
+            List<Utente> utenti = login.startMultiplayer();
+            if (utenti == null) {
+                break;
+            }
+            Partita partita = new Partita(sistema);
+            for (Utente u : utenti) {
+                partita.aggiungiGiocatore(new Giocatore(u));
+            }
+            partita.setSilenziosa(silenzioso);
+            partita.setOutput(renderer.getSchermo());
+            partita.avviaPartita();
+            new GiocoConsole(partita, renderer, scanner).start();
+            durate.registra(System.nanoTime() - t0);
+            partite++;
+        }
+        return new Risultato(partite, System.nanoTime() - inizio, durate);
+    }
+}
@@ -2,7 +2,12 @@ package com.mycompany.monopolyumlgfr;
 
 import com.mycompany.monopolyumlgfr.autenticazione.*;
 import com.mycompany.monopolyumlgfr.gioco.*;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
@@ -22,7 +27,22 @@ import java.util.Scanner;
  *
  * <h2>Funzionalità principali</h2>
  * <ul>
- *   <li>Inizializza il {@link DatabaseUtenti} e il {@link Sistema} per la gestione degli utenti.</li>
+ *   <li>Inizializza il {@link DatabaseUtenti} e il {@link Sistema} per la gestione degli utenti,
+ *       precaricando l'indice degli utenti in background. L'archivio si sceglie con
+ *       {@code -Dmonopoly.database} (vedi {@link DatabaseUtenti#apri(String)}); un file XML
+ *       viene osservato per applicare le modifiche fatte dall'esterno.</li>
+ *   <li>Se abilitate ({@code -Dmonopoly.metriche=true}), esporta le metriche via JMX.</li>
+ *   <li>Con {@code -Dmonopoly.login.limite=<per utente>,<burst>,<globali>,<burst globale>}
+ *       limita i tentativi di login con un {@link LimitatoreLogin} (vedi {@link LimitatoreLogin#di(String)}).</li>
+ *   <li>Con {@code -Dmonopoly.accessi=<cartella>} annota login e registrazioni in un
+ *       {@link RegistroAccessi}, chiuso all'uscita dell'applicazione.</li>
+ *   <li>Con {@code -Dmonopoly.aste=<ms>} la partita su console mette all'asta le
+ *       proprietà rifiutate, con round della durata indicata; i giocatori offrono
+ *       dal menu di {@link GiocoConsole}.</li>
+ *   <li>Con {@code -Dmonopoly.decisioni=<ms>} la partita su console chiede ai giocatori
+ *       se acquistare e ipotecare ({@link PoliticaUmana}), con il budget indicato.</li>
+ *   <li>Con {@code --script <file>} esegue le console da uno script tramite
+ *       {@link EsecutoreScript}, senza menu iniziale; {@code --silenzioso} ne scarta l'output.</li>
  *   <li>Mostra un menu iniziale che consente di scegliere tra interfaccia grafica (Swing) e console.</li>
  *   <li>Nel caso console:
  *     <ul>
@@ -60,13 +80,49 @@ public class MonopolyUMLGFR {
      * l'interfaccia utente (grafica o console).
      * </p>
      *
-     * @param args argomenti da linea di comando (non utilizzati)
+     * @param args argomenti da linea di comando: {@code --script <file>} (oppure
+     *             {@code -} per lo standard input) e {@code --silenzioso}
      */
     public static void main(String[] args) {
 
-        // 1. Inizializza database utenti
-        DatabaseUtenti db = new DatabaseUtenti("utenti.xml");
+        if (RegistroMetriche.isAbilitato()) {
+            RegistroMetriche.esportaJmx();
+        }
+
+        // 1. Inizializza database utenti (file XML, shard o JDBC: -Dmonopoly.database=...)
+        DatabaseUtenti db = DatabaseUtenti.apri(System.getProperty("monopoly.database", "utenti.xml"));
         Sistema sistema = new Sistema(db);
+        String limite = System.getProperty("monopoly.login.limite");
+        if (limite != null) {
+            sistema.setLimitatoreLogin(LimitatoreLogin.di(limite));
+        }
+        String cartellaAccessi = System.getProperty("monopoly.accessi");
+        if (cartellaAccessi != null) {
+            RegistroAccessi accessi = new RegistroAccessi(Path.of(cartellaAccessi));
+            sistema.setRegistroAccessi(accessi);
+            Runtime.getRuntime().addShutdownHook(new Thread(accessi::close));
+        }
+        // l'indice degli utenti si costruisce mentre l'utente sceglie l'interfaccia
+        db.precaricaInBackground();
+        // le modifiche esterne al file (es. account disabilitati) arrivano all'indice senza rileggerlo a ogni login
+        if (db.isOsservabile()) {
+            OsservatoreUtenti osservatore = db.osserva();
+            Runtime.getRuntime().addShutdownHook(new Thread(osservatore::close));
+        }
+
+        String script = null;
+        boolean silenzioso = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--script".equals(args[i]) && i + 1 < args.length) {
+                script = args[++i];
+            } else if ("--silenzioso".equals(args[i])) {
+                silenzioso = true;
+            }
+        }
+        if (script != null) {
+            eseguiScript(sistema, script, silenzioso);
+            return;
+        }
 
         // 2. Chiedi all'utente quale interfaccia usare
         Scanner scanner = new Scanner(System.in);
@@ -92,10 +148,24 @@ public class MonopolyUMLGFR {
                     partita.aggiungiGiocatore(g);
                 }
 
+                // -Dmonopoly.aste=<ms>: aste per le proprietà rifiutate, con round della durata indicata
+                Long roundAste = Long.getLong("monopoly.aste");
+                CasaAste casaAste = roundAste == null ? null : new CasaAste(roundAste);
+                partita.setCasaAste(casaAste);
+
+                // -Dmonopoly.ansi=true: tabellone fisso in cima, aggiornato riga per riga
+                RendererConsole renderer = new RendererConsole(System.out, Boolean.getBoolean("monopoly.ansi"));
+                GiocoConsole giocoConsole = new GiocoConsole(partita, renderer);
+                // -Dmonopoly.decisioni=<ms>: acquisti e ipoteche decisi dai giocatori, non dalla politica avida
+                Long budgetDecisioni = Long.getLong("monopoly.decisioni");
+                if (budgetDecisioni != null) {
+                    giocoConsole.setDecisioniUmane(budgetDecisioni);
+                }
                 partita.avviaPartita();
-
-                GiocoConsole giocoConsole = new GiocoConsole(partita);
                 giocoConsole.start();
+                if (casaAste != null) {
+                    casaAste.close();
+                }
             } else {
                 System.out.println("Numero insufficiente di giocatori. Programma terminato.");
             }
@@ -119,4 +189,22 @@ public class MonopolyUMLGFR {
             });
         }
     }
+
+    /**
+     * Esegue uno script di comandi delle console e stampa il riepilogo dei tempi.
+     *
+     * @param sistema    sistema di autenticazione
+     * @param script     percorso dello script, oppure {@code -} per lo standard input
+     * @param silenzioso true per scartare l'output delle console
+     */
+    private static void eseguiScript(Sistema sistema, String script, boolean silenzioso) {
+        EsecutoreScript esecutore = silenzioso
+                ? EsecutoreScript.silenzioso(sistema)
+                : new EsecutoreScript(sistema, System.out, false);
+        try (InputStream in = "-".equals(script) ? System.in : new FileInputStream(script)) {
+            System.out.println(esecutore.esegui(in));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
 }
@@ -1,13 +1,23 @@
 package com.mycompany.monopolyumlgfr.autenticazione;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * Interfaccia testuale per l'autenticazione e registrazione degli utenti.
  * Supporta multiplayer 2–6 giocatori. Dopo un login valido, restituisce
  * l'oggetto {@link Utente} o lista di utenti al chiamante.
+ * <p>
+ * Input e output sono configurabili: con uno {@link Scanner} su un file di
+ * comandi la console può essere pilotata da uno script (vedi
+ * {@code EsecutoreScript}). Quando l'input finisce, {@link #start()} e
+ * {@link #startMultiplayer()} restituiscono null.
+ * </p>
  *
  * @author Giulio
  */
@@ -15,10 +25,32 @@ public class AutentificazioneConsole {
 
     private final Sistema sistema;
     private final Scanner scanner;
+    private final PrintStream out;
 
     public AutentificazioneConsole(Sistema sistema) {
+        this(sistema, new Scanner(System.in), System.out);
+    }
+
+    /**
+     * Costruttore con input e output personalizzati (es. modalità script).
+     *
+     * @param sistema sistema di autenticazione
+     * @param scanner sorgente dei comandi, condivisibile con {@code GiocoConsole}
+     * @param out     destinazione dei messaggi
+     */
+    public AutentificazioneConsole(Sistema sistema, Scanner scanner, PrintStream out) {
         this.sistema = sistema;
-        this.scanner = new Scanner(System.in);
+        this.scanner = scanner;
+        this.out = out;
+    }
+
+    /**
+     * Legge la riga successiva.
+     *
+     * @return la riga, oppure null se l'input è finito
+     */
+    private String leggiRiga() {
+        return scanner.hasNextLine() ? scanner.nextLine() : null;
     }
 
     /**
@@ -29,13 +61,16 @@ public class AutentificazioneConsole {
         Utente utenteAutenticato = null;
 
         while (running) {
-            System.out.println("\n=== Autenticazione Monopoly (Console) ===");
-            System.out.println("1. Login");
-            System.out.println("2. Registrati");
-            System.out.println("3. Esci");
-            System.out.print("Scelta: ");
+            out.println("\n=== Autenticazione Monopoly (Console) ===");
+            out.println("1. Login");
+            out.println("2. Registrati");
+            out.println("3. Esci");
+            out.print("Scelta: ");
 
-            String choice = scanner.nextLine();
+            String choice = leggiRiga();
+            if (choice == null) {
+                return null;
+            }
 
             switch (choice) {
                 case "1":
@@ -49,10 +84,10 @@ public class AutentificazioneConsole {
                     break;
                 case "3":
                     running = false;
-                    System.out.println("Chiusura programma.");
+                    out.println("Chiusura programma.");
                     break;
                 default:
-                    System.out.println("Scelta non valida.");
+                    out.println("Scelta non valida.");
             }
         }
 
@@ -61,104 +96,161 @@ public class AutentificazioneConsole {
 
     /**
      * Login multiplayer (2–6 giocatori) Restituisce la lista di utenti
-     * autenticati
+     * autenticati, oppure null se l'input finisce prima.
+     * <p>
+     * Le credenziali di tutti i posti vengono raccolte prima e verificate insieme
+     * con {@link Sistema#validaCredenziali(Map)}; i posti con credenziali non
+     * valide vengono richiesti di nuovo al giro successivo.
+     * </p>
      */
     public List<Utente> startMultiplayer() {
-        List<Utente> utenti = new ArrayList<>();
-        System.out.println("\n=== Login multiplayer (2–6 giocatori) ===");
+        out.println("\n=== Login multiplayer (2–6 giocatori) ===");
 
         int numGiocatori = 0;
         while (numGiocatori < 2 || numGiocatori > 6) {
-            System.out.print("Inserisci numero giocatori (2–6): ");
+            out.print("Inserisci numero giocatori (2–6): ");
+            String riga = leggiRiga();
+            if (riga == null) {
+                return null;
+            }
             try {
-                numGiocatori = Integer.parseInt(scanner.nextLine());
+                numGiocatori = Integer.parseInt(riga.trim());
                 if (numGiocatori < 2 || numGiocatori > 6) {
-                    System.out.println("Numero non valido. Deve essere tra 2 e 6.");
+                    out.println("Numero non valido. Deve essere tra 2 e 6.");
                 }
             } catch (NumberFormatException e) {
-                System.out.println("Inserisci un numero valido.");
+                out.println("Inserisci un numero valido.");
             }
         }
 
-        for (int i = 1; i <= numGiocatori; i++) {
-            System.out.println("\n--- Giocatore " + i + " ---");
-            Utente utente = null;
+        Utente[] utenti = new Utente[numGiocatori];
+        String[][] credenziali = new String[numGiocatori][];
+        List<Integer> daAutenticare = new ArrayList<>();
+        for (int i = 0; i < numGiocatori; i++) {
+            daAutenticare.add(i);
+        }
 
-            while (utente == null) {
-                System.out.print("Login o Registrazione? (l/r): ");
-                String scelta = scanner.nextLine().trim().toLowerCase();
+        while (!daAutenticare.isEmpty()) {
+            for (int i : daAutenticare) {
+                credenziali[i] = null;
+            }
+            for (int i : daAutenticare) {
+                out.println("\n--- Giocatore " + (i + 1) + " ---");
 
-                if ("l".equals(scelta)) {
-                    utente = handleLogin();
-                    if (utente == null) {
-                        System.out.println("Login fallito. Riprova.");
+                while (credenziali[i] == null) {
+                    out.print("Login o Registrazione? (l/r): ");
+                    String scelta = leggiRiga();
+                    if (scelta == null) {
+                        return null;
                     }
-                } else if ("r".equals(scelta)) {
-                    handleRegistration();
-                    // dopo registrazione tenta login automaticamente
-                    System.out.println("Effettua ora il login appena registrato:");
-                    utente = handleLogin();
-                } else {
-                    System.out.println("Scelta non valida. Inserisci 'l' o 'r'.");
-                }
+                    scelta = scelta.trim().toLowerCase();
 
-                // Controlla che non ci siano duplicati di username
-                boolean duplicato = false;
-                for (Utente u : utenti) {
-                    if (u.getUsername().equals(utente.getUsername())) {
-                        duplicato = true;
-                        break;
+                    if ("l".equals(scelta)) {
+                        credenziali[i] = leggiCredenziali();
+                    } else if ("r".equals(scelta)) {
+                        if (handleRegistration()) {
+                            // dopo registrazione tenta login automaticamente
+                            out.println("Effettua ora il login appena registrato:");
+                            credenziali[i] = leggiCredenziali();
+                        }
+                    } else {
+                        out.println("Scelta non valida. Inserisci 'l' o 'r'.");
                     }
-                }
-                if (utente != null && duplicato) {
-                    System.out.println("Username già inserito in questa partita. Riprova.");
-                    utente = null;
-                }
 
+                    // Controlla che non ci siano duplicati di username
+                    for (int j = 0; j < numGiocatori && credenziali[i] != null; j++) {
+                        if (j != i && credenziali[j] != null && credenziali[j][0].equals(credenziali[i][0])) {
+                            out.println("Username già inserito in questa partita. Riprova.");
+                            credenziali[i] = null;
+                        }
+                    }
+                }
             }
 
-            utenti.add(utente);
+            // verifica di tutti i posti in un solo passaggio
+            Map<String, String> lotto = new LinkedHashMap<>();
+            for (int i : daAutenticare) {
+                lotto.put(credenziali[i][0], credenziali[i][1]);
+            }
+            List<Utente> esiti = sistema.validaCredenziali(lotto);
+            List<Integer> falliti = new ArrayList<>();
+            for (int k = 0; k < daAutenticare.size(); k++) {
+                int i = daAutenticare.get(k);
+                utenti[i] = esiti.get(k);
+                if (utenti[i] != null) {
+                    out.println("Login effettuato per " + utenti[i].getUsername() + "!");
+                } else {
+                    out.println("Credenziali non valide per il giocatore " + (i + 1) + ". Riprova.");
+                    falliti.add(i);
+                }
+            }
+            daAutenticare = falliti;
         }
 
-        System.out.println("\nTutti i giocatori autenticati con successo!");
-        return utenti;
+        out.println("\nTutti i giocatori autenticati con successo!");
+        return new ArrayList<>(Arrays.asList(utenti));
     }
 
     /**
      * Login di un singolo utente
      */
     private Utente handleLogin() {
-        System.out.print("Username: ");
-        String user = scanner.nextLine();
-        System.out.print("Password: ");
-        String pass = scanner.nextLine();
+        String[] credenziali = leggiCredenziali();
+        if (credenziali == null) {
+            return null;
+        }
 
-        Utente utente = sistema.validaCredenziali(user, pass);
+        Utente utente = sistema.validaCredenziali(credenziali[0], credenziali[1]);
         if (utente != null) {
-            System.out.println("Login effettuato per " + utente.getUsername() + "!");
+            out.println("Login effettuato per " + utente.getUsername() + "!");
             return utente;
         } else {
-            System.out.println("Credenziali non valide.");
+            out.println("Credenziali non valide.");
             return null;
         }
     }
 
+    /**
+     * Legge username e password.
+     *
+     * @return {username, password}, oppure null se l'input è finito
+     */
+    private String[] leggiCredenziali() {
+        out.print("Username: ");
+        String user = leggiRiga();
+        out.print("Password: ");
+        String pass = leggiRiga();
+        if (user == null || pass == null) {
+            return null;
+        }
+        return new String[] {user, pass};
+    }
+
     /**
      * Registrazione di un nuovo utente
+     *
+     * @return true se sono stati letti tutti i campi
      */
-    private void handleRegistration() {
-        System.out.print("Nome: ");
-        String nome = scanner.nextLine();
-        System.out.print("Username: ");
-        String user = scanner.nextLine();
-        System.out.print("Password: ");
-        String pass = scanner.nextLine();
+    private boolean handleRegistration() {
+        out.print("Nome: ");
+        String nome = leggiRiga();
+        out.print("Username: ");
+        String user = leggiRiga();
+        out.print("Password: ");
+        String pass = leggiRiga();
+        if (nome == null || user == null || pass == null) {
+            return false;
+        }
 
         if (!nome.isEmpty() && !user.isEmpty() && !pass.isEmpty()) {
-            sistema.registraGiocatore(nome, user, pass);
-            System.out.println("Registrazione completata! Ora puoi fare login.");
+            if (sistema.registraGiocatore(nome, user, pass)) {
+                out.println("Registrazione completata! Ora puoi fare login.");
+            } else {
+                out.println("Username già in uso.");
+            }
         } else {
-            System.out.println("Compila tutti i campi per registrarti.");
+            out.println("Compila tutti i campi per registrarti.");
         }
+        return true;
     }
 }
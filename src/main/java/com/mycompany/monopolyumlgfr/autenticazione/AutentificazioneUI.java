@@ -22,6 +22,8 @@ import javax.swing.*;
  * <h2>Note</h2>
  * Tutte le operazioni di UI devono essere eseguite sull'Event Dispatch Thread (EDT).
  * Mostrare la finestra con {@code SwingUtilities.invokeLater(...)}.
+ * Login e registrazione usano le varianti asincrone di {@link Sistema}: l'EDT non
+ * attende il disco e i pulsanti restano disabilitati finché la risposta non arriva.
  *
  * @author giuli
  */
@@ -63,11 +65,11 @@ public class AutentificazioneUI extends JFrame {
      * </ul>
      * Azioni:
      * <ul>
-     *   <li>Login: valida credenziali via {@link Sistema#validaCredenziali(String, String)}.
+     *   <li>Login: valida credenziali via {@link Sistema#autenticaGiocatoreAsync(String, String)}.
      *       In caso di successo mostra un messaggio, invoca {@link LoginSuccessListener#onLoginSuccess(Utente)}
      *       e chiude la finestra.</li>
-     *   <li>Registrazione: invoca {@link Sistema#registraGiocatore(String, String, String)} se i campi sono validi,
-     *       altrimenti mostra un errore.</li>
+     *   <li>Registrazione: invoca {@link Sistema#registraGiocatoreAsync(String, String, String)} se i campi sono validi,
+     *       altrimenti mostra un errore; segnala anche gli username già in uso.</li>
      * </ul>
      * </p>
      */
@@ -84,16 +86,23 @@ public class AutentificazioneUI extends JFrame {
             String user = usernameField.getText();
             String pass = new String(passwordField.getPassword());
 
-            Utente utente = sistema.validaCredenziali(user, pass);
-            if (utente != null) {
-                JOptionPane.showMessageDialog(this, "Login effettuato!");
-                if (listener != null) {
-                    listener.onLoginSuccess(utente);
-                }
-                dispose();
-            } else {
-                JOptionPane.showMessageDialog(this, "Credenziali non valide.");
-            }
+            abilita(false, loginButton, registerButton);
+            sistema.autenticaGiocatoreAsync(user, pass).whenComplete((utente, errore) ->
+                    SwingUtilities.invokeLater(() -> {
+                        abilita(true, loginButton, registerButton);
+                        if (errore != null) {
+                            errore.printStackTrace();
+                            JOptionPane.showMessageDialog(this, "Errore durante il login.");
+                        } else if (utente != null) {
+                            JOptionPane.showMessageDialog(this, "Login effettuato!");
+                            if (listener != null) {
+                                listener.onLoginSuccess(utente);
+                            }
+                            dispose();
+                        } else {
+                            JOptionPane.showMessageDialog(this, "Credenziali non valide.");
+                        }
+                    }));
         });
 
         // --- REGISTRAZIONE ---
@@ -103,8 +112,19 @@ public class AutentificazioneUI extends JFrame {
             String pass = new String(passwordField.getPassword());
 
             if (!nome.isEmpty() && !user.isEmpty() && !pass.isEmpty()) {
-                sistema.registraGiocatore(nome, user, pass);
-                JOptionPane.showMessageDialog(this, "Registrazione completata! Ora puoi fare login.");
+                abilita(false, loginButton, registerButton);
+                sistema.registraGiocatoreAsync(nome, user, pass).whenComplete((registrato, errore) ->
+                        SwingUtilities.invokeLater(() -> {
+                            abilita(true, loginButton, registerButton);
+                            if (errore != null) {
+                                errore.printStackTrace();
+                                JOptionPane.showMessageDialog(this, "Errore durante la registrazione.");
+                            } else if (registrato) {
+                                JOptionPane.showMessageDialog(this, "Registrazione completata! Ora puoi fare login.");
+                            } else {
+                                JOptionPane.showMessageDialog(this, "Username già in uso.");
+                            }
+                        }));
             } else {
                 JOptionPane.showMessageDialog(this, "Compila tutti i campi per registrarti.");
             }
@@ -122,4 +142,13 @@ public class AutentificazioneUI extends JFrame {
 
         add(panel);
     }
+
+    /**
+     * Abilita o disabilita i pulsanti mentre una richiesta è in corso.
+     */
+    private static void abilita(boolean abilitati, JButton... pulsanti) {
+        for (JButton b : pulsanti) {
+            b.setEnabled(abilitati);
+        }
+    }
 }
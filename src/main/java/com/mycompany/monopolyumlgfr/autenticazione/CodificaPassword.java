@@ -0,0 +1,179 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.regex.Pattern;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Codifica delle password con PBKDF2 (HMAC-SHA256) e sale casuale.
+ * <p>
+ * Una password codificata ha la forma
+ * {@code pbkdf2$<iterazioni>$<sale>$<hash>}, con sale e hash in Base64:
+ * il numero di iterazioni è memorizzato insieme all'hash, quindi può essere
+ * aumentato nel tempo senza invalidare le password già salvate.
+ * </p>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>{@link #verifica(String, String)} accetta anche le password salvate in chiaro
+ *       dalle versioni precedenti, confrontandole in tempo costante e con il costo di
+ *       una verifica PBKDF2, così il tempo di risposta non distingue gli account in chiaro.</li>
+ *   <li>Un valore che inizia con {@link #PREFISSO} ma non è una codifica valida è trattato
+ *       come password in chiaro.</li>
+ *   <li>Le codifiche con più di {@link #ITERAZIONI_MASSIME} iterazioni non sono valide:
+ *       un archivio importato non può imporre verifiche arbitrariamente lente.</li>
+ *   <li>{@link #verificaFittizia(String)} ha il costo di una verifica vera: chiamata per
+ *       gli username inesistenti, non rivela dal tempo di risposta quali esistono.</li>
+ *   <li>Il numero di iterazioni predefinito si configura con la proprietà di sistema
+ *       {@code monopoly.pbkdf2.iterazioni}.</li>
+ *   <li>Thread-safe: la codifica è indipendente per ogni chiamata e può essere
+ *       eseguita in parallelo (es. {@link ImportazioneUtenti}).</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public final class CodificaPassword {
+
+    /** Prefisso delle password codificate. */
+    public static final String PREFISSO = "pbkdf2$";
+
+    /** Iterazioni predefinite. */
+    public static final int ITERAZIONI_PREDEFINITE = Integer.getInteger("monopoly.pbkdf2.iterazioni", 10_000);
+
+    /** Iterazioni massime accettate in una password memorizzata. */
+    public static final int ITERAZIONI_MASSIME = Math.max(1_000_000, ITERAZIONI_PREDEFINITE);
+
+    /** Forma di una password codificata: iterazioni, sale e hash. */
+    private static final Pattern FORMA = Pattern.compile("pbkdf2\\$[1-9][0-9]{0,9}\\$[A-Za-z0-9+/]+\\$[A-Za-z0-9+/]+");
+
+    /** Algoritmo di derivazione. */
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+
+    /** Lunghezza del sale in byte. */
+    private static final int BYTE_SALE = 16;
+
+    /** Lunghezza dell'hash in bit. */
+    private static final int BIT_HASH = 256;
+
+    /** Generatore del sale. */
+    private static final SecureRandom CASUALE = new SecureRandom();
+
+    /** Codifica con le iterazioni predefinite. */
+    private static final CodificaPassword PREDEFINITA = new CodificaPassword(ITERAZIONI_PREDEFINITE);
+
+    /** Iterazioni usate dalle nuove codifiche. */
+    private final int iterazioni;
+
+    /**
+     * Password codificata con le iterazioni predefinite, creata al primo uso.
+     */
+    private static final class Fittizia {
+        static final String CODIFICATA = PREDEFINITA.codifica("");
+    }
+
+    /**
+     * Crea una codifica con un dato numero di iterazioni.
+     *
+     * @param iterazioni iterazioni di PBKDF2 per le nuove password
+     * @throws IllegalArgumentException se {@code iterazioni <= 0}
+     */
+    public CodificaPassword(int iterazioni) {
+        if (iterazioni <= 0) {
+            throw new IllegalArgumentException("Il numero di iterazioni deve essere positivo");
+        }
+        this.iterazioni = iterazioni;
+    }
+
+    /** @return codifica con le iterazioni predefinite */
+    public static CodificaPassword predefinita() {
+        return PREDEFINITA;
+    }
+
+    /** @return iterazioni usate dalle nuove codifiche */
+    public int getIterazioni() {
+        return iterazioni;
+    }
+
+    /**
+     * Codifica una password con un nuovo sale casuale.
+     *
+     * @param password password in chiaro
+     * @return password codificata
+     */
+    public String codifica(String password) {
+        byte[] sale = new byte[BYTE_SALE];
+        CASUALE.nextBytes(sale);
+        byte[] hash = deriva(password, sale, iterazioni);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFISSO + iterazioni + "$" + b64.encodeToString(sale) + "$" + b64.encodeToString(hash);
+    }
+
+    /**
+     * Verifica se un valore memorizzato è una password codificata.
+     *
+     * @param memorizzata valore memorizzato
+     * @return true se codificata con al più {@link #ITERAZIONI_MASSIME} iterazioni,
+     *         false se in chiaro
+     */
+    public static boolean isCodificata(String memorizzata) {
+        if (!memorizzata.startsWith(PREFISSO) || !FORMA.matcher(memorizzata).matches()) {
+            return false;
+        }
+        String[] parti = memorizzata.split("\\$");
+        try {
+            Base64.getDecoder().decode(parti[2]);
+            Base64.getDecoder().decode(parti[3]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return Long.parseLong(parti[1]) <= ITERAZIONI_MASSIME;
+    }
+
+    /**
+     * Verifica una password con il valore memorizzato, codificato o in chiaro.
+     *
+     * @param password    password inserita
+     * @param memorizzata valore memorizzato
+     * @return true se corrispondono
+     */
+    public static boolean verifica(String password, String memorizzata) {
+        if (!isCodificata(memorizzata)) {
+            verificaFittizia(password);
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    memorizzata.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parti = memorizzata.split("\\$");
+        byte[] sale = Base64.getDecoder().decode(parti[2]);
+        byte[] atteso = Base64.getDecoder().decode(parti[3]);
+        return MessageDigest.isEqual(atteso, deriva(password, sale, Integer.parseInt(parti[1])));
+    }
+
+    /**
+     * Esegue una verifica destinata a fallire, con lo stesso costo della verifica
+     * di una password codificata con le iterazioni predefinite.
+     *
+     * @param password password inserita
+     */
+    public static void verificaFittizia(String password) {
+        verifica(password, Fittizia.CODIFICATA);
+    }
+
+    /**
+     * Calcola PBKDF2 di una password.
+     */
+    private static byte[] deriva(String password, byte[] sale, int iterazioni) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), sale, iterazioni, BIT_HASH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 non disponibile", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -4,16 +4,37 @@
  */
 package com.mycompany.monopolyumlgfr.autenticazione;
 
-import org.w3c.dom.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import com.mycompany.monopolyumlgfr.metriche.Contatore;
+import com.mycompany.monopolyumlgfr.metriche.Istogramma;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 
 /**
@@ -27,7 +48,7 @@ import java.util.List;
  *
  * <h2>Formato atteso del file XML</h2>
  * <pre>{@code
- * <utenti>
+ * <utenti id="..." seq="42">
  *   <utente>
  *     <nome>Mario Rossi</nome>
  *     <username>mrossi</username>
@@ -37,17 +58,124 @@ import java.util.List;
  * </utenti>
  * }</pre>
  *
+ * <h2>Lettura e scrittura</h2>
+ * Il file è letto e scritto in streaming (StAX), un utente alla volta:
+ * {@link #scorriUtenti(Consumer)} non tiene in memoria il documento e
+ * {@link #salvaUtenti(List)} copia gli utenti esistenti in un file temporaneo,
+ * vi aggiunge i nuovi e lo sostituisce atomicamente all'originale.
+ * Gli attributi {@code id} e {@code seq} dell'elemento radice (assenti nei file
+ * più vecchi) identificano l'archivio e contano i salvataggi.
+ *
+ * <h2>Indice in memoria</h2>
+ * Le ricerche per username ({@link #cerca(String)}) usano un indice in memoria
+ * costruito alla prima ricerca, oppure in anticipo con {@link #precarica()} /
+ * {@link #precaricaInBackground()} (es. mentre l'utente sceglie l'interfaccia).
+ * L'indice ricorda data di modifica, dimensione e versione ({@code id} e
+ * {@code seq}) del file: se il file cambia dall'esterno viene ricostruito alla
+ * ricerca successiva, mentre i salvataggi fatti da questa istanza lo aggiornano
+ * direttamente. Finché la data di modifica può ancora ripetersi (entro
+ * {@link #GRANULARITA_MODIFICA} ms) le ricerche confrontano anche la versione:
+ * un salvataggio di un altro processo con la stessa dimensione nello stesso
+ * istante viene così riconosciuto. Resta invisibile solo una modifica a mano
+ * che non cambia né dimensione né {@code seq} entro quell'intervallo.
+ *
+ * <h2>Modifiche esterne</h2>
+ * Con {@link #osserva()} un {@link OsservatoreUtenti} segue il file: quando viene
+ * modificato dall'esterno (es. account disabilitati a mano) {@link #ricarica()}
+ * applica all'indice solo le differenze, mentre le ricerche continuano senza
+ * attendere. Finché il file è osservato le ricerche non ne controllano più la firma.
+ *
+ * <h2>Più processi sullo stesso file</h2>
+ * Ogni processo tiene il proprio indice in memoria. I salvataggi sono serializzati
+ * tra processi da un {@link FileChannel#lock() lock} su {@code <file>.lock} (e tra
+ * istanze dello stesso processo da un lock in memoria): sotto il lock l'istanza
+ * applica prima le modifiche altrui, poi riscrive il file con {@code seq}
+ * incrementato e aggiunge gli utenti salvati al {@link GiornaleUtenti giornale}
+ * {@code <file>.giornale}. Un processo che vede cambiare il file legge solo
+ * l'intestazione e, se è rimasto indietro di pochi salvataggi, le relative righe
+ * del giornale, senza rileggere l'archivio. Le modifiche fatte a mano (che non
+ * incrementano {@code seq}) vengono riconosciute dalla firma del file e
+ * applicate con una rilettura completa.
+ *
+ * <h2>Unicità dello username</h2>
+ * {@link #salvaUtente(Utente)} rifiuta gli username già registrati. L'indice è
+ * affiancato da un {@link FiltroBloom}: il caso comune (username libero) è
+ * deciso dal filtro, e solo quando il filtro risponde "forse" la presenza è
+ * confermata sull'indice esatto.
+ *
+ * <h2>Ricerca per prefisso</h2>
+ * {@link #cercaPerPrefisso(String, int)} restituisce i primi username che iniziano
+ * con un prefisso (es. per invitare amici in una lobby) tramite un
+ * {@link IndicePrefissi}, costruito alla prima richiesta e poi aggiornato
+ * insieme all'indice.
+ *
  * <h2>Note</h2>
  * <ul>
- *   <li>La classe non è thread-safe: se usata in contesti concorrenti, proteggere accessi con sincronizzazione esterna.</li>
+ *   <li>L'indice è thread-safe e i salvataggi sullo stesso file sono serializzati,
+ *       anche tra istanze e processi diversi.</li>
  *   <li>Gli errori di I/O e parsing XML vengono stampati su stderr tramite {@code ex.printStackTrace()}.</li>
- *   <li>Non viene effettuato il controllo di unicità su {@code username} in fase di salvataggio.</li>
+ *   <li>Le alternative ({@link DatabaseUtentiShardato}, {@link DatabaseUtentiSQL}) si
+ *       scelgono da configurazione con {@link #apri(String)}.</li>
  * </ul>
  *
  * @author giuli
  */
 public class DatabaseUtenti {
 
+    /**
+     * Durata della lettura completa del file XML.
+     */
+    private static final Istogramma TEMPO_CARICA = RegistroMetriche.istogramma("database.carica");
+
+    /**
+     * Durata del salvataggio di un utente (lettura e riscrittura del file XML).
+     */
+    private static final Istogramma TEMPO_SALVA = RegistroMetriche.istogramma("database.salva");
+
+    /**
+     * Verifiche di unicità decise dal solo filtro di Bloom e confermate sull'indice.
+     */
+    private static final Contatore UNICITA_FILTRO = RegistroMetriche.contatore("database.unicita.filtro");
+    private static final Contatore UNICITA_INDICE = RegistroMetriche.contatore("database.unicita.indice");
+
+    /**
+     * Modifiche esterne applicate all'indice.
+     */
+    private static final Contatore RICARICHE = RegistroMetriche.contatore("database.ricariche");
+
+    /**
+     * Modifiche di altri processi applicate dal giornale, senza rileggere il file.
+     */
+    private static final Contatore DAL_GIORNALE = RegistroMetriche.contatore("database.giornale");
+
+    /**
+     * Lock in memoria per file: il lock su file di {@link FileChannel} è per
+     * processo, quindi due istanze dello stesso processo vanno serializzate qui.
+     */
+    private static final Map<Path, ReentrantLock> LOCK_LOCALI = new ConcurrentHashMap<>();
+
+    /**
+     * Probabilità di falso positivo del filtro di Bloom.
+     */
+    private static final double FALSI_POSITIVI = 0.01;
+
+    /**
+     * Risoluzione della data di modifica dei file (ms): due scritture entro
+     * questo intervallo possono avere la stessa data.
+     */
+    static final long GRANULARITA_MODIFICA = 2000;
+
+    /**
+     * Fabbriche StAX, thread-safe una volta configurate.
+     */
+    private static final XMLInputFactory INGRESSO = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory USCITA = XMLOutputFactory.newInstance();
+
+    static {
+        INGRESSO.setProperty(XMLInputFactory.IS_COALESCING, true);
+        INGRESSO.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
     /**
      * Nome della risorsa (es. {@code "utenti.xml"}) usata per individuare
      * il file nella working directory e nel classpath.
@@ -59,11 +187,139 @@ public class DatabaseUtenti {
      */
     private final File xmlFile;
 
+    /**
+     * Giornale dei salvataggi condiviso con gli altri processi, oppure null senza file XML.
+     */
+    private final GiornaleUtenti giornale;
+
+    /**
+     * True finché il file mancante non è stato copiato dalla risorsa del classpath.
+     */
+    private volatile boolean daCopiare;
+
+    /**
+     * Indice degli utenti per username, oppure null se non ancora costruito.
+     */
+    private volatile Indice indice;
+
+    /**
+     * Osservatori attivi sul file: se maggiore di zero le ricerche si fidano dell'indice.
+     */
+    private final AtomicInteger osservatori = new AtomicInteger();
+
+    /**
+     * True se l'ultima ricarica ha trovato il file non valido: l'osservatore la ritenta.
+     */
+    private volatile boolean ricaricaFallita;
+
+    /**
+     * Indice in memoria con la firma del file da cui è stato costruito.
+     */
+    private static final class Indice {
+
+        /** Utenti per username (più di uno solo in file precedenti al controllo di unicità). */
+        final Map<String, List<Utente>> perUsername;
+
+        /** Filtro di Bloom degli username. */
+        final FiltroBloom filtro;
+
+        /** Indice dei prefissi, oppure null finché non serve. */
+        volatile IndicePrefissi prefissi;
+
+        /** Versione del file indicizzato. */
+        final Versione versione;
+
+        /** Data di modifica del file indicizzato. */
+        final long modificato;
+
+        /** Dimensione del file indicizzato. */
+        final long dimensione;
+
+        /** Stima dei byte occupati dagli utenti della mappa. */
+        final long byteUtenti;
+
+        /**
+         * True quando la data di modifica non può più ripetersi: da quel momento
+         * data e dimensione bastano a riconoscere il file.
+         */
+        volatile boolean confermato;
+
+        Indice(Map<String, List<Utente>> perUsername, FiltroBloom filtro, Versione versione,
+                long modificato, long dimensione, long byteUtenti) {
+            this.perUsername = perUsername;
+            this.filtro = filtro;
+            this.versione = versione;
+            this.modificato = modificato;
+            this.dimensione = dimensione;
+            this.byteUtenti = byteUtenti;
+        }
+    }
+
+    /**
+     * Versione di un archivio: attributi {@code id} e {@code seq} dell'elemento radice.
+     */
+    static final class Versione {
+
+        /** Versione di un file senza attributi (creato a mano o da una versione precedente). */
+        static final Versione NESSUNA = new Versione(null, 0);
+
+        /** Identificativo dell'archivio, assegnato al primo salvataggio; null se assente. */
+        final String id;
+
+        /** Numero di salvataggi. */
+        final long seq;
+
+        Versione(String id, long seq) {
+            this.id = id;
+            this.seq = seq;
+        }
+
+        /**
+         * Legge la versione dagli attributi dell'elemento corrente.
+         */
+        static Versione di(XMLStreamReader r) {
+            String id = r.getAttributeValue(null, "id");
+            try {
+                return id == null ? NESSUNA : new Versione(id, Long.parseLong(r.getAttributeValue(null, "seq")));
+            } catch (NumberFormatException e) {
+                return NESSUNA;
+            }
+        }
+
+        /**
+         * @return versione del salvataggio successivo
+         */
+        Versione successiva() {
+            return id == null ? new Versione(UUID.randomUUID().toString(), 1) : new Versione(id, seq + 1);
+        }
+
+        /**
+         * @return true se {@code altra} è una versione successiva dello stesso archivio
+         */
+        boolean precede(Versione altra) {
+            return id != null && id.equals(altra.id) && seq < altra.seq;
+        }
+
+        /**
+         * @return true se {@code altra} è la stessa versione dello stesso archivio
+         */
+        boolean uguale(Versione altra) {
+            return altra != null && Objects.equals(id, altra.id) && seq == altra.seq;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + seq;
+        }
+    }
+
     /**
      * Crea un archivio utenti basato su un file XML.
      * <p>
      * Se il file indicato da {@code resourceName} non esiste nella working directory,
-     * tenta di copiarlo dalle risorse del classpath (percorso {@code "/" + resourceName}).
+     * viene copiato dalle risorse del classpath (percorso {@code "/" + resourceName})
+     * al primo accesso, ad esempio da {@link #precaricaInBackground()}: il costruttore
+     * verifica solo che la risorsa esista.
      * </p>
      *
      * @param resourceName nome del file XML (e risorsa nel classpath), es. {@code "utenti.xml"}
@@ -72,87 +328,854 @@ public class DatabaseUtenti {
     public DatabaseUtenti(String resourceName) {
         this.resourceName = resourceName;
         this.xmlFile = new File(resourceName);
+        this.giornale = new GiornaleUtenti(Paths.get(resourceName + ".giornale"));
+
+        // Se il file non esiste nella working dir, sarà copiato da resources al primo accesso
+        if (!xmlFile.exists()) {
+            if (getClass().getResource("/" + resourceName) == null) {
+                throw new IllegalStateException("Risorsa non trovata: " + resourceName);
+            }
+            daCopiare = true;
+        }
+    }
 
-        // Se il file non esiste nella working dir, copia da resources
+    /**
+     * Copia il file dalle risorse del classpath, se il costruttore l'ha trovato mancante.
+     */
+    private synchronized void copiaRisorsa() {
+        if (!daCopiare) {
+            return;
+        }
         if (!xmlFile.exists()) {
             try (InputStream is = getClass().getResourceAsStream("/" + resourceName)) {
-                if (is == null) {
-                    throw new IllegalStateException("Risorsa non trovata: " + resourceName);
-                }
                 Files.copy(is, xmlFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+        daCopiare = false;
+    }
+
+    /**
+     * Crea un archivio utenti su un file XML qualunque, senza risorsa nel classpath.
+     * <p>
+     * Se il file non esiste viene creato vuoto.
+     * </p>
+     *
+     * @param xmlFile file XML dell'archivio
+     */
+    public DatabaseUtenti(File xmlFile) {
+        this.resourceName = xmlFile.getName();
+        this.xmlFile = xmlFile;
+        this.giornale = new GiornaleUtenti(Paths.get(xmlFile.getPath() + ".giornale"));
+
+        if (!xmlFile.exists()) {
+            try {
+                Files.writeString(xmlFile.toPath(), "<utenti></utenti>");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Costruttore per le sottoclassi che non memorizzano gli utenti in un
+     * unico file (es. {@link DatabaseUtentiShardato}). Le sottoclassi devono
+     * ridefinire tutte le operazioni pubbliche.
+     */
+    protected DatabaseUtenti() {
+        this.resourceName = null;
+        this.xmlFile = null;
+        this.giornale = null;
+    }
+
+    /**
+     * Apre l'archivio indicato da una configurazione, in modo che
+     * {@link Sistema} non dipenda dall'implementazione scelta.
+     * <ul>
+     *   <li>{@code jdbc:...}: {@link DatabaseUtentiSQL} su quell'URL; utente, password e
+     *       dimensione del pool dalle proprietà {@code monopoly.database.utente},
+     *       {@code monopoly.database.password} e {@code monopoly.database.connessioni};</li>
+     *   <li>{@code shard:<base>:<n>}: {@link DatabaseUtentiShardato} con {@code n} shard iniziali;</li>
+     *   <li>altrimenti: file XML (es. {@code utenti.xml}), copiato dalle risorse se manca.</li>
+     * </ul>
+     *
+     * @param configurazione configurazione, es. il valore di {@code -Dmonopoly.database}
+     * @return archivio utenti
+     * @throws IllegalArgumentException se la configurazione {@code shard:} non è valida
+     */
+    public static DatabaseUtenti apri(String configurazione) {
+        if (configurazione.startsWith("jdbc:")) {
+            return new DatabaseUtentiSQL(configurazione,
+                    System.getProperty("monopoly.database.utente", ""),
+                    System.getProperty("monopoly.database.password", ""),
+                    Integer.getInteger("monopoly.database.connessioni", DatabaseUtentiSQL.CONNESSIONI_PREDEFINITE));
+        }
+        if (configurazione.startsWith("shard:")) {
+            int separatore = configurazione.lastIndexOf(':');
+            try {
+                return new DatabaseUtentiShardato(configurazione.substring(6, separatore),
+                        Integer.parseInt(configurazione.substring(separatore + 1)));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Configurazione non valida, atteso shard:<base>:<n>: "
+                        + configurazione, e);
+            }
+        }
+        return new DatabaseUtenti(configurazione);
     }
 
     /**
      * Carica tutti gli utenti dal file XML.
      * <p>
-     * Effettua il parsing del documento, estrae i nodi {@code <utente>} e
-     * costruisce la lista di istanze {@link Utente}. Gli elementi attesi sono
+     * Legge il documento in streaming ed estrae gli elementi {@code <utente>},
+     * costruendo la lista di istanze {@link Utente}. Gli elementi attesi sono
      * {@code <nome>}, {@code <username>} e {@code <password>}.
      * </p>
      *
-     * @return lista di utenti caricati; se si verifica un errore, ritorna una lista vuota
+     * @return lista di utenti caricati; se si verifica un errore, ritorna gli utenti letti fino a quel punto
      */
     public List<Utente> caricaUtenti() {
+        long t0 = RegistroMetriche.inizio();
         List<Utente> utenti = new ArrayList<>();
-        try {
-            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            Document doc = builder.parse(xmlFile);
-            doc.getDocumentElement().normalize();
-
-            NodeList lista = doc.getElementsByTagName("utente");
-            for (int i = 0; i < lista.getLength(); i++) {
-                Element e = (Element) lista.item(i);
-                String nome = e.getElementsByTagName("nome").item(0).getTextContent();
-                String username = e.getElementsByTagName("username").item(0).getTextContent();
-                String password = e.getElementsByTagName("password").item(0).getTextContent();
-                utenti.add(new Utente(nome, username, password));
-            }
+        scorriUtenti(utenti::add);
+        TEMPO_CARICA.fine(t0);
+        return utenti;
+    }
+
+    /**
+     * Passa gli utenti del file, nell'ordine, a un'azione, senza tenerli in memoria
+     * (es. per esportare un archivio molto grande).
+     *
+     * @param azione azione da eseguire per ogni utente
+     */
+    public void scorriUtenti(Consumer<Utente> azione) {
+        if (daCopiare) {
+            copiaRisorsa();
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile), 1 << 16)) {
+            leggiUtenti(in, azione);
         } catch (Exception ex) {
             ex.printStackTrace();
         }
-        return utenti;
     }
 
     /**
      * Aggiunge un nuovo utente al file XML e persiste la modifica.
      * <p>
-     * L'utente viene serializzato come nuovo nodo {@code <utente>} sotto il root.
-     * Il documento risultante viene scritto su disco con indentazione abilitata.
+     * L'utente viene serializzato come nuovo elemento {@code <utente>} in fondo al root.
      * </p>
      *
      * @param u utente da salvare; deve avere campi valorizzati (nome, username, password)
+     * @return true se salvato, false se lo username è già registrato
+     */
+    public boolean salvaUtente(Utente u) {
+        return salvaUtenti(List.of(u)) == 1;
+    }
+
+    /**
+     * Aggiunge più utenti al file XML con una sola lettura e una sola riscrittura.
+     * <p>
+     * Gli utenti con username già registrato (o ripetuto nella lista) vengono saltati.
+     * Gli utenti esistenti sono copiati in streaming in un file temporaneo, seguiti
+     * dai nuovi; il file temporaneo sostituisce poi atomicamente l'originale, quindi
+     * un errore a metà scrittura non lo danneggia.
+     * </p>
+     * <p>
+     * Il salvataggio avviene con il lock del file: prima vengono applicate
+     * all'indice le modifiche degli altri processi, così l'unicità è verificata
+     * sull'archivio aggiornato; dopo la sostituzione gli utenti salvati sono
+     * aggiunti al giornale con il nuovo numero di sequenza.
+     * </p>
+     *
+     * @param nuovi utenti da salvare, nell'ordine
+     * @return numero di utenti salvati
+     */
+    @SuppressWarnings("try") // il lock serve solo a tenere il file bloccato fino alla fine del blocco
+    public synchronized int salvaUtenti(List<Utente> nuovi) {
+        long t0 = RegistroMetriche.inizio();
+        ReentrantLock locale = LOCK_LOCALI.computeIfAbsent(xmlFile.toPath().toAbsolutePath().normalize(),
+                k -> new ReentrantLock());
+        File tmp = new File(xmlFile.getPath() + ".tmp");
+        locale.lock();
+        try (FileChannel canale = FileChannel.open(Paths.get(xmlFile.getPath() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = canale.lock()) {
+            Indice prima = indiceAggiornato();
+            if (!valido(prima) && xmlFile.exists()) {
+                // modifica di un altro processo (o a mano) non ancora applicata: va
+                // applicata prima, altrimenti la firma del file riscritto la nasconderebbe
+                ricarica();
+                prima = indice;
+            }
+            List<Utente> daSalvare = new ArrayList<>(nuovi.size());
+            Set<String> nelLotto = new HashSet<>();
+            for (Utente u : nuovi) {
+                if (!esiste(prima, u.getUsername()) && nelLotto.add(u.getUsername())) {
+                    daSalvare.add(u);
+                }
+            }
+            if (daSalvare.isEmpty()) {
+                return 0;
+            }
+            Versione attuale = leggiVersione();
+            // file cambiato dopo l'ultimo salvataggio registrato (es. a mano): il
+            // giornale non lo descrive, quindi chi è indietro deve rileggere il file
+            boolean aMano = attuale == null
+                    || !ultimoSalvataggio(canale).equals(firma(attuale, xmlFile.lastModified(), xmlFile.length()));
+            Versione nuova = (attuale == null ? Versione.NESSUNA : attuale).successiva();
+            try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile), 1 << 16);
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16);
+                 ScrittoreXml scrittore = new ScrittoreXml(out, nuova)) {
+                leggiUtenti(in, scrittore::scrivi);
+                for (Utente u : daSalvare) {
+                    scrittore.scrivi(u);
+                }
+            }
+            Files.move(tmp.toPath(), xmlFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long modificato = xmlFile.lastModified();
+            long dimensione = xmlFile.length();
+            try {
+                giornale.aggiungi(nuova.id, nuova.seq, daSalvare, aMano);
+            } catch (IOException ex) {
+                // la sequenza mancante fa rileggere il file a chi è indietro
+                ex.printStackTrace();
+            }
+            registraSalvataggio(canale, firma(nuova, modificato, dimensione));
+            aggiungiAllIndice(prima, daSalvare, nuova, modificato, dimensione);
+            return daSalvare.size();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            tmp.delete();
+            indice = null;
+            return 0;
+        } finally {
+            locale.unlock();
+            TEMPO_SALVA.fine(t0);
+        }
+    }
+
+    /**
+     * Firma di un salvataggio, registrata nel file di lock: versione, data di
+     * modifica e dimensione del file scritto.
+     */
+    private static String firma(Versione v, long modificato, long dimensione) {
+        return v + " " + modificato + " " + dimensione;
+    }
+
+    /**
+     * Legge la firma dell'ultimo salvataggio dal file di lock; stringa vuota se manca.
+     */
+    private static String ultimoSalvataggio(FileChannel canale) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(canale.size(), 1024));
+        while (buf.hasRemaining() && canale.read(buf, buf.position()) > 0) {
+            // legge fino alla fine
+        }
+        return new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sostituisce la firma dell'ultimo salvataggio nel file di lock.
+     */
+    private static void registraSalvataggio(FileChannel canale, String firma) throws IOException {
+        canale.truncate(0);
+        ByteBuffer buf = ByteBuffer.wrap(firma.getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            canale.write(buf, buf.position());
+        }
+    }
+
+    /**
+     * Controlla se l'indice corrisponde ancora al file.
+     * <p>
+     * Data di modifica e dimensione bastano quando la data non può più ripetersi;
+     * altrimenti viene letta anche la versione dall'elemento radice.
+     * </p>
+     *
+     * @param i indice da controllare
+     * @return true se il file non è cambiato dalla costruzione dell'indice
+     */
+    private boolean valido(Indice i) {
+        if (i.modificato != xmlFile.lastModified() || i.dimensione != xmlFile.length()) {
+            return false;
+        }
+        if (i.confermato || i.modificato == 0) {
+            // data 0: il file mancava e manca ancora
+            return true;
+        }
+        // letto prima della versione: una scrittura successiva cambia comunque la data
+        boolean definitivo = System.currentTimeMillis() - i.modificato > GRANULARITA_MODIFICA;
+        if (!i.versione.uguale(leggiVersione())) {
+            return false;
+        }
+        i.confermato = definitivo;
+        return true;
+    }
+
+    /**
+     * Legge la versione dall'elemento radice, senza leggere gli utenti.
+     *
+     * @return versione del file; null se il file non è leggibile
      */
-    public void salvaUtente(Utente u) {
+    private Versione leggiVersione() {
+        try (InputStream in = new FileInputStream(xmlFile)) {
+            XMLStreamReader r = INGRESSO.createXMLStreamReader(in);
+            try {
+                while (r.hasNext()) {
+                    if (r.next() == XMLStreamConstants.START_ELEMENT) {
+                        return Versione.di(r);
+                    }
+                }
+                return Versione.NESSUNA;
+            } finally {
+                r.close();
+            }
+        } catch (IOException | XMLStreamException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Elimina il file XML di un archivio insieme al giornale.
+     * <p>
+     * Il file di lock resta: un altro processo può averlo aperto o essere in
+     * attesa del lock, ed eliminarlo permetterebbe a un terzo di crearne uno
+     * nuovo e di salvare insieme a lui.
+     * </p>
+     *
+     * @param xmlFile file XML dell'archivio
+     */
+    static void eliminaFile(File xmlFile) {
+        xmlFile.delete();
+        new File(xmlFile.getPath() + ".giornale").delete();
+    }
+
+    /**
+     * Legge in streaming gli elementi {@code <utente>} di un documento XML.
+     * Gli elementi senza username o password sono ignorati.
+     *
+     * @param in     documento nel formato dell'archivio
+     * @param azione azione da eseguire per ogni utente
+     * @return versione letta dall'elemento radice
+     * @throws XMLStreamException se il documento non è XML valido
+     */
+    static Versione leggiUtenti(InputStream in, Consumer<Utente> azione) throws XMLStreamException {
+        XMLStreamReader r = INGRESSO.createXMLStreamReader(in);
         try {
-            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            Document doc = builder.parse(xmlFile);
+            Versione versione = null;
+            String nome = null;
+            String username = null;
+            String password = null;
+            while (r.hasNext()) {
+                int evento = r.next();
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    if (versione == null) {
+                        versione = Versione.di(r);
+                    }
+                    String tag = r.getLocalName();
+                    if (tag.equals("utente")) {
+                        nome = null;
+                        username = null;
+                        password = null;
+                    } else if (tag.equals("nome")) {
+                        nome = r.getElementText();
+                    } else if (tag.equals("username")) {
+                        username = r.getElementText();
+                    } else if (tag.equals("password")) {
+                        password = r.getElementText();
+                    }
+                } else if (evento == XMLStreamConstants.END_ELEMENT && r.getLocalName().equals("utente")
+                        && username != null && password != null) {
+                    azione.accept(new Utente(nome == null ? "" : nome, username, password));
+                }
+            }
+            return versione == null ? Versione.NESSUNA : versione;
+        } finally {
+            r.close();
+        }
+    }
+
+    /**
+     * Scrive in streaming un documento nel formato dell'archivio, con
+     * l'indentazione dei file esistenti. Alla chiusura completa il documento
+     * senza chiudere il flusso sottostante.
+     */
+    static final class ScrittoreXml implements AutoCloseable {
+
+        /** Writer StAX. */
+        private final XMLStreamWriter w;
+
+        /**
+         * Scrive l'intestazione e apre l'elemento {@code <utenti>}, senza versione.
+         *
+         * @param out flusso di destinazione
+         * @throws XMLStreamException in caso di errore di scrittura
+         */
+        ScrittoreXml(OutputStream out) throws XMLStreamException {
+            this(out, null);
+        }
+
+        /**
+         * Scrive l'intestazione e apre l'elemento {@code <utenti>}.
+         *
+         * @param out      flusso di destinazione
+         * @param versione versione da scrivere negli attributi della radice, oppure null
+         * @throws XMLStreamException in caso di errore di scrittura
+         */
+        ScrittoreXml(OutputStream out, Versione versione) throws XMLStreamException {
+            w = USCITA.createXMLStreamWriter(out, "UTF-8");
+            w.writeStartDocument("UTF-8", "1.0");
+            w.writeCharacters("\n");
+            w.writeStartElement("utenti");
+            if (versione != null && versione.id != null) {
+                w.writeAttribute("id", versione.id);
+                w.writeAttribute("seq", Long.toString(versione.seq));
+            }
+        }
+
+        /**
+         * Scrive un elemento {@code <utente>}.
+         *
+         * @param u utente da scrivere
+         * @throws IllegalStateException in caso di errore di scrittura
+         */
+        void scrivi(Utente u) {
+            try {
+                w.writeCharacters("\n    ");
+                w.writeStartElement("utente");
+                campo("nome", u.getNome());
+                campo("username", u.getUsername());
+                campo("password", u.getPassword());
+                w.writeCharacters("\n    ");
+                w.writeEndElement();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException("Errore di scrittura XML", e);
+            }
+        }
+
+        private void campo(String tag, String valore) throws XMLStreamException {
+            w.writeCharacters("\n        ");
+            w.writeStartElement(tag);
+            w.writeCharacters(valore);
+            w.writeEndElement();
+        }
+
+        @Override
+        public void close() throws XMLStreamException {
+            w.writeCharacters("\n");
+            w.writeEndElement();
+            w.writeCharacters("\n");
+            w.writeEndDocument();
+            w.flush();
+            w.close();
+        }
+    }
+
+    /**
+     * Cerca gli utenti con un dato username.
+     * <p>
+     * Usa l'indice in memoria: il file viene letto solo alla prima ricerca
+     * (se non è stato precaricato) o dopo una modifica esterna.
+     * </p>
+     *
+     * @param username username da cercare
+     * @return utenti con quello username (di norma al più uno); lista vuota se nessuno
+     */
+    public List<Utente> cerca(String username) {
+        List<Utente> trovati = indiceAggiornato().perUsername.get(username);
+        return trovati == null ? List.of() : Collections.unmodifiableList(trovati);
+    }
+
+    /**
+     * Cerca più username con un solo controllo dell'indice (es. i posti di una
+     * lobby): il file viene riletto al più una volta per tutto il gruppo.
+     *
+     * @param username username da cercare
+     * @return per ogni username, gli utenti trovati (lista vuota se nessuno)
+     */
+    public Map<String, List<Utente>> cercaTutti(Collection<String> username) {
+        Indice i = indiceAggiornato();
+        Map<String, List<Utente>> trovati = new HashMap<>();
+        for (String u : username) {
+            List<Utente> l = i.perUsername.get(u);
+            trovati.put(u, l == null ? List.of() : Collections.unmodifiableList(l));
+        }
+        return trovati;
+    }
+
+    /**
+     * Verifica se uno username è già registrato.
+     * <p>
+     * Se il filtro di Bloom lo esclude la risposta è immediata; altrimenti
+     * viene confermata sull'indice esatto.
+     * </p>
+     *
+     * @param username username da verificare
+     * @return true se esiste un utente con quello username
+     */
+    public boolean esiste(String username) {
+        return esiste(indiceAggiornato(), username);
+    }
 
-            Element root = doc.getDocumentElement();
-            Element nuovo = doc.createElement("utente");
+    /**
+     * Restituisce i primi username, in ordine alfabetico, che iniziano con un prefisso.
+     * <p>
+     * La prima chiamata ordina gli username; le successive costano una ricerca
+     * binaria più i risultati, senza leggere il file.
+     * </p>
+     *
+     * @param prefisso prefisso cercato
+     * @param k        numero massimo di risultati
+     * @return al più {@code k} username
+     */
+    public List<String> cercaPerPrefisso(String prefisso, int k) {
+        Indice i = indiceAggiornato();
+        IndicePrefissi p = i.prefissi;
+        if (p == null) {
+            synchronized (this) {
+                p = i.prefissi;
+                if (p == null) {
+                    p = IndicePrefissi.di(i.perUsername.keySet());
+                    i.prefissi = p;
+                }
+            }
+        }
+        return p.cerca(prefisso, k);
+    }
 
-            Element nome = doc.createElement("nome");
-            nome.appendChild(doc.createTextNode(u.getNome()));
-            nuovo.appendChild(nome);
+    /**
+     * Verifica uno username su un indice: prima il filtro, poi la mappa.
+     */
+    private static boolean esiste(Indice i, String username) {
+        if (!i.filtro.forsePresente(username)) {
+            UNICITA_FILTRO.incrementa();
+            return false;
+        }
+        UNICITA_INDICE.incrementa();
+        return i.perUsername.containsKey(username);
+    }
 
-            Element username = doc.createElement("username");
-            username.appendChild(doc.createTextNode(u.getUsername()));
-            nuovo.appendChild(username);
+    /**
+     * Costruisce l'indice in memoria, se non è già aggiornato.
+     */
+    public void precarica() {
+        indiceAggiornato();
+    }
 
-            Element password = doc.createElement("password");
-            password.appendChild(doc.createTextNode(u.getPassword()));
-            nuovo.appendChild(password);
+    /**
+     * Costruisce l'indice in memoria su un thread in background.
+     * <p>
+     * Una ricerca che arriva prima della fine attende l'indice in costruzione
+     * invece di leggere di nuovo il file.
+     * </p>
+     *
+     * @return future completato quando l'indice è pronto
+     */
+    public CompletableFuture<Void> precaricaInBackground() {
+        return CompletableFuture.runAsync(this::precarica, r -> {
+            Thread t = new Thread(r, "precarica-utenti");
+            t.setDaemon(true);
+            t.start();
+        });
+    }
 
-            root.appendChild(nuovo);
+    /**
+     * Libera l'indice in memoria (es. archivio inattivo in un {@link RegistroTenant}).
+     * <p>
+     * Le operazioni successive funzionano come dopo l'apertura: la prima
+     * ricerca rilegge il file. Le ricerche in corso terminano sull'indice che
+     * stavano usando.
+     * </p>
+     */
+    public synchronized void scarica() {
+        indice = null;
+    }
 
-            Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes"); // formattazione
-            transformer.transform(new DOMSource(doc), new StreamResult(xmlFile));
+    /**
+     * Stima la memoria occupata dall'indice: utenti, filtro di Bloom e indice dei prefissi.
+     *
+     * @return byte stimati; 0 se l'indice non è caricato
+     */
+    public long memoriaStimata() {
+        Indice i = indice;
+        if (i == null) {
+            return 0;
+        }
+        IndicePrefissi p = i.prefissi;
+        return i.byteUtenti + i.filtro.getNumeroBit() / 8 + (p == null ? 0 : 8L * p.dimensione());
+    }
+
+    /**
+     * Restituisce l'indice, costruendolo se manca e aggiornandolo se il file è cambiato.
+     * Se il file è stato eliminato (es. shard sostituito da una ridistribuzione)
+     * resta valido l'indice dell'ultima lettura.
+     */
+    private Indice indiceAggiornato() {
+        if (daCopiare) {
+            copiaRisorsa();
+        }
+        Indice i = indice;
+        if (i != null && (osservatori.get() > 0 || valido(i))) {
+            return i;
+        }
+        synchronized (this) {
+            i = indice;
+            if (i == null) {
+                i = leggiIndice();
+                indice = i;
+                ricaricaFallita = false;
+            } else if (!valido(i) && xmlFile.exists()) {
+                if (applicaModifiche(i) < 0) {
+                    indice = leggiIndice();
+                    ricaricaFallita = false;
+                }
+                i = indice;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Costruisce l'indice leggendo l'intero file. Chiamato con il lock dell'istanza.
+     */
+    private Indice leggiIndice() {
+        long t0 = RegistroMetriche.inizio();
+        long modificato = xmlFile.lastModified();
+        long dimensione = xmlFile.length();
+        Map<String, List<Utente>> perUsername = new ConcurrentHashMap<>();
+        long[] byteUtenti = new long[1];
+        Versione versione = Versione.NESSUNA;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile), 1 << 16)) {
+            versione = leggiUtenti(in, u -> {
+                perUsername.computeIfAbsent(u.getUsername(), k -> new ArrayList<>(1)).add(u);
+                byteUtenti[0] += stimaByte(u);
+            });
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+        TEMPO_CARICA.fine(t0);
+        return new Indice(perUsername, nuovoFiltro(perUsername.keySet()), versione, modificato, dimensione,
+                byteUtenti[0]);
+    }
+
+    /**
+     * Applica all'indice le modifiche fatte al file dall'esterno.
+     * <p>
+     * Se il file è stato salvato da un altro processo e il giornale copre i
+     * salvataggi mancanti, all'indice vengono aggiunti solo gli utenti del
+     * giornale, leggendo del file la sola intestazione. Altrimenti il file viene
+     * riletto e confrontato con l'indice: gli username spariti vengono rimossi,
+     * quelli nuovi o con dati cambiati aggiornati, in loco.
+     * Le ricerche in corso non attendono e vedono ogni username prima o dopo
+     * la modifica. Se il file non è cambiato dall'ultima lettura o scrittura di
+     * questa istanza, oppure non è XML valido (es. a metà di un salvataggio
+     * esterno), l'indice resta invariato.
+     * </p>
+     *
+     * @return numero di username aggiunti, rimossi o modificati
+     */
+    public synchronized int ricarica() {
+        Indice prima = indice;
+        if (prima == null || valido(prima) || !xmlFile.exists()) {
+            // senza indice (mai costruito o scaricato) la prossima ricerca legge il file
+            ricaricaFallita = false;
+            return 0;
+        }
+        return Math.max(0, applicaModifiche(prima));
+    }
+
+    /**
+     * Porta l'indice allo stato del file, dal giornale o confrontandolo con il file.
+     * Chiamato con il lock dell'istanza.
+     *
+     * @param prima indice da aggiornare
+     * @return numero di username cambiati; -1 se il file non è XML valido
+     */
+    private int applicaModifiche(Indice prima) {
+        long modificato = xmlFile.lastModified();
+        long dimensione = xmlFile.length();
+        Versione attuale = leggiVersione();
+        if (attuale != null && prima.versione.precede(attuale)) {
+            try {
+                List<Utente> salvati = giornale.dopo(attuale.id, prima.versione.seq, attuale.seq);
+                if (salvati != null) {
+                    aggiungiAllIndice(prima, salvati, attuale, modificato, dimensione);
+                    ricaricaFallita = false;
+                    DAL_GIORNALE.incrementa();
+                    RICARICHE.incrementa();
+                    return salvati.size();
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+
+        Map<String, List<Utente>> letti = new HashMap<>();
+        Versione versione;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile), 1 << 16)) {
+            versione = leggiUtenti(in, u -> letti.computeIfAbsent(u.getUsername(), k -> new ArrayList<>(1)).add(u));
         } catch (Exception ex) {
             ex.printStackTrace();
+            ricaricaFallita = true;
+            return -1;
+        }
+
+        Map<String, List<Utente>> perUsername = prima.perUsername;
+        FiltroBloom filtro = prima.filtro;
+        int cambiati = 0;
+        boolean rimossi = false;
+        List<String> aggiunti = new ArrayList<>();
+        for (Iterator<String> it = perUsername.keySet().iterator(); it.hasNext(); ) {
+            if (!letti.containsKey(it.next())) {
+                it.remove();
+                rimossi = true;
+                cambiati++;
+            }
+        }
+        for (Map.Entry<String, List<Utente>> e : letti.entrySet()) {
+            List<Utente> vecchi = perUsername.get(e.getKey());
+            if (vecchi == null) {
+                perUsername.put(e.getKey(), e.getValue());
+                filtro.aggiungi(e.getKey());
+                aggiunti.add(e.getKey());
+                cambiati++;
+            } else if (!uguali(vecchi, e.getValue())) {
+                perUsername.put(e.getKey(), e.getValue());
+                cambiati++;
+            }
+        }
+        if (perUsername.size() > filtro.getCapacità()) {
+            filtro = nuovoFiltro(perUsername.keySet());
+        }
+        long byteUtenti = 0;
+        for (List<Utente> utenti : perUsername.values()) {
+            for (Utente u : utenti) {
+                byteUtenti += stimaByte(u);
+            }
+        }
+        Indice nuovo = new Indice(perUsername, filtro, versione, modificato, dimensione, byteUtenti);
+        // con username rimossi l'indice dei prefissi si ricostruisce alla prossima richiesta
+        if (prima.prefissi != null && !rimossi) {
+            nuovo.prefissi = prima.prefissi.con(aggiunti);
+        }
+        indice = nuovo;
+        ricaricaFallita = false;
+        RICARICHE.incrementa();
+        return cambiati;
+    }
+
+    /**
+     * Confronta gli utenti di uno username campo per campo.
+     */
+    private static boolean uguali(List<Utente> a, List<Utente> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            Utente x = a.get(i);
+            Utente y = b.get(i);
+            if (!x.getNome().equals(y.getNome()) || !x.getPassword().equals(y.getPassword())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inizia a osservare il file per applicare all'indice le modifiche esterne.
+     *
+     * @return osservatore da chiudere per smettere di osservare
+     * @throws IllegalStateException se l'archivio non è un singolo file XML o non può essere osservato
+     */
+    public OsservatoreUtenti osserva() {
+        if (xmlFile == null) {
+            throw new IllegalStateException("Archivio senza un file XML da osservare");
+        }
+        try {
+            return new OsservatoreUtenti(this, xmlFile.toPath());
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossibile osservare " + xmlFile, e);
+        }
+    }
+
+    /**
+     * @return true se l'archivio è un singolo file XML che può essere osservato
+     */
+    public boolean isOsservabile() {
+        return xmlFile != null;
+    }
+
+    /**
+     * @return true se l'ultima ricarica ha trovato il file non valido (es. a metà
+     *         di un salvataggio esterno) e va ritentata
+     */
+    boolean isRicaricaFallita() {
+        return ricaricaFallita;
+    }
+
+    /**
+     * Registra l'inizio o la fine di un'osservazione; chiamato da {@link OsservatoreUtenti}.
+     */
+    void osservato(boolean attivo) {
+        if (attivo) {
+            osservatori.incrementAndGet();
+        } else {
+            osservatori.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stima dei byte di un utente nell'indice: oggetto, tre stringhe (compatte),
+     * lista e voce della mappa.
+     */
+    private static long stimaByte(Utente u) {
+        return 240 + u.getNome().length() + u.getUsername().length() + u.getPassword().length();
+    }
+
+    /**
+     * Crea un filtro di Bloom per gli username, con spazio per il doppio degli utenti attuali.
+     */
+    private static FiltroBloom nuovoFiltro(Set<String> username) {
+        FiltroBloom filtro = new FiltroBloom(Math.max(1024, 2 * username.size()), FALSI_POSITIVI);
+        for (String u : username) {
+            filtro.aggiungi(u);
+        }
+        return filtro;
+    }
+
+    /**
+     * Aggiunge all'indice (in loco) gli utenti appena salvati e ne aggiorna la firma.
+     * Il filtro di Bloom viene ricostruito più grande quando supera la capacità;
+     * l'indice dei prefissi, se già costruito, viene esteso.
+     * Chiamato con il lock dell'istanza.
+     *
+     * @param prima      indice aggiornato prima del salvataggio
+     * @param nuovi      utenti salvati
+     * @param versione   versione del file dopo il salvataggio
+     * @param modificato data di modifica del file dopo il salvataggio
+     * @param dimensione dimensione del file dopo il salvataggio
+     */
+    private void aggiungiAllIndice(Indice prima, List<Utente> nuovi, Versione versione,
+            long modificato, long dimensione) {
+        Map<String, List<Utente>> perUsername = prima.perUsername;
+        FiltroBloom filtro = prima.filtro;
+        long byteUtenti = prima.byteUtenti;
+        for (Utente u : nuovi) {
+            perUsername.put(u.getUsername(), List.of(u));
+            filtro.aggiungi(u.getUsername());
+            byteUtenti += stimaByte(u);
+        }
+        if (perUsername.size() > filtro.getCapacità()) {
+            filtro = nuovoFiltro(perUsername.keySet());
+        }
+        Indice nuovo = new Indice(perUsername, filtro, versione, modificato, dimensione, byteUtenti);
+        if (prima.prefissi != null) {
+            List<String> nomi = new ArrayList<>(nuovi.size());
+            for (Utente u : nuovi) {
+                nomi.add(u.getUsername());
+            }
+            nuovo.prefissi = prima.prefissi.con(nomi);
         }
+        indice = nuovo;
     }
 }
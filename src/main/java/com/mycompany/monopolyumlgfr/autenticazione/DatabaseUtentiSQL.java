@@ -0,0 +1,368 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Archivio utenti su un database relazionale via JDBC (es. H2 incorporato).
+ * <p>
+ * Alternativa a {@link DatabaseUtenti} per archivi che un singolo file XML non
+ * regge più: ogni registrazione è una {@code INSERT} in una transazione invece
+ * della riscrittura del file, e login e verifiche di unicità sono ricerche su
+ * un indice univoco dello username. {@link Sistema} lo usa senza modifiche.
+ * </p>
+ *
+ * <h2>Schema</h2>
+ * Creato all'apertura se non esiste:
+ * <pre>
+ * CREATE TABLE utenti (
+ *     id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+ *     nome     VARCHAR(255) NOT NULL,
+ *     username VARCHAR(255) NOT NULL,
+ *     password VARCHAR(255) NOT NULL)
+ * CREATE UNIQUE INDEX utenti_username ON utenti(username)
+ * </pre>
+ *
+ * <h2>Configurazione</h2>
+ * Con {@code -Dmonopoly.database=jdbc:h2:./utenti} l'applicazione usa questo
+ * archivio al posto del file XML (vedi {@link DatabaseUtenti#apri(String)}).
+ * Utente e password del database si impostano con {@code monopoly.database.utente}
+ * e {@code monopoly.database.password}.
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Le connessioni sono gestite da un {@link PoolConnessioni}; tutte le query
+ *       sono {@link PreparedStatement} con parametri.</li>
+ *   <li>L'unicità dello username è garantita dall'indice anche tra più processi
+ *       sullo stesso database.</li>
+ *   <li>Gli errori SQL vengono stampati su stderr, come gli errori di I/O di
+ *       {@link DatabaseUtenti}.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class DatabaseUtentiSQL extends DatabaseUtenti implements AutoCloseable {
+
+    /** Connessioni predefinite del pool. */
+    public static final int CONNESSIONI_PREDEFINITE = 8;
+
+    private static final String CREA_TABELLA = "CREATE TABLE IF NOT EXISTS utenti ("
+            + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+            + "nome VARCHAR(255) NOT NULL, "
+            + "username VARCHAR(255) NOT NULL, "
+            + "password VARCHAR(255) NOT NULL)";
+    private static final String CREA_INDICE =
+            "CREATE UNIQUE INDEX IF NOT EXISTS utenti_username ON utenti(username)";
+    private static final String TUTTI = "SELECT nome, username, password FROM utenti ORDER BY id";
+    private static final String CERCA = "SELECT nome, username, password FROM utenti WHERE username = ?";
+    private static final String ESISTE = "SELECT 1 FROM utenti WHERE username = ?";
+    private static final String PREFISSO = "SELECT username FROM utenti WHERE username LIKE ? ESCAPE '\\' "
+            + "ORDER BY username FETCH FIRST ? ROWS ONLY";
+    private static final String INSERISCI = "INSERT INTO utenti (nome, username, password) VALUES (?, ?, ?)";
+
+    /** Pool di connessioni al database. */
+    private final PoolConnessioni pool;
+
+    /**
+     * Apre (o crea) un archivio con utente e password vuoti e il pool predefinito.
+     *
+     * @param url URL JDBC, es. {@code jdbc:h2:./utenti} o {@code jdbc:h2:mem:test}
+     * @throws IllegalStateException se il database non è raggiungibile
+     */
+    public DatabaseUtentiSQL(String url) {
+        this(url, "", "", CONNESSIONI_PREDEFINITE);
+    }
+
+    /**
+     * Apre (o crea) un archivio.
+     *
+     * @param url         URL JDBC
+     * @param utente      utente del database
+     * @param password    password del database
+     * @param connessioni dimensione del pool
+     * @throws IllegalStateException se il database non è raggiungibile o lo schema non può essere creato
+     */
+    public DatabaseUtentiSQL(String url, String utente, String password, int connessioni) {
+        this.pool = new PoolConnessioni(url, utente, password, connessioni);
+        try {
+            pool.usa(c -> {
+                try (Statement st = c.createStatement()) {
+                    st.execute(CREA_TABELLA);
+                    st.execute(CREA_INDICE);
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            pool.close();
+            throw new IllegalStateException("Database utenti non disponibile: " + url, e);
+        }
+    }
+
+    @Override
+    public List<Utente> caricaUtenti() {
+        List<Utente> utenti = new ArrayList<>();
+        scorriUtenti(utenti::add);
+        return utenti;
+    }
+
+    /**
+     * Scorre gli utenti in ordine di registrazione, leggendoli a blocchi dal database.
+     */
+    @Override
+    public void scorriUtenti(Consumer<Utente> azione) {
+        try {
+            pool.usa(c -> {
+                try (PreparedStatement ps = c.prepareStatement(TUTTI)) {
+                    ps.setFetchSize(1000);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            azione.accept(utente(rs));
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean salvaUtente(Utente u) {
+        return salvaUtenti(List.of(u)) == 1;
+    }
+
+    /**
+     * Salva gli utenti in un'unica transazione, con un inserimento a lotti.
+     * <p>
+     * Gli username già registrati (o ripetuti nella lista) vengono saltati. Se
+     * nel frattempo un altro processo registra uno degli username, la
+     * transazione viene annullata e gli utenti vengono inseriti uno per uno,
+     * lasciando all'indice univoco la scelta di quali rifiutare.
+     * </p>
+     */
+    @Override
+    public int salvaUtenti(List<Utente> nuovi) {
+        try {
+            return pool.usa(c -> {
+                List<Utente> daSalvare = new ArrayList<>(nuovi.size());
+                Set<String> nelLotto = new HashSet<>();
+                try (PreparedStatement esiste = c.prepareStatement(ESISTE)) {
+                    for (Utente u : nuovi) {
+                        if (nelLotto.add(u.getUsername()) && !esiste(esiste, u.getUsername())) {
+                            daSalvare.add(u);
+                        }
+                    }
+                }
+                if (daSalvare.isEmpty()) {
+                    return 0;
+                }
+                c.setAutoCommit(false);
+                try (PreparedStatement ps = c.prepareStatement(INSERISCI)) {
+                    for (Utente u : daSalvare) {
+                        parametri(ps, u);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    c.commit();
+                    return daSalvare.size();
+                } catch (SQLException e) {
+                    c.rollback();
+                    if (!violazioneUnicità(e)) {
+                        throw e;
+                    }
+                } finally {
+                    c.setAutoCommit(true);
+                }
+                return inserisciUnoAllaVolta(c, daSalvare);
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Inserisce gli utenti uno per uno (in auto-commit), saltando gli username già presenti.
+     */
+    private static int inserisciUnoAllaVolta(Connection c, List<Utente> utenti) throws SQLException {
+        int salvati = 0;
+        try (PreparedStatement ps = c.prepareStatement(INSERISCI)) {
+            for (Utente u : utenti) {
+                parametri(ps, u);
+                try {
+                    ps.executeUpdate();
+                    salvati++;
+                } catch (SQLException e) {
+                    if (!violazioneUnicità(e)) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        return salvati;
+    }
+
+    @Override
+    public List<Utente> cerca(String username) {
+        try {
+            return pool.usa(c -> {
+                List<Utente> trovati = new ArrayList<>(1);
+                try (PreparedStatement ps = c.prepareStatement(CERCA)) {
+                    ps.setString(1, username);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            trovati.add(utente(rs));
+                        }
+                    }
+                }
+                return trovati;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    /**
+     * Cerca tutti gli username con una sola query {@code IN}.
+     */
+    @Override
+    public Map<String, List<Utente>> cercaTutti(Collection<String> username) {
+        Map<String, List<Utente>> trovati = new HashMap<>();
+        for (String u : username) {
+            trovati.put(u, new ArrayList<>(1));
+        }
+        if (trovati.isEmpty()) {
+            return trovati;
+        }
+        StringBuilder sql = new StringBuilder("SELECT nome, username, password FROM utenti WHERE username IN (?");
+        for (int i = 1; i < trovati.size(); i++) {
+            sql.append(", ?");
+        }
+        sql.append(')');
+        try {
+            pool.usa(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                    int p = 1;
+                    for (String u : trovati.keySet()) {
+                        ps.setString(p++, u);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Utente u = utente(rs);
+                            trovati.get(u.getUsername()).add(u);
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            trovati.replaceAll((u, l) -> List.of());
+        }
+        return trovati;
+    }
+
+    @Override
+    public boolean esiste(String username) {
+        try {
+            return pool.usa(c -> {
+                try (PreparedStatement ps = c.prepareStatement(ESISTE)) {
+                    return esiste(ps, username);
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Cerca per prefisso con una scansione dell'indice sullo username; i caratteri
+     * speciali di {@code LIKE} nel prefisso sono trattati letteralmente.
+     */
+    @Override
+    public List<String> cercaPerPrefisso(String prefisso, int k) {
+        String modello = prefisso.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        try {
+            return pool.usa(c -> {
+                List<String> trovati = new ArrayList<>(Math.min(k, 16));
+                try (PreparedStatement ps = c.prepareStatement(PREFISSO)) {
+                    ps.setString(1, modello);
+                    ps.setInt(2, k);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            trovati.add(rs.getString(1));
+                        }
+                    }
+                }
+                return trovati;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    /**
+     * Apre una connessione del pool, così il primo login non ne paga l'apertura.
+     */
+    @Override
+    public void precarica() {
+        try {
+            pool.usa(c -> null);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Chiude le connessioni del pool.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private static boolean esiste(PreparedStatement ps, String username) throws SQLException {
+        ps.setString(1, username);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    private static void parametri(PreparedStatement ps, Utente u) throws SQLException {
+        ps.setString(1, u.getNome());
+        ps.setString(2, u.getUsername());
+        ps.setString(3, u.getPassword());
+    }
+
+    private static Utente utente(ResultSet rs) throws SQLException {
+        return new Utente(rs.getString(1), rs.getString(2), rs.getString(3));
+    }
+
+    /**
+     * Verifica se un errore (o uno di quelli concatenati) è una violazione di
+     * unicità (SQLSTATE classe 23).
+     */
+    private static boolean violazioneUnicità(SQLException e) {
+        for (SQLException x = e; x != null; x = x.getNextException()) {
+            if (x.getSQLState() != null && x.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
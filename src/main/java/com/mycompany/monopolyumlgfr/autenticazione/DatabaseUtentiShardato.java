@@ -0,0 +1,378 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Archivio utenti suddiviso in più file XML (shard) in base all'hash dello username.
+ * <p>
+ * Ogni shard è un {@link DatabaseUtenti} indipendente, con il proprio file, il
+ * proprio indice in memoria (con filtro di Bloom) e il proprio lock di scrittura: registrazioni su
+ * shard diversi procedono in parallelo e ognuna riscrive solo il proprio file,
+ * grande circa {@code 1/N} dell'archivio.
+ * </p>
+ *
+ * <h2>File</h2>
+ * Con base {@code utenti} e 4 shard:
+ * <pre>
+ * utenti.shard        numero di shard correnti
+ * utenti.0-4.xml
+ * utenti.1-4.xml
+ * utenti.2-4.xml
+ * utenti.3-4.xml
+ * </pre>
+ * All'apertura il numero di shard è letto da {@code utenti.shard}; il valore
+ * passato al costruttore vale solo per un archivio nuovo.
+ *
+ * <h2>Ridistribuzione</h2>
+ * {@link #ridistribuisci(int)} cambia il numero di shard mentre l'archivio è in uso:
+ * <ul>
+ *   <li>gli utenti vengono letti in parallelo e scritti nei nuovi file;</li>
+ *   <li>le ricerche (login) continuano sugli shard correnti fino allo scambio;</li>
+ *   <li>le registrazioni attendono la fine della ridistribuzione;</li>
+ *   <li>il descrittore viene sostituito atomicamente, poi i vecchi file sono eliminati.</li>
+ * </ul>
+ * La stessa operazione è disponibile da linea di comando con {@link #main(String[])}.
+ *
+ * @author Giulio
+ */
+public class DatabaseUtentiShardato extends DatabaseUtenti {
+
+    /** Percorso base dei file. */
+    private final String base;
+
+    /** File con il numero di shard correnti. */
+    private final File descrittore;
+
+    /** Lock di lettura per le registrazioni, di scrittura per la ridistribuzione. */
+    private final ReentrantReadWriteLock ridistribuzione = new ReentrantReadWriteLock();
+
+    /** Shard correnti. */
+    private volatile DatabaseUtenti[] shard;
+
+    /**
+     * Apre (o crea) un archivio suddiviso.
+     *
+     * @param base          percorso base dei file, es. {@code "utenti"}
+     * @param shardIniziali numero di shard se l'archivio non esiste ancora
+     * @throws IllegalArgumentException se {@code shardIniziali <= 0}
+     * @throws IllegalStateException    se il descrittore non è leggibile
+     */
+    public DatabaseUtentiShardato(String base, int shardIniziali) {
+        if (shardIniziali <= 0) {
+            throw new IllegalArgumentException("Il numero di shard deve essere positivo");
+        }
+        this.base = base;
+        this.descrittore = new File(base + ".shard");
+        int n = shardIniziali;
+        if (descrittore.exists()) {
+            try {
+                n = Integer.parseInt(Files.readString(descrittore.toPath()).trim());
+            } catch (IOException | NumberFormatException e) {
+                throw new IllegalStateException("Descrittore degli shard non leggibile: " + descrittore, e);
+            }
+        } else {
+            scriviDescrittore(n);
+        }
+        this.shard = apri(n, false);
+    }
+
+    /**
+     * Calcola lo shard di uno username.
+     *
+     * @param username username
+     * @param n        numero di shard
+     * @return indice dello shard, tra 0 e {@code n - 1}
+     */
+    static int indiceShard(String username, int n) {
+        int h = username.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), n);
+    }
+
+    /**
+     * File di uno shard.
+     */
+    private File fileShard(int i, int n) {
+        return new File(base + "." + i + "-" + n + ".xml");
+    }
+
+    /**
+     * Apre gli shard di una configurazione.
+     *
+     * @param vuoti true per eliminare eventuali file rimasti da una ridistribuzione interrotta
+     */
+    private DatabaseUtenti[] apri(int n, boolean vuoti) {
+        DatabaseUtenti[] s = new DatabaseUtenti[n];
+        for (int i = 0; i < n; i++) {
+            File f = fileShard(i, n);
+            if (vuoti) {
+                eliminaFile(f);
+            }
+            s[i] = new DatabaseUtenti(f);
+        }
+        return s;
+    }
+
+    /**
+     * Sostituisce atomicamente il descrittore.
+     */
+    private void scriviDescrittore(int n) {
+        File tmp = new File(descrittore.getPath() + ".tmp");
+        try {
+            Files.writeString(tmp.toPath(), Integer.toString(n));
+            Files.move(tmp.toPath(), descrittore.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossibile scrivere il descrittore degli shard", e);
+        }
+    }
+
+    /** @return numero di shard correnti */
+    public int getNumeroShard() {
+        return shard.length;
+    }
+
+    /**
+     * Restituisce gli utenti di tutti gli shard come flusso parallelo:
+     * ogni shard viene letto da un thread diverso.
+     *
+     * @return flusso degli utenti, shard per shard
+     */
+    public Stream<Utente> flussoUtenti() {
+        return Arrays.stream(shard).parallel().flatMap(s -> s.caricaUtenti().stream());
+    }
+
+    /**
+     * Carica gli utenti di tutti gli shard, leggendoli in parallelo.
+     *
+     * @return lista di utenti, shard per shard
+     */
+    @Override
+    public List<Utente> caricaUtenti() {
+        return flussoUtenti().collect(Collectors.toList());
+    }
+
+    /**
+     * Scorre gli utenti di tutti gli shard, uno shard dopo l'altro.
+     */
+    @Override
+    public void scorriUtenti(Consumer<Utente> azione) {
+        for (DatabaseUtenti s : shard) {
+            s.scorriUtenti(azione);
+        }
+    }
+
+    @Override
+    public boolean salvaUtente(Utente u) {
+        return salvaUtenti(List.of(u)) == 1;
+    }
+
+    /**
+     * Salva gli utenti nei rispettivi shard, con una scrittura per shard.
+     * Lo username determina lo shard, quindi l'unicità è verificata dal solo
+     * shard di destinazione. Attende se è in corso una ridistribuzione.
+     *
+     * @param nuovi utenti da salvare
+     * @return numero di utenti salvati
+     */
+    @Override
+    public int salvaUtenti(List<Utente> nuovi) {
+        ridistribuzione.readLock().lock();
+        try {
+            DatabaseUtenti[] s = shard;
+            List<List<Utente>> perShard = raggruppa(nuovi, s.length);
+            int salvati = 0;
+            for (int i = 0; i < s.length; i++) {
+                if (!perShard.get(i).isEmpty()) {
+                    salvati += s[i].salvaUtenti(perShard.get(i));
+                }
+            }
+            return salvati;
+        } finally {
+            ridistribuzione.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca nello shard dello username. Se durante la ricerca gli shard sono
+     * stati sostituiti da una ridistribuzione (e i vecchi file eliminati), la
+     * ricerca viene ripetuta sui nuovi.
+     */
+    @Override
+    public List<Utente> cerca(String username) {
+        DatabaseUtenti[] s;
+        List<Utente> trovati;
+        do {
+            s = shard;
+            trovati = s[indiceShard(username, s.length)].cerca(username);
+        } while (s != shard);
+        return trovati;
+    }
+
+    /**
+     * Raggruppa gli username per shard e interroga ogni shard coinvolto una
+     * volta sola, ripetendo come {@link #cerca(String)} se gli shard cambiano.
+     */
+    @Override
+    public Map<String, List<Utente>> cercaTutti(Collection<String> username) {
+        DatabaseUtenti[] s;
+        Map<String, List<Utente>> trovati;
+        do {
+            s = shard;
+            List<List<String>> perShard = new ArrayList<>();
+            for (int i = 0; i < s.length; i++) {
+                perShard.add(new ArrayList<>());
+            }
+            for (String u : username) {
+                perShard.get(indiceShard(u, s.length)).add(u);
+            }
+            trovati = new HashMap<>();
+            for (int i = 0; i < s.length; i++) {
+                if (!perShard.get(i).isEmpty()) {
+                    trovati.putAll(s[i].cercaTutti(perShard.get(i)));
+                }
+            }
+        } while (s != shard);
+        return trovati;
+    }
+
+    @Override
+    public boolean esiste(String username) {
+        DatabaseUtenti[] s;
+        boolean trovato;
+        do {
+            s = shard;
+            trovato = s[indiceShard(username, s.length)].esiste(username);
+        } while (s != shard);
+        return trovato;
+    }
+
+    /**
+     * Cerca per prefisso in tutti gli shard e fonde i risultati: ogni shard
+     * restituisce i propri primi {@code k}, quindi i primi {@code k} complessivi
+     * sono tra questi.
+     */
+    @Override
+    public List<String> cercaPerPrefisso(String prefisso, int k) {
+        return Arrays.stream(shard).parallel()
+                .flatMap(s -> s.cercaPerPrefisso(prefisso, k).stream())
+                .sorted()
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Costruisce in parallelo gli indici di tutti gli shard.
+     */
+    @Override
+    public void precarica() {
+        Arrays.stream(shard).parallel().forEach(DatabaseUtenti::precarica);
+    }
+
+    /**
+     * Libera gli indici di tutti gli shard.
+     */
+    @Override
+    public void scarica() {
+        for (DatabaseUtenti s : shard) {
+            s.scarica();
+        }
+    }
+
+    /**
+     * Somma la memoria stimata degli indici degli shard.
+     */
+    @Override
+    public long memoriaStimata() {
+        long totale = 0;
+        for (DatabaseUtenti s : shard) {
+            totale += s.memoriaStimata();
+        }
+        return totale;
+    }
+
+    /**
+     * Cambia il numero di shard, spostando tutti gli utenti.
+     * <p>
+     * Le ricerche restano servite dagli shard correnti fino allo scambio;
+     * le registrazioni attendono la fine dell'operazione.
+     * </p>
+     *
+     * @param n nuovo numero di shard
+     * @throws IllegalArgumentException se {@code n <= 0}
+     */
+    public void ridistribuisci(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Il numero di shard deve essere positivo");
+        }
+        ridistribuzione.writeLock().lock();
+        try {
+            DatabaseUtenti[] vecchi = shard;
+            if (n == vecchi.length) {
+                return;
+            }
+            List<List<Utente>> perShard = raggruppa(caricaUtenti(), n);
+            DatabaseUtenti[] nuovi = apri(n, true);
+            IntStream.range(0, n).parallel().forEach(i -> {
+                nuovi[i].salvaUtenti(perShard.get(i));
+                nuovi[i].precarica();
+            });
+            scriviDescrittore(n);
+            shard = nuovi;
+            for (int i = 0; i < vecchi.length; i++) {
+                eliminaFile(fileShard(i, vecchi.length));
+            }
+        } finally {
+            ridistribuzione.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Suddivide gli utenti per shard.
+     */
+    private static List<List<Utente>> raggruppa(List<Utente> utenti, int n) {
+        List<List<Utente>> perShard = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            perShard.add(new ArrayList<>());
+        }
+        for (Utente u : utenti) {
+            perShard.get(indiceShard(u.getUsername(), n)).add(u);
+        }
+        return perShard;
+    }
+
+    /**
+     * Strumento da linea di comando per creare o ridistribuire un archivio.
+     * <p>
+     * Uso: {@code DatabaseUtentiShardato <base> <shard> [file.xml da importare]}
+     * </p>
+     *
+     * @param args percorso base, numero di shard e, opzionalmente, un archivio XML da importare
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Uso: DatabaseUtentiShardato <base> <shard> [file.xml da importare]");
+            return;
+        }
+        int n = Integer.parseInt(args[1]);
+        DatabaseUtentiShardato db = new DatabaseUtentiShardato(args[0], n);
+        if (args.length > 2) {
+            db.salvaUtenti(new DatabaseUtenti(new File(args[2])).caricaUtenti());
+        }
+        db.ridistribuisci(n);
+        System.out.println("Shard: " + db.getNumeroShard() + ", utenti: " + db.caricaUtenti().size());
+    }
+}
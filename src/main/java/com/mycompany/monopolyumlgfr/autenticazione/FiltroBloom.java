@@ -0,0 +1,140 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro di Bloom per stringhe (es. username).
+ * <p>
+ * Risponde in tempo costante e senza accedere al disco alla domanda
+ * "questa stringa è stata aggiunta?": se la risposta è no, è certa; se è
+ * forse, va confermata con un indice esatto. La probabilità di un falso
+ * positivo è fissata alla creazione e vale finché gli elementi aggiunti non
+ * superano la capacità.
+ * </p>
+ *
+ * <h2>Dimensionamento</h2>
+ * Con {@code n} elementi attesi e probabilità di falso positivo {@code p}:
+ * <ul>
+ *   <li>bit: {@code m = -n ln p / (ln 2)^2} (circa 9,6 bit per elemento con p = 1%);</li>
+ *   <li>funzioni di hash: {@code k = (m / n) ln 2}, ottenute per doppio hashing
+ *       da un solo hash a 64 bit della stringa.</li>
+ * </ul>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Thread-safe e senza lock: i bit sono impostati con operazioni atomiche.</li>
+ *   <li>Non supporta la rimozione; per ridimensionarlo se ne crea uno nuovo.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class FiltroBloom {
+
+    /** Bit del filtro, 64 per elemento dell'array. */
+    private final AtomicLongArray bit;
+
+    /** Numero di bit. */
+    private final long numeroBit;
+
+    /** Numero di funzioni di hash. */
+    private final int numeroHash;
+
+    /** Elementi attesi. */
+    private final int capacità;
+
+    /**
+     * Crea un filtro vuoto.
+     *
+     * @param capacità              numero di elementi attesi
+     * @param probabilitàFalsoPositivo probabilità di falso positivo alla capacità, tra 0 e 1
+     * @throws IllegalArgumentException se i parametri non sono validi
+     */
+    public FiltroBloom(int capacità, double probabilitàFalsoPositivo) {
+        if (capacità <= 0 || probabilitàFalsoPositivo <= 0 || probabilitàFalsoPositivo >= 1) {
+            throw new IllegalArgumentException("Parametri del filtro di Bloom non validi");
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-capacità * Math.log(probabilitàFalsoPositivo) / (ln2 * ln2));
+        int parole = (int) Math.max(1, (m + 63) / 64);
+        this.bit = new AtomicLongArray(parole);
+        this.numeroBit = parole * 64L;
+        this.numeroHash = Math.max(1, (int) Math.round((double) numeroBit / capacità * ln2));
+        this.capacità = capacità;
+    }
+
+    /**
+     * Aggiunge una stringa.
+     *
+     * @param s stringa da aggiungere
+     */
+    public void aggiungi(String s) {
+        long h1 = hash(s);
+        long h2 = mescola(h1) | 1;
+        for (int i = 0; i < numeroHash; i++) {
+            long b = Long.remainderUnsigned(h1 + i * h2, numeroBit);
+            int parola = (int) (b >>> 6);
+            long maschera = 1L << b;
+            long v = bit.get(parola);
+            if ((v & maschera) == 0) {
+                bit.getAndAccumulate(parola, maschera, (x, y) -> x | y);
+            }
+        }
+    }
+
+    /**
+     * Verifica se una stringa potrebbe essere stata aggiunta.
+     *
+     * @param s stringa da cercare
+     * @return false se certamente assente, true se forse presente
+     */
+    public boolean forsePresente(String s) {
+        long h1 = hash(s);
+        long h2 = mescola(h1) | 1;
+        for (int i = 0; i < numeroHash; i++) {
+            long b = Long.remainderUnsigned(h1 + i * h2, numeroBit);
+            if ((bit.get((int) (b >>> 6)) & (1L << b)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return numero di elementi attesi */
+    public int getCapacità() {
+        return capacità;
+    }
+
+    /** @return numero di bit del filtro */
+    public long getNumeroBit() {
+        return numeroBit;
+    }
+
+    /** @return numero di funzioni di hash */
+    public int getNumeroHash() {
+        return numeroHash;
+    }
+
+    /**
+     * Hash FNV-1a a 64 bit dei caratteri della stringa.
+     */
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mescola(h);
+    }
+
+    /**
+     * Finalizzatore di MurmurHash3: distribuisce i bit dell'hash.
+     */
+    private static long mescola(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,231 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Gestore delle sessioni di login del Monopoly UML GFR.
+ * <p>
+ * Dopo un login riuscito viene emesso un token opaco che identifica l'utente
+ * per le azioni successive, senza ripassare da {@link DatabaseUtenti} né dal
+ * controllo della password. La validazione di un token è una singola lettura
+ * su una {@link ConcurrentHashMap}.
+ * </p>
+ *
+ * <h2>Scadenza tramite timing wheel</h2>
+ * <ul>
+ *   <li>Il tempo è diviso in tick di durata fissa; ogni token è inserito nello
+ *       slot della ruota corrispondente al tick di scadenza.</li>
+ *   <li>L'avanzamento della ruota svuota solo gli slot dei tick trascorsi:
+ *       il costo è proporzionale ai token scaduti, non a quelli attivi.</li>
+ *   <li>Non esistono timer per singolo token né thread dedicati: la ruota avanza
+ *       durante le normali chiamate, e un solo thread alla volta esegue la pulizia.</li>
+ *   <li>Un token scaduto ma non ancora rimosso viene comunque rifiutato da
+ *       {@link #valida(String)}, che confronta il tick di scadenza.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class GestoreSessioni {
+
+    /** Durata predefinita di una sessione. */
+    public static final long DURATA_DEFAULT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /** Numero di slot della ruota. */
+    private static final int SLOT = 512;
+
+    /**
+     * Sessione attiva associata a un token.
+     */
+    private static final class Sessione {
+        final Utente utente;
+        final long scadenzaTick;
+
+        Sessione(Utente utente, long scadenzaTick) {
+            this.utente = utente;
+            this.scadenzaTick = scadenzaTick;
+        }
+    }
+
+    /** Sessioni attive indicizzate per token. */
+    private final ConcurrentHashMap<String, Sessione> sessioni = new ConcurrentHashMap<>();
+
+    /** Slot della ruota: token da controllare al tick corrispondente. */
+    private final ConcurrentLinkedQueue<String>[] ruota;
+
+    /** Ultimo tick già elaborato dalla ruota. */
+    private final AtomicLong ultimoTick;
+
+    /** Durata di un tick in nanosecondi. */
+    private final long tickNanos;
+
+    /** Durata di una sessione espressa in tick. */
+    private final long durataTick;
+
+    /** Sorgente del tempo in nanosecondi. */
+    private final LongSupplier orologio;
+
+    /**
+     * Istante di creazione, da cui si contano i tick: {@link System#nanoTime()}
+     * può essere negativo, i tick così no.
+     */
+    private final long origine;
+
+    /** Generatore dei token. */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Crea un gestore con durata di sessione predefinita e tick di un secondo.
+     */
+    public GestoreSessioni() {
+        this(DURATA_DEFAULT_MILLIS, 1000);
+    }
+
+    /**
+     * Crea un gestore di sessioni.
+     *
+     * @param durataMillis durata di una sessione in millisecondi
+     * @param tickMillis   granularità della scadenza in millisecondi
+     */
+    public GestoreSessioni(long durataMillis, long tickMillis) {
+        this(durataMillis, tickMillis, System::nanoTime);
+    }
+
+    /**
+     * Crea un gestore di sessioni con orologio esplicito (usato nei test).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // array generico della ruota
+    GestoreSessioni(long durataMillis, long tickMillis, LongSupplier orologio) {
+        if (durataMillis <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Durata e tick devono essere positivi");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.durataTick = Math.max(1, (durataMillis + tickMillis - 1) / tickMillis);
+        this.orologio = orologio;
+        this.origine = orologio.getAsLong();
+        this.ruota = new ConcurrentLinkedQueue[SLOT];
+        for (int i = 0; i < SLOT; i++) {
+            ruota[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.ultimoTick = new AtomicLong(tickCorrente());
+    }
+
+    /**
+     * Apre una nuova sessione per un utente autenticato.
+     *
+     * @param utente utente che ha completato il login
+     * @return token opaco della sessione
+     */
+    public String apri(Utente utente) {
+        long adesso = tickCorrente();
+        avanza(adesso);
+
+        byte[] byteToken = new byte[24];
+        random.nextBytes(byteToken);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(byteToken);
+
+        long scadenza = adesso + durataTick;
+        sessioni.put(token, new Sessione(utente, scadenza));
+        ruota[(int) (scadenza % SLOT)].add(token);
+        return token;
+    }
+
+    /**
+     * Valida un token di sessione.
+     *
+     * @param token token restituito da {@link #apri(Utente)}
+     * @return l'utente della sessione, oppure {@code null} se il token è sconosciuto o scaduto
+     */
+    public Utente valida(String token) {
+        if (token == null) {
+            return null;
+        }
+        long adesso = tickCorrente();
+        avanza(adesso);
+        Sessione s = sessioni.get(token);
+        if (s == null || s.scadenzaTick <= adesso) {
+            return null;
+        }
+        return s.utente;
+    }
+
+    /**
+     * Chiude una sessione (logout).
+     *
+     * @param token token della sessione
+     * @return true se la sessione esisteva
+     */
+    public boolean chiudi(String token) {
+        return token != null && sessioni.remove(token) != null;
+    }
+
+    /** @return numero di sessioni memorizzate (comprese quelle scadute non ancora rimosse) */
+    public int getSessioniAttive() {
+        return sessioni.size();
+    }
+
+    /**
+     * Rimuove le sessioni scadute, come farebbe la prossima chiamata a
+     * {@link #apri(Utente)} o {@link #valida(String)}.
+     *
+     * @return numero di sessioni rimaste
+     */
+    public int rimuoviScadute() {
+        avanza(tickCorrente());
+        return sessioni.size();
+    }
+
+    /**
+     * Calcola il tick corrispondente all'istante attuale, contato dalla creazione.
+     */
+    private long tickCorrente() {
+        return (orologio.getAsLong() - origine) / tickNanos;
+    }
+
+    /**
+     * Elabora gli slot dei tick trascorsi fino a {@code adesso}.
+     * <p>
+     * Un solo thread alla volta avanza la ruota: gli altri proseguono senza attendere.
+     * </p>
+     */
+    private void avanza(long adesso) {
+        long ultimo = ultimoTick.get();
+        if (ultimo >= adesso || !ultimoTick.compareAndSet(ultimo, adesso)) {
+            return;
+        }
+        // Oltre un giro completo ogni slot va visitato una sola volta
+        long da = Math.max(ultimo + 1, adesso - SLOT + 1);
+        for (long t = da; t <= adesso; t++) {
+            svuotaSlot((int) (t % SLOT), adesso);
+        }
+    }
+
+    /**
+     * Rimuove i token scaduti di uno slot e reinserisce quelli con scadenza futura.
+     */
+    private void svuotaSlot(int indice, long adesso) {
+        List<String> daControllare = new ArrayList<>();
+        String token;
+        while ((token = ruota[indice].poll()) != null) {
+            daControllare.add(token);
+        }
+        for (String t : daControllare) {
+            Sessione s = sessioni.get(t);
+            if (s == null) {
+                continue;
+            }
+            if (s.scadenzaTick <= adesso) {
+                sessioni.remove(t, s);
+            } else {
+                ruota[(int) (s.scadenzaTick % SLOT)].add(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Giornale delle registrazioni di un archivio XML, condiviso tra processi.
+ * <p>
+ * Ogni salvataggio di {@link DatabaseUtenti} incrementa il numero di sequenza
+ * del file XML e, dopo averlo sostituito, aggiunge qui gli utenti salvati con
+ * quel numero. Un altro processo che vede cambiare il file legge solo le voci
+ * successive alla propria sequenza, invece di rileggere l'intero archivio.
+ * </p>
+ *
+ * <h2>Formato</h2>
+ * <pre>
+ * #&lt;id archivio&gt; &lt;sequenza di partenza&gt;
+ * &lt;sequenza&gt;\t&lt;nome&gt;\t&lt;username&gt;\t&lt;password&gt;
+ * ...
+ * =&lt;sequenza&gt;
+ * </pre>
+ * L'intestazione lega il giornale all'archivio (il cui elemento radice ha lo
+ * stesso {@code id}) e indica da quale sequenza le voci sono complete. Ogni
+ * salvataggio termina con una riga {@code =<sequenza>}: le voci di un salvataggio
+ * interrotto a metà scrittura non vengono mai restituite. I campi
+ * sono scritti con {@code \\}, {@code \t}, {@code \n} e {@code \r} come sequenze di escape.
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Il giornale viene scritto solo con il lock dell'archivio; la lettura no.</li>
+ *   <li>Supera {@value #LIMITE_BYTE} byte viene ricominciato dalla sequenza corrente:
+ *       chi è rimasto più indietro rilegge l'archivio.</li>
+ *   <li>Qualunque incoerenza (id diverso, sequenze mancanti, riga troncata) fa
+ *       rispondere "non coperto", mai voci sbagliate.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+final class GiornaleUtenti {
+
+    /** Dimensione oltre la quale il giornale viene ricominciato. */
+    static final long LIMITE_BYTE = 1 << 20;
+
+    /** File del giornale. */
+    private final Path file;
+
+    /**
+     * @param file file del giornale, es. {@code utenti.xml.giornale}
+     */
+    GiornaleUtenti(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Restituisce gli utenti salvati dopo una sequenza, fino a un'altra inclusa.
+     *
+     * @param id   id dell'archivio
+     * @param da   sequenza già nota (esclusa)
+     * @param finoA sequenza del file XML (inclusa)
+     * @return utenti salvati, nell'ordine; {@code null} se il giornale non copre l'intervallo
+     * @throws IOException se il giornale non è leggibile
+     */
+    List<Utente> dopo(String id, long da, long finoA) throws IOException {
+        List<Utente> utenti = new ArrayList<>();
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String intestazione = r.readLine();
+            if (intestazione == null || !intestazione.startsWith("#")) {
+                return null;
+            }
+            int spazio = intestazione.indexOf(' ');
+            if (spazio < 0 || !intestazione.substring(1, spazio).equals(id)
+                    || Long.parseLong(intestazione.substring(spazio + 1)) > da) {
+                return null;
+            }
+            long ultima = Long.parseLong(intestazione.substring(spazio + 1));
+            List<Utente> inSospeso = new ArrayList<>();
+            String riga;
+            while ((riga = r.readLine()) != null && ultima < finoA) {
+                if (riga.startsWith("=")) {
+                    if (Long.parseLong(riga.substring(1)) != ultima + 1) {
+                        return null;
+                    }
+                    ultima++;
+                    if (ultima > da) {
+                        utenti.addAll(inSospeso);
+                    }
+                    inSospeso.clear();
+                    continue;
+                }
+                String[] campi = riga.split("\t", -1);
+                if (campi.length != 4 || Long.parseLong(campi[0]) != ultima + 1) {
+                    return null;
+                }
+                inSospeso.add(new Utente(decodifica(campi[1]), decodifica(campi[2]), decodifica(campi[3])));
+            }
+            return ultima >= finoA ? utenti : null;
+        } catch (NoSuchFileException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Aggiunge gli utenti di un salvataggio. Se il giornale appartiene a un altro
+     * archivio, manca o è troppo grande, viene prima ricominciato dalla sequenza
+     * precedente al salvataggio.
+     * <p>
+     * Con {@code ricomincia} (l'archivio è stato modificato senza passare dal
+     * giornale) il giornale riparte dopo questo salvataggio: chi ha una sequenza
+     * precedente rilegge il file.
+     * </p>
+     *
+     * @param id         id dell'archivio
+     * @param seq        sequenza del salvataggio
+     * @param utenti     utenti salvati
+     * @param ricomincia true per ricominciare il giornale da {@code seq}
+     * @throws IOException in caso di errore di scrittura
+     */
+    void aggiungi(String id, long seq, List<Utente> utenti, boolean ricomincia) throws IOException {
+        if (ricomincia) {
+            Files.writeString(file, "#" + id + " " + seq + "\n", StandardCharsets.UTF_8);
+            return;
+        }
+        if (!appartiene(id) || Files.size(file) > LIMITE_BYTE) {
+            Files.writeString(file, "#" + id + " " + (seq - 1) + "\n", StandardCharsets.UTF_8);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Utente u : utenti) {
+            sb.append(seq).append('\t').append(codifica(u.getNome())).append('\t')
+                    .append(codifica(u.getUsername())).append('\t').append(codifica(u.getPassword())).append('\n');
+        }
+        sb.append('=').append(seq).append('\n');
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            w.write(sb.toString());
+        }
+    }
+
+    /**
+     * Verifica che il giornale esista e appartenga a un archivio.
+     */
+    private boolean appartiene(String id) {
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String intestazione = r.readLine();
+            return intestazione != null && intestazione.startsWith("#" + id + " ");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String codifica(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String decodifica(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                sb.append(e == 't' ? '\t' : e == 'n' ? '\n' : e == 'r' ? '\r' : e);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,474 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Importazione ed esportazione massiva di utenti in formato CSV o XML.
+ * <p>
+ * Pensata per caricare in una volta centinaia di migliaia di account (es. da
+ * un partner), che con {@link Sistema#registraGiocatore(String, String, String)}
+ * richiederebbero una riscrittura dell'archivio per utente.
+ * </p>
+ *
+ * <h2>Importazione</h2>
+ * <ol>
+ *   <li>il file viene letto in memoria e diviso in blocchi, tagliati a fine riga
+ *       (CSV) o dopo un {@code </utente>} (XML), analizzati in parallelo;</li>
+ *   <li>gli username ripetuti nel file o già registrati vengono scartati
+ *       (la verifica usa il filtro di Bloom dell'archivio);</li>
+ *   <li>le password in chiaro vengono codificate in parallelo con
+ *       {@link CodificaPassword}; quelle già codificate restano invariate, mentre
+ *       i valori con il prefisso {@code pbkdf2$} non validi o con troppe iterazioni
+ *       vengono scartati;</li>
+ *   <li>gli utenti rimasti sono scritti con un solo {@link DatabaseUtenti#salvaUtenti(List)}.</li>
+ * </ol>
+ *
+ * <h2>Esportazione</h2>
+ * {@link #esporta(OutputStream, Formato)} scrive gli utenti man mano che li legge
+ * dall'archivio ({@link DatabaseUtenti#scorriUtenti(java.util.function.Consumer)}),
+ * senza caricarli tutti in memoria. Le password sono esportate come memorizzate.
+ *
+ * <h2>Formato CSV</h2>
+ * <pre>
+ * nome,username,password
+ * Mario Rossi,mario,pwd123
+ * </pre>
+ * L'intestazione è facoltativa. Username e password sono gli ultimi due campi,
+ * quindi il nome può contenere virgole; nessun campo può contenere a capo.
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Il file XML è quello di {@link DatabaseUtenti}, in UTF-8 e senza DTD.</li>
+ *   <li>Disponibile da linea di comando con {@link #main(String[])}.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class ImportazioneUtenti {
+
+    /** Intestazione dei file CSV. */
+    static final String INTESTAZIONE_CSV = "nome,username,password";
+
+    /**
+     * Formati di importazione ed esportazione.
+     */
+    public enum Formato {
+        CSV, XML;
+
+        /**
+         * Deduce il formato dall'estensione del file.
+         *
+         * @param file file CSV o XML
+         * @return formato del file
+         * @throws IllegalArgumentException se l'estensione non è {@code .csv} o {@code .xml}
+         */
+        public static Formato di(Path file) {
+            String nome = file.getFileName().toString().toLowerCase();
+            if (nome.endsWith(".csv")) {
+                return CSV;
+            }
+            if (nome.endsWith(".xml")) {
+                return XML;
+            }
+            throw new IllegalArgumentException("Formato non riconosciuto: " + file);
+        }
+    }
+
+    /** Archivio di destinazione (o di origine, per l'esportazione). */
+    private final DatabaseUtenti db;
+
+    /** Codifica delle password in chiaro. */
+    private final CodificaPassword codifica;
+
+    /** Numero di thread per analisi e codifica. */
+    private final int thread;
+
+    /**
+     * Crea un importatore con la codifica predefinita e un thread per processore.
+     *
+     * @param db archivio utenti
+     */
+    public ImportazioneUtenti(DatabaseUtenti db) {
+        this(db, CodificaPassword.predefinita(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Crea un importatore.
+     *
+     * @param db       archivio utenti
+     * @param codifica codifica delle password in chiaro
+     * @param thread   numero di thread per analisi e codifica
+     * @throws IllegalArgumentException se {@code thread <= 0}
+     */
+    public ImportazioneUtenti(DatabaseUtenti db, CodificaPassword codifica, int thread) {
+        if (thread <= 0) {
+            throw new IllegalArgumentException("Il numero di thread deve essere positivo");
+        }
+        this.db = db;
+        this.codifica = codifica;
+        this.thread = thread;
+    }
+
+    /**
+     * Esito di un'importazione, con la durata di ogni fase.
+     */
+    public static final class Risultato {
+
+        private final int letti;
+        private final int scartati;
+        private final int importati;
+        private final long nanosLettura;
+        private final long nanosCodifica;
+        private final long nanosScrittura;
+
+        Risultato(int letti, int scartati, int importati,
+                  long nanosLettura, long nanosCodifica, long nanosScrittura) {
+            this.letti = letti;
+            this.scartati = scartati;
+            this.importati = importati;
+            this.nanosLettura = nanosLettura;
+            this.nanosCodifica = nanosCodifica;
+            this.nanosScrittura = nanosScrittura;
+        }
+
+        /** @return utenti letti dal file */
+        public int getLetti() {
+            return letti;
+        }
+
+        /** @return righe non valide */
+        public int getScartati() {
+            return scartati;
+        }
+
+        /** @return utenti salvati nell'archivio */
+        public int getImportati() {
+            return importati;
+        }
+
+        /** @return utenti non salvati perché ripetuti o già registrati */
+        public int getDuplicati() {
+            return letti - importati;
+        }
+
+        /** @return durata complessiva in nanosecondi */
+        public long getNanos() {
+            return nanosLettura + nanosCodifica + nanosScrittura;
+        }
+
+        /** @return utenti letti al secondo */
+        public double getUtentiAlSecondo() {
+            return getNanos() == 0 ? 0 : letti * 1e9 / getNanos();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Letti: %d, importati: %d, duplicati: %d, scartati: %d in %.1f ms "
+                    + "(%.0f utenti/s; lettura %.1f ms, codifica %.1f ms, scrittura %.1f ms)",
+                    letti, importati, getDuplicati(), scartati, getNanos() / 1e6, getUtentiAlSecondo(),
+                    nanosLettura / 1e6, nanosCodifica / 1e6, nanosScrittura / 1e6);
+        }
+    }
+
+    /**
+     * Utenti e righe scartate di un blocco del file.
+     */
+    private static final class Blocco {
+        final List<Utente> utenti = new ArrayList<>();
+        int scartati;
+    }
+
+    /**
+     * Importa un file CSV o XML, riconosciuto dall'estensione.
+     *
+     * @param file file da importare
+     * @return esito dell'importazione
+     * @throws IOException se il file non è leggibile
+     */
+    public Risultato importa(Path file) throws IOException {
+        return importa(Files.readAllBytes(file), Formato.di(file));
+    }
+
+    /**
+     * Importa utenti da un contenuto CSV o XML.
+     *
+     * @param dati    contenuto in UTF-8
+     * @param formato formato del contenuto
+     * @return esito dell'importazione
+     */
+    public Risultato importa(byte[] dati, Formato formato) {
+        ForkJoinPool pool = new ForkJoinPool(thread);
+        try {
+            long t0 = System.nanoTime();
+            List<Blocco> blocchi = analizza(pool, dati, formato);
+            List<Utente> letti = new ArrayList<>();
+            int scartati = 0;
+            for (Blocco b : blocchi) {
+                letti.addAll(b.utenti);
+                scartati += b.scartati;
+            }
+
+            long t1 = System.nanoTime();
+            List<Utente> unici = new ArrayList<>(letti.size());
+            Set<String> visti = new HashSet<>();
+            int codificheNonValide = 0;
+            for (Utente u : letti) {
+                if (u.getPassword().startsWith(CodificaPassword.PREFISSO)
+                        && !CodificaPassword.isCodificata(u.getPassword())) {
+                    codificheNonValide++;
+                } else if (visti.add(u.getUsername())) {
+                    unici.add(u);
+                }
+            }
+            List<Utente> daSalvare = pool.submit(() -> unici.parallelStream()
+                    .filter(u -> !db.esiste(u.getUsername()))
+                    .map(this::codificata)
+                    .collect(Collectors.toList())).join();
+
+            long t2 = System.nanoTime();
+            int importati = daSalvare.isEmpty() ? 0 : db.salvaUtenti(daSalvare);
+            long t3 = System.nanoTime();
+            return new Risultato(letti.size() - codificheNonValide, scartati + codificheNonValide, importati,
+                    t1 - t0, t2 - t1, t3 - t2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Divide il contenuto in blocchi e li analizza in parallelo, mantenendo l'ordine.
+     */
+    private List<Blocco> analizza(ForkJoinPool pool, byte[] dati, Formato formato) {
+        int inizio = 0;
+        int fine = dati.length;
+        byte[] separatore = {'\n'};
+        if (formato == Formato.XML) {
+            int radice = indice(dati, "<utenti".getBytes(StandardCharsets.US_ASCII), 0, dati.length);
+            int chiusura = ultimoIndice(dati, "</utenti>".getBytes(StandardCharsets.US_ASCII));
+            if (radice < 0 || chiusura < radice) {
+                return List.of(analizzaXml(dati, 0, dati.length, false));
+            }
+            inizio = indice(dati, new byte[]{'>'}, radice, dati.length) + 1;
+            fine = chiusura;
+            separatore = "</utente>".getBytes(StandardCharsets.US_ASCII);
+        }
+        List<int[]> intervalli = dividi(dati, inizio, fine, thread * 4, separatore);
+        return pool.submit(() -> intervalli.parallelStream()
+                .map(r -> formato == Formato.CSV ? analizzaCsv(dati, r[0], r[1]) : analizzaXml(dati, r[0], r[1], true))
+                .collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Divide {@code [inizio, fine)} in circa {@code n} intervalli, tagliando subito
+     * dopo un separatore.
+     */
+    static List<int[]> dividi(byte[] dati, int inizio, int fine, int n, byte[] separatore) {
+        List<int[]> intervalli = new ArrayList<>(n);
+        int passo = Math.max(1, (fine - inizio) / n);
+        int da = inizio;
+        while (da < fine) {
+            int taglio = indice(dati, separatore, Math.min(fine, da + passo), fine);
+            int a = taglio < 0 ? fine : taglio + separatore.length;
+            intervalli.add(new int[]{da, a});
+            da = a;
+        }
+        return intervalli;
+    }
+
+    /**
+     * Analizza le righe CSV di un blocco.
+     */
+    private static Blocco analizzaCsv(byte[] dati, int da, int a) {
+        Blocco b = new Blocco();
+        String testo = new String(dati, da, a - da, StandardCharsets.UTF_8);
+        for (String riga : testo.split("\n")) {
+            if (riga.endsWith("\r")) {
+                riga = riga.substring(0, riga.length() - 1);
+            }
+            if (riga.isBlank() || riga.equals(INTESTAZIONE_CSV)) {
+                continue;
+            }
+            int p2 = riga.lastIndexOf(',');
+            int p1 = p2 <= 0 ? -1 : riga.lastIndexOf(',', p2 - 1);
+            if (p1 < 0 || p1 + 1 == p2) {
+                b.scartati++;
+                continue;
+            }
+            b.utenti.add(new Utente(riga.substring(0, p1), riga.substring(p1 + 1, p2), riga.substring(p2 + 1)));
+        }
+        return b;
+    }
+
+    /**
+     * Analizza gli elementi {@code <utente>} di un blocco XML.
+     *
+     * @param radice true se il blocco va racchiuso in un elemento radice
+     */
+    private static Blocco analizzaXml(byte[] dati, int da, int a, boolean radice) {
+        Blocco b = new Blocco();
+        InputStream in = new ByteArrayInputStream(dati, da, a - da);
+        if (radice) {
+            in = new SequenceInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream("<utenti>".getBytes(StandardCharsets.US_ASCII)), in),
+                    new ByteArrayInputStream("</utenti>".getBytes(StandardCharsets.US_ASCII)));
+        }
+        try {
+            DatabaseUtenti.leggiUtenti(in, b.utenti::add);
+        } catch (XMLStreamException e) {
+            e.printStackTrace();
+            b.scartati++;
+        }
+        return b;
+    }
+
+    /**
+     * Codifica la password di un utente, se è in chiaro.
+     */
+    private Utente codificata(Utente u) {
+        if (CodificaPassword.isCodificata(u.getPassword())) {
+            return u;
+        }
+        return new Utente(u.getNome(), u.getUsername(), codifica.codifica(u.getPassword()));
+    }
+
+    /**
+     * Esporta l'archivio in un file CSV o XML, riconosciuto dall'estensione.
+     *
+     * @param file file di destinazione
+     * @return numero di utenti esportati
+     * @throws IOException in caso di errore di scrittura
+     */
+    public long esporta(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            return esporta(out, Formato.di(file));
+        }
+    }
+
+    /**
+     * Esporta l'archivio in streaming, senza caricarlo in memoria.
+     * Il flusso non viene chiuso.
+     *
+     * @param out     flusso di destinazione
+     * @param formato formato di esportazione
+     * @return numero di utenti esportati
+     * @throws IOException in caso di errore di scrittura
+     */
+    public long esporta(OutputStream out, Formato formato) throws IOException {
+        long[] n = new long[1];
+        try {
+            if (formato == Formato.CSV) {
+                Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+                w.write(INTESTAZIONE_CSV);
+                w.write('\n');
+                db.scorriUtenti(u -> {
+                    try {
+                        w.write(u.getNome());
+                        w.write(',');
+                        w.write(u.getUsername());
+                        w.write(',');
+                        w.write(u.getPassword());
+                        w.write('\n');
+                        n[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                w.flush();
+            } else {
+                try (DatabaseUtenti.ScrittoreXml scrittore = new DatabaseUtenti.ScrittoreXml(out)) {
+                    db.scorriUtenti(u -> {
+                        scrittore.scrivi(u);
+                        n[0]++;
+                    });
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (XMLStreamException e) {
+            throw new IOException("Errore di scrittura XML", e);
+        }
+        out.flush();
+        return n[0];
+    }
+
+    /**
+     * Posizione della prima occorrenza di una sequenza di byte in {@code [da, a)}.
+     */
+    private static int indice(byte[] dati, byte[] cercato, int da, int a) {
+        esterno:
+        for (int i = da; i <= a - cercato.length; i++) {
+            for (int j = 0; j < cercato.length; j++) {
+                if (dati[i + j] != cercato[j]) {
+                    continue esterno;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Posizione dell'ultima occorrenza di una sequenza di byte.
+     */
+    private static int ultimoIndice(byte[] dati, byte[] cercato) {
+        esterno:
+        for (int i = dati.length - cercato.length; i >= 0; i--) {
+            for (int j = 0; j < cercato.length; j++) {
+                if (dati[i + j] != cercato[j]) {
+                    continue esterno;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Strumento da linea di comando per importare o esportare utenti.
+     * <p>
+     * Uso: {@code ImportazioneUtenti importa|esporta <file.csv|file.xml> [archivio.xml] [thread]}
+     * </p>
+     *
+     * @param args operazione, file da importare o esportare, archivio (predefinito
+     *             {@code utenti.xml}) e numero di thread
+     * @throws IOException se un file non è leggibile o scrivibile
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !(args[0].equals("importa") || args[0].equals("esporta"))) {
+            System.out.println("Uso: ImportazioneUtenti importa|esporta <file.csv|file.xml> [archivio.xml] [thread]");
+            return;
+        }
+        DatabaseUtenti db = new DatabaseUtenti(new File(args.length > 2 ? args[2] : "utenti.xml"));
+        int thread = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        ImportazioneUtenti importazione = new ImportazioneUtenti(db, CodificaPassword.predefinita(), thread);
+        Path file = Path.of(args[1]);
+        if (args[0].equals("importa")) {
+            System.out.println(importazione.importa(file));
+        } else {
+            long t0 = System.nanoTime();
+            long n = importazione.esporta(file);
+            double ms = (System.nanoTime() - t0) / 1e6;
+            System.out.printf("Esportati: %d in %.1f ms (%.0f utenti/s)%n", n, ms, n * 1e3 / Math.max(ms, 1e-3));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Indice degli username per ricerche "inizia con..." (es. inviti in una lobby).
+ * <p>
+ * Gli username sono tenuti in un array ordinato: la ricerca trova con una
+ * ricerca binaria il primo username non minore del prefisso e legge i
+ * successivi finché condividono il prefisso, quindi costa
+ * {@code O(log n + k)} indipendentemente dal numero di utenti.
+ * </p>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>L'indice è immutabile: {@link #con(Collection)} restituisce un nuovo indice,
+ *       quindi le ricerche non richiedono sincronizzazione.</li>
+ *   <li>Occupa un riferimento per username: le stringhe sono quelle già in memoria
+ *       nell'indice di {@link DatabaseUtenti}.</li>
+ *   <li>Il confronto distingue maiuscole e minuscole, come il login.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public final class IndicePrefissi {
+
+    /** Indice vuoto. */
+    public static final IndicePrefissi VUOTO = new IndicePrefissi(new String[0]);
+
+    /** Username ordinati e senza duplicati. */
+    private final String[] nomi;
+
+    private IndicePrefissi(String[] ordinati) {
+        this.nomi = ordinati;
+    }
+
+    /**
+     * Costruisce un indice.
+     *
+     * @param username username da indicizzare (i duplicati sono ignorati)
+     * @return indice degli username
+     */
+    public static IndicePrefissi di(Collection<String> username) {
+        return new IndicePrefissi(ordinaSenzaDuplicati(username));
+    }
+
+    /**
+     * Restituisce un nuovo indice con alcuni username in più.
+     * <p>
+     * Costa {@code O(n + m log m)}: i nuovi username vengono ordinati e fusi
+     * con quelli esistenti in una sola passata.
+     * </p>
+     *
+     * @param nuovi username da aggiungere
+     * @return nuovo indice
+     */
+    public IndicePrefissi con(Collection<String> nuovi) {
+        if (nuovi.isEmpty()) {
+            return this;
+        }
+        String[] b = ordinaSenzaDuplicati(nuovi);
+        String[] fusi = new String[nomi.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < nomi.length || j < b.length) {
+            String x;
+            if (j >= b.length || (i < nomi.length && nomi[i].compareTo(b[j]) <= 0)) {
+                x = nomi[i++];
+            } else {
+                x = b[j++];
+            }
+            if (n == 0 || !fusi[n - 1].equals(x)) {
+                fusi[n++] = x;
+            }
+        }
+        return new IndicePrefissi(n == fusi.length ? fusi : Arrays.copyOf(fusi, n));
+    }
+
+    /**
+     * Restituisce i primi username, in ordine alfabetico, che iniziano con un prefisso.
+     *
+     * @param prefisso prefisso cercato (vuoto = tutti)
+     * @param k        numero massimo di risultati
+     * @return al più {@code k} username
+     */
+    public List<String> cerca(String prefisso, int k) {
+        List<String> trovati = new ArrayList<>(Math.min(k, 16));
+        for (int i = primoNonMinore(prefisso); i < nomi.length && trovati.size() < k; i++) {
+            if (!nomi[i].startsWith(prefisso)) {
+                break;
+            }
+            trovati.add(nomi[i]);
+        }
+        return trovati;
+    }
+
+    /** @return numero di username indicizzati */
+    public int dimensione() {
+        return nomi.length;
+    }
+
+    /**
+     * Ricerca binaria del primo username non minore della chiave.
+     */
+    private int primoNonMinore(String chiave) {
+        int basso = 0;
+        int alto = nomi.length;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (nomi[medio].compareTo(chiave) < 0) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
+
+    /**
+     * Ordina gli username ed elimina i duplicati.
+     */
+    private static String[] ordinaSenzaDuplicati(Collection<String> username) {
+        String[] a = username.toArray(new String[0]);
+        Arrays.parallelSort(a);
+        int n = 0;
+        for (String s : a) {
+            if (n == 0 || !a[n - 1].equals(s)) {
+                a[n++] = s;
+            }
+        }
+        return n == a.length ? a : Arrays.copyOf(a, n);
+    }
+}
@@ -0,0 +1,190 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lettura dei file di un {@link RegistroAccessi}, con filtro per utente e intervallo di tempo.
+ * <p>
+ * I file chiusi il cui intervallo (nel nome) non interseca quello cercato non
+ * vengono aperti. Nei file letti ogni voce viene confrontata in forma binaria:
+ * istante e username codificato sono verificati prima di creare la
+ * {@link RegistroAccessi.Voce}, quindi le voci scartate non allocano stringhe.
+ * </p>
+ *
+ * <h2>Uso da riga di comando</h2>
+ * <pre>
+ * java ... LettoreRegistroAccessi &lt;cartella&gt; [--utente &lt;username&gt;] [--da &lt;istante&gt;] [--a &lt;istante&gt;]
+ * </pre>
+ * Gli istanti sono in formato ISO-8601 (es. {@code 2024-05-01T10:00:00Z}); le voci
+ * trovate sono stampate una per riga.
+ *
+ * @author Giulio
+ */
+public final class LettoreRegistroAccessi {
+
+    private LettoreRegistroAccessi() {
+    }
+
+    /**
+     * Passa a un'azione le voci di un registro che rispettano i filtri, file per file
+     * in ordine di tempo.
+     *
+     * @param cartella cartella del registro
+     * @param username username cercato, oppure null per tutti
+     * @param da       istante minimo (ms, incluso)
+     * @param a        istante massimo (ms, incluso)
+     * @param azione   azione da eseguire per ogni voce trovata
+     * @throws IOException se un file non è leggibile
+     */
+    public static void scorri(Path cartella, String username, long da, long a,
+                              Consumer<RegistroAccessi.Voce> azione) throws IOException {
+        File[] file = cartella.toFile().listFiles((d, nome) -> nome.startsWith("accessi-") && nome.endsWith(".gz"));
+        if (file == null) {
+            return;
+        }
+        List<long[]> intervalli = new ArrayList<>();
+        List<Path> daLeggere = new ArrayList<>();
+        for (File f : file) {
+            long[] intervallo = intervallo(f.getName());
+            if (intervallo == null || (intervallo[1] >= da && intervallo[0] <= a)) {
+                intervalli.add(intervallo == null ? new long[] {Long.MAX_VALUE, Long.MAX_VALUE} : intervallo);
+                daLeggere.add(f.toPath());
+            }
+        }
+        Integer[] ordine = new Integer[daLeggere.size()];
+        for (int i = 0; i < ordine.length; i++) {
+            ordine[i] = i;
+        }
+        Arrays.sort(ordine, Comparator.comparingLong(i -> intervalli.get(i)[0]));
+        for (int i : ordine) {
+            leggiFile(daLeggere.get(i), username, da, a, azione);
+        }
+    }
+
+    /**
+     * Restituisce le voci di un registro che rispettano i filtri.
+     *
+     * @param cartella cartella del registro
+     * @param username username cercato, oppure null per tutti
+     * @param da       istante minimo (ms, incluso)
+     * @param a        istante massimo (ms, incluso)
+     * @return voci trovate
+     * @throws IOException se un file non è leggibile
+     */
+    public static List<RegistroAccessi.Voce> leggi(Path cartella, String username, long da, long a)
+            throws IOException {
+        List<RegistroAccessi.Voce> voci = new ArrayList<>();
+        scorri(cartella, username, da, a, voci::add);
+        return voci;
+    }
+
+    /**
+     * Legge le voci di un file, fino alla fine o all'ultimo blocco completo se il
+     * file è stato interrotto.
+     */
+    static void leggiFile(Path f, String username, long da, long a,
+                          Consumer<RegistroAccessi.Voce> azione) throws IOException {
+        byte[] cercato = username == null ? null : codifica(username);
+        RegistroAccessi.Evento[] eventi = RegistroAccessi.Evento.values();
+        byte[] buf = new byte[2 + 3 * 256];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(f), 1 << 16), 1 << 16))) {
+            if (in.readInt() != RegistroAccessi.MAGIA) {
+                throw new IOException("Non è un file del registro degli accessi: " + f);
+            }
+            while (true) {
+                long istante = in.readLong();
+                int evento = in.readUnsignedByte();
+                int lunghezza = in.readUnsignedShort();
+                if (lunghezza + 2 > buf.length) {
+                    buf = new byte[lunghezza + 2];
+                }
+                buf[0] = (byte) (lunghezza >>> 8);
+                buf[1] = (byte) lunghezza;
+                in.readFully(buf, 2, lunghezza);
+                if (istante < da || istante > a || evento >= eventi.length
+                        || (cercato != null && !Arrays.equals(buf, 0, lunghezza + 2, cercato, 0, cercato.length))) {
+                    continue;
+                }
+                String u = username != null ? username
+                        : new DataInputStream(new ByteArrayInputStream(buf, 0, lunghezza + 2)).readUTF();
+                azione.accept(new RegistroAccessi.Voce(istante, eventi[evento], u));
+            }
+        } catch (EOFException e) {
+            // fine del file, oppure file interrotto: le voci complete sono state lette
+        }
+    }
+
+    /**
+     * Codifica uno username come {@link DataOutputStream#writeUTF(String)}.
+     */
+    private static byte[] codifica(String username) throws IOException {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        new DataOutputStream(b).writeUTF(username);
+        return b.toByteArray();
+    }
+
+    /**
+     * Legge dal nome di un file chiuso l'istante della prima e dell'ultima voce;
+     * null per il file in scrittura.
+     */
+    private static long[] intervallo(String nome) {
+        if (nome.endsWith(".corrente.gz")) {
+            return null;
+        }
+        String[] parti = nome.substring("accessi-".length(), nome.length() - ".gz".length()).split("-");
+        try {
+            return new long[] {Long.parseLong(parti[0]), Long.parseLong(parti[1])};
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stampa le voci di un registro.
+     *
+     * @param args {@code <cartella> [--utente <username>] [--da <istante>] [--a <istante>]}
+     * @throws IOException se un file non è leggibile
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Uso: LettoreRegistroAccessi <cartella> [--utente <username>] [--da <istante>] [--a <istante>]");
+            return;
+        }
+        String username = null;
+        long da = Long.MIN_VALUE;
+        long a = Long.MAX_VALUE;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--utente")) {
+                username = args[i + 1];
+            } else if (args[i].equals("--da")) {
+                da = Instant.parse(args[i + 1]).toEpochMilli();
+            } else if (args[i].equals("--a")) {
+                a = Instant.parse(args[i + 1]).toEpochMilli();
+            }
+        }
+        long t0 = System.nanoTime();
+        long[] trovate = {0};
+        scorri(Path.of(args[0]), username, da, a, v -> {
+            System.out.println(v);
+            trovate[0]++;
+        });
+        System.out.printf("Voci trovate: %d in %.1f ms%n", trovate[0], (System.nanoTime() - t0) / 1e6);
+    }
+}
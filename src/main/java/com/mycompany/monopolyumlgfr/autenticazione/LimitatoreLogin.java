@@ -0,0 +1,221 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limitatore dei tentativi di login, senza lock.
+ * <p>
+ * Protegge {@link Sistema#validaCredenziali(String, String)} da raffiche di
+ * tentativi: la decisione viene presa prima di qualsiasi accesso a
+ * {@link DatabaseUtenti}, così i tentativi rifiutati costano solo qualche
+ * operazione atomica.
+ * </p>
+ *
+ * <h2>Algoritmo</h2>
+ * <ul>
+ *   <li>Ogni limite è un token bucket implementato come GCRA (Generic Cell Rate
+ *       Algorithm): lo stato è un unico {@code long}, il "tempo teorico di arrivo",
+ *       aggiornato con una compare-and-set.</li>
+ *   <li>Il limite globale usa un solo {@link AtomicLong} e viene applicato senza
+ *       sapere se lo username è registrato: la decisione non richiede accessi al
+ *       database e non rivela, rifiutando in modo diverso, quali username esistono.
+ *       Durante una raffica oltre il limite globale anche i login degli utenti
+ *       reali vengono rifiutati: il limite va dimensionato su quanto il database
+ *       e la verifica delle password possono sostenere.</li>
+ *   <li>Il limite per username usa un array di dimensione fissa indicizzato
+ *       dall'hash dello username: la memoria non cresce anche se un attacco usa
+ *       username sempre diversi (username che collidono condividono il budget).</li>
+ *   <li>Il budget per username viene speso solo dai tentativi ammessi anche dal
+ *       limite globale: i tentativi rifiutati non consumano il budget degli
+ *       username con cui collidono.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class LimitatoreLogin {
+
+    /** Numero di slot per il limite per username (potenza di 2). */
+    private static final int SLOT_UTENTI = 4096;
+
+    /** Intervallo minimo tra tentativi per lo stesso username (ns). */
+    private final long intervalloUtente;
+
+    /** Anticipo massimo consentito per lo stesso username (burst), in ns. */
+    private final long tolleranzaUtente;
+
+    /** Limite globale. */
+    private final Secchio globale;
+
+    /** Tempo teorico di arrivo per ogni slot di username. */
+    private final AtomicLongArray statoUtenti = new AtomicLongArray(SLOT_UTENTI);
+
+    /** Tentativi rifiutati. */
+    private final LongAdder rifiutati = new LongAdder();
+
+    /** Sorgente del tempo in nanosecondi. */
+    private final LongSupplier orologio;
+
+    /** Istante di creazione, per avere tempi relativi non negativi. */
+    private final long origine;
+
+    /**
+     * Crea un limitatore.
+     *
+     * @param tentativiAlSecondoPerUtente tentativi sostenibili al secondo per username
+     * @param burstPerUtente              tentativi consecutivi ammessi per username
+     * @param tentativiAlSecondoGlobali   tentativi sostenibili al secondo in totale
+     * @param burstGlobale                tentativi consecutivi ammessi in totale
+     */
+    public LimitatoreLogin(double tentativiAlSecondoPerUtente, int burstPerUtente,
+                           double tentativiAlSecondoGlobali, int burstGlobale) {
+        this(tentativiAlSecondoPerUtente, burstPerUtente, tentativiAlSecondoGlobali, burstGlobale,
+                System::nanoTime);
+    }
+
+    /**
+     * Crea un limitatore con orologio esplicito (usato nei test).
+     */
+    LimitatoreLogin(double tentativiAlSecondoPerUtente, int burstPerUtente,
+                    double tentativiAlSecondoGlobali, int burstGlobale, LongSupplier orologio) {
+        if (tentativiAlSecondoPerUtente <= 0 || burstPerUtente < 1) {
+            throw new IllegalArgumentException("Limiti di login non validi");
+        }
+        this.intervalloUtente = (long) (TimeUnit.SECONDS.toNanos(1) / tentativiAlSecondoPerUtente);
+        this.tolleranzaUtente = intervalloUtente * (burstPerUtente - 1);
+        this.globale = new Secchio(tentativiAlSecondoGlobali, burstGlobale);
+        this.orologio = orologio;
+        this.origine = orologio.getAsLong();
+    }
+
+    /**
+     * Crea un limitatore dalla configurazione {@code <al secondo per utente>,<burst per utente>,<al secondo globali>,<burst globale>}
+     * (es. il valore della proprietà di sistema {@code monopoly.login.limite}).
+     *
+     * @param configurazione quattro numeri separati da virgole
+     * @return il limitatore
+     * @throws IllegalArgumentException se la configurazione non è valida
+     */
+    public static LimitatoreLogin di(String configurazione) {
+        String[] parti = configurazione.split(",");
+        if (parti.length != 4) {
+            throw new IllegalArgumentException("Limite di login non valido: " + configurazione);
+        }
+        try {
+            return new LimitatoreLogin(Double.parseDouble(parti[0].trim()), Integer.parseInt(parti[1].trim()),
+                    Double.parseDouble(parti[2].trim()), Integer.parseInt(parti[3].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Limite di login non valido: " + configurazione, e);
+        }
+    }
+
+    /**
+     * Decide se un tentativo di login per {@code username} può procedere.
+     * <p>
+     * Usa solo stato in memoria, senza accedere al database. Se il budget dello
+     * username è esaurito il tentativo viene rifiutato subito; altrimenti si
+     * applica il limite globale, e solo se questo ammette il tentativo viene
+     * speso il budget dello username.
+     * </p>
+     *
+     * @param username username del tentativo
+     * @return true se il tentativo è consentito
+     */
+    public boolean consenti(String username) {
+        long adesso = orologio.getAsLong() - origine;
+        int slot = indiceSlot(username);
+        if (Math.max(statoUtenti.get(slot), adesso) - adesso > tolleranzaUtente) {
+            rifiutati.increment();
+            return false;
+        }
+        if (!globale.acquisisci(adesso)) {
+            rifiutati.increment();
+            return false;
+        }
+        if (!acquisisciUtente(slot, adesso)) {
+            // slot esaurito nel frattempo da un altro thread
+            globale.restituisci();
+            rifiutati.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /** @return numero di tentativi rifiutati */
+    public long getRifiutati() {
+        return rifiutati.sum();
+    }
+
+    /**
+     * GCRA sullo slot di uno username.
+     */
+    private boolean acquisisciUtente(int slot, long adesso) {
+        while (true) {
+            long tat = statoUtenti.get(slot);
+            long base = Math.max(tat, adesso);
+            if (base - adesso > tolleranzaUtente) {
+                return false;
+            }
+            if (statoUtenti.compareAndSet(slot, tat, base + intervalloUtente)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Limite globale GCRA su un unico {@link AtomicLong}.
+     */
+    private static final class Secchio {
+
+        /** Tempo teorico di arrivo. */
+        final AtomicLong stato = new AtomicLong();
+
+        /** Intervallo minimo tra tentativi (ns). */
+        final long intervallo;
+
+        /** Anticipo massimo consentito (burst), in ns. */
+        final long tolleranza;
+
+        Secchio(double tentativiAlSecondo, int burst) {
+            if (tentativiAlSecondo <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Limiti di login non validi");
+            }
+            this.intervallo = (long) (TimeUnit.SECONDS.toNanos(1) / tentativiAlSecondo);
+            this.tolleranza = intervallo * (burst - 1);
+        }
+
+        boolean acquisisci(long adesso) {
+            while (true) {
+                long tat = stato.get();
+                long base = Math.max(tat, adesso);
+                if (base - adesso > tolleranza) {
+                    return false;
+                }
+                if (stato.compareAndSet(tat, base + intervallo)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Restituisce un tentativo acquisito e poi non usato.
+         */
+        void restituisci() {
+            stato.addAndGet(-intervallo);
+        }
+    }
+
+    /**
+     * Calcola lo slot di uno username, mescolando i bit dell'hash.
+     */
+    private static int indiceSlot(String username) {
+        int h = username == null ? 0 : username.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+        return h & (SLOT_UTENTI - 1);
+    }
+}
@@ -0,0 +1,165 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Osserva il file XML di un {@link DatabaseUtenti} e ne applica all'indice in
+ * memoria le modifiche fatte dall'esterno.
+ * <p>
+ * Usa un {@link WatchService} sulla cartella del file: a ogni creazione o
+ * modifica (comprese le sostituzioni atomiche fatte da editor e script) un
+ * thread in background attende che il file resti fermo per
+ * {@value #QUIETE_MILLIS} ms e chiama {@link DatabaseUtenti#ricarica()}, che
+ * applica solo le differenze. Le ricerche non attendono mai l'osservatore.
+ * </p>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Le scritture dello stesso {@link DatabaseUtenti} generano eventi che
+ *       vengono riconosciuti dalla firma del file e ignorati.</li>
+ *   <li>Tra la modifica esterna e la sua applicazione passa almeno il tempo di
+ *       quiete, più la latenza del {@link WatchService} del sistema operativo.</li>
+ *   <li>Se il file non è XML valido (es. scritto a metà senza altri eventi) la
+ *       ricarica viene ritentata con attese crescenti fino a
+ *       {@value #RIPROVA_MASSIMA_MILLIS} ms, anche senza nuovi eventi.</li>
+ *   <li>Si ottiene con {@link DatabaseUtenti#osserva()} e va chiuso con {@link #close()}.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public final class OsservatoreUtenti implements AutoCloseable {
+
+    /** Tempo senza nuovi eventi prima di rileggere il file. */
+    static final long QUIETE_MILLIS = 50;
+
+    /** Attesa massima tra due tentativi di ricarica di un file non valido. */
+    static final long RIPROVA_MASSIMA_MILLIS = 2000;
+
+    /** Archivio da aggiornare. */
+    private final DatabaseUtenti db;
+
+    /** Nome del file osservato, relativo alla cartella. */
+    private final Path nome;
+
+    /** Servizio di notifica del file system. */
+    private final WatchService servizio;
+
+    /** Thread che attende gli eventi. */
+    private final Thread thread;
+
+    /** Modifiche esterne applicate. */
+    private final AtomicInteger ricariche = new AtomicInteger();
+
+    /** False dopo {@link #close()}. */
+    private volatile boolean attivo = true;
+
+    /**
+     * Inizia a osservare un file.
+     *
+     * @param db   archivio da aggiornare
+     * @param file file XML dell'archivio
+     * @throws IOException se la cartella non può essere osservata
+     */
+    OsservatoreUtenti(DatabaseUtenti db, Path file) throws IOException {
+        Path assoluto = file.toAbsolutePath();
+        this.db = db;
+        this.nome = assoluto.getFileName();
+        this.servizio = assoluto.getFileSystem().newWatchService();
+        assoluto.getParent().register(servizio,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        db.osservato(true);
+        this.thread = new Thread(this::osserva, "osserva-utenti");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Ciclo del thread: attende gli eventi sul file e, a file fermo, ricarica.
+     */
+    private void osserva() {
+        try {
+            while (attivo) {
+                WatchKey chiave = servizio.take();
+                boolean modificato = riguardaIlFile(chiave);
+                while (modificato && (chiave = servizio.poll(QUIETE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    riguardaIlFile(chiave);
+                }
+                if (modificato) {
+                    ricarica();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // osservatore chiuso
+        }
+    }
+
+    /**
+     * Applica le modifiche del file; se non è valido riprova con attese
+     * crescenti, finché la ricarica non riesce o l'osservatore viene chiuso.
+     */
+    private void ricarica() throws InterruptedException {
+        long attesa = QUIETE_MILLIS;
+        while (attivo) {
+            if (db.ricarica() > 0) {
+                ricariche.incrementAndGet();
+            }
+            if (!db.isRicaricaFallita()) {
+                return;
+            }
+            WatchKey chiave = servizio.poll(attesa, TimeUnit.MILLISECONDS);
+            if (chiave != null) {
+                riguardaIlFile(chiave);
+            }
+            attesa = Math.min(attesa * 2, RIPROVA_MASSIMA_MILLIS);
+        }
+    }
+
+    /**
+     * Consuma gli eventi di una chiave e dice se riguardano il file osservato.
+     */
+    private boolean riguardaIlFile(WatchKey chiave) {
+        boolean riguarda = false;
+        for (WatchEvent<?> evento : chiave.pollEvents()) {
+            if (evento.kind() == StandardWatchEventKinds.OVERFLOW || nome.equals(evento.context())) {
+                riguarda = true;
+            }
+        }
+        chiave.reset();
+        return riguarda;
+    }
+
+    /** @return numero di modifiche esterne che hanno cambiato l'indice */
+    public int getRicariche() {
+        return ricariche.get();
+    }
+
+    /**
+     * Smette di osservare il file; le ricerche tornano a controllarne la firma.
+     */
+    @Override
+    public void close() {
+        if (!attivo) {
+            return;
+        }
+        attivo = false;
+        try {
+            servizio.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        db.osservato(false);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
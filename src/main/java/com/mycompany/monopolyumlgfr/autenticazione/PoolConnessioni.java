@@ -0,0 +1,196 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool di connessioni JDBC di dimensione fissa.
+ * <p>
+ * Le connessioni sono aperte alla prima richiesta e poi riutilizzate: aprirne
+ * una per operazione costerebbe più della query stessa. Un semaforo limita le
+ * connessioni in uso; chi ne chiede una oltre il limite attende.
+ * </p>
+ *
+ * <h2>Uso</h2>
+ * <pre>{@code
+ * int n = pool.usa(c -> {
+ *     try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM utenti");
+ *          ResultSet rs = ps.executeQuery()) {
+ *         rs.next();
+ *         return rs.getInt(1);
+ *     }
+ * });
+ * }</pre>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Le connessioni sono restituite in modalità auto-commit; un'operazione che
+ *       apre una transazione deve chiuderla.</li>
+ *   <li>Una connessione che ha causato un errore viene verificata e, se non più
+ *       valida, chiusa al posto di essere riutilizzata.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public final class PoolConnessioni implements AutoCloseable {
+
+    /**
+     * Operazione eseguita con una connessione del pool.
+     *
+     * @param <T> tipo del risultato
+     */
+    @FunctionalInterface
+    public interface Operazione<T> {
+        /**
+         * @param c connessione in prestito, da non chiudere
+         * @return risultato dell'operazione
+         * @throws SQLException in caso di errore SQL
+         */
+        T esegui(Connection c) throws SQLException;
+    }
+
+    /** URL JDBC. */
+    private final String url;
+
+    /** Utente del database. */
+    private final String utente;
+
+    /** Password del database. */
+    private final String password;
+
+    /** Connessioni libere. */
+    private final ConcurrentLinkedDeque<Connection> libere = new ConcurrentLinkedDeque<>();
+
+    /** Numero massimo di connessioni. */
+    private final int dimensione;
+
+    /** Permessi per le connessioni in uso. */
+    private final Semaphore permessi;
+
+    /** True dopo {@link #close()}. */
+    private volatile boolean chiuso;
+
+    /**
+     * Crea un pool.
+     *
+     * @param url       URL JDBC, es. {@code jdbc:h2:./utenti}
+     * @param utente    utente del database
+     * @param password  password del database
+     * @param dimensione numero massimo di connessioni
+     * @throws IllegalArgumentException se {@code dimensione <= 0}
+     */
+    public PoolConnessioni(String url, String utente, String password, int dimensione) {
+        if (dimensione <= 0) {
+            throw new IllegalArgumentException("La dimensione del pool deve essere positiva");
+        }
+        this.url = url;
+        this.utente = utente;
+        this.password = password;
+        this.dimensione = dimensione;
+        this.permessi = new Semaphore(dimensione, true);
+    }
+
+    /**
+     * Esegue un'operazione con una connessione del pool.
+     *
+     * @param op  operazione da eseguire
+     * @param <T> tipo del risultato
+     * @return risultato dell'operazione
+     * @throws SQLException          in caso di errore SQL o se l'attesa viene interrotta
+     * @throws IllegalStateException se il pool è chiuso
+     */
+    public <T> T usa(Operazione<T> op) throws SQLException {
+        if (chiuso) {
+            throw new IllegalStateException("Pool di connessioni chiuso");
+        }
+        try {
+            permessi.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attesa di una connessione interrotta", e);
+        }
+        Connection c = null;
+        boolean riutilizzabile = false;
+        try {
+            if (chiuso) {
+                throw new IllegalStateException("Pool di connessioni chiuso");
+            }
+            c = libere.pollFirst();
+            if (c == null) {
+                c = DriverManager.getConnection(url, utente, password);
+            }
+            T risultato = op.esegui(c);
+            riutilizzabile = true;
+            return risultato;
+        } catch (SQLException | RuntimeException e) {
+            riutilizzabile = c != null && valida(c);
+            throw e;
+        } finally {
+            if (c != null) {
+                restituisci(c, riutilizzabile);
+            }
+            permessi.release();
+        }
+    }
+
+    /**
+     * Rimette una connessione tra le libere, oppure la chiude.
+     */
+    private void restituisci(Connection c, boolean riutilizzabile) {
+        try {
+            if (riutilizzabile && !chiuso) {
+                if (!c.getAutoCommit()) {
+                    c.rollback();
+                    c.setAutoCommit(true);
+                }
+                libere.offerFirst(c);
+            } else {
+                c.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Verifica che una connessione sia ancora utilizzabile.
+     */
+    private static boolean valida(Connection c) {
+        try {
+            return c.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Chiude il pool: attende la restituzione delle connessioni in uso per al più
+     * 10 secondi, poi chiude quelle libere. Le richieste successive falliscono.
+     */
+    @Override
+    public void close() {
+        chiuso = true;
+        boolean tutte = false;
+        try {
+            tutte = permessi.tryAcquire(dimensione, 10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Connection c;
+        while ((c = libere.pollFirst()) != null) {
+            try {
+                c.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        if (tutte) {
+            // sblocca chi era in attesa: troverà il pool chiuso
+            permessi.release(dimensione);
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import com.mycompany.monopolyumlgfr.metriche.Contatore;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Registro di audit di login e registrazioni, scritto in background.
+ * <p>
+ * {@link Sistema} chiama {@link #registra(Evento, String)} sul percorso di login:
+ * la chiamata mette la voce in una coda senza lock e ritorna, senza I/O. Un
+ * unico thread di scrittura svuota la coda a blocchi in file binari compressi,
+ * scritti solo in aggiunta, e li ruota oltre una dimensione massima.
+ * </p>
+ *
+ * <h2>File</h2>
+ * Nella cartella del registro:
+ * <ul>
+ *   <li>{@code accessi-<creato>-<pid>-<n>.corrente.gz}: file in scrittura, con il
+ *       pid del processo che lo scrive;</li>
+ *   <li>{@code accessi-<primo>-<ultimo>-<creato>-<pid>-<n>.gz}: file chiusi, con
+ *       l'istante (ms) della prima e dell'ultima voce nel nome, così la ricerca
+ *       per intervallo di tempo salta i file senza aprirli.</li>
+ * </ul>
+ * Ogni file è un flusso GZIP che inizia con {@value #MAGIA} ({@code int}) ed è
+ * seguito dalle voci:
+ * <pre>
+ * long  istante (ms dall'epoca)
+ * byte  evento (ordinale di {@link Evento})
+ * UTF   username (come {@link DataOutputStream#writeUTF(String)})
+ * </pre>
+ * Il flusso viene svuotato con un sync flush quando la coda si vuota e comunque
+ * ogni {@value #VOCI_PER_SVUOTAMENTO} voci o {@value #SVUOTAMENTO_MILLIS} ms,
+ * anche sotto carico continuo: un file rimasto aperto da un processo terminato
+ * è leggibile fino all'ultimo blocco.
+ *
+ * <h2>Più processi sulla stessa cartella</h2>
+ * Chi scrive tiene un {@link FileLock} sul proprio file in scrittura finché non
+ * lo ha rinominato. All'apertura il registro recupera (chiude e rinomina) solo i
+ * file in scrittura di cui ottiene il lock, cioè quelli rimasti da un processo
+ * terminato: i file degli altri processi attivi non vengono toccati. I file con
+ * il pid di questo processo vengono saltati senza aprirli: chiudere un canale
+ * rilascia su POSIX tutti i lock del processo sul file, anche quello del registro
+ * che lo sta scrivendo. Il lock
+ * copre un byte oltre la fine del file, così non impedisce la lettura delle voci
+ * neanche dove i lock sono obbligatori (Windows).
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>La coda è limitata: oltre la capacità le voci vengono scartate e contate
+ *       ({@code accessi.scartate}) invece di rallentare il login.</li>
+ *   <li>Le voci si leggono con {@link LettoreRegistroAccessi}.</li>
+ *   <li>Va chiuso con {@link #close()}, che scrive le voci in coda.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public final class RegistroAccessi implements AutoCloseable {
+
+    /** Intestazione dei file del registro. */
+    static final int MAGIA = 0x4D414331;
+
+    /** Dimensione predefinita (non compressa) oltre la quale il file viene ruotato. */
+    public static final long BYTE_PER_FILE_PREDEFINITI = 16L << 20;
+
+    /** Capacità predefinita della coda. */
+    public static final int CAPACITA_PREDEFINITA = 1 << 16;
+
+    /** Lunghezza massima dello username registrato. */
+    private static final int LUNGHEZZA_MASSIMA = 256;
+
+    /** Posizione del byte bloccato dal lock dei file in scrittura, oltre la fine dei dati. */
+    private static final long POSIZIONE_LOCK = Long.MAX_VALUE - 1;
+
+    /** Identificativo del processo, nel nome dei file. */
+    private static final long PID = ProcessHandle.current().pid();
+
+    /** Attesa massima del thread di scrittura senza voci. */
+    private static final long ATTESA_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    /** Voci scritte dopo le quali il flusso viene svuotato anche se la coda non è vuota. */
+    static final int VOCI_PER_SVUOTAMENTO = 1024;
+
+    /** Tempo dopo il quale il flusso viene svuotato anche se la coda non è vuota. */
+    static final long SVUOTAMENTO_MILLIS = 200;
+
+    /** Voci scritte e scartate. */
+    private static final Contatore SCRITTE = RegistroMetriche.contatore("accessi.scritte");
+    private static final Contatore SCARTATE = RegistroMetriche.contatore("accessi.scartate");
+
+    /**
+     * Evento registrato.
+     */
+    public enum Evento {
+        /** Credenziali corrette. */
+        LOGIN_RIUSCITO,
+        /** Credenziali errate o username inesistente. */
+        LOGIN_FALLITO,
+        /** Tentativo rifiutato dal {@link LimitatoreLogin}. */
+        LOGIN_RIFIUTATO,
+        /** Nuovo utente registrato. */
+        REGISTRAZIONE,
+        /** Registrazione rifiutata (username già in uso). */
+        REGISTRAZIONE_RIFIUTATA
+    }
+
+    /**
+     * Voce del registro.
+     */
+    public static final class Voce {
+
+        private final long istante;
+        private final Evento evento;
+        private final String username;
+
+        /**
+         * @param istante  istante in millisecondi dall'epoca
+         * @param evento   evento
+         * @param username username coinvolto
+         */
+        public Voce(long istante, Evento evento, String username) {
+            this.istante = istante;
+            this.evento = evento;
+            this.username = username;
+        }
+
+        /** @return istante in millisecondi dall'epoca */
+        public long getIstante() {
+            return istante;
+        }
+
+        /** @return evento */
+        public Evento getEvento() {
+            return evento;
+        }
+
+        /** @return username coinvolto */
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public String toString() {
+            return Instant.ofEpochMilli(istante) + " " + evento + " " + username;
+        }
+    }
+
+    /** Cartella dei file. */
+    private final Path cartella;
+
+    /** Dimensione non compressa oltre la quale il file viene ruotato. */
+    private final long bytePerFile;
+
+    /** Capacità della coda. */
+    private final int capacità;
+
+    /** Voci (e richieste di sincronizzazione) in attesa di scrittura. */
+    private final ConcurrentLinkedQueue<Object> coda = new ConcurrentLinkedQueue<>();
+
+    /** Voci in coda, per applicare la capacità. */
+    private final AtomicInteger inCoda = new AtomicInteger();
+
+    /** Thread di scrittura. */
+    private final Thread scrittore;
+
+    /** True mentre lo scrittore è fermo in attesa di voci. */
+    private volatile boolean inAttesa;
+
+    /** True dopo {@link #close()}. */
+    private volatile boolean chiuso;
+
+    /** Numeratore dei file creati da questa istanza. */
+    private final AtomicLong file = new AtomicLong();
+
+    // stato del file corrente, usato solo dal thread di scrittura
+    private Path corrente;
+    private FileChannel canale;
+    private GZIPOutputStream gzip;
+    private DataOutputStream uscita;
+    private long byteScritti;
+    private long primo;
+    private long ultimo;
+    private int vociDaSvuotare;
+    private long ultimoSvuotamento;
+
+    /**
+     * Apre un registro con dimensione dei file e capacità della coda predefinite.
+     *
+     * @param cartella cartella dei file, creata se manca
+     * @throws IllegalStateException se la cartella non è utilizzabile
+     */
+    public RegistroAccessi(Path cartella) {
+        this(cartella, BYTE_PER_FILE_PREDEFINITI, CAPACITA_PREDEFINITA);
+    }
+
+    /**
+     * Apre un registro. I file rimasti aperti da un processo terminato
+     * vengono chiusi e rinominati; quelli di altri processi attivi restano intatti.
+     *
+     * @param cartella    cartella dei file, creata se manca
+     * @param bytePerFile dimensione non compressa oltre la quale il file viene ruotato
+     * @param capacità    voci in coda oltre le quali le nuove vengono scartate
+     * @throws IllegalArgumentException se dimensione o capacità non sono positive
+     * @throws IllegalStateException    se la cartella non è utilizzabile
+     */
+    public RegistroAccessi(Path cartella, long bytePerFile, int capacità) {
+        if (bytePerFile <= 0 || capacità <= 0) {
+            throw new IllegalArgumentException("Dimensione dei file e capacità devono essere positive");
+        }
+        this.cartella = cartella;
+        this.bytePerFile = bytePerFile;
+        this.capacità = capacità;
+        try {
+            Files.createDirectories(cartella);
+            String propri = "-" + PID + "-";
+            File[] rimasti = cartella.toFile().listFiles((d, nome) -> nome.endsWith(".corrente.gz")
+                    && !nome.contains(propri));
+            if (rimasti != null) {
+                for (File f : rimasti) {
+                    recupera(f.toPath());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Registro degli accessi non disponibile: " + cartella, e);
+        }
+        this.scrittore = new Thread(this::scrivi, "registro-accessi");
+        this.scrittore.setDaemon(true);
+        this.scrittore.start();
+    }
+
+    /**
+     * Registra un evento con l'istante corrente. Non esegue I/O e non attende:
+     * se la coda è piena la voce viene scartata.
+     *
+     * @param evento   evento
+     * @param username username coinvolto
+     */
+    public void registra(Evento evento, String username) {
+        if (chiuso) {
+            return;
+        }
+        if (inCoda.incrementAndGet() > capacità) {
+            inCoda.decrementAndGet();
+            SCARTATE.incrementa();
+            return;
+        }
+        String u = username == null ? "" : username;
+        if (u.length() > LUNGHEZZA_MASSIMA) {
+            u = u.substring(0, LUNGHEZZA_MASSIMA);
+        }
+        coda.offer(new Voce(System.currentTimeMillis(), evento, u));
+        if (inAttesa) {
+            LockSupport.unpark(scrittore);
+        }
+    }
+
+    /**
+     * Attende che le voci registrate prima della chiamata siano scritte su disco
+     * (es. prima di leggere il registro).
+     *
+     * @param timeoutMillis attesa massima
+     * @return true se le voci sono state scritte entro il tempo
+     * @throws InterruptedException se l'attesa viene interrotta
+     */
+    public boolean sincronizza(long timeoutMillis) throws InterruptedException {
+        CountDownLatch scritte = new CountDownLatch(1);
+        coda.offer(scritte);
+        LockSupport.unpark(scrittore);
+        return scritte.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ciclo del thread di scrittura: svuota la coda e, quando è vuota o dopo
+     * {@value #VOCI_PER_SVUOTAMENTO} voci o {@value #SVUOTAMENTO_MILLIS} ms, rende
+     * leggibile quanto scritto; a coda vuota attende nuove voci.
+     */
+    private void scrivi() {
+        while (true) {
+            Object x = coda.poll();
+            if (x == null) {
+                svuota();
+                if (chiuso && coda.isEmpty()) {
+                    break;
+                }
+                inAttesa = true;
+                if (coda.isEmpty() && !chiuso) {
+                    LockSupport.parkNanos(this, ATTESA_NANOS);
+                }
+                inAttesa = false;
+            } else if (x instanceof Voce) {
+                inCoda.decrementAndGet();
+                scrivi((Voce) x);
+                if (++vociDaSvuotare >= VOCI_PER_SVUOTAMENTO
+                        || System.nanoTime() - ultimoSvuotamento >= TimeUnit.MILLISECONDS.toNanos(SVUOTAMENTO_MILLIS)) {
+                    svuota();
+                }
+            } else {
+                svuota();
+                ((CountDownLatch) x).countDown();
+            }
+        }
+        chiudiFile();
+    }
+
+    /**
+     * Scrive una voce nel file corrente, aprendone uno nuovo se serve.
+     */
+    private void scrivi(Voce v) {
+        try {
+            if (uscita == null) {
+                apriFile(v.getIstante());
+            }
+            uscita.writeLong(v.getIstante());
+            uscita.writeByte(v.getEvento().ordinal());
+            uscita.writeUTF(v.getUsername());
+            byteScritti = uscita.size();
+            primo = Math.min(primo, v.getIstante());
+            ultimo = Math.max(ultimo, v.getIstante());
+            SCRITTE.incrementa();
+            if (byteScritti >= bytePerFile) {
+                chiudiFile();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            SCARTATE.incrementa();
+            chiudiFile();
+        }
+    }
+
+    /**
+     * Rende leggibile dal disco quanto scritto finora (sync flush del flusso GZIP).
+     */
+    private void svuota() {
+        vociDaSvuotare = 0;
+        ultimoSvuotamento = System.nanoTime();
+        if (uscita != null) {
+            try {
+                uscita.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+                chiudiFile();
+            }
+        }
+    }
+
+    /**
+     * Crea un nuovo file in scrittura e ne prende il lock.
+     */
+    private void apriFile(long istante) throws IOException {
+        corrente = cartella.resolve("accessi-" + System.currentTimeMillis() + "-" + PID + "-" + file.incrementAndGet()
+                + ".corrente.gz");
+        canale = FileChannel.open(corrente, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            canale.lock(POSIZIONE_LOCK, 1, false);
+        } catch (IOException e) {
+            canale.close();
+            Files.delete(corrente);
+            throw e;
+        }
+        gzip = new GZIPOutputStream(Channels.newOutputStream(canale), 1 << 16, true);
+        uscita = new DataOutputStream(new BufferedOutputStream(gzip, 1 << 16));
+        uscita.writeInt(MAGIA);
+        primo = istante;
+        ultimo = istante;
+    }
+
+    /**
+     * Completa il file corrente e gli dà il nome definitivo. La rinomina avviene
+     * prima di chiudere il canale, quindi con il lock ancora preso: nessun altro
+     * processo può recuperare il file nel frattempo.
+     */
+    private void chiudiFile() {
+        if (uscita == null) {
+            return;
+        }
+        try {
+            uscita.flush();
+            gzip.finish();
+            rinomina(corrente, primo, ultimo);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            canale.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        uscita = null;
+        gzip = null;
+        canale = null;
+    }
+
+    /**
+     * Chiude un file rimasto in scrittura da un processo terminato, leggendone
+     * le voci fino all'ultimo blocco completo. Se un altro processo (o un altro
+     * registro di questo) ne tiene il lock, o lo ha già recuperato, il file resta com'è.
+     * Non va chiamato sui file di questo processo (vedi la nota sui lock POSIX).
+     */
+    private static void recupera(Path f) throws IOException {
+        FileChannel c;
+        try {
+            c = FileChannel.open(f, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        try (c) {
+            FileLock lock;
+            try {
+                lock = c.tryLock(POSIZIONE_LOCK, 1, false);
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null || !Files.exists(f)) {
+                return;
+            }
+            long[] estremi = {Long.MAX_VALUE, Long.MIN_VALUE};
+            LettoreRegistroAccessi.leggiFile(f, null, Long.MIN_VALUE, Long.MAX_VALUE, v -> {
+                estremi[0] = Math.min(estremi[0], v.getIstante());
+                estremi[1] = Math.max(estremi[1], v.getIstante());
+            });
+            if (estremi[0] > estremi[1]) {
+                Files.delete(f);
+            } else {
+                rinomina(f, estremi[0], estremi[1]);
+            }
+        }
+    }
+
+    private static void rinomina(Path f, long primo, long ultimo) throws IOException {
+        String nome = f.getFileName().toString();
+        String base = nome.substring("accessi-".length(), nome.length() - ".corrente.gz".length());
+        Files.move(f, f.resolveSibling("accessi-" + primo + "-" + ultimo + "-" + base + ".gz"),
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return cartella dei file del registro
+     */
+    public Path getCartella() {
+        return cartella;
+    }
+
+    /**
+     * Scrive le voci in coda, chiude il file corrente e ferma il thread di
+     * scrittura. Le voci registrate dopo la chiusura vengono ignorate.
+     */
+    @Override
+    public void close() {
+        if (chiuso) {
+            return;
+        }
+        chiuso = true;
+        LockSupport.unpark(scrittore);
+        try {
+            scrittore.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import com.mycompany.monopolyumlgfr.metriche.Contatore;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Registro dei tenant (leghe, eventi) serviti da un unico processo.
+ * <p>
+ * Ogni tenant ha il proprio archivio utenti, con il suo indice in memoria, e
+ * il proprio {@link Sistema}, con le sue sessioni. Gli archivi vengono aperti
+ * alla prima richiesta e gli indici costruiti alla prima ricerca, quindi un
+ * server con molte leghe legge solo i file di quelle attive.
+ * </p>
+ * <p>
+ * Si aprono solo i tenant che esistono già (es. il file dell'archivio) o che
+ * sono stati aggiunti con {@link #registra(String)}: un nome qualsiasi non crea
+ * archivi né occupa memoria nel registro.
+ * </p>
+ *
+ * <h2>Limiti di memoria</h2>
+ * A ogni richiesta (e con {@link #scaricaInattivi()}) il registro libera con
+ * {@link DatabaseUtenti#scarica()} l'indice:
+ * <ul>
+ *   <li>dei tenant non usati da più del tempo di inattività;</li>
+ *   <li>dei tenant che superano il proprio limite ({@link #setLimite(String, long)},
+ *       altrimenti quello predefinito);</li>
+ *   <li>dei tenant usati meno di recente, finché la memoria stimata totale non
+ *       rientra nel limite del registro.</li>
+ * </ul>
+ * Il tenant della richiesta in corso non viene scaricato da quella stessa
+ * richiesta. Scaricare un tenant non chiude le sue sessioni né invalida il suo
+ * {@link Sistema}: la ricerca successiva ricostruisce l'indice dal file.
+ *
+ * <h2>Chiusura dei tenant inattivi</h2>
+ * Un tenant inattivo e senza sessioni aperte viene invece tolto dal registro e
+ * il suo archivio chiuso: la richiesta successiva lo riapre con un nuovo
+ * {@link Sistema}.
+ *
+ * <h2>Uso</h2>
+ * <pre>{@code
+ * RegistroTenant leghe = RegistroTenant.suCartella(Path.of("leghe"), 256 << 20, 32 << 20, 600_000);
+ * leghe.registra("serie-a");
+ * Utente u = leghe.sistema("serie-a").validaCredenziali(username, password);
+ * }</pre>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>I nomi dei tenant ammettono lettere, cifre, {@code _} e {@code -} (al più
+ *       64 caratteri), così non possono indicare file fuori dalla cartella.</li>
+ *   <li>La memoria è quella stimata da {@link DatabaseUtenti#memoriaStimata()};
+ *       gli archivi SQL non hanno indice e contano zero.</li>
+ *   <li>I limiti sono verificati all'inizio delle richieste: un tenant può
+ *       superarli per la durata di una richiesta.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public final class RegistroTenant implements AutoCloseable {
+
+    /** Nomi di tenant ammessi. */
+    private static final Pattern NOME_VALIDO = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    /** Indici di tenant liberati per inattività o limiti di memoria. */
+    private static final Contatore SCARICATI = RegistroMetriche.contatore("tenant.scaricati");
+
+    /** Tenant chiusi per inattività. */
+    private static final Contatore CHIUSI = RegistroMetriche.contatore("tenant.chiusi");
+
+    /**
+     * Tenant aperto: archivio, sistema e ultimo uso.
+     */
+    private static final class Tenant {
+
+        final DatabaseUtenti db;
+        final GestoreSessioni sessioni = new GestoreSessioni();
+        final Sistema sistema;
+
+        /** Istante dell'ultima richiesta (ns), con il lock del registro. */
+        long ultimoUso;
+
+        Tenant(DatabaseUtenti db) {
+            this.db = db;
+            this.sistema = new Sistema(db, sessioni);
+        }
+    }
+
+    /** Apre l'archivio di un tenant dal nome. */
+    private final Function<String, DatabaseUtenti> apertura;
+
+    /** Dice se un tenant esiste già, senza aprirlo. */
+    private final Predicate<String> esistente;
+
+    /** Memoria stimata massima degli indici di tutti i tenant (byte). */
+    private final long limiteTotale;
+
+    /** Memoria stimata massima predefinita dell'indice di un tenant (byte). */
+    private final long limitePerTenant;
+
+    /** Tempo senza richieste dopo cui l'indice di un tenant viene liberato (ns). */
+    private final long inattività;
+
+    /** Sorgente del tempo in nanosecondi. */
+    private final LongSupplier orologio;
+
+    /** Tenant aperti, dal meno al più recentemente usato. */
+    private final LinkedHashMap<String, Tenant> tenant = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Limiti impostati per singoli tenant. */
+    private final Map<String, Long> limiti = new HashMap<>();
+
+    /** Tenant aggiunti con {@link #registra(String)}. */
+    private final Set<String> registrati = new HashSet<>();
+
+    /**
+     * Crea un registro.
+     *
+     * @param apertura         apre l'archivio di un tenant dal nome (chiamata a ogni apertura)
+     * @param esistente        dice se un tenant non registrato esiste già e può essere aperto
+     * @param limiteTotale     memoria stimata massima degli indici di tutti i tenant, in byte
+     * @param limitePerTenant  memoria stimata massima predefinita dell'indice di un tenant, in byte
+     * @param inattivitàMillis tempo senza richieste dopo cui l'indice di un tenant viene liberato
+     */
+    public RegistroTenant(Function<String, DatabaseUtenti> apertura, Predicate<String> esistente,
+                          long limiteTotale, long limitePerTenant, long inattivitàMillis) {
+        this(apertura, esistente, limiteTotale, limitePerTenant, inattivitàMillis, System::nanoTime);
+    }
+
+    /**
+     * Crea un registro con orologio esplicito (usato nei test).
+     */
+    RegistroTenant(Function<String, DatabaseUtenti> apertura, Predicate<String> esistente,
+                   long limiteTotale, long limitePerTenant, long inattivitàMillis, LongSupplier orologio) {
+        if (limiteTotale <= 0 || limitePerTenant <= 0 || inattivitàMillis <= 0) {
+            throw new IllegalArgumentException("Limiti del registro dei tenant non validi");
+        }
+        this.apertura = apertura;
+        this.esistente = esistente;
+        this.limiteTotale = limiteTotale;
+        this.limitePerTenant = limitePerTenant;
+        this.inattività = TimeUnit.MILLISECONDS.toNanos(inattivitàMillis);
+        this.orologio = orologio;
+    }
+
+    /**
+     * Crea un registro con un file XML per tenant, {@code <cartella>/<tenant>.xml}.
+     * Esistono i tenant con il file nella cartella; quello di un tenant
+     * {@linkplain #registra(String) registrato} viene creato vuoto alla prima richiesta.
+     *
+     * @param cartella         cartella degli archivi, creata se manca
+     * @param limiteTotale     memoria stimata massima degli indici di tutti i tenant, in byte
+     * @param limitePerTenant  memoria stimata massima predefinita dell'indice di un tenant, in byte
+     * @param inattivitàMillis tempo senza richieste dopo cui l'indice di un tenant viene liberato
+     * @return registro
+     * @throws IllegalStateException se la cartella non può essere creata
+     */
+    public static RegistroTenant suCartella(Path cartella, long limiteTotale,
+                                            long limitePerTenant, long inattivitàMillis) {
+        try {
+            Files.createDirectories(cartella);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossibile creare la cartella dei tenant: " + cartella, e);
+        }
+        return new RegistroTenant(nome -> new DatabaseUtenti(cartella.resolve(nome + ".xml").toFile()),
+                nome -> Files.isRegularFile(cartella.resolve(nome + ".xml")),
+                limiteTotale, limitePerTenant, inattivitàMillis);
+    }
+
+    /**
+     * Restituisce il {@link Sistema} di un tenant, aprendone l'archivio se serve.
+     * Va chiamato a ogni richiesta: è l'uso registrato qui a tenere il tenant in memoria.
+     *
+     * @param nome nome del tenant
+     * @return sistema del tenant, lo stesso finché il tenant resta aperto
+     * @throws IllegalArgumentException se il nome non è valido o il tenant non esiste
+     */
+    public Sistema sistema(String nome) {
+        return usa(nome).sistema;
+    }
+
+    /**
+     * Restituisce l'archivio utenti di un tenant, aprendolo se serve.
+     *
+     * @param nome nome del tenant
+     * @return archivio del tenant, lo stesso finché il tenant resta aperto
+     * @throws IllegalArgumentException se il nome non è valido o il tenant non esiste
+     */
+    public DatabaseUtenti database(String nome) {
+        return usa(nome).db;
+    }
+
+    /**
+     * Aggiunge un tenant che non esiste ancora, così che possa essere aperto.
+     *
+     * @param nome nome del tenant
+     * @throws IllegalArgumentException se il nome non è valido
+     */
+    public synchronized void registra(String nome) {
+        verificaNome(nome);
+        registrati.add(nome);
+    }
+
+    /**
+     * Imposta il limite di memoria di un tenant, anche non ancora aperto.
+     *
+     * @param nome   nome del tenant
+     * @param limite memoria stimata massima dell'indice, in byte
+     * @throws IllegalArgumentException se il nome o il limite non sono validi
+     */
+    public synchronized void setLimite(String nome, long limite) {
+        verificaNome(nome);
+        if (limite <= 0) {
+            throw new IllegalArgumentException("Il limite di memoria deve essere positivo");
+        }
+        limiti.put(nome, limite);
+    }
+
+    /**
+     * Registra una richiesta per un tenant, chiude i tenant inattivi e libera gli
+     * indici oltre i limiti.
+     */
+    private Tenant usa(String nome) {
+        verificaNome(nome);
+        Tenant t;
+        boolean registrato;
+        synchronized (this) {
+            t = tenant.get(nome);
+            registrato = registrati.contains(nome);
+        }
+        if (t == null) {
+            if (!registrato && !esistente.test(nome)) {
+                throw new IllegalArgumentException("Tenant inesistente: " + nome);
+            }
+            // apertura fuori dal lock: un archivio SQL può richiedere una connessione
+            Tenant aperto = new Tenant(apertura.apply(nome));
+            synchronized (this) {
+                t = tenant.putIfAbsent(nome, aperto);
+                if (t == null) {
+                    t = aperto;
+                }
+            }
+            if (t != aperto) {
+                chiudi(aperto.db);
+            }
+        }
+        List<Tenant> daChiudere;
+        List<DatabaseUtenti> daScaricare;
+        synchronized (this) {
+            long ora = orologio.getAsLong();
+            t.ultimoUso = ora;
+            daChiudere = daChiudere(ora, t);
+            daScaricare = daScaricare(ora, t);
+        }
+        chiudi(daChiudere);
+        scarica(daScaricare);
+        return t;
+    }
+
+    /**
+     * Chiude i tenant inattivi senza sessioni e libera gli indici dei tenant
+     * inattivi o oltre i limiti di memoria, come a ogni richiesta (es. da
+     * un'attività periodica quando non arrivano richieste).
+     *
+     * @return numero di tenant chiusi o con l'indice liberato
+     */
+    public int scaricaInattivi() {
+        List<Tenant> daChiudere;
+        List<DatabaseUtenti> daScaricare;
+        synchronized (this) {
+            long ora = orologio.getAsLong();
+            daChiudere = daChiudere(ora, null);
+            daScaricare = daScaricare(ora, null);
+        }
+        chiudi(daChiudere);
+        scarica(daScaricare);
+        return daChiudere.size() + daScaricare.size();
+    }
+
+    /**
+     * Toglie dal registro i tenant inattivi senza sessioni aperte. Chiamato con il lock.
+     *
+     * @param ora      istante corrente (ns)
+     * @param corrente tenant della richiesta in corso, da non chiudere; può essere null
+     */
+    private List<Tenant> daChiudere(long ora, Tenant corrente) {
+        List<Tenant> scelti = new ArrayList<>();
+        for (Iterator<Tenant> it = tenant.values().iterator(); it.hasNext(); ) {
+            Tenant t = it.next();
+            if (t != corrente && ora - t.ultimoUso > inattività && t.sessioni.rimuoviScadute() == 0) {
+                it.remove();
+                scelti.add(t);
+            }
+        }
+        return scelti;
+    }
+
+    private static void chiudi(List<Tenant> daChiudere) {
+        for (Tenant t : daChiudere) {
+            t.db.scarica();
+            chiudi(t.db);
+            CHIUSI.incrementa();
+        }
+    }
+
+    /**
+     * Sceglie gli indici da liberare: prima quelli inattivi o oltre il proprio
+     * limite, poi i meno recenti finché il totale non rientra. Chiamato con il lock.
+     *
+     * @param ora      istante corrente (ns)
+     * @param corrente tenant della richiesta in corso, da non scaricare; può essere null
+     */
+    private List<DatabaseUtenti> daScaricare(long ora, Tenant corrente) {
+        List<DatabaseUtenti> scelti = new ArrayList<>();
+        List<Tenant> candidati = new ArrayList<>();
+        List<Long> memoria = new ArrayList<>();
+        long totale = 0;
+        for (Map.Entry<String, Tenant> e : tenant.entrySet()) {
+            Tenant t = e.getValue();
+            long m = t.db.memoriaStimata();
+            if (m == 0) {
+                continue;
+            }
+            if (t != corrente && (ora - t.ultimoUso > inattività
+                    || m > limiti.getOrDefault(e.getKey(), limitePerTenant))) {
+                scelti.add(t.db);
+                continue;
+            }
+            totale += m;
+            if (t != corrente) {
+                candidati.add(t);
+                memoria.add(m);
+            }
+        }
+        for (int i = 0; i < candidati.size() && totale > limiteTotale; i++) {
+            scelti.add(candidati.get(i).db);
+            totale -= memoria.get(i);
+        }
+        return scelti;
+    }
+
+    private static void scarica(List<DatabaseUtenti> daScaricare) {
+        for (DatabaseUtenti db : daScaricare) {
+            db.scarica();
+            SCARICATI.incrementa();
+        }
+    }
+
+    /**
+     * @return memoria stimata degli indici di tutti i tenant, in byte
+     */
+    public synchronized long getMemoriaStimata() {
+        long totale = 0;
+        for (Tenant t : tenant.values()) {
+            totale += t.db.memoriaStimata();
+        }
+        return totale;
+    }
+
+    /**
+     * @return nomi dei tenant con l'indice in memoria, in ordine alfabetico
+     */
+    public synchronized Set<String> getTenantCaricati() {
+        Set<String> caricati = new TreeSet<>();
+        for (Map.Entry<String, Tenant> e : tenant.entrySet()) {
+            if (e.getValue().db.memoriaStimata() > 0) {
+                caricati.add(e.getKey());
+            }
+        }
+        return caricati;
+    }
+
+    /**
+     * Chiude gli archivi che tengono risorse aperte (es. {@link DatabaseUtentiSQL}).
+     * Il registro non va più usato.
+     */
+    @Override
+    public synchronized void close() {
+        for (Tenant t : tenant.values()) {
+            chiudi(t.db);
+        }
+        tenant.clear();
+    }
+
+    private static void chiudi(DatabaseUtenti db) {
+        if (db instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) db).close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void verificaNome(String nome) {
+        if (nome == null || !NOME_VALIDO.matcher(nome).matches()) {
+            throw new IllegalArgumentException("Nome di tenant non valido: " + nome);
+        }
+    }
+}
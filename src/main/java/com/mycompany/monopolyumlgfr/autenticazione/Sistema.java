@@ -6,6 +6,17 @@ package com.mycompany.monopolyumlgfr.autenticazione;
 
 import com.mycompany.monopolyumlgfr.gioco.Giocatore;
 import com.mycompany.monopolyumlgfr.gioco.Partita;
+import com.mycompany.monopolyumlgfr.metriche.Contatore;
+import com.mycompany.monopolyumlgfr.metriche.Istogramma;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Componente centrale per la gestione degli utenti e delle notifiche di gioco.
@@ -17,6 +28,7 @@ import com.mycompany.monopolyumlgfr.gioco.Partita;
  *   <li>Registrare nuovi giocatori nel database.</li>
  *   <li>Validare le credenziali di login.</li>
  *   <li>Autenticare un utente esistente.</li>
+ *   <li>Gestire sessioni di login tramite token ({@link GestoreSessioni}).</li>
  *   <li>Notificare eventi di gioco come abbandono o fine partita.</li>
  * </ul>
  * <!-- </p> -->
@@ -26,53 +38,315 @@ import com.mycompany.monopolyumlgfr.gioco.Partita;
  *   <li>La classe incapsula l'accesso al {@link DatabaseUtenti} e ne semplifica l'uso.</li>
  *   <li>Le notifiche di abbandono e fine partita sono attualmente loggate su console,
  *       ma possono essere estese per persistenza o statistiche.</li>
+ *   <li>Registrazione e login hanno varianti asincrone ({@link #registraGiocatoreAsync},
+ *       {@link #autenticaGiocatoreAsync}) eseguite su un esecutore dedicato all'I/O, così
+ *       l'EDT di Swing o un gestore di rete non attendono il disco.</li>
+ *   <li>I posti di una lobby si autenticano insieme ({@link #validaCredenziali(Map)}):
+ *       una sola ricerca nel database per tutti e verifica delle password in parallelo.</li>
+ *   <li>Con un {@link RegistroAccessi} configurato, login e registrazioni vengono
+ *       messi in coda per l'audit senza I/O sul percorso della richiesta.</li>
  * </ul>
  *
  * @author giuli
  */
 public class Sistema {
 
+    /**
+     * Durata della validazione delle credenziali (solo tentativi non rifiutati).
+     */
+    private static final Istogramma TEMPO_LOGIN = RegistroMetriche.istogramma("sistema.login");
+
+    /**
+     * Login riusciti, falliti e rifiutati dal limitatore.
+     */
+    private static final Contatore LOGIN_RIUSCITI = RegistroMetriche.contatore("sistema.login.riusciti");
+    private static final Contatore LOGIN_FALLITI = RegistroMetriche.contatore("sistema.login.falliti");
+    private static final Contatore LOGIN_RIFIUTATI = RegistroMetriche.contatore("sistema.login.rifiutati");
+
+    /**
+     * Thread dell'esecutore I/O predefinito (proprietà {@code monopoly.thread.io}).
+     * Sono più dei processori perché passano buona parte del tempo in attesa del disco.
+     */
+    private static final int THREAD_IO = Integer.getInteger("monopoly.thread.io",
+            Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Esecutore I/O predefinito, condiviso e creato al primo uso.
+     */
+    private static final class EsecutoreIO {
+        static final ExecutorService ISTANZA = Executors.newFixedThreadPool(THREAD_IO, r -> {
+            Thread t = new Thread(r, "sistema-io");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
     /**
      * Riferimento al database utenti per operazioni di persistenza.
      */
     private DatabaseUtenti db;
 
+    /**
+     * Gestore delle sessioni aperte dopo un login riuscito.
+     */
+    private final GestoreSessioni sessioni;
+
+    /**
+     * Limitatore dei tentativi di login; {@code null} se non configurato.
+     */
+    private volatile LimitatoreLogin limitatore;
+
+    /**
+     * Registro di audit di login e registrazioni; {@code null} se non configurato.
+     */
+    private volatile RegistroAccessi accessi;
+
+    /**
+     * Esecutore delle operazioni asincrone; {@code null} per quello predefinito.
+     */
+    private final Executor io;
+
     /**
      * Costruttore.
      *
      * @param db istanza di {@link DatabaseUtenti} da usare per registrazione e autenticazione
      */
     public Sistema(DatabaseUtenti db) {
+        this(db, new GestoreSessioni());
+    }
+
+    /**
+     * Costruttore con gestore delle sessioni esplicito.
+     *
+     * @param db       istanza di {@link DatabaseUtenti} da usare per registrazione e autenticazione
+     * @param sessioni gestore delle sessioni di login
+     */
+    public Sistema(DatabaseUtenti db, GestoreSessioni sessioni) {
+        this(db, sessioni, null);
+    }
+
+    /**
+     * Costruttore con esecutore delle operazioni asincrone esplicito.
+     *
+     * @param db       istanza di {@link DatabaseUtenti} da usare per registrazione e autenticazione
+     * @param sessioni gestore delle sessioni di login
+     * @param io       esecutore di {@link #registraGiocatoreAsync}, {@link #autenticaGiocatoreAsync}
+     *                 e delle verifiche di {@link #validaCredenziali(Map)};
+     *                 {@code null} per l'esecutore I/O condiviso
+     */
+    public Sistema(DatabaseUtenti db, GestoreSessioni sessioni, Executor io) {
         this.db = db;
+        this.sessioni = sessioni;
+        this.io = io;
+    }
+
+    /**
+     * Restituisce l'esecutore delle operazioni asincrone.
+     */
+    private Executor esecutoreIO() {
+        return io != null ? io : EsecutoreIO.ISTANZA;
     }
 
     /**
      * Registra un nuovo giocatore nel sistema.
      * <p>
-     * Crea un nuovo {@link Utente} e lo salva nel database.
+     * Crea un nuovo {@link Utente} e lo salva nel database, se lo username è libero.
+     * La password viene salvata codificata con {@link CodificaPassword}; la
+     * codifica è calcolata solo dopo aver verificato che lo username sia libero.
+     * </p>
+     *
+     * @param nome     nome reale del giocatore
+     * @param username identificativo univoco per il login
+     * @param password password associata all'utente
+     * @return true se registrato, false se lo username è già in uso
+     */
+    public boolean registraGiocatore(String nome, String username, String password) {
+        boolean registrato = !db.esiste(username)
+                && db.salvaUtente(new Utente(nome, username, CodificaPassword.predefinita().codifica(password)));
+        audit(registrato ? RegistroAccessi.Evento.REGISTRAZIONE : RegistroAccessi.Evento.REGISTRAZIONE_RIFIUTATA,
+                username);
+        return registrato;
+    }
+
+    /**
+     * Registra un nuovo giocatore senza bloccare il chiamante.
+     * <p>
+     * Codifica della password e scrittura su disco avvengono sull'esecutore I/O;
+     * il future si completa con lo stesso esito di
+     * {@link #registraGiocatore(String, String, String)}.
      * </p>
      *
      * @param nome     nome reale del giocatore
      * @param username identificativo univoco per il login
      * @param password password associata all'utente
+     * @return future con true se registrato, false se lo username è già in uso
+     */
+    public CompletableFuture<Boolean> registraGiocatoreAsync(String nome, String username, String password) {
+        return CompletableFuture.supplyAsync(() -> registraGiocatore(nome, username, password), esecutoreIO());
+    }
+
+    /**
+     * Verifica se uno username è libero, senza leggere il database nel caso comune.
+     *
+     * @param username username da verificare
+     * @return true se nessun utente lo ha registrato
+     */
+    public boolean isUsernameLibero(String username) {
+        return !db.esiste(username);
+    }
+
+    /**
+     * Suggerisce gli username che iniziano con un prefisso, ad esempio per
+     * invitare amici in una lobby.
+     *
+     * @param prefisso prefisso digitato
+     * @param k        numero massimo di suggerimenti
+     * @return al più {@code k} username, in ordine alfabetico
+     */
+    public List<String> suggerisciUsername(String prefisso, int k) {
+        return db.cercaPerPrefisso(prefisso, k);
+    }
+
+    /**
+     * Imposta il limitatore dei tentativi di login.
+     *
+     * @param limitatore limitatore da applicare, oppure {@code null} per nessun limite
+     */
+    public void setLimitatoreLogin(LimitatoreLogin limitatore) {
+        this.limitatore = limitatore;
+    }
+
+    /**
+     * Imposta il registro di audit di login e registrazioni.
+     *
+     * @param accessi registro in cui annotare gli eventi, oppure {@code null} per nessun audit
      */
-    public void registraGiocatore(String nome, String username, String password) {
-        Utente nuovo = new Utente(nome, username, password);
-        db.salvaUtente(nuovo);
+    public void setRegistroAccessi(RegistroAccessi accessi) {
+        this.accessi = accessi;
+    }
+
+    /**
+     * Annota un evento nel registro di audit, se configurato.
+     */
+    private void audit(RegistroAccessi.Evento evento, String username) {
+        RegistroAccessi a = accessi;
+        if (a != null) {
+            a.registra(evento, username);
+        }
     }
 
     /**
      * Valida le credenziali di login confrontandole con gli utenti registrati.
+     * <p>
+     * Se è configurato un {@link LimitatoreLogin}, i tentativi oltre il limite
+     * vengono rifiutati prima di cercare l'utente, senza alcun accesso al database
+     * né calcolo di hash. La ricerca usa l'indice in memoria del database
+     * ({@link DatabaseUtenti#cerca(String)}); la password
+     * è verificata con {@link CodificaPassword#verifica(String, String)}, che accetta
+     * anche le password salvate in chiaro. Per uno username inesistente viene
+     * eseguita {@link CodificaPassword#verificaFittizia(String)}, così il tempo di
+     * risposta non rivela quali username sono registrati.
+     * </p>
      *
      * @param username username inserito
      * @param password password inserita
      * @return l'oggetto {@link Utente} se le credenziali sono corrette, altrimenti {@code null}
      */
     public Utente validaCredenziali(String username, String password) {
-        for (Utente u : db.caricaUtenti()) {
-            if (u.getUsername().equals(username) && u.getPassword().equals(password)) {
+        LimitatoreLogin l = limitatore;
+        if (l != null && !l.consenti(username)) {
+            LOGIN_RIFIUTATI.incrementa();
+            audit(RegistroAccessi.Evento.LOGIN_RIFIUTATO, username);
+            return null;
+        }
+        long t0 = RegistroMetriche.inizio();
+        Utente trovato = verifica(password, db.cerca(username));
+        TEMPO_LOGIN.fine(t0);
+        if (trovato != null) {
+            LOGIN_RIUSCITI.incrementa();
+            audit(RegistroAccessi.Evento.LOGIN_RIUSCITO, username);
+        } else {
+            LOGIN_FALLITI.incrementa();
+            audit(RegistroAccessi.Evento.LOGIN_FALLITO, username);
+        }
+        return trovato;
+    }
+
+    /**
+     * Valida insieme le credenziali di più giocatori, ad esempio i posti di una lobby.
+     * <p>
+     * Il limitatore e le metriche si applicano a ogni posto come in
+     * {@link #validaCredenziali(String, String)}, ma gli username ammessi sono
+     * cercati con una sola chiamata a {@link DatabaseUtenti#cercaTutti} e le
+     * password (la parte costosa) sono verificate in parallelo sull'esecutore I/O.
+     * Il tempo di login è registrato per ogni posto, dall'inizio della ricerca
+     * alla fine della sua verifica. Il chiamante attende le verifiche: non va
+     * chiamato da un task dello stesso esecutore, che potrebbe non avere thread liberi.
+     * </p>
+     *
+     * @param credenziali password per username, nell'ordine dei posti (es. {@link java.util.LinkedHashMap})
+     * @return per ogni posto, nell'ordine della mappa, l'{@link Utente} autenticato oppure {@code null}
+     */
+    public List<Utente> validaCredenziali(Map<String, String> credenziali) {
+        LimitatoreLogin l = limitatore;
+        List<String> ammessi = new ArrayList<>(credenziali.size());
+        for (String username : credenziali.keySet()) {
+            if (l != null && !l.consenti(username)) {
+                LOGIN_RIFIUTATI.incrementa();
+                audit(RegistroAccessi.Evento.LOGIN_RIFIUTATO, username);
+            } else {
+                ammessi.add(username);
+            }
+        }
+        long t0 = RegistroMetriche.inizio();
+        Map<String, List<Utente>> candidati = ammessi.isEmpty() ? Map.of() : db.cercaTutti(ammessi);
+        List<CompletableFuture<Utente>> verifiche = new ArrayList<>(ammessi.size());
+        for (String username : ammessi) {
+            verifiche.add(CompletableFuture.supplyAsync(() -> {
+                Utente u = verifica(credenziali.get(username), candidati.getOrDefault(username, List.of()));
+                TEMPO_LOGIN.fine(t0);
                 return u;
+            }, esecutoreIO()));
+        }
+        Map<String, Utente> trovati = new HashMap<>();
+        for (int i = 0; i < ammessi.size(); i++) {
+            Utente u = verifiche.get(i).join();
+            if (u != null) {
+                trovati.put(ammessi.get(i), u);
+            }
+        }
+
+        List<Utente> esiti = new ArrayList<>(credenziali.size());
+        for (String username : credenziali.keySet()) {
+            Utente u = trovati.get(username);
+            if (u != null) {
+                LOGIN_RIUSCITI.incrementa();
+                audit(RegistroAccessi.Evento.LOGIN_RIUSCITO, username);
+            } else if (ammessi.contains(username)) {
+                LOGIN_FALLITI.incrementa();
+                audit(RegistroAccessi.Evento.LOGIN_FALLITO, username);
             }
+            esiti.add(u);
+        }
+        return esiti;
+    }
+
+    /**
+     * Verifica una password con gli utenti trovati per uno username.
+     *
+     * @param password  password inserita
+     * @param candidati utenti con lo username cercato, anche nessuno
+     * @return l'utente la cui password corrisponde, oppure {@code null}
+     */
+    private static Utente verifica(String password, List<Utente> candidati) {
+        for (Utente u : candidati) {
+            if (CodificaPassword.verifica(password, u.getPassword())) {
+                return u;
+            }
+        }
+        if (candidati.isEmpty()) {
+            // stesso costo di un utente esistente: il tempo non rivela gli username registrati
+            CodificaPassword.verificaFittizia(password);
         }
         return null;
     }
@@ -88,31 +362,89 @@ public class Sistema {
         return validaCredenziali(username, password);
     }
 
+    /**
+     * Autentica un giocatore senza bloccare il chiamante.
+     * <p>
+     * Lettura del database e verifica della password avvengono sull'esecutore I/O.
+     * Il future viene completato su un thread dell'esecutore: un'interfaccia
+     * Swing deve riportare l'aggiornamento sull'EDT.
+     * </p>
+     *
+     * @param username username inserito
+     * @param password password inserita
+     * @return future con l'{@link Utente} autenticato, oppure {@code null} se le credenziali non sono valide
+     */
+    public CompletableFuture<Utente> autenticaGiocatoreAsync(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> validaCredenziali(username, password), esecutoreIO());
+    }
+
+    /**
+     * Valida le credenziali e, se corrette, apre una sessione.
+     * <p>
+     * Le azioni successive possono identificare l'utente tramite
+     * {@link #validaSessione(String)} senza ripetere il controllo delle credenziali.
+     * </p>
+     *
+     * @param username username inserito
+     * @param password password inserita
+     * @return token opaco della sessione, oppure {@code null} se le credenziali non sono valide
+     */
+    public String apriSessione(String username, String password) {
+        Utente u = validaCredenziali(username, password);
+        return u == null ? null : sessioni.apri(u);
+    }
+
+    /**
+     * Restituisce l'utente associato a un token di sessione.
+     * <p>
+     * Non accede al database utenti: la verifica è una lettura in memoria.
+     * </p>
+     *
+     * @param token token restituito da {@link #apriSessione(String, String)}
+     * @return l'utente della sessione, oppure {@code null} se il token non è valido o è scaduto
+     */
+    public Utente validaSessione(String token) {
+        return sessioni.valida(token);
+    }
+
+    /**
+     * Chiude una sessione (logout).
+     *
+     * @param token token della sessione
+     * @return true se la sessione era attiva
+     */
+    public boolean chiudiSessione(String token) {
+        return sessioni.chiudi(token);
+    }
+
     /**
      * Notifica al sistema che un giocatore ha abbandonato la partita.
      * <p>
-     * Attualmente stampa un messaggio su console, ma può essere esteso
-     * per logging, persistenza o statistiche.
+     * Attualmente scrive un messaggio sull'output della partita
+     * ({@link Partita#getOutput()}), ma può essere esteso per logging,
+     * persistenza o statistiche.
      * </p>
      *
+     * @param p partita abbandonata
      * @param g giocatore che ha abbandonato
      */
-    public void notificaAbbandono(Giocatore g) {
-        System.out.println("Sistema: Giocatore " + g.getUtente().getUsername() + " ha abbandonato la partita.");
+    public void notificaAbbandono(Partita p, Giocatore g) {
+        p.getOutput().println("Sistema: Giocatore " + g.getUtente().getUsername() + " ha abbandonato la partita.");
         // logica di logging, persistenza, statistiche
     }
 
     /**
      * Notifica al sistema che la partita è terminata.
      * <p>
-     * Attualmente stampa un messaggio su console, ma può essere esteso
-     * per chiusura risorse o salvataggio risultati.
+     * Attualmente scrive un messaggio sull'output della partita
+     * ({@link Partita#getOutput()}), ma può essere esteso per chiusura
+     * risorse o salvataggio risultati.
      * </p>
      *
      * @param p partita terminata
      */
     public void notificaFinePartita(Partita p) {
-        System.out.println("Sistema: La partita è terminata.");
+        p.getOutput().println("Sistema: La partita è terminata.");
         // logica di chiusura partita
     }
 }
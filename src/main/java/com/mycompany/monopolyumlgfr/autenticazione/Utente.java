@@ -27,8 +27,9 @@ package com.mycompany.monopolyumlgfr.autenticazione;
  *
  * <h2>Note</h2>
  * <ul>
- *   <li>La password è memorizzata in chiaro: per un sistema reale
- *       sarebbe opportuno utilizzare hashing e salting.</li>
+ *   <li>Il campo password contiene il valore memorizzato: per gli utenti registrati
+ *       tramite {@link Sistema} è una password codificata ({@link CodificaPassword}),
+ *       per gli archivi precedenti può essere in chiaro.</li>
  *   <li>La classe è immutabile solo parzialmente: i campi sono privati
  *       ma non definiti come {@code final}.</li>
  * </ul>
@@ -0,0 +1,224 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.function.Consumer;
+
+/**
+ * Asta per una {@link Proprietà} rifiutata dal giocatore che vi è capitato.
+ * <p>
+ * Le aste sono create e temporizzate da una {@link CasaAste}. Ogni partecipante
+ * ha un'offerta massima: i bot la dichiarano all'apertura tramite
+ * {@link PoliticaGiocatore#offertaMassima}, le persone la alzano con
+ * {@link #offri(Giocatore, int)} durante l'asta. Il prezzo corrente è quello
+ * di un'asta al rialzo con rilanci automatici:
+ * <ul>
+ *   <li>conduce chi ha l'offerta massima più alta (a parità, chi l'ha fatta prima);</li>
+ *   <li>il prezzo è la seconda offerta massima più un rilancio minimo, senza
+ *       superare l'offerta massima di chi conduce;</li>
+ *   <li>con un solo offerente il prezzo è il rilancio minimo.</li>
+ * </ul>
+ * <!-- </p> -->
+ *
+ * <h2>Round</h2>
+ * L'asta procede a round di durata fissa: ogni offerta valida sposta la chiusura
+ * alla fine di un nuovo round, e l'asta si chiude quando un round intero passa
+ * senza offerte. Alla chiusura viene chiamata la callback indicata all'apertura,
+ * sul thread dello scheduler della {@link CasaAste} e prima che {@link #isChiusa()}
+ * restituisca true.
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>I metodi sono sincronizzati sull'asta: le offerte possono arrivare da
+ *       qualunque thread (UI, console, rete).</li>
+ *   <li>L'asta non trasferisce denaro né proprietà: il risultato viene applicato
+ *       da {@link Partita} nel thread dei turni.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class Asta {
+
+    /** Casa d'aste che temporizza l'asta. */
+    private final CasaAste casa;
+
+    /** Proprietà all'asta. */
+    private final Proprietà proprietà;
+
+    /** Partecipanti. */
+    private final Giocatore[] partecipanti;
+
+    /** Offerta massima di ogni partecipante (0 = nessuna offerta). */
+    private final int[] massimi;
+
+    /** Ordine in cui sono state fatte le offerte massime, per gli spareggi. */
+    private final long[] ordine;
+
+    /** Rilancio minimo. */
+    private final int rilancio;
+
+    /** Durata di un round (ns). */
+    private final long durataRoundNanos;
+
+    /** Callback di chiusura. */
+    private final Consumer<Asta> allaChiusura;
+
+    /** Contatore delle offerte, per gli spareggi. */
+    private long sequenza;
+
+    /** Istante di chiusura previsto ({@link System#nanoTime()}). */
+    private long scadenza;
+
+    /** Numero di round svolti. */
+    private int round;
+
+    /** Partecipante che conduce, oppure null. */
+    private Giocatore vincitore;
+
+    /** Prezzo corrente. */
+    private int prezzo;
+
+    /** True dopo la chiusura. */
+    private boolean chiusa;
+
+    /**
+     * Costruttore usato da {@link CasaAste#apri}.
+     */
+    Asta(CasaAste casa, Proprietà proprietà, Giocatore[] partecipanti, int[] massimi,
+            int rilancio, long durataRoundNanos, Consumer<Asta> allaChiusura) {
+        if (partecipanti.length != massimi.length) {
+            throw new IllegalArgumentException("Serve un'offerta massima per ogni partecipante");
+        }
+        this.casa = casa;
+        this.proprietà = proprietà;
+        this.partecipanti = partecipanti.clone();
+        this.massimi = new int[massimi.length];
+        this.ordine = new long[massimi.length];
+        this.rilancio = rilancio;
+        this.durataRoundNanos = durataRoundNanos;
+        this.allaChiusura = allaChiusura;
+        for (int i = 0; i < massimi.length; i++) {
+            if (massimi[i] >= rilancio) {
+                this.massimi[i] = massimi[i];
+                this.ordine[i] = ++sequenza;
+            }
+        }
+        risolvi();
+        this.scadenza = System.nanoTime() + durataRoundNanos;
+    }
+
+    /**
+     * Fa un'offerta per conto di un partecipante.
+     * <p>
+     * L'offerta è valida se l'asta è aperta, il giocatore partecipa, può pagarla
+     * e supera il prezzo corrente di almeno un rilancio minimo. Un'offerta valida
+     * prolunga l'asta di un round.
+     * </p>
+     *
+     * @param g       partecipante che offre
+     * @param importo offerta massima del partecipante
+     * @return true se l'offerta è stata accettata
+     */
+    public synchronized boolean offri(Giocatore g, int importo) {
+        if (chiusa || importo > g.getDenaro() || importo < getOffertaMinima()) {
+            return false;
+        }
+        for (int i = 0; i < partecipanti.length; i++) {
+            if (partecipanti[i] == g) {
+                if (importo <= massimi[i]) {
+                    return false;
+                }
+                massimi[i] = importo;
+                ordine[i] = ++sequenza;
+                risolvi();
+                scadenza = System.nanoTime() + durataRoundNanos;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcola chi conduce e il prezzo corrente dalle offerte massime.
+     */
+    private void risolvi() {
+        int primo = -1;
+        int secondo = -1;
+        for (int i = 0; i < massimi.length; i++) {
+            if (massimi[i] == 0) {
+                continue;
+            }
+            if (primo < 0 || massimi[i] > massimi[primo]
+                    || (massimi[i] == massimi[primo] && ordine[i] < ordine[primo])) {
+                secondo = primo;
+                primo = i;
+            } else if (secondo < 0 || massimi[i] > massimi[secondo]) {
+                secondo = i;
+            }
+        }
+        if (primo < 0) {
+            vincitore = null;
+            prezzo = 0;
+        } else {
+            vincitore = partecipanti[primo];
+            prezzo = secondo < 0 ? rilancio : Math.min(massimi[primo], massimi[secondo] + rilancio);
+        }
+    }
+
+    /**
+     * Controlla la scadenza del round: chiude l'asta oppure la riprogramma.
+     * Chiamato dallo scheduler della {@link CasaAste}.
+     */
+    synchronized void controlla() {
+        if (chiusa) {
+            return;
+        }
+        long mancano = scadenza - System.nanoTime();
+        if (mancano > 0) {
+            round++;
+            casa.programma(this, mancano);
+            return;
+        }
+        chiusa = true;
+        casa.conclusa(this);
+        if (allaChiusura != null) {
+            allaChiusura.accept(this);
+        }
+    }
+
+    /** @return proprietà all'asta */
+    public Proprietà getProprietà() {
+        return proprietà;
+    }
+
+    /** @return partecipante che conduce (o vincitore, se chiusa), oppure null */
+    public synchronized Giocatore getVincitore() {
+        return vincitore;
+    }
+
+    /** @return prezzo corrente (o finale, se chiusa); 0 se nessuno ha offerto */
+    public synchronized int getPrezzo() {
+        return prezzo;
+    }
+
+    /** @return importo minimo di una nuova offerta */
+    public synchronized int getOffertaMinima() {
+        return vincitore == null ? rilancio : prezzo + rilancio;
+    }
+
+    /** @return numero di round prolungati da nuove offerte */
+    public synchronized int getRound() {
+        return round;
+    }
+
+    /** @return true se l'asta è chiusa */
+    public synchronized boolean isChiusa() {
+        return chiusa;
+    }
+
+    /**
+     * @return true se la casa d'aste è stata chiusa con l'asta ancora aperta:
+     *         l'asta non si chiuderà più e non ha un vincitore
+     */
+    public synchronized boolean isInterrotta() {
+        return !chiusa && casa.isChiusa();
+    }
+}
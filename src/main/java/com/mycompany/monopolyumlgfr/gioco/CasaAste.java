@@ -0,0 +1,145 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.metriche.Contatore;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Casa d'aste condivisa tra le partite.
+ * <p>
+ * Apre le {@link Asta} per le proprietà rifiutate e ne gestisce i round con un
+ * unico scheduler: ogni asta aperta costa un solo task in attesa nella coda
+ * dello scheduler, quindi un server può ospitare migliaia di aste simultanee
+ * (di migliaia di partite) con pochi thread.
+ * </p>
+ *
+ * <h2>Uso tipico</h2>
+ * <pre>{@code
+ * CasaAste casa = new CasaAste(2, 3000, 10);
+ * partita.setCasaAste(casa);     // ogni partita del server usa la stessa casa
+ * ...
+ * casa.close();
+ * }</pre>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Le offerte delle persone non passano dallo scheduler: sono registrate
+ *       subito nell'asta dal thread chiamante.</li>
+ *   <li>Le callback di chiusura girano sullo scheduler e devono essere brevi
+ *       (es. accodare il risultato per la partita).</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class CasaAste implements AutoCloseable {
+
+    /** Aste concluse da tutte le case d'aste. */
+    private static final Contatore ASTE_CONCLUSE = RegistroMetriche.contatore("aste.concluse");
+
+    /** Scheduler condiviso dai round di tutte le aste. */
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /** Durata di un round (ns). */
+    private final long durataRoundNanos;
+
+    /** Rilancio minimo. */
+    private final int rilancio;
+
+    /** Aste aperte. */
+    private final AtomicInteger aperte = new AtomicInteger();
+
+    /**
+     * Crea una casa d'aste con un thread e rilancio minimo 10.
+     *
+     * @param durataRoundMillis durata di un round in millisecondi
+     */
+    public CasaAste(long durataRoundMillis) {
+        this(1, durataRoundMillis, 10);
+    }
+
+    /**
+     * Crea una casa d'aste.
+     *
+     * @param thread            numero di thread dello scheduler
+     * @param durataRoundMillis durata di un round in millisecondi
+     * @param rilancio          rilancio minimo (e offerta minima)
+     */
+    public CasaAste(int thread, long durataRoundMillis, int rilancio) {
+        if (thread <= 0 || durataRoundMillis <= 0 || rilancio <= 0) {
+            throw new IllegalArgumentException("Parametri della casa d'aste non validi");
+        }
+        this.durataRoundNanos = TimeUnit.MILLISECONDS.toNanos(durataRoundMillis);
+        this.rilancio = rilancio;
+        this.scheduler = new ScheduledThreadPoolExecutor(thread, r -> {
+            Thread t = new Thread(r, "aste");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Apre un'asta.
+     *
+     * @param p            proprietà all'asta
+     * @param partecipanti partecipanti
+     * @param massimi      offerta massima iniziale di ogni partecipante (0 = nessuna)
+     * @param allaChiusura callback chiamata alla chiusura, oppure null
+     * @return l'asta aperta
+     * @throws IllegalStateException se la casa d'aste è chiusa
+     */
+    public Asta apri(Proprietà p, Giocatore[] partecipanti, int[] massimi, Consumer<Asta> allaChiusura) {
+        Asta a = new Asta(this, p, partecipanti, massimi, rilancio, durataRoundNanos, allaChiusura);
+        aperte.incrementAndGet();
+        programma(a, durataRoundNanos);
+        return a;
+    }
+
+    /**
+     * Programma il controllo di fine round di un'asta.
+     */
+    void programma(Asta a, long ritardoNanos) {
+        try {
+            scheduler.schedule(a::controlla, ritardoNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            aperte.decrementAndGet();
+            throw new IllegalStateException("Casa d'aste chiusa", e);
+        }
+    }
+
+    /**
+     * Registra la chiusura di un'asta.
+     */
+    void conclusa(Asta a) {
+        aperte.decrementAndGet();
+        ASTE_CONCLUSE.incrementa();
+    }
+
+    /** @return numero di aste aperte */
+    public int getAsteAperte() {
+        return aperte.get();
+    }
+
+    /** @return rilancio minimo */
+    public int getRilancio() {
+        return rilancio;
+    }
+
+    /** @return true dopo {@link #close()} */
+    public boolean isChiusa() {
+        return scheduler.isShutdown();
+    }
+
+    /**
+     * Ferma lo scheduler; le aste ancora aperte non verranno chiuse
+     * (vedi {@link Asta#isInterrotta()}).
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
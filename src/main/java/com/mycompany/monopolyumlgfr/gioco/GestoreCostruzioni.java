@@ -0,0 +1,240 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.List;
+
+/**
+ * Gestisce la costruzione e la vendita di case e alberghi in una {@link Partita}.
+ * <p>
+ * Applica le regole del Monopoly classico e mantiene la riserva di edifici
+ * della banca; dopo ogni modifica avvisa il {@link MotoreAffitti}, che ricalcola
+ * in cache l'affitto del solo gruppo interessato.
+ * </p>
+ *
+ * <h2>Regole</h2>
+ * <ul>
+ *   <li>Si costruisce solo su un gruppo di colore posseduto per intero e senza
+ *       caselle ipotecate.</li>
+ *   <li>Costruzione uniforme: una casella può ricevere un edificio solo se non ne
+ *       ha più delle altre del gruppo; si vende solo dalla casella che ne ha di più.</li>
+ *   <li>Da 1 a 4 edifici sono case; il quinto è un albergo, che restituisce alla
+ *       banca le 4 case.</li>
+ *   <li>La banca dispone di {@value #CASE} case e {@value #ALBERGHI} alberghi:
+ *       se sono finiti non si costruisce.</li>
+ *   <li>Gli edifici costano {@link Gruppo#getCostoEdificio()} e vengono rivenduti
+ *       alla banca per metà del costo.</li>
+ * </ul>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Il numero di edifici di una casella va modificato solo tramite questa
+ *       classe, altrimenti la cache degli affitti non viene aggiornata.</li>
+ *   <li>Non è thread-safe: è usato dal thread che esegue i turni.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class GestoreCostruzioni {
+
+    /** Case disponibili nella banca a inizio partita. */
+    public static final int CASE = 32;
+
+    /** Alberghi disponibili nella banca a inizio partita. */
+    public static final int ALBERGHI = 12;
+
+    /** Numero di edifici che corrisponde a un albergo. */
+    public static final int ALBERGO = 5;
+
+    /** Caselle del tabellone, per indice. */
+    private final Proprietà[] caselle;
+
+    /** Motore dei proprietari e degli affitti. */
+    private final MotoreAffitti motore;
+
+    /** Case ancora disponibili. */
+    private int caseDisponibili;
+
+    /** Alberghi ancora disponibili. */
+    private int alberghiDisponibili;
+
+    /**
+     * Costruttore.
+     *
+     * @param caselle caselle del tabellone, nell'ordine del percorso
+     * @param motore  motore degli affitti della stessa partita
+     */
+    public GestoreCostruzioni(List<Proprietà> caselle, MotoreAffitti motore) {
+        this.caselle = caselle.toArray(new Proprietà[0]);
+        this.motore = motore;
+        this.caseDisponibili = CASE;
+        this.alberghiDisponibili = ALBERGHI;
+    }
+
+    /** @return case ancora disponibili nella banca */
+    public int getCaseDisponibili() {
+        return caseDisponibili;
+    }
+
+    /** @return alberghi ancora disponibili nella banca */
+    public int getAlberghiDisponibili() {
+        return alberghiDisponibili;
+    }
+
+    /**
+     * Verifica se un giocatore può costruire un edificio su una casella.
+     *
+     * @param posto   posto del giocatore
+     * @param casella indice della casella
+     * @return true se le regole e la riserva della banca lo consentono
+     */
+    public boolean puòCostruire(int posto, int casella) {
+        Proprietà p = caselle[casella];
+        Gruppo gruppo = p.getGruppo();
+        if (gruppo == null || !gruppo.isColore() || !motore.haMonopolio(posto, gruppo)) {
+            return false;
+        }
+        int edifici = p.getEdifici();
+        if (edifici >= ALBERGO) {
+            return false;
+        }
+        for (long m = motore.getPossedute(posto); m != 0; m &= m - 1) {
+            Proprietà altra = caselle[Long.numberOfTrailingZeros(m)];
+            if (altra.getGruppo() == gruppo && (altra.isIpotecata() || altra.getEdifici() < edifici)) {
+                return false;
+            }
+        }
+        return edifici == ALBERGO - 1 ? alberghiDisponibili > 0 : caseDisponibili > 0;
+    }
+
+    /**
+     * Costruisce un edificio su una casella, se consentito e se il giocatore può pagarlo.
+     *
+     * @param g       giocatore che costruisce
+     * @param casella indice della casella
+     * @return true se l'edificio è stato costruito
+     */
+    public boolean costruisci(Giocatore g, int casella) {
+        if (casella < 0 || casella >= caselle.length || g.getPosto() < 0
+                || motore.getProprietario(casella) != g.getPosto()
+                || !puòCostruire(g.getPosto(), casella)) {
+            return false;
+        }
+        Proprietà p = caselle[casella];
+        int costo = p.getGruppo().getCostoEdificio();
+        if (g.getDenaro() < costo) {
+            return false;
+        }
+
+        if (p.getEdifici() == ALBERGO - 1) {
+            alberghiDisponibili--;
+            caseDisponibili += ALBERGO - 1;
+        } else {
+            caseDisponibili--;
+        }
+        g.setDenaro(g.getDenaro() - costo);
+        p.setEdifici(p.getEdifici() + 1);
+        motore.invalida(casella);
+        return true;
+    }
+
+    /**
+     * Vende alla banca un edificio di una casella, per metà del suo costo.
+     * <p>
+     * Un albergo si può vendere solo se la banca ha 4 case da restituire al suo posto.
+     * </p>
+     *
+     * @param g       giocatore proprietario
+     * @param casella indice della casella
+     * @return true se l'edificio è stato venduto
+     */
+    public boolean vendi(Giocatore g, int casella) {
+        Proprietà p = caselle[casella];
+        int edifici = p.getEdifici();
+        if (edifici == 0 || g.getPosto() < 0 || motore.getProprietario(casella) != g.getPosto()) {
+            return false;
+        }
+        Gruppo gruppo = p.getGruppo();
+        for (long m = motore.getPossedute(g.getPosto()); m != 0; m &= m - 1) {
+            Proprietà altra = caselle[Long.numberOfTrailingZeros(m)];
+            if (altra.getGruppo() == gruppo && altra.getEdifici() > edifici) {
+                return false;
+            }
+        }
+
+        if (edifici == ALBERGO) {
+            if (caseDisponibili < ALBERGO - 1) {
+                return false;
+            }
+            alberghiDisponibili++;
+            caseDisponibili -= ALBERGO - 1;
+        } else {
+            caseDisponibili++;
+        }
+        g.setDenaro(g.getDenaro() + gruppo.getCostoEdificio() / 2);
+        p.setEdifici(edifici - 1);
+        motore.invalida(casella);
+        return true;
+    }
+
+    /**
+     * Vende un edificio del gruppo di una casella, scegliendo la casella del
+     * gruppo che ne ha di più (come richiesto dalla costruzione uniforme).
+     *
+     * @param g       giocatore proprietario
+     * @param casella indice di una casella del gruppo
+     * @return true se un edificio è stato venduto
+     */
+    public boolean vendiNelGruppo(Giocatore g, int casella) {
+        Gruppo gruppo = caselle[casella].getGruppo();
+        if (g.getPosto() < 0 || gruppo == null) {
+            return false;
+        }
+        int scelta = -1;
+        for (long m = motore.getPossedute(g.getPosto()); m != 0; m &= m - 1) {
+            int i = Long.numberOfTrailingZeros(m);
+            if (caselle[i].getGruppo() == gruppo
+                    && (scelta < 0 || caselle[i].getEdifici() > caselle[scelta].getEdifici())) {
+                scelta = i;
+            }
+        }
+        return scelta >= 0 && vendi(g, scelta);
+    }
+
+    /**
+     * @param posto   posto del proprietario
+     * @param casella indice di una casella del gruppo
+     * @return true se almeno una casella del gruppo posseduta dal giocatore ha edifici
+     */
+    public boolean haEdificiNelGruppo(int posto, int casella) {
+        Gruppo gruppo = caselle[casella].getGruppo();
+        if (gruppo == null) {
+            return caselle[casella].getEdifici() > 0;
+        }
+        for (long m = motore.getPossedute(posto); m != 0; m &= m - 1) {
+            Proprietà altra = caselle[Long.numberOfTrailingZeros(m)];
+            if (altra.getGruppo() == gruppo && altra.getEdifici() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Restituisce alla banca, senza rimborso, gli edifici delle caselle indicate
+     * (es. quando un giocatore abbandona la partita).
+     *
+     * @param liberate bitmask delle caselle
+     */
+    public void restituisci(long liberate) {
+        for (long m = liberate; m != 0; m &= m - 1) {
+            int i = Long.numberOfTrailingZeros(m);
+            int edifici = caselle[i].getEdifici();
+            if (edifici == ALBERGO) {
+                alberghiDisponibili++;
+            } else {
+                caseDisponibili += edifici;
+            }
+            caselle[i].setEdifici(0);
+            motore.invalida(i);
+        }
+    }
+}
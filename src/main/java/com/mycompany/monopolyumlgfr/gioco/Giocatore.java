@@ -26,6 +26,7 @@ import com.mycompany.monopolyumlgfr.autenticazione.Utente;
  *   <li>Spostamento della pedina sul tabellone.</li>
  *   <li>Acquisto di proprietà libere se il denaro è sufficiente.</li>
  *   <li>Pagamento dell'affitto quando si capita su proprietà altrui.</li>
+ *   <li>Ipoteca di una proprietà posseduta per ottenere liquidità.</li>
  *   <li>Abbandono della partita con liberazione delle proprietà.</li>
  * </ul>
  *
@@ -34,6 +35,9 @@ import com.mycompany.monopolyumlgfr.autenticazione.Utente;
  *   <li>Il denaro iniziale è fissato a 1500 unità.</li>
  *   <li>La posizione iniziale è 0 (casella di partenza).</li>
  *   <li>La lista delle proprietà è inizialmente vuota.</li>
+ *   <li>Le decisioni (acquisto, costruzione, ipoteca) sono delegate a una
+ *       {@link PoliticaGiocatore}; per default {@link PoliticaAvida#ISTANZA},
+ *       che non costruisce da sola.</li>
  *   <li>In caso di abbandono, la posizione viene impostata a -1 per indicare
  *       che il giocatore non è più attivo.</li>
  * </ul>
@@ -62,6 +66,16 @@ public class Giocatore {
      */
     private int posizione;
 
+    /**
+     * Politica consultata da {@link Partita} per le decisioni del giocatore.
+     */
+    private PoliticaGiocatore politica;
+
+    /**
+     * Posto occupato nella partita (0–5), -1 se il giocatore non è in partita.
+     */
+    private int posto;
+
     /**
      * Costruttore.
      * <p>
@@ -80,6 +94,8 @@ public class Giocatore {
         this.denaro = 1500;
         this.proprietàPossedute = new ArrayList<>();
         this.posizione = 0;
+        this.politica = PoliticaAvida.ISTANZA;
+        this.posto = -1;
     }
 
     /** @return l'utente associato al giocatore */
@@ -105,6 +121,31 @@ public class Giocatore {
      */
     public void setPosizione(int posizione) { this.posizione = posizione; }
 
+    /** @return politica decisionale del giocatore */
+    public PoliticaGiocatore getPolitica() { return politica; }
+
+    /**
+     * Imposta la politica decisionale del giocatore (umano o bot).
+     *
+     * @param politica nuova politica; non può essere {@code null}
+     */
+    public void setPolitica(PoliticaGiocatore politica) {
+        if (politica == null) {
+            throw new IllegalArgumentException("La politica non può essere null");
+        }
+        this.politica = politica;
+    }
+
+    /** @return posto occupato nella partita, -1 se non in partita */
+    public int getPosto() { return posto; }
+
+    /**
+     * Imposta il posto occupato nella partita; usato da {@link Partita}.
+     *
+     * @param posto indice del posto (0–5) oppure -1
+     */
+    void setPosto(int posto) { this.posto = posto; }
+
     /** @return lista delle proprietà possedute */
     public List<Proprietà> getProprietàPossedute() { return proprietàPossedute; }
 
@@ -135,8 +176,18 @@ public class Giocatore {
      * @param p proprietà da acquistare
      */
     public void acquistaProprietà(Proprietà p) {
-        if (denaro >= p.getValore() && p.isLibera()) {
-            denaro -= p.getValore();
+        acquistaProprietà(p, p.getValore());
+    }
+
+    /**
+     * Acquista una proprietà libera a un prezzo diverso dal valore (es. vinta all'asta).
+     *
+     * @param p      proprietà da acquistare
+     * @param prezzo prezzo da pagare
+     */
+    public void acquistaProprietà(Proprietà p, int prezzo) {
+        if (denaro >= prezzo && p.isLibera()) {
+            denaro -= prezzo;
             proprietàPossedute.add(p);
             p.setLibera(false);
         }
@@ -152,15 +203,46 @@ public class Giocatore {
         denaro -= affitto;
     }
 
+    /**
+     * Paga un affitto al proprietario della casella su cui si è capitati.
+     *
+     * @param proprietario giocatore che riceve l'affitto, oppure {@code null} (banca)
+     * @param importo      affitto calcolato da {@link MotoreAffitti}
+     */
+    public void pagaAffittoA(Giocatore proprietario, int importo) {
+        denaro -= importo;
+        if (proprietario != null) {
+            proprietario.denaro += importo;
+        }
+    }
+
+    /**
+     * Ipoteca una proprietà posseduta e non ancora ipotecata.
+     * <p>
+     * Il giocatore riceve metà del valore della proprietà.
+     * </p>
+     *
+     * @param p proprietà da ipotecare
+     * @return true se l'ipoteca è stata effettuata
+     */
+    public boolean ipoteca(Proprietà p) {
+        if (p.isIpotecata() || !proprietàPossedute.contains(p)) {
+            return false;
+        }
+        p.setIpotecata(true);
+        denaro += p.getValore() / 2;
+        return true;
+    }
+
     /**
      * Abbandona la partita.
      * <p>
      * Tutte le proprietà vengono liberate e la posizione viene impostata a -1.
+     * Il messaggio di abbandono è scritto da {@link Partita} sul proprio output.
      * </p>
      */
     public void abbandonaPartita() {
         proprietàPossedute.clear();
         posizione = -1;
-        System.out.println("Giocatore " + utente.getUsername() + " ha abbandonato la partita.");
     }
 }
\ No newline at end of file
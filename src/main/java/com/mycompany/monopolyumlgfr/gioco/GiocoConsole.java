@@ -4,7 +4,12 @@
  */
 package com.mycompany.monopolyumlgfr.gioco;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Interfaccia testuale del gioco Monopoly UML GFR.
@@ -16,6 +21,8 @@ import java.util.Scanner;
  *   <li>Abbandonare la partita.</li>
  *   <li>Visualizzare lo stato dei giocatori.</li>
  *   <li>Visualizzare il tabellone in formato testuale.</li>
+ *   <li>Costruire case e alberghi sulle proprie proprietà.</li>
+ *   <li>Offrire alle aste aperte, se la partita ha una {@link CasaAste}.</li>
  *   <li>Uscire dal gioco.</li>
  * </ul>
  * <!-- </p> -->
@@ -25,13 +32,23 @@ import java.util.Scanner;
  *   <li>La logica di gioco è gestita da {@link Partita}, che invia i comandi ai {@link Giocatore}.</li>
  *   <li>{@code GiocoConsole} si occupa esclusivamente della presentazione testuale e dell'interazione utente.</li>
  *   <li>Utilizza {@link Scanner} per leggere input da tastiera.</li>
+ *   <li>Compone ogni schermata con un {@link RendererConsole}, che la invia al
+ *       terminale con una sola scrittura; anche i messaggi della {@link Partita}
+ *       vengono raccolti nella schermata.</li>
  * </ul>
  *
  * <h2>Note</h2>
  * <ul>
- *   <li>Il ciclo di gioco rimane attivo finché l'utente non seleziona l'opzione "Esci".</li>
+ *   <li>Il ciclo di gioco rimane attivo finché l'utente non seleziona l'opzione "Esci" (0).</li>
+ *   <li>Le costruzioni sono solo su richiesta: la politica predefinita dei giocatori
+ *       ({@link PoliticaAvida#ISTANZA}) non costruisce da sola.</li>
+ *   <li>Con {@link #setDecisioniUmane(long)} acquisti e ipoteche vengono chiesti ai
+ *       giocatori durante il turno ({@link PoliticaUmana}). La console legge la
+ *       risposta prima di attenderla, quindi il budget si applica solo a input finito.</li>
  *   <li>Ogni azione aggiorna lo stato della partita e lo mostra sulla console.</li>
  *   <li>I messaggi informativi sono prefissati con {@code [INFO]} per distinguerli dall'output di gioco.</li>
+ *   <li>Con un renderer ANSI il tabellone resta in cima al terminale e a ogni schermata
+ *       vengono riscritte solo le sue righe cambiate.</li>
  * </ul>
  *
  * @author Giulio
@@ -48,14 +65,81 @@ public class GiocoConsole {
      */
     private final Scanner scanner;
 
+    /**
+     * Renderer che compone e mostra le schermate.
+     */
+    private final RendererConsole renderer;
+
+    /**
+     * Flusso della schermata corrente.
+     */
+    private final PrintStream out;
+
+    /**
+     * Aste aperte dalla partita, in attesa di offerte dai giocatori.
+     */
+    private final Queue<Asta> aste = new ConcurrentLinkedQueue<>();
+
     /**
      * Costruttore.
      *
      * @param partita la partita da gestire
      */
     public GiocoConsole(Partita partita) {
+        this(partita, new RendererConsole());
+    }
+
+    /**
+     * Costruttore con renderer personalizzato (es. ANSI).
+     *
+     * @param partita  la partita da gestire
+     * @param renderer renderer delle schermate
+     */
+    public GiocoConsole(Partita partita, RendererConsole renderer) {
+        this(partita, renderer, new Scanner(System.in));
+    }
+
+    /**
+     * Costruttore con sorgente dei comandi personalizzata (es. modalità script).
+     *
+     * @param partita  la partita da gestire
+     * @param renderer renderer delle schermate
+     * @param scanner  sorgente dei comandi, condivisibile con {@code AutentificazioneConsole}
+     */
+    public GiocoConsole(Partita partita, RendererConsole renderer, Scanner scanner) {
         this.partita = partita;
-        this.scanner = new Scanner(System.in);
+        this.scanner = scanner;
+        this.renderer = renderer;
+        this.out = renderer.getSchermo();
+        partita.setOutput(out);
+        partita.setAscoltatoreAste(aste::add);
+    }
+
+    /**
+     * Affida le decisioni di tutti i giocatori a chi usa la console: a ogni
+     * acquisto o ipoteca viene mostrata la domanda e letta la risposta ({@code s}/{@code n}).
+     *
+     * @param budgetMillis tempo massimo di attesa della risposta, in millisecondi
+     */
+    public void setDecisioniUmane(long budgetMillis) {
+        for (Giocatore g : partita.getGiocatori()) {
+            PoliticaUmana[] politica = new PoliticaUmana[1];
+            politica[0] = new PoliticaUmana(budgetMillis, domanda -> chiedi(politica[0], domanda));
+            g.setPolitica(politica[0]);
+        }
+    }
+
+    /**
+     * Mostra la domanda di una {@link PoliticaUmana} e le passa la risposta letta.
+     * A input finito non risponde: si applica la scelta predefinita alla scadenza.
+     */
+    private void chiedi(PoliticaUmana politica, String domanda) {
+        out.print(domanda + " ");
+        renderer.mostra();
+        String riga = leggiRiga();
+        if (riga != null) {
+            politica.rispondi(riga.trim().equalsIgnoreCase("s"));
+        }
     }
 
     /**
@@ -67,21 +151,35 @@ public class GiocoConsole {
      *   <li>Abbandonare la partita.</li>
      *   <li>Mostrare lo stato dei giocatori.</li>
      *   <li>Mostrare il tabellone.</li>
+     *   <li>Costruire su una proprietà.</li>
+     *   <li>Offrire a un'asta aperta, solo se la partita ha una {@link CasaAste}.</li>
      *   <li>Uscire dal gioco.</li>
      * </ul>
+     * Il ciclo termina anche quando l'input finisce.
      * <!-- </p> -->
      */
     public void start() {
         boolean running = true;
         while (running) {
-            System.out.println("\n=== Monopoly Console ===");
-            System.out.println("1. Esegui Turno");
-            System.out.println("2. Abbandona Partita");
-            System.out.println("3. Mostra Stato Giocatori");
-            System.out.println("4. Mostra Tabellone");
-            System.out.println("5. Esci");
-            System.out.print("Scelta: ");
+            if (renderer.isAnsi()) {
+                renderer.tabellone(partita.getTabelloneConGiocatori());
+            }
+            out.println("\n=== Monopoly Console ===");
+            out.println("1. Esegui Turno");
+            out.println("2. Abbandona Partita");
+            out.println("3. Mostra Stato Giocatori");
+            out.println("4. Mostra Tabellone");
+            out.println("5. Costruisci");
+            if (partita.getCasaAste() != null) {
+                out.println("6. Offri all'asta");
+            }
+            out.println("0. Esci");
+            out.print("Scelta: ");
+            renderer.mostra();
 
+            if (!scanner.hasNextLine()) {
+                break;
+            }
             String choice = scanner.nextLine();
 
             switch (choice) {
@@ -96,28 +194,177 @@ public class GiocoConsole {
                     aggiornaUI();
                     break;
                 case "3":
-                    System.out.println(partita.getStatoGiocatoriAsString());
+                    out.println(partita.getStatoGiocatoriAsString());
                     break;
                 case "4":
-                    Giocatore corrente = partita.getGiocatoreCorrente();
-                    System.out.println(partita.getTabelloneConGiocatori());
+                    if (renderer.isAnsi()) {
+                        renderer.invalida();
+                    } else {
+                        out.println(partita.getTabelloneConGiocatori());
+                    }
                     break;
                 case "5":
+                    running = costruisci();
+                    break;
+                case "6":
+                    if (partita.getCasaAste() != null) {
+                        running = offri();
+                    } else {
+                        out.println("Scelta non valida.");
+                    }
+                    break;
+                case "0":
                     running = false;
-                    System.out.println("Chiusura gioco.");
+                    out.println("Chiusura gioco.");
                     break;
                 default:
-                    System.out.println("Scelta non valida.");
+                    out.println("Scelta non valida.");
+            }
+        }
+        renderer.mostra();
+    }
+
+    /**
+     * Costruisce un edificio per conto di un giocatore: legge lo username, mostra
+     * le proprietà su cui può costruire e legge la scelta.
+     *
+     * @return false se l'input è finito
+     */
+    private boolean costruisci() {
+        out.print("Username: ");
+        renderer.mostra();
+        String username = leggiRiga();
+        if (username == null) {
+            return false;
+        }
+        Giocatore g = null;
+        for (Giocatore x : partita.getGiocatori()) {
+            if (x.getUtente().getUsername().equals(username.trim())) {
+                g = x;
+            }
+        }
+        if (g == null || g.getPosto() < 0) {
+            mostraMessaggio("Giocatore non in partita.");
+            return true;
+        }
+
+        List<Proprietà> caselle = partita.getTabellone().getCaselle();
+        GestoreCostruzioni costruzioni = partita.getCostruzioni();
+        List<Integer> edificabili = new ArrayList<>();
+        for (long m = partita.getMotoreAffitti().getPossedute(g.getPosto()); m != 0; m &= m - 1) {
+            int i = Long.numberOfTrailingZeros(m);
+            if (costruzioni.puòCostruire(g.getPosto(), i)) {
+                edificabili.add(i);
+            }
+        }
+        if (edificabili.isEmpty()) {
+            mostraMessaggio("Nessuna proprietà su cui costruire.");
+            return true;
+        }
+        for (int k = 0; k < edificabili.size(); k++) {
+            Proprietà p = caselle.get(edificabili.get(k));
+            out.println((k + 1) + ". " + p.getNome() + " - edifici " + p.getEdifici()
+                    + ", costo " + p.getGruppo().getCostoEdificio());
+        }
+        out.print("Proprietà: ");
+        renderer.mostra();
+        String riga = leggiRiga();
+        if (riga == null) {
+            return false;
+        }
+        int casella;
+        try {
+            casella = edificabili.get(Integer.parseInt(riga.trim()) - 1);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            out.println("Scelta non valida.");
+            return true;
+        }
+        Proprietà p = caselle.get(casella);
+        if (costruzioni.costruisci(g, casella)) {
+            mostraMessaggio(g.getUtente().getUsername() + " costruisce su " + p.getNome()
+                    + " (" + p.getEdifici() + ").");
+        } else {
+            mostraMessaggio("Denaro insufficiente per costruire su " + p.getNome() + ".");
+        }
+        return true;
+    }
+
+    /**
+     * Fa un'offerta a un'asta aperta per conto di un giocatore: mostra le aste,
+     * poi legge asta, username e importo.
+     *
+     * @return false se l'input è finito
+     */
+    private boolean offri() {
+        aste.removeIf(a -> a.isChiusa() || a.isInterrotta());
+        List<Asta> aperte = new ArrayList<>(aste);
+        if (aperte.isEmpty()) {
+            mostraMessaggio("Nessuna asta aperta.");
+            return true;
+        }
+        for (int i = 0; i < aperte.size(); i++) {
+            Asta a = aperte.get(i);
+            Giocatore v = a.getVincitore();
+            out.println((i + 1) + ". " + a.getProprietà().getNome() + " - prezzo " + a.getPrezzo()
+                    + (v == null ? "" : ", conduce " + v.getUtente().getUsername())
+                    + ", offerta minima " + a.getOffertaMinima());
+        }
+        out.print("Asta: ");
+        renderer.mostra();
+        String riga = leggiRiga();
+        if (riga == null) {
+            return false;
+        }
+        Asta asta;
+        try {
+            asta = aperte.get(Integer.parseInt(riga.trim()) - 1);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            out.println("Scelta non valida.");
+            return true;
+        }
+
+        out.print("Username: ");
+        renderer.mostra();
+        String username = leggiRiga();
+        out.print("Offerta massima: ");
+        renderer.mostra();
+        String importo = leggiRiga();
+        if (username == null || importo == null) {
+            return false;
+        }
+        Giocatore offerente = null;
+        for (Giocatore g : partita.getGiocatori()) {
+            if (g.getUtente().getUsername().equals(username.trim())) {
+                offerente = g;
             }
         }
+        try {
+            if (offerente != null && asta.offri(offerente, Integer.parseInt(importo.trim()))) {
+                mostraMessaggio("Offerta accettata: prezzo " + asta.getPrezzo() + ".");
+            } else {
+                mostraMessaggio("Offerta rifiutata.");
+            }
+        } catch (NumberFormatException e) {
+            mostraMessaggio("Offerta rifiutata.");
+        }
+        return true;
+    }
+
+    /**
+     * Legge la riga successiva.
+     *
+     * @return la riga, oppure null se l'input è finito
+     */
+    private String leggiRiga() {
+        return scanner.hasNextLine() ? scanner.nextLine() : null;
     }
 
     /**
      * Aggiorna la UI testuale mostrando lo stato corrente dei giocatori.
      */
     private void aggiornaUI() {
-        System.out.println("\n--- Stato Giocatori ---");
-        System.out.println(partita.getStatoGiocatoriAsString());
+        out.println("\n--- Stato Giocatori ---");
+        out.println(partita.getStatoGiocatoriAsString());
     }
 
     /**
@@ -126,6 +373,6 @@ public class GiocoConsole {
      * @param msg il messaggio da mostrare
      */
     public void mostraMessaggio(String msg) {
-        System.out.println("[INFO] " + msg);
+        out.println("[INFO] " + msg);
     }
 }
@@ -4,8 +4,15 @@
  */
 package com.mycompany.monopolyumlgfr.gioco;
 
+import com.mycompany.monopolyumlgfr.metriche.Istogramma;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Interfaccia grafica del gioco Monopoly UML GFR.
@@ -14,6 +21,7 @@ import java.awt.*;
  * che permette al giocatore di:
  * <ul>
  *   <li>Eseguire il turno corrente.</li>
+ *   <li>Far giocare la partita in automatico.</li>
  *   <li>Abbandonare la partita.</li>
  *   <li>Visualizzare lo stato dei giocatori e il tabellone.</li>
  * </ul>
@@ -23,47 +31,113 @@ import java.awt.*;
  * <ul>
  *   <li>La logica di gioco è delegata a {@link Partita}, che gestisce turni e comandi.</li>
  *   <li>{@code GiocoUI} si occupa esclusivamente della presentazione grafica e dell'interazione utente.</li>
- *   <li>Utilizza componenti Swing come {@link JEditorPane}, {@link JTextArea} e {@link JButton}.</li>
+ *   <li>Utilizza componenti Swing come {@link PannelloTabellone}, {@link JTextArea} e {@link JButton}.</li>
  * </ul>
  *
  * <h2>Componenti principali</h2>
  * <ul>
- *   <li>{@code tabellonePane}: mostra il tabellone in formato HTML.</li>
+ *   <li>{@code tabellonePannello}: disegna il tabellone, ridisegnando solo le caselle cambiate.</li>
  *   <li>{@code giocatoriArea}: mostra lo stato dei giocatori in formato testuale.</li>
+ *   <li>{@code statoLabel}: riga di stato con l'esito dell'ultima azione.</li>
  *   <li>Pulsanti:
  *     <ul>
- *       <li>"Esegui Turno": invoca {@link Partita#eseguiTurno()} e aggiorna la UI.</li>
- *       <li>"Abbandona Partita": invoca {@link Partita#abbandonaGiocatoreCorrente()} e aggiorna la UI.</li>
+ *       <li>"Esegui Turno": invoca {@link Partita#eseguiTurno()}.</li>
+ *       <li>"Gioco automatico": esegue i turni uno dopo l'altro finché non viene disattivato.</li>
+ *       <li>"Abbandona Partita": invoca {@link Partita#abbandonaGiocatoreCorrente()}.</li>
  *     </ul>
  *   </li>
  * </ul>
  *
+ * <h2>Thread</h2>
+ * <ul>
+ *   <li>Le azioni di gioco non girano sull'Event Dispatch Thread (EDT): sono eseguite
+ *       in ordine da un unico thread di gioco, così la finestra resta reattiva anche
+ *       durante il gioco automatico.</li>
+ *   <li>Ogni azione segna la UI come da aggiornare; un {@link Timer} Swing a
+ *       {@value #FOTOGRAMMI_AL_SECONDO} fotogrammi al secondo raccoglie tutte le
+ *       modifiche avvenute nel frattempo in un solo aggiornamento ({@link #aggiornaUI()}).</li>
+ *   <li>Lo stato della partita è letto sul thread di gioco e applicato ai componenti sull'EDT.</li>
+ *   <li>Gli esiti delle azioni sono mostrati nella riga di stato, senza dialoghi modali.</li>
+ * </ul>
+ *
  * <h2>Note</h2>
  * <ul>
  *   <li>La finestra deve essere avviata sull'Event Dispatch Thread (EDT) tramite {@code SwingUtilities.invokeLater}.</li>
- *   <li>La UI è aggiornata dinamicamente dopo ogni azione tramite {@link #aggiornaUI()}.</li>
- *   <li>I messaggi informativi vengono mostrati con {@link JOptionPane}.</li>
  * </ul>
  *
  * @author Giulio
  */
 public class GiocoUI extends JFrame {
 
+    /**
+     * Durata dell'aggiornamento della UI.
+     */
+    private static final Istogramma TEMPO_AGGIORNAMENTO = RegistroMetriche.istogramma("ui.aggiorna");
+
+    /**
+     * Frequenza massima degli aggiornamenti della UI.
+     */
+    public static final int FOTOGRAMMI_AL_SECONDO = 30;
+
     /**
      * Partita associata alla UI.
      */
     private Partita partita;
 
     /**
-     * Pannello editor per mostrare il tabellone in HTML.
+     * Componente che disegna il tabellone.
      */
-    private JEditorPane tabellonePane;
+    private PannelloTabellone tabellonePannello;
 
     /**
      * Area di testo per mostrare lo stato dei giocatori.
      */
     private JTextArea giocatoriArea;
 
+    /**
+     * Riga di stato con l'esito dell'ultima azione.
+     */
+    private JLabel statoLabel;
+
+    /**
+     * Pulsante del gioco automatico.
+     */
+    private JToggleButton automaticoButton;
+
+    /**
+     * Thread di gioco: esegue in ordine le azioni sulla partita.
+     */
+    private final ExecutorService esecutore = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "gioco-ui");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * True se la partita è cambiata dall'ultimo aggiornamento della UI.
+     */
+    private final AtomicBoolean daAggiornare = new AtomicBoolean(true);
+
+    /**
+     * True mentre è in corso la lettura dello stato per un aggiornamento.
+     */
+    private final AtomicBoolean aggiornamentoInCorso = new AtomicBoolean();
+
+    /**
+     * True mentre il gioco automatico è attivo.
+     */
+    private volatile boolean automatico;
+
+    /**
+     * Turni eseguiti da questa finestra.
+     */
+    private final AtomicLong turniEseguiti = new AtomicLong();
+
+    /**
+     * Timer che aggiorna la UI a frequenza fissa.
+     */
+    private Timer timerAggiornamento;
+
     /**
      * Costruttore.
      * <p>
@@ -92,57 +166,153 @@ public class GiocoUI extends JFrame {
     private void initComponents() {
         JPanel mainPanel = new JPanel(new BorderLayout());
 
-        tabellonePane = new JEditorPane();
-        tabellonePane.setContentType("text/html");
-        tabellonePane.setEditable(false);
-        tabellonePane.setText(partita.getTabelloneAsHTML());
+        tabellonePannello = new PannelloTabellone(partita.getTabellone().getCaselle());
 
         giocatoriArea = new JTextArea();
         giocatoriArea.setEditable(false);
-        giocatoriArea.setText(partita.getStatoGiocatoriAsString());
+
+        statoLabel = new JLabel("Pronto.");
 
         JButton eseguiTurnoButton = new JButton("Esegui Turno");
-        eseguiTurnoButton.addActionListener(e -> {
+        eseguiTurnoButton.addActionListener(e -> esegui(() -> {
             partita.eseguiTurno();
-            mostraMessaggio("Turno eseguito.");
-            aggiornaUI();
+            mostraStato("Turno " + turniEseguiti.incrementAndGet() + " eseguito.");
+        }));
+
+        automaticoButton = new JToggleButton("Gioco automatico");
+        automaticoButton.addActionListener(e -> {
+            automatico = automaticoButton.isSelected();
+            if (automatico) {
+                esegui(this::turnoAutomatico);
+            }
         });
 
         JButton abbandonaButton = new JButton("Abbandona Partita");
-        abbandonaButton.addActionListener(e -> {
+        abbandonaButton.addActionListener(e -> esegui(() -> {
             partita.abbandonaGiocatoreCorrente(); // delega a Partita
-            mostraMessaggio("Hai abbandonato la partita.");
-            aggiornaUI();
-        });
+            mostraStato("Hai abbandonato la partita.");
+        }));
 
         JPanel southPanel = new JPanel();
         southPanel.add(eseguiTurnoButton);
+        southPanel.add(automaticoButton);
         southPanel.add(abbandonaButton);
 
-        mainPanel.add(new JScrollPane(tabellonePane), BorderLayout.CENTER);
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(southPanel, BorderLayout.CENTER);
+        bottomPanel.add(statoLabel, BorderLayout.SOUTH);
+
+        mainPanel.add(tabellonePannello, BorderLayout.CENTER);
         mainPanel.add(new JScrollPane(giocatoriArea), BorderLayout.EAST);
-        mainPanel.add(southPanel, BorderLayout.SOUTH);
+        mainPanel.add(bottomPanel, BorderLayout.SOUTH);
 
         add(mainPanel);
+
+        timerAggiornamento = new Timer(1000 / FOTOGRAMMI_AL_SECONDO, e -> aggiornaUI());
+        timerAggiornamento.start();
     }
 
     /**
-     * Aggiorna la UI con lo stato corrente della partita.
+     * Esegue un'azione di gioco sul thread di gioco e segna la UI come da aggiornare.
+     *
+     * @param azione azione sulla partita
+     */
+    private void esegui(Runnable azione) {
+        esecutore.execute(() -> {
+            try {
+                azione.run();
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+                mostraStato("Errore: " + ex.getMessage());
+            }
+            daAggiornare.set(true);
+        });
+    }
+
+    /**
+     * Esegue un turno del gioco automatico e accoda il successivo, finché il
+     * gioco automatico è attivo e la partita non è terminata.
      * <p>
-     * Ricarica lo stato dei giocatori e il tabellone.
+     * Ogni turno è un'azione separata sul thread di gioco, così le altre azioni
+     * (aggiornamenti, abbandono) si alternano ai turni automatici.
+     * </p>
+     */
+    private void turnoAutomatico() {
+        if (!automatico || !partita.isAttiva()) {
+            automatico = false;
+            SwingUtilities.invokeLater(() -> automaticoButton.setSelected(false));
+            return;
+        }
+        partita.eseguiTurno();
+        long n = turniEseguiti.incrementAndGet();
+        if (n % 100 == 0) {
+            mostraStato("Gioco automatico: " + n + " turni eseguiti.");
+        }
+        esegui(this::turnoAutomatico);
+    }
+
+    /**
+     * Aggiorna la UI con lo stato corrente della partita, se è cambiato.
+     * <p>
+     * Chiamato dal timer sull'EDT: lo stato dei giocatori e il tabellone sono
+     * letti sul thread di gioco (tra un'azione e l'altra) e poi applicati ai
+     * componenti sull'EDT. Più modifiche nello stesso intervallo producono un
+     * solo aggiornamento, e non ne parte uno nuovo finché il precedente non è finito.
      * </p>
      */
     private void aggiornaUI() {
-        giocatoriArea.setText(partita.getStatoGiocatoriAsString());
-        tabellonePane.setText(partita.getTabelloneAsHTML());
+        if (!daAggiornare.get() || !aggiornamentoInCorso.compareAndSet(false, true)) {
+            return;
+        }
+        daAggiornare.set(false);
+        esecutore.execute(() -> {
+            String stato = partita.getStatoGiocatoriAsString();
+            PannelloTabellone.Stato tabellone = PannelloTabellone.Stato.leggi(partita);
+            SwingUtilities.invokeLater(() -> {
+                long t0 = RegistroMetriche.inizio();
+                giocatoriArea.setText(stato);
+                tabellonePannello.aggiorna(tabellone);
+                TEMPO_AGGIORNAMENTO.fine(t0);
+                aggiornamentoInCorso.set(false);
+            });
+        });
+    }
+
+    /**
+     * Mostra un messaggio nella riga di stato, senza bloccare.
+     * <p>
+     * Può essere chiamato da qualunque thread.
+     * </p>
+     *
+     * @param msg testo del messaggio da mostrare
+     */
+    public void mostraStato(String msg) {
+        SwingUtilities.invokeLater(() -> statoLabel.setText(msg));
     }
 
     /**
      * Mostra un messaggio informativo in un dialogo modale.
+     * <p>
+     * Da usare solo per messaggi che richiedono attenzione: per gli esiti delle
+     * azioni di gioco si usa {@link #mostraStato(String)}.
+     * </p>
      *
      * @param msg testo del messaggio da mostrare
      */
     public void mostraMessaggio(String msg) {
         JOptionPane.showMessageDialog(this, msg);
     }
+
+    /**
+     * Ferma il gioco automatico, il timer e il thread di gioco, e chiude la finestra.
+     */
+    @Override
+    public void dispose() {
+        automatico = false;
+        if (timerAggiornamento != null) {
+            timerAggiornamento.stop();
+        }
+        esecutore.shutdown();
+        super.dispose();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+/**
+ * Gruppo di appartenenza di una {@link Proprietà} sul {@link Tabellone}.
+ * <p>
+ * I gruppi di colore determinano i monopoli (affitto doppio sul terreno nudo
+ * quando un giocatore possiede tutto il gruppo); stazioni e società hanno
+ * regole di affitto proprie, basate sul numero di caselle del gruppo possedute.
+ * </p>
+ * <p>
+ * Ogni gruppo di colore ha un costo per edificio, usato da {@link GestoreCostruzioni}.
+ * </p>
+ *
+ * @author Giulio
+ */
+public enum Gruppo {
+
+    /** Proprietà marroni. */
+    MARRONE(50),
+    /** Proprietà azzurro chiaro. */
+    AZZURRO(50),
+    /** Proprietà rosa. */
+    ROSA(100),
+    /** Proprietà arancioni. */
+    ARANCIONE(100),
+    /** Proprietà rosse. */
+    ROSSO(150),
+    /** Proprietà gialle. */
+    GIALLO(150),
+    /** Proprietà verdi. */
+    VERDE(200),
+    /** Proprietà blu scuro. */
+    BLU(200),
+    /** Stazioni: l'affitto dipende da quante stazioni possiede il proprietario. */
+    STAZIONE(0),
+    /** Società: l'affitto è un multiplo del lancio dei dadi. */
+    SOCIETÀ(0);
+
+    /** Costo di una casa (o di un albergo) nel gruppo, 0 se non edificabile. */
+    private final int costoEdificio;
+
+    Gruppo(int costoEdificio) {
+        this.costoEdificio = costoEdificio;
+    }
+
+    /**
+     * @return costo di una casa o di un albergo, 0 se il gruppo non è edificabile
+     */
+    public int getCostoEdificio() {
+        return costoEdificio;
+    }
+
+    /**
+     * @return true se il gruppo è un gruppo di colore (edificabile)
+     */
+    public boolean isColore() {
+        return this != STAZIONE && this != SOCIETÀ;
+    }
+}
@@ -0,0 +1,281 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Motore dei proprietari e degli affitti di una {@link Partita}.
+ * <p>
+ * Tiene traccia di chi possiede ogni casella del {@link Tabellone} e calcola
+ * l'affitto dovuto secondo il regolamento, in tempo costante e senza scorrere
+ * le liste {@link Giocatore#getProprietàPossedute()}.
+ * </p>
+ *
+ * <h2>Strutture dati</h2>
+ * <ul>
+ *   <li>{@code proprietario[casella]}: posto del giocatore proprietario, -1 se libera.</li>
+ *   <li>{@code possedute[posto]}: bitmask delle caselle possedute da ogni posto
+ *       (bit {@code i} = casella {@code i}).</li>
+ *   <li>{@code maschera[gruppo]}: bitmask delle caselle di ciascun {@link Gruppo}.</li>
+ *   <li>{@code affittoEffettivo[casella]}: affitto corrente già calcolato (per le società
+ *       il moltiplicatore dei dadi).</li>
+ * </ul>
+ * Il numero di caselle del gruppo possedute da un giocatore è quindi
+ * {@code Long.bitCount(possedute[posto] & maschera[gruppo])}.
+ *
+ * <h2>Cache degli affitti</h2>
+ * L'affitto di una casella dipende solo dal suo gruppo: proprietari, edifici e
+ * ipoteche delle caselle dello stesso gruppo. {@code affittoEffettivo} viene quindi
+ * ricalcolato per l'intero gruppo (al più 4 caselle) solo quando uno di questi
+ * cambia, cioè in {@link #assegna}, {@link #libera}, {@link #liberaTutte} e
+ * {@link #invalida}; durante il turno {@link #calcolaAffitto(int, int)} è una
+ * semplice lettura dell'array. Chi modifica edifici o ipoteche di una casella
+ * (es. {@link GestoreCostruzioni}) deve chiamare {@link #invalida}.
+ *
+ * <h2>Regole di affitto</h2>
+ * <ul>
+ *   <li>Casella libera o ipotecata: nessun affitto.</li>
+ *   <li>Colori: affitto in base agli edifici; il terreno nudo vale il doppio
+ *       se il proprietario possiede tutto il gruppo (monopolio).</li>
+ *   <li>Stazioni: {@code affitto[n - 1]}, con {@code n} stazioni possedute.</li>
+ *   <li>Società: lancio dei dadi moltiplicato per {@code affitto[n - 1]}, con
+ *       {@code n} società possedute.</li>
+ *   <li>Caselle senza gruppo: {@link Proprietà#calcolaAffitto()}.</li>
+ * </ul>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>I posti vanno da 0 a {@link Partita#MAX_GIOCATORI} - 1.</li>
+ *   <li>Il tabellone non può avere più di 64 caselle.</li>
+ *   <li>Il motore non è thread-safe: è usato dal thread che esegue i turni.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class MotoreAffitti {
+
+    /** Valore di {@code proprietario} per una casella libera. */
+    public static final int NESSUNO = -1;
+
+    /** Caselle del tabellone, per indice. */
+    private final Proprietà[] caselle;
+
+    /** Ordinale del gruppo di ogni casella, -1 se senza gruppo. */
+    private final int[] gruppoDi;
+
+    /** Bitmask delle caselle di ogni gruppo. */
+    private final long[] maschera;
+
+    /** Posto del proprietario di ogni casella. */
+    private final int[] proprietario;
+
+    /** Bitmask delle caselle possedute da ogni posto. */
+    private final long[] possedute;
+
+    /** Affitto corrente di ogni casella (moltiplicatore dei dadi per le società). */
+    private final int[] affittoEffettivo;
+
+    /** Bitmask delle caselle il cui affitto va moltiplicato per i dadi. */
+    private final long perDadi;
+
+    /** Indice di ogni casella. */
+    private final Map<Proprietà, Integer> indici;
+
+    /**
+     * Costruttore.
+     *
+     * @param caselle caselle del tabellone, nell'ordine del percorso
+     * @throws IllegalArgumentException se le caselle sono più di 64
+     */
+    public MotoreAffitti(List<Proprietà> caselle) {
+        if (caselle.size() > Long.SIZE) {
+            throw new IllegalArgumentException("Il tabellone non può avere più di " + Long.SIZE + " caselle");
+        }
+        this.caselle = caselle.toArray(new Proprietà[0]);
+        this.gruppoDi = new int[this.caselle.length];
+        this.maschera = new long[Gruppo.values().length];
+        this.proprietario = new int[this.caselle.length];
+        this.possedute = new long[Partita.MAX_GIOCATORI];
+        this.affittoEffettivo = new int[this.caselle.length];
+        this.indici = new IdentityHashMap<>();
+        Arrays.fill(proprietario, NESSUNO);
+
+        for (int i = 0; i < this.caselle.length; i++) {
+            Gruppo g = this.caselle[i].getGruppo();
+            gruppoDi[i] = g == null ? -1 : g.ordinal();
+            if (g != null) {
+                maschera[g.ordinal()] |= 1L << i;
+            }
+            indici.put(this.caselle[i], i);
+        }
+        this.perDadi = maschera[Gruppo.SOCIETÀ.ordinal()];
+    }
+
+    /**
+     * Restituisce l'indice di una casella del tabellone.
+     *
+     * @param p casella
+     * @return indice della casella, -1 se non appartiene al tabellone
+     */
+    public int indiceDi(Proprietà p) {
+        Integer i = indici.get(p);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Ricalcola l'affitto in cache delle caselle del gruppo di una casella.
+     * <p>
+     * Va chiamato dopo ogni modifica di edifici o ipoteca della casella.
+     * </p>
+     *
+     * @param casella indice della casella modificata
+     */
+    public void invalida(int casella) {
+        int g = gruppoDi[casella];
+        if (g < 0) {
+            ricalcola(casella);
+            return;
+        }
+        for (long m = maschera[g]; m != 0; m &= m - 1) {
+            ricalcola(Long.numberOfTrailingZeros(m));
+        }
+    }
+
+    /**
+     * Ricalcola l'affitto in cache di una singola casella.
+     */
+    private void ricalcola(int casella) {
+        int posto = proprietario[casella];
+        affittoEffettivo[casella] = posto == NESSUNO ? 0 : calcolaAffitto(casella, possedute[posto], 1);
+    }
+
+    /**
+     * Assegna una casella a un giocatore, togliendola all'eventuale proprietario precedente.
+     *
+     * @param casella indice della casella
+     * @param posto   posto del nuovo proprietario
+     */
+    public void assegna(int casella, int posto) {
+        libera(casella);
+        proprietario[casella] = posto;
+        possedute[posto] |= 1L << casella;
+        invalida(casella);
+    }
+
+    /**
+     * Rende libera una casella.
+     *
+     * @param casella indice della casella
+     */
+    public void libera(int casella) {
+        int vecchio = proprietario[casella];
+        if (vecchio != NESSUNO) {
+            possedute[vecchio] &= ~(1L << casella);
+            proprietario[casella] = NESSUNO;
+            invalida(casella);
+        }
+    }
+
+    /**
+     * Rende libere tutte le caselle possedute da un posto.
+     *
+     * @param posto posto del giocatore
+     * @return bitmask delle caselle liberate
+     */
+    public long liberaTutte(int posto) {
+        long liberate = possedute[posto];
+        for (long m = liberate; m != 0; m &= m - 1) {
+            proprietario[Long.numberOfTrailingZeros(m)] = NESSUNO;
+        }
+        possedute[posto] = 0;
+        for (long m = liberate; m != 0; m &= m - 1) {
+            invalida(Long.numberOfTrailingZeros(m));
+        }
+        return liberate;
+    }
+
+    /**
+     * @param casella indice della casella
+     * @return posto del proprietario, oppure {@link #NESSUNO}
+     */
+    public int getProprietario(int casella) {
+        return proprietario[casella];
+    }
+
+    /**
+     * @param posto posto del giocatore
+     * @return bitmask delle caselle possedute
+     */
+    public long getPossedute(int posto) {
+        return possedute[posto];
+    }
+
+    /**
+     * Restituisce quante caselle di un gruppo possiede un giocatore.
+     *
+     * @param posto  posto del giocatore
+     * @param gruppo gruppo da considerare
+     * @return numero di caselle del gruppo possedute
+     */
+    public int contaNelGruppo(int posto, Gruppo gruppo) {
+        return Long.bitCount(possedute[posto] & maschera[gruppo.ordinal()]);
+    }
+
+    /**
+     * @param posto  posto del giocatore
+     * @param gruppo gruppo da considerare
+     * @return true se il giocatore possiede tutte le caselle del gruppo
+     */
+    public boolean haMonopolio(int posto, Gruppo gruppo) {
+        long m = maschera[gruppo.ordinal()];
+        return m != 0 && (possedute[posto] & m) == m;
+    }
+
+    /**
+     * Restituisce l'affitto dovuto da chi capita su una casella, dalla cache.
+     *
+     * @param casella indice della casella
+     * @param dadi    risultato del lancio dei dadi (usato dalle società)
+     * @return affitto da pagare al proprietario, 0 se la casella è libera o ipotecata
+     */
+    public int calcolaAffitto(int casella, int dadi) {
+        int affitto = affittoEffettivo[casella];
+        return (perDadi & 1L << casella) != 0 ? affitto * dadi : affitto;
+    }
+
+    /**
+     * Calcola l'affitto di una casella per un proprietario ipotetico che possiede
+     * le caselle indicate (usato dai bot per valutare un acquisto senza modificare
+     * lo stato della partita). Non usa la cache.
+     *
+     * @param casella   indice della casella
+     * @param possedute bitmask delle caselle del proprietario, inclusa {@code casella}
+     * @param dadi      risultato del lancio dei dadi (usato dalle società)
+     * @return affitto da pagare, 0 se la casella è ipotecata
+     */
+    public int calcolaAffitto(int casella, long possedute, int dadi) {
+        Proprietà p = caselle[casella];
+        if (p.isIpotecata()) {
+            return 0;
+        }
+        int g = gruppoDi[casella];
+        if (g < 0) {
+            return p.calcolaAffitto();
+        }
+
+        int[] affitto = p.getAffitto();
+        long nelGruppo = possedute & maschera[g];
+        if (g == Gruppo.STAZIONE.ordinal()) {
+            return affitto[Math.min(Long.bitCount(nelGruppo), affitto.length) - 1];
+        }
+        if (g == Gruppo.SOCIETÀ.ordinal()) {
+            return dadi * affitto[Math.min(Long.bitCount(nelGruppo), affitto.length) - 1];
+        }
+        if (p.getEdifici() == 0 && nelGruppo == maschera[g]) {
+            return affitto[0] * 2;
+        }
+        return p.calcolaAffitto();
+    }
+}
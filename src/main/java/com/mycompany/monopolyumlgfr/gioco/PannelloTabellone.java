@@ -0,0 +1,305 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Componente Swing che disegna il tabellone del Monopoly UML GFR.
+ * <p>
+ * Sostituisce la visualizzazione HTML in un {@link JEditorPane}, che a ogni
+ * aggiornamento rianalizzava e reimpaginava l'intero documento.
+ * </p>
+ *
+ * <h2>Disegno a due livelli</h2>
+ * <ul>
+ *   <li>Livello statico: caselle, bande di colore del {@link Gruppo}, nomi e valori.
+ *       È disegnato una sola volta in un'immagine fuori schermo, ricreata solo
+ *       quando cambia la dimensione del componente.</li>
+ *   <li>Livello dinamico: pedine, proprietari ed edifici, disegnati sopra l'immagine
+ *       solo per le caselle che intersecano l'area da ridisegnare.</li>
+ * </ul>
+ *
+ * <h2>Aggiornamenti</h2>
+ * {@link #aggiorna(Stato)} confronta il nuovo {@link Stato} con quello mostrato e
+ * chiede di ridisegnare solo le caselle cambiate (pedina spostata, nuovo
+ * proprietario, edifici). Il costo di un aggiornamento dipende quindi da quante
+ * caselle cambiano, non dal numero di caselle o di giocatori.
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Le caselle sono disposte su una griglia di {@code colonne} colonne, nell'ordine del percorso.</li>
+ *   <li>{@link #aggiorna(Stato)} va chiamato sull'Event Dispatch Thread;
+ *       {@link Stato#leggi(Partita)} sul thread che esegue i turni.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class PannelloTabellone extends JComponent {
+
+    /** Versione per la serializzazione di Swing. */
+    private static final long serialVersionUID = 1L;
+
+    /** Colori delle pedine e dei proprietari, per posto. */
+    private static final Color[] COLORI_GIOCATORI = {
+        new Color(220, 40, 40), new Color(40, 80, 220), new Color(30, 150, 60),
+        new Color(240, 150, 0), new Color(160, 50, 180), new Color(0, 170, 190)
+    };
+
+    /** Colore delle case. */
+    private static final Color COLORE_CASA = new Color(0, 140, 0);
+
+    /** Colore degli alberghi. */
+    private static final Color COLORE_ALBERGO = new Color(200, 0, 0);
+
+    /** Diametro delle pedine. */
+    private static final int PEDINA = 10;
+
+    /**
+     * Stato dinamico del tabellone: posizioni delle pedine, proprietari ed edifici.
+     */
+    public static final class Stato {
+
+        /** Posizione della pedina per posto, -1 se il posto è libero. */
+        final int[] posizioni;
+
+        /** Posto del proprietario per casella, -1 se libera. */
+        final int[] proprietari;
+
+        /** Numero di edifici per casella. */
+        final int[] edifici;
+
+        private Stato(int caselle) {
+            posizioni = new int[Partita.MAX_GIOCATORI];
+            proprietari = new int[caselle];
+            edifici = new int[caselle];
+            Arrays.fill(posizioni, -1);
+            Arrays.fill(proprietari, MotoreAffitti.NESSUNO);
+        }
+
+        /**
+         * Legge lo stato corrente di una partita.
+         * <p>
+         * Va chiamato sul thread che esegue i turni, perché {@link Partita} non è thread-safe.
+         * </p>
+         *
+         * @param partita partita da leggere
+         * @return copia dello stato dinamico del tabellone
+         */
+        public static Stato leggi(Partita partita) {
+            List<Proprietà> caselle = partita.getTabellone().getCaselle();
+            MotoreAffitti motore = partita.getMotoreAffitti();
+            Stato s = new Stato(caselle.size());
+            for (Giocatore g : partita.getGiocatori()) {
+                if (g.getPosto() >= 0) {
+                    s.posizioni[g.getPosto()] = g.getPosizione();
+                }
+            }
+            for (int i = 0; i < caselle.size(); i++) {
+                s.proprietari[i] = motore.getProprietario(i);
+                s.edifici[i] = caselle.get(i).getEdifici();
+            }
+            return s;
+        }
+    }
+
+    /** Caselle del tabellone. */
+    private final List<Proprietà> caselle;
+
+    /** Numero di colonne della griglia. */
+    private final int colonne;
+
+    /** Numero di righe della griglia. */
+    private final int righe;
+
+    /** Immagine del livello statico, oppure null se da ridisegnare. */
+    private BufferedImage sfondo;
+
+    /** Stato mostrato. */
+    private Stato stato;
+
+    /** Rettangolo di appoggio per i calcoli delle celle. */
+    private final Rectangle cella = new Rectangle();
+
+    /**
+     * Costruttore.
+     *
+     * @param caselle caselle del tabellone, nell'ordine del percorso
+     */
+    public PannelloTabellone(List<Proprietà> caselle) {
+        this.caselle = caselle;
+        this.colonne = Math.max(1, (int) Math.ceil(Math.sqrt(caselle.size())));
+        this.righe = Math.max(1, (caselle.size() + colonne - 1) / colonne);
+        this.stato = new Stato(caselle.size());
+        setOpaque(true);
+        setPreferredSize(new Dimension(colonne * 110, righe * 70));
+    }
+
+    /**
+     * Mostra un nuovo stato, ridisegnando solo le caselle cambiate.
+     *
+     * @param nuovo stato letto con {@link Stato#leggi(Partita)}
+     */
+    public void aggiorna(Stato nuovo) {
+        Stato vecchio = stato;
+        stato = nuovo;
+        for (int posto = 0; posto < nuovo.posizioni.length; posto++) {
+            if (vecchio.posizioni[posto] != nuovo.posizioni[posto]) {
+                ridisegnaCella(vecchio.posizioni[posto]);
+                ridisegnaCella(nuovo.posizioni[posto]);
+            }
+        }
+        for (int i = 0; i < nuovo.proprietari.length; i++) {
+            if (vecchio.proprietari[i] != nuovo.proprietari[i] || vecchio.edifici[i] != nuovo.edifici[i]) {
+                ridisegnaCella(i);
+            }
+        }
+    }
+
+    /**
+     * Chiede di ridisegnare una sola casella.
+     */
+    private void ridisegnaCella(int i) {
+        if (i >= 0 && i < caselle.size()) {
+            limiti(i, cella);
+            repaint(cella);
+        }
+    }
+
+    /**
+     * Calcola l'area occupata da una casella.
+     */
+    private void limiti(int i, Rectangle r) {
+        int w = getWidth() / colonne;
+        int h = getHeight() / righe;
+        r.setBounds((i % colonne) * w, (i / colonne) * h, w, h);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int w = getWidth();
+        int h = getHeight();
+        int cw = w / colonne;
+        int ch = h / righe;
+        if (cw <= 0 || ch <= 0) {
+            return;
+        }
+        if (sfondo == null || sfondo.getWidth() != w || sfondo.getHeight() != h) {
+            sfondo = disegnaSfondo(w, h);
+        }
+        g.drawImage(sfondo, 0, 0, null);
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, w, h);
+        }
+        int c0 = Math.max(0, clip.x / cw);
+        int c1 = Math.min(colonne - 1, (clip.x + clip.width - 1) / cw);
+        int r0 = Math.max(0, clip.y / ch);
+        int r1 = Math.min(righe - 1, (clip.y + clip.height - 1) / ch);
+
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Stato s = stato;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int i = r * colonne + c;
+                if (i < caselle.size()) {
+                    disegnaStato(g2, s, i, c * cw, r * ch, cw, ch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Disegna il livello statico in un'immagine fuori schermo.
+     */
+    private BufferedImage disegnaSfondo(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, w, h);
+            g.setFont(getFont() != null ? getFont().deriveFont(11f) : new Font(Font.SANS_SERIF, Font.PLAIN, 11));
+            FontMetrics fm = g.getFontMetrics();
+            int cw = w / colonne;
+            int ch = h / righe;
+            int banda = Math.max(4, ch / 6);
+
+            for (int i = 0; i < caselle.size(); i++) {
+                Proprietà p = caselle.get(i);
+                int x = (i % colonne) * cw;
+                int y = (i / colonne) * ch;
+
+                g.setColor(coloreGruppo(p.getGruppo()));
+                g.fillRect(x, y, cw, banda);
+                g.setColor(Color.GRAY);
+                g.drawRect(x, y, cw - 1, ch - 1);
+
+                g.setColor(Color.BLACK);
+                Shape vecchioClip = g.getClip();
+                g.clipRect(x + 2, y, cw - 4, ch);
+                g.drawString(i + ") " + p.getNome(), x + 3, y + banda + fm.getAscent() + 1);
+                g.drawString("Valore: " + p.getValore(), x + 3, y + banda + 2 * fm.getHeight() + 1);
+                g.setClip(vecchioClip);
+            }
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    /**
+     * Disegna proprietario, edifici e pedine di una casella.
+     */
+    private void disegnaStato(Graphics2D g, Stato s, int i, int x, int y, int cw, int ch) {
+        int proprietario = s.proprietari[i];
+        if (proprietario >= 0) {
+            g.setColor(COLORI_GIOCATORI[proprietario % COLORI_GIOCATORI.length]);
+            g.fillRect(x + 1, y + ch - 4, cw - 2, 3);
+        }
+
+        int edifici = s.edifici[i];
+        int banda = Math.max(4, ch / 6);
+        if (edifici == GestoreCostruzioni.ALBERGO) {
+            g.setColor(COLORE_ALBERGO);
+            g.fillRect(x + cw - 18, y + banda + 2, 14, 8);
+        } else {
+            g.setColor(COLORE_CASA);
+            for (int k = 0; k < edifici; k++) {
+                g.fillRect(x + cw - 10 - k * 8, y + banda + 2, 6, 6);
+            }
+        }
+
+        for (int posto = 0; posto < s.posizioni.length; posto++) {
+            if (s.posizioni[posto] == i) {
+                g.setColor(COLORI_GIOCATORI[posto % COLORI_GIOCATORI.length]);
+                g.fillOval(x + 3 + posto * (PEDINA + 2), y + ch - PEDINA - 6, PEDINA, PEDINA);
+            }
+        }
+    }
+
+    /**
+     * @return colore della banda di un gruppo
+     */
+    private static Color coloreGruppo(Gruppo g) {
+        if (g == null) {
+            return Color.LIGHT_GRAY;
+        }
+        switch (g) {
+            case MARRONE: return new Color(140, 80, 40);
+            case AZZURRO: return new Color(170, 215, 240);
+            case ROSA: return new Color(215, 60, 150);
+            case ARANCIONE: return new Color(245, 145, 30);
+            case ROSSO: return new Color(225, 30, 40);
+            case GIALLO: return new Color(250, 230, 20);
+            case VERDE: return new Color(20, 160, 80);
+            case BLU: return new Color(0, 80, 160);
+            case STAZIONE: return Color.DARK_GRAY;
+            default: return Color.LIGHT_GRAY;
+        }
+    }
+}
@@ -1,12 +1,41 @@
 package com.mycompany.monopolyumlgfr.gioco;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.metriche.Istogramma;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
 
 /**
  * Rappresenta una partita di Monopoly UML GFR. Supporta modalità multiplayer da
  * 2 a 6 giocatori.
+ * <p>
+ * Ogni giocatore occupa un posto (0–5); i proprietari delle caselle e gli affitti
+ * sono gestiti dal {@link MotoreAffitti} della partita, e l'affitto viene pagato
+ * al proprietario della casella. Case e alberghi sono gestiti dal
+ * {@link GestoreCostruzioni}: a fine turno il giocatore può costruire secondo la
+ * propria politica e, se è in debito, vende edifici prima di ipotecare.
+ * </p>
+ * <p>
+ * Se è impostata una {@link CasaAste}, le proprietà libere rifiutate dal
+ * giocatore di turno vanno all'asta tra tutti i giocatori. L'asta procede in
+ * parallelo ai turni e il suo risultato viene applicato all'inizio del primo
+ * turno successivo alla chiusura; finché è aperta la proprietà non può essere
+ * acquistata da chi vi capita.
+ * </p>
+ * <p>
+ * In modalità silenziosa ({@link #setSilenziosa(boolean)}) il turno non costruisce
+ * né stampa messaggi: a regime l'esecuzione di un turno non alloca memoria.
+ * </p>
+ * <p>
+ * Le scelte dei giocatori (acquisto, ipoteca) sono delegate alla
+ * {@link PoliticaGiocatore} di ciascun {@link Giocatore}.
+ * </p>
  *
  * @author Giulio
  */
@@ -22,6 +51,11 @@ public class Partita {
      */
     public static final int MAX_GIOCATORI = 6;
 
+    /**
+     * Durata dell'esecuzione di un turno
+     */
+    private static final Istogramma TEMPO_TURNO = RegistroMetriche.istogramma("partita.turno");
+
     /**
      * Lista dei giocatori partecipanti
      */
@@ -37,6 +71,46 @@ public class Partita {
      */
     private Tabellone tabellone;
 
+    /**
+     * Proprietari delle caselle e calcolo degli affitti
+     */
+    private MotoreAffitti motore;
+
+    /**
+     * Giocatori per posto (null se il posto è libero)
+     */
+    private Giocatore[] posti;
+
+    /**
+     * Costruzione e vendita di case e alberghi
+     */
+    private GestoreCostruzioni costruzioni;
+
+    /**
+     * Casa d'aste per le proprietà rifiutate (null = niente aste)
+     */
+    private CasaAste casaAste;
+
+    /**
+     * Callback chiamata all'apertura di ogni asta (es. per mostrarla in UI)
+     */
+    private Consumer<Asta> ascoltatoreAste;
+
+    /**
+     * Aste chiuse in attesa di essere applicate dal thread dei turni
+     */
+    private final Queue<Asta> asteConcluse = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Aste aperte da questa partita e non ancora applicate
+     */
+    private final List<Asta> asteAperte = new ArrayList<>();
+
+    /**
+     * Bitmask delle caselle attualmente all'asta
+     */
+    private long inAsta;
+
     /**
      * Riferimento al sistema per notifiche
      */
@@ -47,6 +121,16 @@ public class Partita {
      */
     private int turnoCorrente;
 
+    /**
+     * Se true, i turni non producono messaggi su console
+     */
+    private boolean silenziosa;
+
+    /**
+     * Flusso su cui vengono scritti i messaggi della partita
+     */
+    private PrintStream out = System.out;
+
     /**
      * Costruttore.
      *
@@ -56,6 +140,9 @@ public class Partita {
         this.giocatori = new ArrayList<>();
         this.attiva = false;
         this.tabellone = new Tabellone();
+        this.motore = new MotoreAffitti(tabellone.getCaselle());
+        this.posti = new Giocatore[MAX_GIOCATORI];
+        this.costruzioni = new GestoreCostruzioni(tabellone.getCaselle(), motore);
         this.sistema = s;
         this.turnoCorrente = 0;
     }
@@ -77,6 +164,12 @@ public class Partita {
             return false;
         }
 
+        int posto = 0;
+        while (posti[posto] != null) {
+            posto++;
+        }
+        posti[posto] = g;
+        g.setPosto(posto);
         giocatori.add(g);
         return true;
     }
@@ -96,7 +189,7 @@ public class Partita {
         attiva = true;
         turnoCorrente = 0;
 
-        System.out.println("Partita avviata con " + giocatori.size() + " giocatori.");
+        out.println("Partita avviata con " + giocatori.size() + " giocatori.");
     }
 
     /**
@@ -106,27 +199,163 @@ public class Partita {
         if (!attiva || giocatori.isEmpty()) {
             return;
         }
+        long t0 = RegistroMetriche.inizio();
+        applicaAste();
 
         Giocatore g = giocatori.get(turnoCorrente);
-        System.out.println("Turno di " + g.getUtente().getUsername());
+        if (!silenziosa) {
+            out.println("Turno di " + g.getUtente().getUsername());
+        }
 
         int risultato = g.lanciaDadi();
         Proprietà nuovaPosizione
                 = tabellone.calcolaNuovaPosizione(g, risultato);
 
-        System.out.println(
-                "Giocatore " + g.getUtente().getUsername()
-                + " ha tirato " + risultato
-                + " ed è finito su " + nuovaPosizione.getNome()
-        );
+        if (!silenziosa) {
+            out.println(
+                    "Giocatore " + g.getUtente().getUsername()
+                    + " ha tirato " + risultato
+                    + " ed è finito su " + nuovaPosizione.getNome()
+            );
+        }
 
+        int casella = g.getPosizione();
         if (nuovaPosizione.isLibera()) {
-            g.acquistaProprietà(nuovaPosizione);
+            if ((inAsta & 1L << casella) == 0) {
+                if (g.getDenaro() >= nuovaPosizione.getValore()
+                        && g.getPolitica().acquista(this, g, nuovaPosizione)) {
+                    g.acquistaProprietà(nuovaPosizione);
+                    motore.assegna(casella, g.getPosto());
+                } else if (casaAste != null) {
+                    apriAsta(casella, nuovaPosizione);
+                }
+            }
         } else {
-            g.pagaAffitto(nuovaPosizione);
+            int proprietario = motore.getProprietario(casella);
+            if (proprietario != g.getPosto()) {
+                g.pagaAffittoA(proprietario == MotoreAffitti.NESSUNO ? null : posti[proprietario],
+                        motore.calcolaAffitto(casella, risultato));
+                copriDebito(g);
+            }
         }
+        costruisci(g);
 
         prossimoTurno();
+        TEMPO_TURNO.fine(t0);
+    }
+
+    /**
+     * Mette all'asta una proprietà libera tra tutti i giocatori in partita.
+     * <p>
+     * La casella risulta all'asta solo se l'asta è stata aperta: con la casa
+     * d'aste chiusa il turno prosegue senza asta e la proprietà resta acquistabile.
+     * </p>
+     *
+     * @param casella indice della casella
+     * @param p       proprietà da mettere all'asta
+     */
+    private void apriAsta(int casella, Proprietà p) {
+        Giocatore[] partecipanti = giocatori.toArray(new Giocatore[0]);
+        int[] massimi = new int[partecipanti.length];
+        for (int i = 0; i < partecipanti.length; i++) {
+            Giocatore g = partecipanti[i];
+            massimi[i] = Math.min(g.getDenaro(), g.getPolitica().offertaMassima(this, g, p));
+        }
+        Asta asta;
+        try {
+            asta = casaAste.apri(p, partecipanti, massimi, asteConcluse::add);
+        } catch (IllegalStateException e) {
+            if (!silenziosa) {
+                out.println("Asta non disponibile per " + p.getNome());
+            }
+            return;
+        }
+        inAsta |= 1L << casella;
+        asteAperte.add(asta);
+        if (!silenziosa) {
+            out.println("Asta aperta per " + p.getNome());
+        }
+        if (ascoltatoreAste != null) {
+            ascoltatoreAste.accept(asta);
+        }
+    }
+
+    /**
+     * Applica le aste chiuse: il vincitore paga il prezzo e riceve la proprietà,
+     * se è ancora in partita, può pagare e la proprietà è ancora libera.
+     * Le aste interrotte dalla chiusura della casa d'aste liberano la casella,
+     * che torna acquistabile.
+     */
+    private void applicaAste() {
+        for (int i = asteAperte.size() - 1; i >= 0; i--) {
+            Asta a = asteAperte.get(i);
+            if (a.isInterrotta()) {
+                asteAperte.remove(i);
+                inAsta &= ~(1L << motore.indiceDi(a.getProprietà()));
+            }
+        }
+        Asta a;
+        while ((a = asteConcluse.poll()) != null) {
+            asteAperte.remove(a);
+            Proprietà p = a.getProprietà();
+            int casella = motore.indiceDi(p);
+            inAsta &= ~(1L << casella);
+
+            Giocatore v = a.getVincitore();
+            int prezzo = a.getPrezzo();
+            if (v != null && v.getPosto() >= 0 && posti[v.getPosto()] == v
+                    && p.isLibera() && v.getDenaro() >= prezzo) {
+                v.acquistaProprietà(p, prezzo);
+                motore.assegna(casella, v.getPosto());
+                if (!silenziosa) {
+                    out.println("Giocatore " + v.getUtente().getUsername()
+                            + " vince l'asta per " + p.getNome() + " a " + prezzo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finché il giocatore ha denaro negativo, chiede alla sua politica quali
+     * proprietà ipotecare. Se il gruppo della proprietà scelta ha edifici, questi
+     * vengono venduti prima dell'ipoteca.
+     *
+     * @param g giocatore da controllare
+     */
+    private void copriDebito(Giocatore g) {
+        while (g.getDenaro() < 0) {
+            Proprietà p = g.getPolitica().scegliIpoteca(this, g);
+            int casella = p == null ? -1 : motore.indiceDi(p);
+            if (casella < 0) {
+                return;
+            }
+            if (costruzioni.haEdificiNelGruppo(g.getPosto(), casella)) {
+                if (!costruzioni.vendiNelGruppo(g, casella)) {
+                    return;
+                }
+            } else if (g.ipoteca(p)) {
+                motore.invalida(casella);
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Costruisce gli edifici scelti dalla politica del giocatore, finché la
+     * politica ne propone e la costruzione è consentita.
+     *
+     * @param g giocatore di turno
+     */
+    private void costruisci(Giocatore g) {
+        Proprietà p = g.getPolitica().scegliCostruzione(this, g);
+        while (p != null && costruzioni.costruisci(g, motore.indiceDi(p))) {
+            if (!silenziosa) {
+                out.println("Giocatore " + g.getUtente().getUsername()
+                        + " costruisce su " + p.getNome() + " (" + p.getEdifici() + ")");
+            }
+            p = g.getPolitica().scegliCostruzione(this, g);
+        }
     }
 
     /**
@@ -145,11 +374,21 @@ public class Partita {
         }
 
         Giocatore g = giocatori.get(turnoCorrente);
+        long liberate = motore.liberaTutte(g.getPosto());
+        for (long m = liberate; m != 0; m &= m - 1) {
+            Proprietà p = tabellone.getCaselle().get(Long.numberOfTrailingZeros(m));
+            p.setLibera(true);
+            p.setIpotecata(false);
+        }
+        costruzioni.restituisci(liberate);
+        posti[g.getPosto()] = null;
+        g.setPosto(-1);
         g.abbandonaPartita();
+        out.println("Giocatore " + g.getUtente().getUsername() + " ha abbandonato la partita.");
 
         giocatori.remove(g);
         tabellone.rimuoviPedina(g);
-        sistema.notificaAbbandono(g);
+        sistema.notificaAbbandono(this, g);
 
         if (giocatori.size() <= 1) {
             terminaPartita();
@@ -164,7 +403,7 @@ public class Partita {
     public void terminaPartita() {
         attiva = false;
         sistema.notificaFinePartita(this);
-        System.out.println("Partita terminata.");
+        out.println("Partita terminata.");
     }
 
     /**
@@ -177,6 +416,80 @@ public class Partita {
         return giocatori.get(turnoCorrente);
     }
 
+    /**
+     * @return vista non modificabile dei giocatori in partita, in ordine di turno
+     */
+    public List<Giocatore> getGiocatori() {
+        return Collections.unmodifiableList(giocatori);
+    }
+
+    /**
+     * @return tabellone della partita
+     */
+    public Tabellone getTabellone() {
+        return tabellone;
+    }
+
+    /**
+     * @return motore dei proprietari e degli affitti
+     */
+    public MotoreAffitti getMotoreAffitti() {
+        return motore;
+    }
+
+    /**
+     * Imposta la casa d'aste per le proprietà rifiutate.
+     *
+     * @param casaAste casa d'aste, anche condivisa con altre partite; null per non fare aste
+     */
+    public void setCasaAste(CasaAste casaAste) {
+        this.casaAste = casaAste;
+    }
+
+    /**
+     * @return casa d'aste della partita, oppure null se non fa aste
+     */
+    public CasaAste getCasaAste() {
+        return casaAste;
+    }
+
+    /**
+     * Verifica se una proprietà è riservata da un'asta aperta da questa partita.
+     *
+     * @param p proprietà del tabellone
+     * @return true se la casella è all'asta
+     */
+    public boolean isAllAsta(Proprietà p) {
+        return (inAsta & 1L << motore.indiceDi(p)) != 0;
+    }
+
+    /**
+     * Imposta la callback chiamata all'apertura di ogni asta, ad esempio per
+     * permettere ai giocatori umani di offrire con {@link Asta#offri}.
+     *
+     * @param ascoltatore callback, oppure null
+     */
+    public void setAscoltatoreAste(Consumer<Asta> ascoltatore) {
+        this.ascoltatoreAste = ascoltatore;
+    }
+
+    /**
+     * @return gestore di case e alberghi
+     */
+    public GestoreCostruzioni getCostruzioni() {
+        return costruzioni;
+    }
+
+    /**
+     * Restituisce il giocatore che occupa un posto.
+     *
+     * @param posto indice del posto (0–5)
+     * @return giocatore, oppure null se il posto è libero
+     */
+    public Giocatore getGiocatoreAlPosto(int posto) {
+        return posti[posto];
+    }
+
     /**
      * @return numero di giocatori
      */
@@ -184,6 +497,46 @@ public class Partita {
         return giocatori.size();
     }
 
+    /**
+     * Attiva o disattiva la modalità silenziosa.
+     * <p>
+     * In modalità silenziosa {@link #eseguiTurno()} non costruisce stringhe né
+     * scrive su console; è pensata per simulazioni, bot e server.
+     * </p>
+     *
+     * @param silenziosa true per non produrre messaggi durante i turni
+     */
+    public void setSilenziosa(boolean silenziosa) {
+        this.silenziosa = silenziosa;
+    }
+
+    /**
+     * Imposta il flusso su cui scrivere i messaggi della partita, ad esempio lo
+     * schermo di un {@link RendererConsole} per comporli nella schermata corrente.
+     *
+     * @param out flusso dei messaggi; per default {@link System#out}
+     */
+    public void setOutput(PrintStream out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Il flusso non può essere null");
+        }
+        this.out = out;
+    }
+
+    /**
+     * @return flusso su cui vengono scritti i messaggi della partita
+     */
+    public PrintStream getOutput() {
+        return out;
+    }
+
+    /**
+     * @return true se la partita è in modalità silenziosa
+     */
+    public boolean isSilenziosa() {
+        return silenziosa;
+    }
+
     /**
      * @return true se la partita è attiva
      */
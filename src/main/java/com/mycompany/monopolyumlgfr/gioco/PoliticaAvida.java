@@ -0,0 +1,95 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.List;
+
+/**
+ * Politica "avida": acquista ogni proprietà libera che può permettersi.
+ * <p>
+ * È la politica predefinita di ogni {@link Giocatore} e riproduce il
+ * comportamento storico di {@link Partita#eseguiTurno()}. Le decisioni sono
+ * immediate e non allocano memoria, quindi il budget di tempo è sempre rispettato.
+ * </p>
+ *
+ * <h2>Aste</h2>
+ * Offre fino al valore della proprietà, nei limiti del denaro disponibile.
+ *
+ * <h2>Costruzioni</h2>
+ * {@link #ISTANZA}, la politica predefinita anche dei giocatori umani, non
+ * costruisce: le persone costruiscono dal menu di {@link GiocoConsole}.
+ * {@link #COSTRUTTRICE}, pensata per i bot, costruisce appena può permetterselo,
+ * sulla prima casella edificabile del percorso.
+ *
+ * <h2>Ipoteche</h2>
+ * Quando serve denaro ipoteca la proprietà non ipotecata di valore minore,
+ * per sacrificare il meno possibile.
+ *
+ * @author Giulio
+ */
+public class PoliticaAvida implements PoliticaGiocatore {
+
+    /** Istanza condivisa che non costruisce (la politica non ha stato). */
+    public static final PoliticaAvida ISTANZA = new PoliticaAvida();
+
+    /** Istanza condivisa che costruisce appena può. */
+    public static final PoliticaAvida COSTRUTTRICE = new PoliticaAvida(true);
+
+    /** True se la politica sceglie da sola dove costruire. */
+    private final boolean costruisce;
+
+    /**
+     * Crea una politica avida che non costruisce.
+     */
+    public PoliticaAvida() {
+        this(false);
+    }
+
+    /**
+     * Crea una politica avida.
+     *
+     * @param costruisce true per costruire appena possibile al termine del turno
+     */
+    public PoliticaAvida(boolean costruisce) {
+        this.costruisce = costruisce;
+    }
+
+    @Override
+    public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+        return g.getDenaro() >= p.getValore();
+    }
+
+    @Override
+    public int offertaMassima(Partita partita, Giocatore g, Proprietà p) {
+        return Math.min(g.getDenaro(), p.getValore());
+    }
+
+    @Override
+    public Proprietà scegliCostruzione(Partita partita, Giocatore g) {
+        if (!costruisce || g.getPosto() < 0) {
+            return null;
+        }
+        List<Proprietà> caselle = partita.getTabellone().getCaselle();
+        GestoreCostruzioni costruzioni = partita.getCostruzioni();
+        for (long m = partita.getMotoreAffitti().getPossedute(g.getPosto()); m != 0; m &= m - 1) {
+            int i = Long.numberOfTrailingZeros(m);
+            Proprietà p = caselle.get(i);
+            if (costruzioni.puòCostruire(g.getPosto(), i)
+                    && g.getDenaro() >= p.getGruppo().getCostoEdificio()) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+        List<Proprietà> possedute = g.getProprietàPossedute();
+        Proprietà scelta = null;
+        for (int i = 0; i < possedute.size(); i++) {
+            Proprietà p = possedute.get(i);
+            if (!p.isIpotecata() && (scelta == null || p.getValore() < scelta.getValore())) {
+                scelta = p;
+            }
+        }
+        return scelta;
+    }
+}
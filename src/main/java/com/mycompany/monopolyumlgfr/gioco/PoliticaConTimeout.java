@@ -0,0 +1,131 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Politica che impone un budget di tempo a un'altra politica.
+ * <p>
+ * Ogni decisione della politica delegata viene eseguita su un pool di thread
+ * condiviso da tutte le istanze; se non termina entro il budget viene
+ * interrotta e si usa la decisione della politica di riserva. È pensata per
+ * politiche esterne o non fidate: un bot lento non può bloccare la partita.
+ * </p>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Il pool ha al più {@link #MAX_THREAD} thread e nessuna coda: se sono tutti
+ *       occupati (ad esempio da decisioni abbandonate che ignorano
+ *       l'interruzione) si usa subito la riserva, senza creare altri thread.</li>
+ *   <li>Una decisione abbandonata può continuare per un po' sul proprio thread
+ *       mentre la partita prosegue: la politica delegata deve leggere lo stato
+ *       della partita solo all'inizio della decisione e controllare
+ *       l'interruzione, come fa {@link PoliticaRollout}.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class PoliticaConTimeout implements PoliticaGiocatore {
+
+    /** Thread massimi del pool condiviso (proprietà {@code monopoly.thread.bot}). */
+    public static final int MAX_THREAD = Integer.getInteger("monopoly.thread.bot",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    /** Pool condiviso per le decisioni delle politiche limitate. */
+    private static final ExecutorService ESECUTORE = new ThreadPoolExecutor(0, MAX_THREAD,
+            60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "politica-bot");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /** Politica delegata. */
+    private final PoliticaGiocatore delegata;
+
+    /** Politica usata quando la delegata supera il budget o fallisce. */
+    private final PoliticaGiocatore riserva;
+
+    /** Budget di tempo per decisione (ms). */
+    private final long budgetMillis;
+
+    /**
+     * Crea una politica limitata con {@link PoliticaAvida} come riserva.
+     *
+     * @param delegata     politica da limitare
+     * @param budgetMillis budget di tempo per decisione in millisecondi
+     */
+    public PoliticaConTimeout(PoliticaGiocatore delegata, long budgetMillis) {
+        this(delegata, PoliticaAvida.ISTANZA, budgetMillis);
+    }
+
+    /**
+     * Crea una politica limitata.
+     *
+     * @param delegata     politica da limitare
+     * @param riserva      politica da usare in caso di timeout o errore
+     * @param budgetMillis budget di tempo per decisione in millisecondi (maggiore di 0)
+     * @throws IllegalArgumentException se il budget non è positivo
+     */
+    public PoliticaConTimeout(PoliticaGiocatore delegata, PoliticaGiocatore riserva, long budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("Il budget deve essere positivo");
+        }
+        this.delegata = delegata;
+        this.riserva = riserva;
+        this.budgetMillis = budgetMillis;
+    }
+
+    @Override
+    public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+        return entroBudget(() -> delegata.acquista(partita, g, p),
+                () -> riserva.acquista(partita, g, p));
+    }
+
+    @Override
+    public int offertaMassima(Partita partita, Giocatore g, Proprietà p) {
+        return entroBudget(() -> delegata.offertaMassima(partita, g, p),
+                () -> riserva.offertaMassima(partita, g, p));
+    }
+
+    @Override
+    public Proprietà scegliCostruzione(Partita partita, Giocatore g) {
+        return entroBudget(() -> delegata.scegliCostruzione(partita, g),
+                () -> riserva.scegliCostruzione(partita, g));
+    }
+
+    @Override
+    public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+        return entroBudget(() -> delegata.scegliIpoteca(partita, g),
+                () -> riserva.scegliIpoteca(partita, g));
+    }
+
+    /**
+     * Esegue una decisione entro il budget, ricadendo sulla riserva.
+     */
+    private <T> T entroBudget(Callable<T> decisione, Callable<T> ripiego) {
+        Future<T> f = null;
+        try {
+            f = ESECUTORE.submit(decisione);
+            return f.get(budgetMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // tutti i thread occupati: decide subito la riserva
+        } catch (TimeoutException | ExecutionException e) {
+            f.cancel(true);
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        try {
+            return ripiego.call();
+        } catch (Exception e) {
+            throw new IllegalStateException("Errore nella politica di riserva", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+/**
+ * Politica decisionale di un giocatore del Monopoly UML GFR.
+ * <p>
+ * {@link Partita} consulta la politica del {@link Giocatore} di turno ogni volta
+ * che il regolamento prevede una scelta, invece di applicare una regola fissa.
+ * </p>
+ *
+ * <h2>Decisioni</h2>
+ * <ul>
+ *   <li>{@link #acquista}: comprare o no la proprietà libera su cui si è capitati.</li>
+ *   <li>{@link #offertaMassima}: quanto offrire al massimo quando una proprietà va all'{@link Asta}.</li>
+ *   <li>{@link #scegliCostruzione}: su quale proprietà costruire (se possibile).</li>
+ *   <li>{@link #scegliIpoteca}: quale proprietà ipotecare quando il denaro è negativo.</li>
+ * </ul>
+ *
+ * <h2>Tempo di decisione</h2>
+ * Ogni implementazione deve rispettare un budget di tempo per decisione, in modo che
+ * un bot lento non blocchi la propria partita: {@link PoliticaRollout} interrompe la
+ * simulazione alla scadenza, {@link PoliticaUmana} applica una scelta predefinita se
+ * il giocatore non risponde in tempo e {@link PoliticaConTimeout} impone il limite a
+ * qualsiasi altra politica.
+ *
+ * <h2>Implementazioni</h2>
+ * <ul>
+ *   <li>{@link PoliticaAvida}: compra sempre se può (comportamento storico).</li>
+ *   <li>{@link PoliticaRollout}: stima il valore delle scelte con simulazioni casuali.</li>
+ *   <li>{@link PoliticaUmana}: attende la risposta di una persona tramite UI o console.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public interface PoliticaGiocatore {
+
+    /**
+     * Decide se acquistare una proprietà libera.
+     *
+     * @param partita partita in corso
+     * @param g       giocatore che decide
+     * @param p       proprietà libera su cui il giocatore è capitato
+     * @return true per acquistare
+     */
+    boolean acquista(Partita partita, Giocatore g, Proprietà p);
+
+    /**
+     * Indica l'offerta massima per una proprietà messa all'asta.
+     * <p>
+     * L'asta rilancia automaticamente per conto del giocatore fino a questo
+     * importo. Il valore predefinito 0 significa nessuna offerta automatica:
+     * le persone offrono direttamente con {@link Asta#offri(Giocatore, int)}.
+     * </p>
+     *
+     * @param partita partita in corso
+     * @param g       giocatore che decide
+     * @param p       proprietà all'asta
+     * @return offerta massima, 0 per non partecipare
+     */
+    default int offertaMassima(Partita partita, Giocatore g, Proprietà p) {
+        return 0;
+    }
+
+    /**
+     * Sceglie una proprietà su cui costruire un edificio al termine del turno.
+     *
+     * @param partita partita in corso
+     * @param g       giocatore che decide
+     * @return proprietà su cui costruire, oppure {@code null} per non costruire
+     */
+    default Proprietà scegliCostruzione(Partita partita, Giocatore g) {
+        return null;
+    }
+
+    /**
+     * Sceglie una proprietà da ipotecare per coprire un debito.
+     *
+     * @param partita partita in corso
+     * @param g       giocatore in debito (denaro negativo)
+     * @return proprietà posseduta e non ipotecata, oppure {@code null} per non ipotecare
+     */
+    Proprietà scegliIpoteca(Partita partita, Giocatore g);
+}
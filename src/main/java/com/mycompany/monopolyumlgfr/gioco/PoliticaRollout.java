@@ -0,0 +1,242 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Politica di un bot basata su simulazioni casuali (rollout).
+ * <p>
+ * Per decidere se acquistare una proprietà il bot simula molte volte i prossimi
+ * giri della partita con lanci di dadi casuali e confronta, sugli stessi lanci,
+ * il patrimonio finale atteso con e senza l'acquisto:
+ * <ul>
+ *   <li>con l'acquisto incassa l'affitto ogni volta che un avversario capita sulla proprietà,
+ *       e la proprietà conta nel patrimonio per il suo valore;</li>
+ *   <li>in entrambi i casi incassa gli affitti delle altre proprietà possedute, calcolati
+ *       dal {@link MotoreAffitti} con e senza la nuova proprietà (così un monopolio
+ *       completato o una stazione in più pesano nella decisione);</li>
+ *   <li>in entrambi i casi paga gli affitti delle proprietà altrui su cui capita;</li>
+ *   <li>finire con denaro negativo è penalizzato come una bancarotta.</li>
+ * </ul>
+ * <!-- </p> -->
+ *
+ * <h2>Budget di tempo</h2>
+ * Le simulazioni continuano finché non scade il budget per decisione o non si
+ * raggiunge il numero massimo di rollout: la decisione è sempre pronta entro il
+ * budget (più la durata di un singolo rollout) e si basa su almeno un rollout.
+ * Se il thread viene interrotto (es. da {@link PoliticaConTimeout}) le
+ * simulazioni si fermano al rollout successivo.
+ *
+ * <h2>Istantanea</h2>
+ * Lo stato della partita (posizioni, denaro, affitti per ogni casella e lancio)
+ * viene copiato all'inizio della decisione; i rollout leggono solo la copia,
+ * quindi una decisione abbandonata che continua su un altro thread non legge
+ * {@link Partita}, {@link MotoreAffitti} o {@link Giocatore} mentre il turno
+ * prosegue.
+ *
+ * @author Giulio
+ */
+public class PoliticaRollout implements PoliticaGiocatore {
+
+    /** Penalità applicata a un rollout che termina con denaro negativo. */
+    private static final int PENALITÀ_BANCAROTTA = 5000;
+
+    /** Budget di tempo per decisione (ns). */
+    private final long budgetNanos;
+
+    /** Numero massimo di rollout per decisione. */
+    private final int maxRollout;
+
+    /** Numero di giri simulati in ogni rollout. */
+    private final int orizzonte;
+
+    /** Sorgente del tempo in nanosecondi. */
+    private final LongSupplier orologio;
+
+    /**
+     * Crea un bot con 500 rollout massimi su 10 giri.
+     *
+     * @param budgetMillis budget di tempo per decisione in millisecondi
+     */
+    public PoliticaRollout(long budgetMillis) {
+        this(budgetMillis, 500, 10);
+    }
+
+    /**
+     * Crea un bot basato su rollout.
+     *
+     * @param budgetMillis budget di tempo per decisione in millisecondi
+     * @param maxRollout   numero massimo di rollout per decisione
+     * @param orizzonte    numero di giri simulati per rollout
+     */
+    public PoliticaRollout(long budgetMillis, int maxRollout, int orizzonte) {
+        this(budgetMillis, maxRollout, orizzonte, System::nanoTime);
+    }
+
+    /**
+     * Crea un bot con orologio esplicito (usato nei test).
+     */
+    PoliticaRollout(long budgetMillis, int maxRollout, int orizzonte, LongSupplier orologio) {
+        if (budgetMillis <= 0 || maxRollout <= 0 || orizzonte <= 0) {
+            throw new IllegalArgumentException("Parametri del bot non validi");
+        }
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.maxRollout = maxRollout;
+        this.orizzonte = orizzonte;
+        this.orologio = orologio;
+    }
+
+    /** @return budget di tempo per decisione in millisecondi */
+    public long getBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+    }
+
+    @Override
+    public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+        if (g.getDenaro() < p.getValore()) {
+            return false;
+        }
+        long scadenza = orologio.getAsLong() + budgetNanos;
+        return simula(new Istantanea(partita, g, p), scadenza);
+    }
+
+    /**
+     * Copia dello stato della partita che serve ai rollout di un acquisto.
+     */
+    private static final class Istantanea {
+
+        /** Valori possibili del lancio di due dadi, usati come indice (0-12). */
+        static final int LANCI = 13;
+
+        final int caselle;
+        final int[] posizioni;
+        final int io;
+        final long denaro;
+        final int valore;
+
+        /** Affitto pagato dal giocatore che decide, per casella e lancio. */
+        final int[] pagato;
+
+        /** Affitto incassato con l'acquisto, per casella e lancio. */
+        final int[] incassoCon;
+
+        /** Affitto incassato senza l'acquisto, per casella e lancio. */
+        final int[] incassoSenza;
+
+        Istantanea(Partita partita, Giocatore g, Proprietà p) {
+            List<Proprietà> tabellone = partita.getTabellone().getCaselle();
+            List<Giocatore> giocatori = partita.getGiocatori();
+            MotoreAffitti motore = partita.getMotoreAffitti();
+            int posto = g.getPosto();
+            long senzaAcquisto = posto < 0 ? 0 : motore.getPossedute(posto);
+            long conAcquisto = senzaAcquisto | 1L << tabellone.indexOf(p);
+
+            this.caselle = tabellone.size();
+            this.posizioni = new int[giocatori.size()];
+            this.io = giocatori.indexOf(g);
+            for (int k = 0; k < posizioni.length; k++) {
+                posizioni[k] = Math.max(0, giocatori.get(k).getPosizione());
+            }
+            this.denaro = g.getDenaro();
+            this.valore = p.getValore();
+            this.pagato = new int[caselle * LANCI];
+            this.incassoCon = new int[caselle * LANCI];
+            this.incassoSenza = new int[caselle * LANCI];
+            for (int c = 0; c < caselle; c++) {
+                int proprietario = motore.getProprietario(c);
+                boolean altrui = proprietario != MotoreAffitti.NESSUNO && proprietario != posto;
+                for (int dadi = 2; dadi < LANCI; dadi++) {
+                    int i = c * LANCI + dadi;
+                    if (altrui) {
+                        pagato[i] = motore.calcolaAffitto(c, dadi);
+                    }
+                    if ((conAcquisto & 1L << c) != 0) {
+                        incassoCon[i] = motore.calcolaAffitto(c, conAcquisto, dadi);
+                    }
+                    if ((senzaAcquisto & 1L << c) != 0) {
+                        incassoSenza[i] = motore.calcolaAffitto(c, senzaAcquisto, dadi);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Esegue i rollout su un'istantanea fino alla scadenza, al numero massimo o
+     * a un'interruzione del thread.
+     *
+     * @return true se l'acquisto conviene
+     */
+    private boolean simula(Istantanea s, long scadenza) {
+        int[] posizioni = new int[s.posizioni.length];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long sommaConAcquisto = 0;
+        long sommaSenzaAcquisto = 0;
+        int n = 0;
+        do {
+            System.arraycopy(s.posizioni, 0, posizioni, 0, posizioni.length);
+            long con = s.denaro - s.valore;
+            long senza = s.denaro;
+            boolean rovinaCon = false;
+            boolean rovinaSenza = false;
+
+            for (int giro = 0; giro < orizzonte; giro++) {
+                for (int k = 0; k < posizioni.length; k++) {
+                    int dadi = random.nextInt(1, 7) + random.nextInt(1, 7);
+                    int c = (posizioni[k] + dadi) % s.caselle;
+                    posizioni[k] = c;
+                    int i = c * Istantanea.LANCI + dadi;
+
+                    if (k == s.io) {
+                        con -= s.pagato[i];
+                        senza -= s.pagato[i];
+                        rovinaCon |= con < 0;
+                        rovinaSenza |= senza < 0;
+                    } else {
+                        con += s.incassoCon[i];
+                        senza += s.incassoSenza[i];
+                    }
+                }
+            }
+
+            sommaConAcquisto += con + s.valore - (rovinaCon ? PENALITÀ_BANCAROTTA : 0);
+            sommaSenzaAcquisto += senza - (rovinaSenza ? PENALITÀ_BANCAROTTA : 0);
+            n++;
+        } while (n < maxRollout && orologio.getAsLong() < scadenza && !Thread.currentThread().isInterrupted());
+
+        return sommaConAcquisto > sommaSenzaAcquisto;
+    }
+
+    /**
+     * All'asta offre fino al valore della proprietà se le simulazioni indicano
+     * che converrebbe acquistarla a quel prezzo, altrimenti non partecipa.
+     */
+    @Override
+    public int offertaMassima(Partita partita, Giocatore g, Proprietà p) {
+        return acquista(partita, g, p) ? p.getValore() : 0;
+    }
+
+    /**
+     * Ipoteca la proprietà che rende meno affitto, a parità di affitto quella
+     * di valore minore.
+     */
+    @Override
+    public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+        List<Proprietà> possedute = g.getProprietàPossedute();
+        Proprietà scelta = null;
+        for (int i = 0; i < possedute.size(); i++) {
+            Proprietà p = possedute.get(i);
+            if (p.isIpotecata()) {
+                continue;
+            }
+            if (scelta == null || p.calcolaAffitto() < scelta.calcolaAffitto()
+                    || (p.calcolaAffitto() == scelta.calcolaAffitto() && p.getValore() < scelta.getValore())) {
+                scelta = p;
+            }
+        }
+        return scelta;
+    }
+}
@@ -0,0 +1,90 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Politica di un giocatore umano.
+ * <p>
+ * Ogni decisione viene presentata come domanda tramite la callback
+ * {@code richiesta} (es. un messaggio in UI o su console) e la risposta arriva
+ * con {@link #rispondi(boolean)}, tipicamente da un altro thread.
+ * </p>
+ *
+ * <h2>Budget di tempo</h2>
+ * <ul>
+ *   <li>Se la risposta non arriva entro il budget l'acquisto viene rifiutato.</li>
+ *   <li>Per le ipoteche, in assenza di risposta si applica la scelta proposta,
+ *       così il giocatore non resta in debito per inattività.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class PoliticaUmana implements PoliticaGiocatore {
+
+    /** Budget di tempo per decisione (ms). */
+    private final long budgetMillis;
+
+    /** Callback che presenta la domanda al giocatore. */
+    private final Consumer<String> richiesta;
+
+    /** Risposte del giocatore (al più una in attesa). */
+    private final BlockingQueue<Boolean> risposte = new ArrayBlockingQueue<>(1);
+
+    /**
+     * Crea la politica di un giocatore umano.
+     *
+     * @param budgetMillis tempo massimo di attesa della risposta, in millisecondi
+     * @param richiesta    callback che mostra la domanda al giocatore
+     */
+    public PoliticaUmana(long budgetMillis, Consumer<String> richiesta) {
+        this.budgetMillis = budgetMillis;
+        this.richiesta = richiesta;
+    }
+
+    /**
+     * Fornisce la risposta del giocatore alla domanda in corso.
+     *
+     * @param si true per accettare, false per rifiutare
+     * @return true se la risposta è stata accettata (una sola risposta per domanda)
+     */
+    public boolean rispondi(boolean si) {
+        return risposte.offer(si);
+    }
+
+    @Override
+    public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+        Boolean r = chiedi(g.getUtente().getUsername() + ": acquistare " + p.getNome()
+                + " per " + p.getValore() + "? (s/n)");
+        return r != null && r;
+    }
+
+    @Override
+    public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+        Proprietà proposta = PoliticaAvida.ISTANZA.scegliIpoteca(partita, g);
+        if (proposta == null) {
+            return null;
+        }
+        Boolean r = chiedi(g.getUtente().getUsername() + ": denaro " + g.getDenaro()
+                + ", ipotecare " + proposta.getNome() + "? (s/n)");
+        return r == null || r ? proposta : null;
+    }
+
+    /**
+     * Pone una domanda e attende la risposta entro il budget.
+     *
+     * @return la risposta, oppure {@code null} se il tempo è scaduto
+     */
+    private Boolean chiedi(String domanda) {
+        risposte.clear();
+        richiesta.accept(domanda);
+        try {
+            return risposte.poll(budgetMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -27,6 +27,8 @@ package com.mycompany.monopolyumlgfr.gioco;
  *   <li>Se il numero di edifici supera la lunghezza dell'array, viene restituito
  *       l'ultimo valore disponibile.</li>
  *   <li>Le proprietà sono inizialmente libere e non ipotecate.</li>
+ *   <li>Il {@link Gruppo} è usato da {@link MotoreAffitti} per monopoli, stazioni e società;
+ *       le proprietà create senza gruppo non ne fanno parte.</li>
  * </ul>
  *
  * @author Giulio
@@ -51,6 +53,9 @@ public class Proprietà {
     /** Tabella degli affitti in base al numero di edifici. */
     private int[] affitto;
 
+    /** Gruppo di appartenenza, oppure {@code null}. */
+    private Gruppo gruppo;
+
     /**
      * Costruttore.
      * <p>
@@ -71,6 +76,19 @@ public class Proprietà {
         this.edifici = 0;
     }
 
+    /**
+     * Costruttore con gruppo di appartenenza.
+     *
+     * @param nome    nome della proprietà
+     * @param valore  valore di acquisto
+     * @param affitto array degli affitti in base al numero di edifici
+     * @param gruppo  gruppo di colore, stazioni o società
+     */
+    public Proprietà(String nome, int valore, int[] affitto, Gruppo gruppo) {
+        this(nome, valore, affitto);
+        this.gruppo = gruppo;
+    }
+
     /** @return nome della proprietà */
     public String getNome() { return nome; }
 
@@ -86,6 +104,9 @@ public class Proprietà {
     /** @return numero di edifici costruiti */
     public int getEdifici() { return edifici; }
 
+    /** @return gruppo di appartenenza, oppure {@code null} */
+    public Gruppo getGruppo() { return gruppo; }
+
     /** @return array degli affitti */
     public int[] getAffitto() { return affitto; }
 
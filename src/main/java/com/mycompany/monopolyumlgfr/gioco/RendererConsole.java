@@ -0,0 +1,171 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renderer a schermate per le interfacce testuali del Monopoly UML GFR.
+ * <p>
+ * Invece di scrivere ogni riga direttamente su {@link System#out} (un
+ * {@link PrintStream} sincronizzato che svuota il buffer a ogni riga), l'output
+ * di una schermata viene composto in un buffer riutilizzato e inviato alla
+ * destinazione con una sola scrittura e un solo flush da {@link #mostra()}.
+ * </p>
+ *
+ * <h2>Uso tipico</h2>
+ * <pre>{@code
+ * RendererConsole r = new RendererConsole(System.out, ansi);
+ * partita.setOutput(r.getSchermo());     // anche i messaggi dei turni finiscono nella schermata
+ * r.tabellone(partita.getTabelloneConGiocatori());
+ * r.getSchermo().println("1. Esegui Turno");
+ * r.mostra();
+ * }</pre>
+ *
+ * <h2>Modalità ANSI</h2>
+ * <ul>
+ *   <li>Il tabellone occupa le prime righe del terminale e di ogni nuovo tabellone
+ *       vengono riscritte solo le righe cambiate rispetto al precedente, con
+ *       sequenze di posizionamento del cursore.</li>
+ *   <li>Il resto della schermata (messaggi e menu) è scritto sotto il tabellone,
+ *       dopo aver cancellato quello della schermata precedente.</li>
+ *   <li>Senza ANSI il tabellone è scritto per intero nel testo della schermata.</li>
+ * </ul>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Il renderer non è thread-safe: è usato dal thread della console.</li>
+ *   <li>La modalità ANSI presuppone che il testo sotto il tabellone stia nel
+ *       terminale senza farlo scorrere.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class RendererConsole {
+
+    /** Inizio delle sequenze di controllo ANSI. */
+    private static final String CSI = "\u001b[";
+
+    /** Destinazione delle schermate. */
+    private final OutputStream destinazione;
+
+    /** True se si usano le sequenze ANSI. */
+    private final boolean ansi;
+
+    /** Buffer riutilizzato per il testo della schermata. */
+    private final ByteArrayOutputStream testo = new ByteArrayOutputStream(4096);
+
+    /** Flusso, senza flush automatico, che scrive nel buffer della schermata. */
+    private final PrintStream schermo = new PrintStream(testo, false, StandardCharsets.UTF_8);
+
+    /** Buffer riutilizzato per gli aggiornamenti ANSI del tabellone. */
+    private final StringBuilder aggiornamenti = new StringBuilder(4096);
+
+    /** Buffer riutilizzato per la schermata completa (modalità ANSI). */
+    private final ByteArrayOutputStream cornice = new ByteArrayOutputStream(8192);
+
+    /** Righe del tabellone mostrate (modalità ANSI), oppure null. */
+    private String[] righeMostrate;
+
+    /**
+     * Crea un renderer su {@link System#out}, senza ANSI.
+     */
+    public RendererConsole() {
+        this(System.out, false);
+    }
+
+    /**
+     * Crea un renderer.
+     *
+     * @param destinazione flusso su cui scrivere le schermate
+     * @param ansi         true per aggiornare il tabellone con le sequenze ANSI
+     */
+    public RendererConsole(OutputStream destinazione, boolean ansi) {
+        this.destinazione = destinazione;
+        this.ansi = ansi;
+    }
+
+    /**
+     * Restituisce il flusso su cui comporre il testo della schermata corrente.
+     * <p>
+     * Niente viene inviato alla destinazione fino a {@link #mostra()}.
+     * </p>
+     *
+     * @return flusso della schermata
+     */
+    public PrintStream getSchermo() {
+        return schermo;
+    }
+
+    /** @return true se il renderer usa le sequenze ANSI */
+    public boolean isAnsi() {
+        return ansi;
+    }
+
+    /**
+     * Aggiunge il tabellone alla schermata corrente.
+     * <p>
+     * In modalità ANSI prepara la riscrittura delle sole righe cambiate
+     * rispetto all'ultimo tabellone; altrimenti lo accoda al testo.
+     * </p>
+     *
+     * @param tabellone testo del tabellone, una riga per casella
+     */
+    public void tabellone(String tabellone) {
+        if (!ansi) {
+            schermo.print(tabellone);
+            return;
+        }
+        String[] righe = tabellone.split("\n", -1);
+        aggiornamenti.setLength(0);
+        if (righeMostrate == null || righeMostrate.length != righe.length) {
+            aggiornamenti.append(CSI).append("H").append(CSI).append("2J");
+            for (int i = 0; i < righe.length; i++) {
+                aggiornamenti.append(righe[i]).append(CSI).append("K\n");
+            }
+        } else {
+            for (int i = 0; i < righe.length; i++) {
+                if (!righe[i].equals(righeMostrate[i])) {
+                    aggiornamenti.append(CSI).append(i + 1).append(";1H")
+                            .append(righe[i]).append(CSI).append('K');
+                }
+            }
+        }
+        righeMostrate = righe;
+    }
+
+    /**
+     * Invia la schermata composta alla destinazione con una sola scrittura e
+     * un solo flush, poi svuota i buffer per la schermata successiva.
+     */
+    public void mostra() {
+        schermo.flush();
+        try {
+            if (ansi && righeMostrate != null) {
+                aggiornamenti.append(CSI).append(righeMostrate.length + 1).append(";1H")
+                        .append(CSI).append('J');
+                cornice.reset();
+                cornice.write(aggiornamenti.toString().getBytes(StandardCharsets.UTF_8));
+                testo.writeTo(cornice);
+                cornice.writeTo(destinazione);
+            } else {
+                testo.writeTo(destinazione);
+            }
+            destinazione.flush();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        testo.reset();
+        aggiornamenti.setLength(0);
+    }
+
+    /**
+     * Dimentica il tabellone mostrato: la prossima schermata ANSI lo ridisegna
+     * per intero (es. dopo che altro output ha sporcato il terminale).
+     */
+    public void invalida() {
+        righeMostrate = null;
+    }
+}
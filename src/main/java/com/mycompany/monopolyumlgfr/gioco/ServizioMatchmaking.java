@@ -0,0 +1,494 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import com.mycompany.monopolyumlgfr.metriche.Istogramma;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Servizio di matchmaking concorrente per il Monopoly UML GFR.
+ * <p>
+ * Gli utenti autenticati vengono accodati con il proprio punteggio (rating) e
+ * raggruppati in partite da {@link Partita#MIN_GIOCATORI} a
+ * {@link Partita#MAX_GIOCATORI} giocatori in base al rating e al tempo di attesa.
+ * </p>
+ *
+ * <h2>Strategia</h2>
+ * <ul>
+ *   <li>Il rating è suddiviso in fasce di ampiezza fissa; ogni fascia è divisa in
+ *       {@link #STRISCE_PER_FASCIA} code, ognuna con il proprio lock, scelte in base
+ *       all'hash dello username. Così non si contendono un unico lock né accodamenti
+ *       su fasce diverse né quelli dei molti giocatori con lo stesso rating (ad
+ *       esempio quello iniziale).</li>
+ *   <li>Quando una fascia raggiunge {@link Partita#MAX_GIOCATORI} richieste,
+ *       la partita viene formata subito dal thread che accoda, prendendo le
+ *       richieste più vecchie dalle code della fascia.</li>
+ *   <li>Periodicamente {@link #abbina()} forma partite più piccole per chi attende
+ *       da troppo tempo, allargando la ricerca alle fasce vicine man mano che
+ *       l'attesa cresce.</li>
+ * </ul>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>I lock di più code vengono sempre acquisiti in ordine crescente di indice,
+ *       per evitare deadlock.</li>
+ *   <li>L'anzianità tra code diverse segue l'ordine di accodamento, non {@link System#nanoTime()}:
+ *       due richieste nello stesso istante dell'orologio restano ordinate.</li>
+ *   <li>Il servizio è una libreria: l'applicazione console e quella Swing formano
+ *       ancora le partite con il login multiplayer locale, senza matchmaking.</li>
+ *   <li>Il listener dei gruppi formati viene invocato fuori da ogni lock.</li>
+ *   <li>Per ogni partita formata vengono registrati i tempi di attesa (time-to-match)
+ *       dei giocatori coinvolti.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class ServizioMatchmaking implements AutoCloseable {
+
+    /** Ampiezza predefinita di una fascia di rating. */
+    public static final int AMPIEZZA_FASCIA_DEFAULT = 100;
+
+    /** Numero predefinito di fasce di rating. */
+    public static final int NUMERO_FASCE_DEFAULT = 32;
+
+    /** Code (e lock) in cui è divisa ogni fascia di rating. */
+    public static final int STRISCE_PER_FASCIA = 4;
+
+    /** Distribuzione dei tempi di attesa prima dell'abbinamento (tutti i servizi). */
+    private static final Istogramma TEMPO_ABBINAMENTO = RegistroMetriche.istogramma("matchmaking.attesa");
+
+    /**
+     * Richiesta di matchmaking di un singolo utente.
+     */
+    private static final class Richiesta {
+        final Utente utente;
+        final int rating;
+        final long ingressoNanos;
+
+        /** Ordine di arrivo: decide chi è più vecchio anche a parità di {@code ingressoNanos}. */
+        final long ordine;
+
+        Richiesta(Utente utente, int rating, long ingressoNanos, long ordine) {
+            this.utente = utente;
+            this.rating = rating;
+            this.ingressoNanos = ingressoNanos;
+            this.ordine = ordine;
+        }
+    }
+
+    /**
+     * Coda di una parte di una fascia di rating, con lock indipendente.
+     */
+    private static final class Striscia {
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<Richiesta> coda = new ArrayDeque<>();
+    }
+
+    /**
+     * Code di tutte le fasce (lock striping): la fascia {@code f} usa le code da
+     * {@code f * STRISCE_PER_FASCIA} a {@code (f + 1) * STRISCE_PER_FASCIA - 1}.
+     */
+    private final Striscia[] strisce;
+
+    /** Richieste in coda per fascia, per decidere senza lock se formare una partita completa. */
+    private final AtomicInteger[] perFascia;
+
+    /** Numero di fasce di rating. */
+    private final int numeroFasce;
+
+    /** Ampiezza di ogni fascia di rating. */
+    private final int ampiezzaFascia;
+
+    /** Attesa oltre la quale si accetta una partita con meno di {@code MAX_GIOCATORI}. */
+    private final long attesaMinimaNanos;
+
+    /** Ogni ulteriore intervallo di attesa allarga la ricerca di una fascia per lato. */
+    private final long passoAllargamentoNanos;
+
+    /** Destinatario dei gruppi di utenti formati. */
+    private final Consumer<List<Utente>> listener;
+
+    /** Ordine della prossima richiesta accodata. */
+    private final AtomicLong arrivi = new AtomicLong();
+
+    /** Utenti attualmente in coda, indicizzati per username. */
+    private final ConcurrentHashMap<String, Richiesta> inCoda = new ConcurrentHashMap<>();
+
+    /** Numero di partite formate. */
+    private final LongAdder partiteFormate = new LongAdder();
+
+    /** Numero di giocatori abbinati. */
+    private final LongAdder giocatoriAbbinati = new LongAdder();
+
+    /** Somma dei tempi di attesa dei giocatori abbinati (ns). */
+    private final LongAdder attesaTotaleNanos = new LongAdder();
+
+    /** Massimo tempo di attesa osservato (ns). */
+    private final AtomicLong attesaMassimaNanos = new AtomicLong();
+
+    /** Scheduler per l'abbinamento periodico (creato da {@link #avvia(long, TimeUnit)}). */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Crea un servizio con fasce e tempi di attesa predefiniti
+     * (attesa minima 5 s, allargamento di una fascia ogni 5 s).
+     *
+     * @param listener callback invocata con gli utenti di ogni partita formata
+     */
+    public ServizioMatchmaking(Consumer<List<Utente>> listener) {
+        this(listener, AMPIEZZA_FASCIA_DEFAULT, NUMERO_FASCE_DEFAULT,
+                TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(5));
+    }
+
+    /**
+     * Crea un servizio di matchmaking.
+     *
+     * @param listener               callback invocata con gli utenti di ogni partita formata
+     * @param ampiezzaFascia         ampiezza di una fascia di rating (maggiore di 0)
+     * @param numeroFasce            numero di fasce (maggiore di 0)
+     * @param attesaMinimaNanos      attesa dopo la quale si formano partite non complete
+     * @param passoAllargamentoNanos intervallo di attesa per allargare la ricerca di una fascia
+     * @throws IllegalArgumentException se i parametri non sono validi
+     */
+    public ServizioMatchmaking(Consumer<List<Utente>> listener, int ampiezzaFascia, int numeroFasce,
+                               long attesaMinimaNanos, long passoAllargamentoNanos) {
+        if (ampiezzaFascia <= 0 || numeroFasce <= 0 || passoAllargamentoNanos <= 0) {
+            throw new IllegalArgumentException("Parametri di matchmaking non validi");
+        }
+        this.listener = listener;
+        this.ampiezzaFascia = ampiezzaFascia;
+        this.attesaMinimaNanos = attesaMinimaNanos;
+        this.passoAllargamentoNanos = passoAllargamentoNanos;
+        this.numeroFasce = numeroFasce;
+        this.strisce = new Striscia[numeroFasce * STRISCE_PER_FASCIA];
+        for (int i = 0; i < strisce.length; i++) {
+            strisce[i] = new Striscia();
+        }
+        this.perFascia = new AtomicInteger[numeroFasce];
+        for (int i = 0; i < numeroFasce; i++) {
+            perFascia[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Accoda un utente autenticato per il matchmaking.
+     * <p>
+     * Se la fascia dell'utente raggiunge {@link Partita#MAX_GIOCATORI} richieste,
+     * la partita viene formata immediatamente.
+     * </p>
+     *
+     * @param utente utente da accodare
+     * @param rating punteggio dell'utente
+     * @return true se accodato, false se l'utente è già in coda
+     */
+    public boolean accoda(Utente utente, int rating) {
+        Richiesta r = new Richiesta(utente, rating, System.nanoTime(), arrivi.getAndIncrement());
+        if (inCoda.putIfAbsent(utente.getUsername(), r) != null) {
+            return false;
+        }
+
+        int fascia = indiceFascia(rating);
+        Striscia s = strisce[indiceStriscia(fascia, utente.getUsername())];
+        s.lock.lock();
+        try {
+            s.coda.addLast(r);
+            perFascia[fascia].incrementAndGet();
+        } finally {
+            s.lock.unlock();
+        }
+
+        if (perFascia[fascia].get() >= Partita.MAX_GIOCATORI) {
+            List<Richiesta> gruppo = raccogliCompleto(fascia);
+            if (gruppo != null) {
+                consegna(gruppo, System.nanoTime());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estrae una partita completa dalle code di una fascia, se nel frattempo un
+     * altro thread non l'ha già formata.
+     *
+     * @return il gruppo, o {@code null} se la fascia non ha più abbastanza richieste
+     */
+    private List<Richiesta> raccogliCompleto(int fascia) {
+        int da = fascia * STRISCE_PER_FASCIA;
+        int a = da + STRISCE_PER_FASCIA - 1;
+        blocca(da, a);
+        try {
+            if (perFascia[fascia].get() < Partita.MAX_GIOCATORI) {
+                return null;
+            }
+            List<Richiesta> gruppo = new ArrayList<>(Partita.MAX_GIOCATORI);
+            preleva(fascia, gruppo);
+            return gruppo;
+        } finally {
+            sblocca(da, a);
+        }
+    }
+
+    /**
+     * Rimuove un utente dalla coda di matchmaking.
+     *
+     * @param username username dell'utente
+     * @return true se l'utente era in coda ed è stato rimosso
+     */
+    public boolean rimuovi(String username) {
+        Richiesta r = inCoda.get(username);
+        if (r == null) {
+            return false;
+        }
+        int fascia = indiceFascia(r.rating);
+        Striscia s = strisce[indiceStriscia(fascia, username)];
+        s.lock.lock();
+        try {
+            if (!s.coda.remove(r)) {
+                return false;
+            }
+            perFascia[fascia].decrementAndGet();
+        } finally {
+            s.lock.unlock();
+        }
+        inCoda.remove(username, r);
+        return true;
+    }
+
+    /**
+     * Forma le partite per gli utenti che attendono da più di {@code attesaMinima},
+     * allargando la ricerca alle fasce vicine in proporzione all'attesa.
+     *
+     * @return numero di partite formate
+     */
+    public int abbina() {
+        return abbina(System.nanoTime());
+    }
+
+    /**
+     * Variante di {@link #abbina()} con istante corrente esplicito (usata nei test).
+     *
+     * @param adessoNanos istante corrente in nanosecondi ({@link System#nanoTime()})
+     * @return numero di partite formate
+     */
+    int abbina(long adessoNanos) {
+        int formate = 0;
+        for (int i = 0; i < numeroFasce; i++) {
+            List<Richiesta> gruppo;
+            while ((gruppo = raccogliGruppo(i, adessoNanos)) != null) {
+                consegna(gruppo, adessoNanos);
+                formate++;
+            }
+        }
+        return formate;
+    }
+
+    /**
+     * Prova a formare un gruppo attorno alla richiesta più vecchia della fascia {@code i}.
+     *
+     * @return il gruppo estratto dalle code, o {@code null} se non è possibile formarlo
+     */
+    private List<Richiesta> raccogliGruppo(int i, long adessoNanos) {
+        Richiesta piùVecchia = null;
+        for (int k = i * STRISCE_PER_FASCIA; k < (i + 1) * STRISCE_PER_FASCIA; k++) {
+            Striscia s = strisce[k];
+            s.lock.lock();
+            try {
+                Richiesta r = s.coda.peekFirst();
+                if (r != null && (piùVecchia == null || r.ordine < piùVecchia.ordine)) {
+                    piùVecchia = r;
+                }
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        if (piùVecchia == null) {
+            return null;
+        }
+        long attesa = adessoNanos - piùVecchia.ingressoNanos;
+        if (attesa < attesaMinimaNanos) {
+            return null;
+        }
+
+        int raggio = (int) Math.min(numeroFasce, (attesa - attesaMinimaNanos) / passoAllargamentoNanos);
+        int da = Math.max(0, i - raggio);
+        int a = Math.min(numeroFasce - 1, i + raggio);
+
+        blocca(da * STRISCE_PER_FASCIA, (a + 1) * STRISCE_PER_FASCIA - 1);
+        try {
+            int disponibili = 0;
+            for (int k = da; k <= a; k++) {
+                disponibili += perFascia[k].get();
+            }
+            if (disponibili < Partita.MIN_GIOCATORI) {
+                return null;
+            }
+
+            // Prima la fascia centrale, poi le vicine in ordine di distanza
+            List<Richiesta> gruppo = new ArrayList<>(Partita.MAX_GIOCATORI);
+            for (int d = 0; d <= raggio && gruppo.size() < Partita.MAX_GIOCATORI; d++) {
+                if (i - d >= da) {
+                    preleva(i - d, gruppo);
+                }
+                if (d > 0 && i + d <= a) {
+                    preleva(i + d, gruppo);
+                }
+            }
+            return gruppo;
+        } finally {
+            sblocca(da * STRISCE_PER_FASCIA, (a + 1) * STRISCE_PER_FASCIA - 1);
+        }
+    }
+
+    /**
+     * Sposta richieste dalle code della fascia {@code fascia} al gruppo fino al
+     * limite massimo, dalla più vecchia. Richiede i lock delle code della fascia.
+     */
+    private void preleva(int fascia, List<Richiesta> gruppo) {
+        int da = fascia * STRISCE_PER_FASCIA;
+        while (gruppo.size() < Partita.MAX_GIOCATORI) {
+            Striscia scelta = null;
+            for (int k = da; k < da + STRISCE_PER_FASCIA; k++) {
+                Richiesta r = strisce[k].coda.peekFirst();
+                if (r != null && (scelta == null || r.ordine < scelta.coda.peekFirst().ordine)) {
+                    scelta = strisce[k];
+                }
+            }
+            if (scelta == null) {
+                return;
+            }
+            gruppo.add(scelta.coda.pollFirst());
+            perFascia[fascia].decrementAndGet();
+        }
+    }
+
+    /**
+     * Acquisisce i lock delle code da {@code da} ad {@code a}, in ordine crescente.
+     */
+    private void blocca(int da, int a) {
+        for (int k = da; k <= a; k++) {
+            strisce[k].lock.lock();
+        }
+    }
+
+    /**
+     * Rilascia i lock acquisiti da {@link #blocca(int, int)}.
+     */
+    private void sblocca(int da, int a) {
+        for (int k = a; k >= da; k--) {
+            strisce[k].lock.unlock();
+        }
+    }
+
+    /**
+     * Registra le metriche di attesa e notifica il listener.
+     */
+    private void consegna(List<Richiesta> gruppo, long adessoNanos) {
+        List<Utente> utenti = new ArrayList<>(gruppo.size());
+        for (Richiesta r : gruppo) {
+            inCoda.remove(r.utente.getUsername(), r);
+            long attesa = Math.max(0, adessoNanos - r.ingressoNanos);
+            attesaTotaleNanos.add(attesa);
+            attesaMassimaNanos.accumulateAndGet(attesa, Math::max);
+            TEMPO_ABBINAMENTO.registra(attesa);
+            utenti.add(r.utente);
+        }
+        partiteFormate.increment();
+        giocatoriAbbinati.add(utenti.size());
+        if (listener != null) {
+            listener.accept(utenti);
+        }
+    }
+
+    /**
+     * Calcola l'indice di fascia per un rating, limitandolo all'intervallo valido.
+     */
+    private int indiceFascia(int rating) {
+        int i = rating / ampiezzaFascia;
+        return Math.max(0, Math.min(numeroFasce - 1, i));
+    }
+
+    /**
+     * Sceglie la coda di un utente all'interno della sua fascia.
+     */
+    private static int indiceStriscia(int fascia, String username) {
+        return fascia * STRISCE_PER_FASCIA + Math.floorMod(username.hashCode(), STRISCE_PER_FASCIA);
+    }
+
+    /**
+     * Avvia l'abbinamento periodico su un thread dedicato.
+     *
+     * @param periodo intervallo tra due esecuzioni di {@link #abbina()}
+     * @param unità   unità di misura del periodo
+     */
+    public synchronized void avvia(long periodo, TimeUnit unità) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "matchmaking");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::abbina, periodo, periodo, unità);
+    }
+
+    /**
+     * Ferma l'abbinamento periodico. Gli utenti in coda restano in coda.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Crea e avvia una {@link Partita} con gli utenti di un gruppo formato.
+     *
+     * @param sistema sistema per notifiche
+     * @param utenti  utenti del gruppo (da 2 a 6)
+     * @return la partita avviata
+     */
+    public static Partita creaPartita(Sistema sistema, List<Utente> utenti) {
+        Partita partita = new Partita(sistema);
+        for (Utente u : utenti) {
+            partita.aggiungiGiocatore(new Giocatore(u));
+        }
+        partita.avviaPartita();
+        return partita;
+    }
+
+    /** @return numero di utenti attualmente in coda */
+    public int getUtentiInCoda() { return inCoda.size(); }
+
+    /** @return numero di partite formate */
+    public long getPartiteFormate() { return partiteFormate.sum(); }
+
+    /** @return numero di giocatori abbinati */
+    public long getGiocatoriAbbinati() { return giocatoriAbbinati.sum(); }
+
+    /** @return attesa media prima dell'abbinamento, in millisecondi */
+    public double getAttesaMediaMillis() {
+        long n = giocatoriAbbinati.sum();
+        return n == 0 ? 0 : attesaTotaleNanos.sum() / (n * 1_000_000.0);
+    }
+
+    /** @return attesa massima prima dell'abbinamento, in millisecondi */
+    public double getAttesaMassimaMillis() {
+        return attesaMassimaNanos.get() / 1_000_000.0;
+    }
+}
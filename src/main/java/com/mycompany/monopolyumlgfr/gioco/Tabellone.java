@@ -65,52 +65,52 @@ public class Tabellone {
      */
     public void inizializza() {
         // Proprietà marroni
-        caselle.add(new Proprietà("Vicolo Corto", 60, new int[]{2, 10, 30, 90, 160, 250}));
-        caselle.add(new Proprietà("Vicolo Stretto", 60, new int[]{4, 20, 60, 180, 320, 450}));
+        caselle.add(new Proprietà("Vicolo Corto", 60, new int[]{2, 10, 30, 90, 160, 250}, Gruppo.MARRONE));
+        caselle.add(new Proprietà("Vicolo Stretto", 60, new int[]{4, 20, 60, 180, 320, 450}, Gruppo.MARRONE));
 
         // Proprietà azzurro chiaro
-        caselle.add(new Proprietà("Bastioni Gran Sasso", 100, new int[]{6, 30, 90, 270, 400, 550}));
-        caselle.add(new Proprietà("Viale Monterosa", 100, new int[]{6, 30, 90, 270, 400, 550}));
-        caselle.add(new Proprietà("Viale Vesuvio", 120, new int[]{8, 40, 100, 300, 450, 600}));
+        caselle.add(new Proprietà("Bastioni Gran Sasso", 100, new int[]{6, 30, 90, 270, 400, 550}, Gruppo.AZZURRO));
+        caselle.add(new Proprietà("Viale Monterosa", 100, new int[]{6, 30, 90, 270, 400, 550}, Gruppo.AZZURRO));
+        caselle.add(new Proprietà("Viale Vesuvio", 120, new int[]{8, 40, 100, 300, 450, 600}, Gruppo.AZZURRO));
 
         // Proprietà rosa
-        caselle.add(new Proprietà("Via Accademia", 140, new int[]{10, 50, 150, 450, 625, 750}));
-        caselle.add(new Proprietà("Corso Ateneo", 140, new int[]{10, 50, 150, 450, 625, 750}));
-        caselle.add(new Proprietà("Piazza Università", 160, new int[]{12, 60, 180, 500, 700, 900}));
+        caselle.add(new Proprietà("Via Accademia", 140, new int[]{10, 50, 150, 450, 625, 750}, Gruppo.ROSA));
+        caselle.add(new Proprietà("Corso Ateneo", 140, new int[]{10, 50, 150, 450, 625, 750}, Gruppo.ROSA));
+        caselle.add(new Proprietà("Piazza Università", 160, new int[]{12, 60, 180, 500, 700, 900}, Gruppo.ROSA));
 
         // Proprietà arancioni
-        caselle.add(new Proprietà("Via Verdi", 180, new int[]{14, 70, 200, 550, 750, 950}));
-        caselle.add(new Proprietà("Corso Raffaello", 180, new int[]{14, 70, 200, 550, 750, 950}));
-        caselle.add(new Proprietà("Piazza Dante", 200, new int[]{16, 80, 220, 600, 800, 1000}));
+        caselle.add(new Proprietà("Via Verdi", 180, new int[]{14, 70, 200, 550, 750, 950}, Gruppo.ARANCIONE));
+        caselle.add(new Proprietà("Corso Raffaello", 180, new int[]{14, 70, 200, 550, 750, 950}, Gruppo.ARANCIONE));
+        caselle.add(new Proprietà("Piazza Dante", 200, new int[]{16, 80, 220, 600, 800, 1000}, Gruppo.ARANCIONE));
 
         // Proprietà rosse
-        caselle.add(new Proprietà("Via Marco Polo", 220, new int[]{18, 90, 250, 700, 875, 1050}));
-        caselle.add(new Proprietà("Corso Magellano", 220, new int[]{18, 90, 250, 700, 875, 1050}));
-        caselle.add(new Proprietà("Largo Colombo", 240, new int[]{20, 100, 300, 750, 925, 1100}));
+        caselle.add(new Proprietà("Via Marco Polo", 220, new int[]{18, 90, 250, 700, 875, 1050}, Gruppo.ROSSO));
+        caselle.add(new Proprietà("Corso Magellano", 220, new int[]{18, 90, 250, 700, 875, 1050}, Gruppo.ROSSO));
+        caselle.add(new Proprietà("Largo Colombo", 240, new int[]{20, 100, 300, 750, 925, 1100}, Gruppo.ROSSO));
 
         // Proprietà gialle
-        caselle.add(new Proprietà("Viale Costantino", 260, new int[]{22, 110, 330, 800, 975, 1150}));
-        caselle.add(new Proprietà("Viale Traiano", 260, new int[]{22, 110, 330, 800, 975, 1150}));
-        caselle.add(new Proprietà("Piazza Giulio Cesare", 280, new int[]{24, 120, 360, 850, 1025, 1200}));
+        caselle.add(new Proprietà("Viale Costantino", 260, new int[]{22, 110, 330, 800, 975, 1150}, Gruppo.GIALLO));
+        caselle.add(new Proprietà("Viale Traiano", 260, new int[]{22, 110, 330, 800, 975, 1150}, Gruppo.GIALLO));
+        caselle.add(new Proprietà("Piazza Giulio Cesare", 280, new int[]{24, 120, 360, 850, 1025, 1200}, Gruppo.GIALLO));
 
         // Proprietà verdi
-        caselle.add(new Proprietà("Via Roma", 300, new int[]{26, 130, 390, 900, 1100, 1275}));
-        caselle.add(new Proprietà("Corso Impero", 300, new int[]{26, 130, 390, 900, 1100, 1275}));
-        caselle.add(new Proprietà("Largo Augusto", 320, new int[]{28, 150, 450, 1000, 1200, 1400}));
+        caselle.add(new Proprietà("Via Roma", 300, new int[]{26, 130, 390, 900, 1100, 1275}, Gruppo.VERDE));
+        caselle.add(new Proprietà("Corso Impero", 300, new int[]{26, 130, 390, 900, 1100, 1275}, Gruppo.VERDE));
+        caselle.add(new Proprietà("Largo Augusto", 320, new int[]{28, 150, 450, 1000, 1200, 1400}, Gruppo.VERDE));
 
         // Proprietà blu scuro
-        caselle.add(new Proprietà("Viale dei Giardini", 350, new int[]{35, 175, 500, 1100, 1300, 1500}));
-        caselle.add(new Proprietà("Parco della Vittoria", 400, new int[]{50, 200, 600, 1400, 1700, 2000}));
+        caselle.add(new Proprietà("Viale dei Giardini", 350, new int[]{35, 175, 500, 1100, 1300, 1500}, Gruppo.BLU));
+        caselle.add(new Proprietà("Parco della Vittoria", 400, new int[]{50, 200, 600, 1400, 1700, 2000}, Gruppo.BLU));
 
         // Stazioni
-        caselle.add(new Proprietà("Stazione Nord", 200, new int[]{25, 50, 100, 200}));
-        caselle.add(new Proprietà("Stazione Est", 200, new int[]{25, 50, 100, 200}));
-        caselle.add(new Proprietà("Stazione Sud", 200, new int[]{25, 50, 100, 200}));
-        caselle.add(new Proprietà("Stazione Ovest", 200, new int[]{25, 50, 100, 200}));
-
-        // Società
-        caselle.add(new Proprietà("Società Elettrica", 150, new int[]{10, 40}));
-        caselle.add(new Proprietà("Società Acqua Potabile", 150, new int[]{10, 40}));
+        caselle.add(new Proprietà("Stazione Nord", 200, new int[]{25, 50, 100, 200}, Gruppo.STAZIONE));
+        caselle.add(new Proprietà("Stazione Est", 200, new int[]{25, 50, 100, 200}, Gruppo.STAZIONE));
+        caselle.add(new Proprietà("Stazione Sud", 200, new int[]{25, 50, 100, 200}, Gruppo.STAZIONE));
+        caselle.add(new Proprietà("Stazione Ovest", 200, new int[]{25, 50, 100, 200}, Gruppo.STAZIONE));
+
+        // Società: moltiplicatori del lancio dei dadi (una o due società possedute)
+        caselle.add(new Proprietà("Società Elettrica", 150, new int[]{4, 10}, Gruppo.SOCIETÀ));
+        caselle.add(new Proprietà("Società Acqua Potabile", 150, new int[]{4, 10}, Gruppo.SOCIETÀ));
     }
 
     /**
@@ -161,25 +161,23 @@ public class Tabellone {
      * @return stringa formattata del tabellone
      */
     public String getTabelloneConGiocatori(List<Giocatore> giocatori) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(caselle.size() * 48);
 
         for (int i = 0; i < caselle.size(); i++) {
             Proprietà p = caselle.get(i);
 
             sb.append(i).append(") ").append(p.getNome());
 
-            // Trova i giocatori su questa casella
-            List<String> presenti = new ArrayList<>();
-            for (Giocatore g : giocatori) {
+            // Aggiunge i giocatori su questa casella direttamente al buffer
+            boolean primo = true;
+            for (int k = 0; k < giocatori.size(); k++) {
+                Giocatore g = giocatori.get(k);
                 if (g.getPosizione() == i) {
-                    presenti.add(g.getUtente().getUsername());
+                    sb.append(primo ? "  <-- Giocatori: " : ", ").append(g.getUtente().getUsername());
+                    primo = false;
                 }
             }
 
-            if (!presenti.isEmpty()) {
-                sb.append("  <-- Giocatori: ").append(String.join(", ", presenti));
-            }
-
             sb.append("\n");
         }
 
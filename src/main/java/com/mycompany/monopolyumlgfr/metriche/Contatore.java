@@ -0,0 +1,58 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contatore monotono thread-safe.
+ * <p>
+ * Basato su {@link LongAdder}: gli incrementi concorrenti non si contendono
+ * una singola variabile. Se le metriche sono disabilitate
+ * ({@link RegistroMetriche#isAbilitato()}) gli incrementi sono ignorati.
+ * </p>
+ *
+ * @author Giulio
+ */
+public class Contatore implements ContatoreMBean {
+
+    /** Nome della metrica. */
+    private final String nome;
+
+    /** Valore del contatore. */
+    private final LongAdder valore = new LongAdder();
+
+    /**
+     * Crea un contatore a zero.
+     *
+     * @param nome nome della metrica
+     */
+    public Contatore(String nome) {
+        this.nome = nome;
+    }
+
+    /** @return nome della metrica */
+    public String getNome() { return nome; }
+
+    /** Incrementa il contatore di 1. */
+    public void incrementa() {
+        if (RegistroMetriche.isAbilitato()) {
+            valore.increment();
+        }
+    }
+
+    /**
+     * Incrementa il contatore di una quantità.
+     *
+     * @param n quantità da aggiungere
+     */
+    public void aggiungi(long n) {
+        if (RegistroMetriche.isAbilitato()) {
+            valore.add(n);
+        }
+    }
+
+    @Override
+    public long getValore() { return valore.sum(); }
+
+    @Override
+    public void azzera() { valore.reset(); }
+}
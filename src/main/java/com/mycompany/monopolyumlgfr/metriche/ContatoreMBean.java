@@ -0,0 +1,15 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+/**
+ * Interfaccia JMX di un {@link Contatore}.
+ *
+ * @author Giulio
+ */
+public interface ContatoreMBean {
+
+    /** @return valore corrente del contatore */
+    long getValore();
+
+    /** Azzera il contatore. */
+    void azzera();
+}
@@ -0,0 +1,38 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Indicatore (gauge) il cui valore è letto al momento della richiesta.
+ * <p>
+ * Non ha costo sul percorso misurato: il valore viene calcolato solo quando
+ * l'indicatore è consultato, ad esempio da JMX.
+ * </p>
+ *
+ * @author Giulio
+ */
+public class Indicatore implements IndicatoreMBean {
+
+    /** Nome della metrica. */
+    private final String nome;
+
+    /** Sorgente del valore. */
+    private final LongSupplier sorgente;
+
+    /**
+     * Crea un indicatore.
+     *
+     * @param nome     nome della metrica
+     * @param sorgente funzione che restituisce il valore corrente
+     */
+    public Indicatore(String nome, LongSupplier sorgente) {
+        this.nome = nome;
+        this.sorgente = sorgente;
+    }
+
+    /** @return nome della metrica */
+    public String getNome() { return nome; }
+
+    @Override
+    public long getValore() { return sorgente.getAsLong(); }
+}
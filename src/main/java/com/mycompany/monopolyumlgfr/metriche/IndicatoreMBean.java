@@ -0,0 +1,12 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+/**
+ * Interfaccia JMX di un {@link Indicatore}.
+ *
+ * @author Giulio
+ */
+public interface IndicatoreMBean {
+
+    /** @return valore corrente dell'indicatore */
+    long getValore();
+}
@@ -0,0 +1,178 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Istogramma di latenze a memoria fissa e ampio intervallo dinamico.
+ * <p>
+ * I valori (in nanosecondi) sono raccolti in bucket log-lineari: ogni potenza
+ * di 2 è suddivisa in 32 sotto-bucket, con un errore relativo massimo di circa
+ * il 3% su tutto l'intervallo da 1 ns a circa 146 anni. La memoria occupata è
+ * costante (circa 15 KB) indipendentemente dal numero di campioni.
+ * </p>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>La registrazione non alloca memoria e non usa lock: è thread-safe.</li>
+ *   <li>I percentili sono calcolati su una lettura non atomica dei bucket:
+ *       con scritture concorrenti il risultato è approssimato.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public class Istogramma implements IstogrammaMBean {
+
+    /** Bit di precisione per ogni potenza di 2 (32 sotto-bucket). */
+    private static final int PRECISIONE = 5;
+
+    /** Numero di sotto-bucket per potenza di 2. */
+    private static final int SOTTO = 1 << PRECISIONE;
+
+    /** Valori rappresentati in modo esatto (bucket lineari iniziali). */
+    private static final int LINEARI = SOTTO << 1;
+
+    /** Numero totale di bucket. */
+    private static final int BUCKET = LINEARI + (63 - PRECISIONE - 1) * SOTTO;
+
+    /** Nome della metrica. */
+    private final String nome;
+
+    /** Conteggi per bucket. */
+    private final AtomicLongArray conteggi = new AtomicLongArray(BUCKET);
+
+    /** Numero di campioni. */
+    private final LongAdder totale = new LongAdder();
+
+    /** Somma dei campioni (ns). */
+    private final LongAdder somma = new LongAdder();
+
+    /** Valore massimo registrato (ns). */
+    private final AtomicLong massimo = new AtomicLong();
+
+    /**
+     * Crea un istogramma vuoto.
+     *
+     * @param nome nome della metrica
+     */
+    public Istogramma(String nome) {
+        this.nome = nome;
+    }
+
+    /** @return nome della metrica */
+    public String getNome() { return nome; }
+
+    /**
+     * Registra un valore in nanosecondi. I valori negativi sono ignorati,
+     * così come tutti i valori se le metriche sono disabilitate.
+     *
+     * @param nanos valore da registrare
+     */
+    public void registra(long nanos) {
+        if (nanos < 0 || !RegistroMetriche.isAbilitato()) {
+            return;
+        }
+        conteggi.incrementAndGet(indice(nanos));
+        totale.increment();
+        somma.add(nanos);
+        long m;
+        while (nanos > (m = massimo.get()) && !massimo.compareAndSet(m, nanos)) {
+            // riprova
+        }
+    }
+
+    /**
+     * Registra il tempo trascorso da un istante ottenuto con
+     * {@link RegistroMetriche#inizio()}. Se le metriche erano disabilitate
+     * all'inizio della misura ({@code inizioNanos == 0}) non registra nulla.
+     *
+     * @param inizioNanos istante di inizio della misura
+     */
+    public void fine(long inizioNanos) {
+        if (inizioNanos != 0) {
+            registra(System.nanoTime() - inizioNanos);
+        }
+    }
+
+    /**
+     * Calcola il bucket di un valore.
+     */
+    static int indice(long v) {
+        if (v < LINEARI) {
+            return (int) v;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int shift = msb - PRECISIONE;
+        int top = (int) (v >>> shift);
+        return LINEARI + (shift - 1) * SOTTO + (top - SOTTO);
+    }
+
+    /**
+     * Restituisce il valore massimo rappresentato da un bucket.
+     */
+    static long limiteSuperiore(int indice) {
+        if (indice < LINEARI) {
+            return indice;
+        }
+        int shift = (indice - LINEARI) / SOTTO + 1;
+        long top = (indice - LINEARI) % SOTTO + SOTTO;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Calcola un percentile dei valori registrati.
+     *
+     * @param percentile percentile richiesto (0–100)
+     * @return valore in nanosecondi (limite superiore del bucket, al più il massimo)
+     */
+    public long percentile(double percentile) {
+        long n = totale.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long soglia = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long cumulato = 0;
+        for (int i = 0; i < BUCKET; i++) {
+            cumulato += conteggi.get(i);
+            if (cumulato >= soglia) {
+                return Math.min(limiteSuperiore(i), massimo.get());
+            }
+        }
+        return massimo.get();
+    }
+
+    @Override
+    public long getConteggio() { return totale.sum(); }
+
+    @Override
+    public double getMediaMillis() {
+        long n = totale.sum();
+        return n == 0 ? 0 : somma.sum() / (n * 1e6);
+    }
+
+    @Override
+    public double getP50Millis() { return percentile(50) / 1e6; }
+
+    @Override
+    public double getP90Millis() { return percentile(90) / 1e6; }
+
+    @Override
+    public double getP99Millis() { return percentile(99) / 1e6; }
+
+    @Override
+    public double getP999Millis() { return percentile(99.9) / 1e6; }
+
+    @Override
+    public double getMassimoMillis() { return massimo.get() / 1e6; }
+
+    @Override
+    public void azzera() {
+        for (int i = 0; i < BUCKET; i++) {
+            conteggi.set(i, 0);
+        }
+        totale.reset();
+        somma.reset();
+        massimo.set(0);
+    }
+}
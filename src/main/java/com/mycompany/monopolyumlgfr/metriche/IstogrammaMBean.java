@@ -0,0 +1,36 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+/**
+ * Interfaccia JMX di un {@link Istogramma} di latenze.
+ * <p>
+ * I valori sono espressi in millisecondi per la lettura da JConsole o VisualVM.
+ * </p>
+ *
+ * @author Giulio
+ */
+public interface IstogrammaMBean {
+
+    /** @return numero di campioni registrati */
+    long getConteggio();
+
+    /** @return latenza media in millisecondi */
+    double getMediaMillis();
+
+    /** @return mediana in millisecondi */
+    double getP50Millis();
+
+    /** @return 90° percentile in millisecondi */
+    double getP90Millis();
+
+    /** @return 99° percentile in millisecondi */
+    double getP99Millis();
+
+    /** @return 99,9° percentile in millisecondi */
+    double getP999Millis();
+
+    /** @return latenza massima in millisecondi */
+    double getMassimoMillis();
+
+    /** Azzera tutti i campioni. */
+    void azzera();
+}
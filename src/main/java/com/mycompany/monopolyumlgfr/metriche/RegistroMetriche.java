@@ -0,0 +1,217 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registro delle metriche in-process del Monopoly UML GFR.
+ * <p>
+ * Raccoglie {@link Contatore}, {@link Indicatore} e {@link Istogramma}
+ * identificati da un nome (es. {@code "partita.turno"}) e li espone via JMX
+ * con {@link #esportaJmx()}.
+ * </p>
+ *
+ * <h2>Uso tipico</h2>
+ * <pre>{@code
+ * private static final Istogramma TEMPO = RegistroMetriche.istogramma("partita.turno");
+ *
+ * long t0 = RegistroMetriche.inizio();
+ * // ... operazione misurata ...
+ * TEMPO.fine(t0);
+ * }</pre>
+ *
+ * <h2>Note</h2>
+ * <ul>
+ *   <li>Le metriche sono disabilitate per default; si abilitano con la proprietà
+ *       di sistema {@code -Dmonopoly.metriche=true} o con {@link #setAbilitato(boolean)}.</li>
+ *   <li>Da disabilitate il costo sul percorso misurato è una lettura di un campo
+ *       {@code volatile}: niente {@link System#nanoTime()}, niente allocazioni.</li>
+ * </ul>
+ *
+ * @author Giulio
+ */
+public final class RegistroMetriche {
+
+    /** Proprietà di sistema che abilita le metriche all'avvio. */
+    public static final String PROPRIETA_ABILITAZIONE = "monopoly.metriche";
+
+    /** Dominio JMX delle metriche. */
+    public static final String DOMINIO_JMX = "com.mycompany.monopolyumlgfr";
+
+    /** Stato di abilitazione globale. */
+    private static volatile boolean abilitato = Boolean.getBoolean(PROPRIETA_ABILITAZIONE);
+
+    /** Metriche registrate, per nome. */
+    private static final Map<String, Object> metriche = new ConcurrentHashMap<>();
+
+    /** True dopo {@link #esportaJmx()}: le nuove metriche vengono esportate subito. */
+    private static volatile boolean esportaNuove;
+
+    private RegistroMetriche() {
+    }
+
+    /** @return true se le metriche sono abilitate */
+    public static boolean isAbilitato() {
+        return abilitato;
+    }
+
+    /**
+     * Abilita o disabilita la raccolta delle metriche.
+     *
+     * @param valore true per abilitare
+     */
+    public static void setAbilitato(boolean valore) {
+        abilitato = valore;
+    }
+
+    /**
+     * Restituisce l'istante di inizio di una misura.
+     *
+     * @return {@link System#nanoTime()} se le metriche sono abilitate, altrimenti 0
+     */
+    public static long inizio() {
+        if (!abilitato) {
+            return 0;
+        }
+        long t = System.nanoTime();
+        return t == 0 ? 1 : t;
+    }
+
+    /**
+     * Restituisce l'istogramma con il nome indicato, creandolo se necessario.
+     *
+     * @param nome nome della metrica
+     * @return istogramma registrato
+     */
+    public static Istogramma istogramma(String nome) {
+        return registra(nome, Istogramma.class, () -> new Istogramma(nome));
+    }
+
+    /**
+     * Restituisce il contatore con il nome indicato, creandolo se necessario.
+     *
+     * @param nome nome della metrica
+     * @return contatore registrato
+     */
+    public static Contatore contatore(String nome) {
+        return registra(nome, Contatore.class, () -> new Contatore(nome));
+    }
+
+    /**
+     * Registra un indicatore; se esiste già un indicatore con lo stesso nome
+     * viene restituito quello esistente.
+     *
+     * @param nome     nome della metrica
+     * @param sorgente funzione che restituisce il valore corrente
+     * @return indicatore registrato
+     */
+    public static Indicatore indicatore(String nome, LongSupplier sorgente) {
+        return registra(nome, Indicatore.class, () -> new Indicatore(nome, sorgente));
+    }
+
+    /**
+     * Restituisce una vista ordinata per nome di tutte le metriche registrate.
+     *
+     * @return mappa non modificabile nome → metrica
+     */
+    public static Map<String, Object> getMetriche() {
+        return Collections.unmodifiableMap(new TreeMap<>(metriche));
+    }
+
+    /**
+     * Registra tutte le metriche presenti e future sull'MBean server della piattaforma.
+     * <p>
+     * Ogni metrica è esposta come
+     * {@code com.mycompany.monopolyumlgfr:type=<Tipo>,name=<nome>}.
+     * </p>
+     */
+    public static synchronized void esportaJmx() {
+        esportaNuove = true;
+        for (Map.Entry<String, Object> e : metriche.entrySet()) {
+            esporta(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Restituisce il nome JMX di una metrica.
+     *
+     * @param nome   nome della metrica
+     * @param metrica istanza della metrica
+     * @return nome JMX
+     * @throws JMException se il nome non è valido
+     */
+    public static ObjectName nomeJmx(String nome, Object metrica) throws JMException {
+        return new ObjectName(DOMINIO_JMX + ":type=" + metrica.getClass().getSimpleName()
+                + ",name=" + ObjectName.quote(nome));
+    }
+
+    /**
+     * Restituisce un riepilogo testuale di tutte le metriche.
+     *
+     * @return una riga per metrica
+     */
+    public static String riepilogo() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Object> e : getMetriche().entrySet()) {
+            Object m = e.getValue();
+            sb.append(e.getKey()).append(": ");
+            if (m instanceof Istogramma) {
+                Istogramma h = (Istogramma) m;
+                sb.append(String.format("n=%d media=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                        h.getConteggio(), h.getMediaMillis(), h.getP50Millis(),
+                        h.getP99Millis(), h.getMassimoMillis()));
+            } else if (m instanceof Contatore) {
+                sb.append(((Contatore) m).getValore());
+            } else if (m instanceof Indicatore) {
+                sb.append(((Indicatore) m).getValore());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Registra una metrica controllandone il tipo.
+     */
+    private static <T> T registra(String nome, Class<T> tipo, Supplier<T> fabbrica) {
+        Object m = metriche.get(nome);
+        if (m == null) {
+            Object nuova = fabbrica.get();
+            m = metriche.putIfAbsent(nome, nuova);
+            if (m == null) {
+                m = nuova;
+                if (esportaNuove) {
+                    esporta(nome, nuova);
+                }
+            }
+        }
+        if (!tipo.isInstance(m)) {
+            throw new IllegalArgumentException("La metrica " + nome + " esiste già con tipo "
+                    + m.getClass().getSimpleName());
+        }
+        return tipo.cast(m);
+    }
+
+    /**
+     * Registra una metrica sull'MBean server, ignorando quelle già registrate.
+     */
+    private static void esporta(String nome, Object metrica) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = nomeJmx(nome, metrica);
+            if (!server.isRegistered(on)) {
+                server.registerMBean(metrica, on);
+            }
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
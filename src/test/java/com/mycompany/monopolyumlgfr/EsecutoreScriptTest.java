@@ -0,0 +1,161 @@
+package com.mycompany.monopolyumlgfr;
+
+import com.mycompany.monopolyumlgfr.autenticazione.DatabaseUtenti;
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link EsecutoreScript}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Registrazione, login e comandi di gioco letti da uno script.</li>
+ *   <li>L'esecuzione di più partite di seguito con l'output scartato.</li>
+ *   <li>Che con l'output scartato nemmeno gli abbandoni scrivano su {@link System#out}.</li>
+ *   <li>La fine anticipata dello script.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class EsecutoreScriptTest {
+
+    /** File del database di test. */
+    private static final String FILE = "utenti_script_test.xml";
+
+    /** Sistema di test. */
+    private Sistema sistema;
+
+    /**
+     * Crea un database vuoto.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(Path.of(FILE), "<utenti>\n</utenti>\n");
+        sistema = new Sistema(new DatabaseUtenti(FILE));
+    }
+
+    /**
+     * Elimina il database di test.
+     */
+    @AfterEach
+    public void tearDown() {
+        for (String suffisso : new String[] {"", ".giornale", ".lock"}) {
+            new File(FILE + suffisso).delete();
+        }
+    }
+
+    /**
+     * Compone una partita: registra e accede con due utenti, esegue dei turni ed esce.
+     */
+    private static String partita(int turni) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("2\n");
+        sb.append("r\nMario Rossi\nmario\npwd123\nmario\npwd123\n");
+        sb.append("r\nLuigi Bianchi\nluigi\npwd456\nluigi\npwd456\n");
+        for (int i = 0; i < turni; i++) {
+            sb.append("1\n");
+        }
+        sb.append("3\n0\n");
+        return sb.toString();
+    }
+
+    /**
+     * Verifica che una partita venga giocata interamente dallo script.
+     */
+    @Test
+    public void testPartitaDaScript() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        EsecutoreScript esecutore = new EsecutoreScript(sistema,
+                new PrintStream(buffer, true, StandardCharsets.UTF_8), false);
+
+        EsecutoreScript.Risultato r = esecutore.esegui(
+                new ByteArrayInputStream(partita(3).getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, r.getPartite());
+        String out = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(out.contains("Login effettuato per mario!"));
+        assertTrue(out.contains("Login effettuato per luigi!"));
+        assertTrue(out.contains("Turno di mario"));
+        assertTrue(out.contains("Chiusura gioco."));
+    }
+
+    /**
+     * Verifica che, dopo la verifica di tutti i posti, venga richiesto di nuovo
+     * solo il posto con credenziali errate.
+     */
+    @Test
+    public void testLoginErratoRichiesto() {
+        String script = "2\n"
+                + "r\nMario Rossi\nmario\npwd123\nmario\npwd123\n"
+                + "r\nLuigi Bianchi\nluigi\npwd456\nluigi\nerrata\n"
+                + "l\nluigi\npwd456\n"
+                + "1\n3\n0\n";
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        EsecutoreScript.Risultato r = new EsecutoreScript(sistema,
+                new PrintStream(buffer, true, StandardCharsets.UTF_8), false)
+                .esegui(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, r.getPartite());
+        String out = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(out.contains("Credenziali non valide per il giocatore 2"));
+        assertFalse(out.contains("Credenziali non valide per il giocatore 1"));
+        assertTrue(out.contains("Login effettuato per luigi!"));
+    }
+
+    /**
+     * Verifica più partite di seguito con l'output scartato.
+     */
+    @Test
+    public void testPartiteSilenziose() {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            script.append(partita(20));
+        }
+        EsecutoreScript.Risultato r = EsecutoreScript.silenzioso(sistema)
+                .esegui(new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(50, r.getPartite());
+        assertTrue(r.getNanos() > 0);
+        assertTrue(r.toString().startsWith("Partite: 50"));
+    }
+
+    /**
+     * Verifica che un abbandono, che chiude la partita, non scriva nulla su
+     * {@link System#out} quando l'output è scartato.
+     */
+    @Test
+    public void testAbbandonoSilenzioso() {
+        String script = partita(2).replace("3\n0\n", "2\n0\n");
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(console, true));
+        EsecutoreScript.Risultato r;
+        try {
+            r = EsecutoreScript.silenzioso(sistema)
+                    .esegui(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertEquals(1, r.getPartite());
+        assertEquals("", console.toString(), "L'output scartato non deve arrivare su System.out");
+    }
+
+    /**
+     * Verifica che uno script troncato termini senza errori.
+     */
+    @Test
+    public void testScriptTroncato() {
+        EsecutoreScript.Risultato r = EsecutoreScript.silenzioso(sistema)
+                .esegui(new ByteArrayInputStream("2\nl\nmario\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, r.getPartite());
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link CodificaPassword}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>La verifica delle password codificate e il sale casuale.</li>
+ *   <li>La compatibilità con le password in chiaro.</li>
+ *   <li>Il rifiuto dei valori codificati non validi e il limite alle iterazioni.</li>
+ *   <li>Il costo della verifica delle password in chiaro.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class CodificaPasswordTest {
+
+    /**
+     * Verifica codifica e verifica di una password.
+     */
+    @Test
+    public void testCodificaEVerifica() {
+        CodificaPassword codifica = new CodificaPassword(1000);
+        String a = codifica.codifica("pwd123");
+        String b = codifica.codifica("pwd123");
+
+        assertTrue(a.startsWith("pbkdf2$1000$"));
+        assertTrue(CodificaPassword.isCodificata(a));
+        assertNotEquals(a, b, "Ogni codifica deve usare un sale diverso");
+        assertTrue(CodificaPassword.verifica("pwd123", a));
+        assertTrue(CodificaPassword.verifica("pwd123", b));
+        assertFalse(CodificaPassword.verifica("pwd124", a));
+    }
+
+    /**
+     * Verifica che le password in chiaro degli archivi precedenti siano accettate.
+     */
+    @Test
+    public void testPasswordInChiaro() {
+        assertFalse(CodificaPassword.isCodificata("password123"));
+        assertTrue(CodificaPassword.verifica("password123", "password123"));
+        assertFalse(CodificaPassword.verifica("password12", "password123"));
+    }
+
+    /**
+     * Verifica che un valore codificato non valido non sia mai accettato.
+     */
+    @Test
+    public void testCodificaNonValida() {
+        assertFalse(CodificaPassword.verifica("x", "pbkdf2$"));
+        assertFalse(CodificaPassword.verifica("x", "pbkdf2$abc$AAAA$AAAA"));
+        assertFalse(CodificaPassword.verifica("x", "pbkdf2$0$AAAA$AAAA"));
+        assertThrows(IllegalArgumentException.class, () -> new CodificaPassword(0));
+        assertTrue(CodificaPassword.verifica("pbkdf2$abc", "pbkdf2$abc"),
+                "Un valore non codificato con il prefisso è una password in chiaro");
+    }
+
+    /**
+     * Verifica che un valore con troppe iterazioni non sia considerato codificato,
+     * quindi non provochi una derivazione arbitrariamente lunga.
+     */
+    @Test
+    public void testIterazioniMassime() {
+        String valida = new CodificaPassword(1).codifica("x");
+        String sale = valida.split("\\$")[2];
+        String lenta = "pbkdf2$" + Integer.MAX_VALUE + "$" + sale + "$" + sale;
+
+        assertTrue(CodificaPassword.isCodificata(valida));
+        assertFalse(CodificaPassword.isCodificata(lenta));
+        assertFalse(CodificaPassword.verifica("x", lenta));
+    }
+
+    /**
+     * Verifica che la verifica in chiaro costi quanto quella di un username
+     * inesistente, così il tempo di risposta non rivela gli account in chiaro.
+     */
+    @Test
+    public void testCostoPasswordInChiaro() {
+        int n = 20;
+        CodificaPassword.verificaFittizia("riscaldamento");
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            CodificaPassword.verificaFittizia("pwd" + i);
+        }
+        long fittizia = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            CodificaPassword.verifica("pwd" + i, "password123");
+        }
+        long inChiaro = System.nanoTime() - t0;
+
+        assertTrue(inChiaro * 2 > fittizia, "In chiaro " + inChiaro + " ns, fittizia " + fittizia + " ns");
+    }
+}
@@ -0,0 +1,146 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link DatabaseUtentiSQL}.
+ * <p>
+ * Usa un database H2 in memoria, quindi non richiede rete né file.
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Salvataggio, caricamento e ricerca degli utenti.</li>
+ *   <li>L'unicità dello username, anche con registrazioni concorrenti.</li>
+ *   <li>La ricerca per prefisso con caratteri speciali di {@code LIKE}.</li>
+ *   <li>L'uso tramite {@link Sistema} e la scelta da configurazione.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class DatabaseUtentiSQLTest {
+
+    /** Contatore per dare a ogni test un database distinto. */
+    private static final AtomicInteger PROGRESSIVO = new AtomicInteger();
+
+    /** Archivio di test. */
+    private DatabaseUtentiSQL db;
+
+    /**
+     * Crea un database in memoria vuoto.
+     */
+    @BeforeEach
+    public void setUp() {
+        db = new DatabaseUtentiSQL("jdbc:h2:mem:utenti" + PROGRESSIVO.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * Chiude il pool di connessioni.
+     */
+    @AfterEach
+    public void tearDown() {
+        db.close();
+    }
+
+    /**
+     * Verifica salvataggio, caricamento in ordine e ricerca.
+     */
+    @Test
+    public void testSalvaECerca() {
+        assertTrue(db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd123")));
+        assertEquals(2, db.salvaUtenti(List.of(
+                new Utente("Luigi Bianchi", "luigi", "pwd456"),
+                new Utente("Anna Verdi", "anna", "pwd789"))));
+
+        List<Utente> utenti = db.caricaUtenti();
+        assertEquals(3, utenti.size());
+        assertEquals("mario", utenti.get(0).getUsername(), "Gli utenti sono in ordine di registrazione");
+        assertEquals("pwd456", db.cerca("luigi").get(0).getPassword());
+        assertTrue(db.cerca("giulia").isEmpty());
+        assertTrue(db.esiste("anna"));
+        assertFalse(db.esiste("giulia"));
+    }
+
+    /**
+     * Verifica che gli username già registrati o ripetuti nel lotto vengano saltati.
+     */
+    @Test
+    public void testUsernameUnico() {
+        db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd123"));
+
+        assertFalse(db.salvaUtente(new Utente("Mario Verdi", "mario", "altra")));
+        assertEquals(1, db.salvaUtenti(List.of(
+                new Utente("Mario Verdi", "mario", "altra"),
+                new Utente("Luigi Bianchi", "luigi", "pwd456"),
+                new Utente("Luigi Verdi", "luigi", "altra"))));
+        assertEquals("pwd123", db.cerca("mario").get(0).getPassword());
+        assertEquals("pwd456", db.cerca("luigi").get(0).getPassword());
+    }
+
+    /**
+     * Verifica che con registrazioni concorrenti dello stesso username ne vinca una sola.
+     *
+     * @throws Exception in caso di interruzione
+     */
+    @Test
+    public void testRegistrazioniConcorrenti() throws Exception {
+        AtomicInteger riuscite = new AtomicInteger();
+        List<Thread> thread = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int n = t;
+            thread.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    if (db.salvaUtente(new Utente("Utente " + n, "user" + i, "pwd" + n))) {
+                        riuscite.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread t : thread) {
+            t.start();
+        }
+        for (Thread t : thread) {
+            t.join();
+        }
+        assertEquals(50, riuscite.get(), "Ogni username deve essere registrato una sola volta");
+        assertEquals(50, db.caricaUtenti().size());
+    }
+
+    /**
+     * Verifica la ricerca per prefisso, con {@code %} e {@code _} trattati letteralmente.
+     */
+    @Test
+    public void testCercaPerPrefisso() {
+        db.salvaUtenti(List.of(
+                new Utente("A", "mario", "p"),
+                new Utente("B", "mario_1", "p"),
+                new Utente("C", "mariox1", "p"),
+                new Utente("D", "marina", "p"),
+                new Utente("E", "100%", "p")));
+
+        assertEquals(List.of("marina", "mario", "mario_1"), db.cercaPerPrefisso("mari", 3));
+        assertEquals(List.of("mario_1"), db.cercaPerPrefisso("mario_", 10));
+        assertEquals(List.of("100%"), db.cercaPerPrefisso("100%", 10));
+        assertTrue(db.cercaPerPrefisso("luigi", 10).isEmpty());
+    }
+
+    /**
+     * Verifica registrazione e login tramite {@link Sistema}, con l'archivio scelto da configurazione.
+     */
+    @Test
+    public void testSistemaDaConfigurazione() {
+        DatabaseUtenti configurato = DatabaseUtenti.apri("jdbc:h2:mem:configurato;DB_CLOSE_DELAY=-1");
+        try {
+            assertTrue(configurato instanceof DatabaseUtentiSQL);
+            Sistema sistema = new Sistema(configurato);
+            assertTrue(sistema.registraGiocatore("Mario Rossi", "mario", "pwd123"));
+            assertFalse(sistema.registraGiocatore("Mario Verdi", "mario", "altra"));
+            assertNotNull(sistema.validaCredenziali("mario", "pwd123"));
+            assertNull(sistema.validaCredenziali("mario", "errata"));
+            assertEquals(List.of("mario"), sistema.suggerisciUsername("ma", 5));
+        } finally {
+            ((DatabaseUtentiSQL) configurato).close();
+        }
+    }
+}
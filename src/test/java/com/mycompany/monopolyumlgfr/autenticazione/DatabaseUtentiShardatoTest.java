@@ -0,0 +1,182 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link DatabaseUtentiShardato}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>La distribuzione degli utenti tra gli shard e le ricerche.</li>
+ *   <li>La riapertura con il numero di shard salvato.</li>
+ *   <li>La ridistribuzione con login in corso.</li>
+ *   <li>Le registrazioni concorrenti: ogni utente nel proprio shard, senza duplicati.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class DatabaseUtentiShardatoTest {
+
+    /** Percorso base dei file di test. */
+    private static final String BASE = "utenti_shard_test";
+
+    /**
+     * Elimina i file di test prima e dopo ogni metodo.
+     */
+    @BeforeEach
+    @AfterEach
+    public void pulisci() {
+        File[] file = new File(".").listFiles((d, nome) -> nome.startsWith(BASE));
+        if (file != null) {
+            for (File f : file) {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Crea {@code n} utenti {@code user<i>} / {@code pwd<i>}.
+     */
+    private static List<Utente> utenti(int da, int n) {
+        List<Utente> l = new ArrayList<>();
+        for (int i = da; i < da + n; i++) {
+            l.add(new Utente("Utente " + i, "user" + i, "pwd" + i));
+        }
+        return l;
+    }
+
+    /**
+     * Verifica distribuzione, ricerche e caricamento completo.
+     */
+    @Test
+    public void testDistribuzioneERicerca() {
+        DatabaseUtentiShardato db = new DatabaseUtentiShardato(BASE, 4);
+        db.salvaUtenti(utenti(0, 200));
+        db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd123"));
+
+        assertEquals(201, db.caricaUtenti().size());
+        assertEquals("pwd123", db.cerca("mario").get(0).getPassword());
+        assertEquals("pwd150", db.cerca("user150").get(0).getPassword());
+        assertTrue(db.cerca("luigi").isEmpty());
+        assertEquals(List.of("user1", "user10", "user100", "user101"), db.cercaPerPrefisso("user1", 4),
+                "I risultati dei diversi shard devono essere fusi in ordine");
+
+        for (int i = 0; i < 4; i++) {
+            int n = new DatabaseUtenti(new File(BASE + "." + i + "-4.xml")).caricaUtenti().size();
+            assertTrue(n > 20 && n < 80, "Gli utenti devono essere distribuiti tra gli shard: " + n);
+        }
+
+        Sistema sistema = new Sistema(db);
+        assertNotNull(sistema.validaCredenziali("user7", "pwd7"));
+        assertNull(sistema.validaCredenziali("user7", "errata"));
+    }
+
+    /**
+     * Verifica che alla riapertura valga il numero di shard salvato.
+     */
+    @Test
+    public void testRiapertura() {
+        new DatabaseUtentiShardato(BASE, 3).salvaUtenti(utenti(0, 30));
+
+        DatabaseUtentiShardato riaperto = new DatabaseUtentiShardato(BASE, 8);
+        assertEquals(3, riaperto.getNumeroShard());
+        assertEquals(30, riaperto.caricaUtenti().size());
+    }
+
+    /**
+     * Verifica la ridistribuzione mentre altri thread fanno login e registrazioni.
+     *
+     * @throws Exception in caso di interruzione
+     */
+    @Test
+    public void testRidistribuzioneInLinea() throws Exception {
+        DatabaseUtentiShardato db = new DatabaseUtentiShardato(BASE, 2);
+        db.salvaUtenti(utenti(0, 500));
+        db.precarica();
+
+        AtomicBoolean attivo = new AtomicBoolean(true);
+        AtomicInteger falliti = new AtomicInteger();
+        Thread login = new Thread(() -> {
+            int i = 0;
+            while (attivo.get()) {
+                int k = i++ % 500;
+                if (db.cerca("user" + k).isEmpty()) {
+                    falliti.incrementAndGet();
+                }
+            }
+        });
+        Thread registrazione = new Thread(() -> db.salvaUtenti(utenti(500, 10)));
+        login.start();
+        registrazione.start();
+        db.ridistribuisci(5);
+        registrazione.join();
+        attivo.set(false);
+        login.join();
+
+        assertEquals(0, falliti.get(), "I login devono funzionare durante la ridistribuzione");
+        assertEquals(5, db.getNumeroShard());
+        Set<String> nomi = new HashSet<>();
+        for (Utente u : db.caricaUtenti()) {
+            nomi.add(u.getUsername());
+        }
+        assertEquals(510, nomi.size(), "Nessun utente deve andare perso");
+        assertFalse(new File(BASE + ".0-2.xml").exists(), "I vecchi shard devono essere eliminati");
+        assertEquals(5, new DatabaseUtentiShardato(BASE, 1).getNumeroShard());
+    }
+
+    /**
+     * Registrazioni concorrenti da più thread su 8 shard: ogni utente finisce
+     * nel file del proprio shard, nessuno va perso e uno username conteso
+     * viene registrato una sola volta.
+     *
+     * @throws Exception in caso di interruzione
+     */
+    @Test
+    public void testRegistrazioniConcorrenti() throws Exception {
+        DatabaseUtentiShardato db = new DatabaseUtentiShardato(BASE, 8);
+        db.salvaUtenti(utenti(0, 1000));
+        AtomicInteger conteso = new AtomicInteger();
+        Thread[] thread = new Thread[4];
+        for (int t = 0; t < thread.length; t++) {
+            int da = 10_000 * (t + 1);
+            thread[t] = new Thread(() -> {
+                for (Utente u : utenti(da, 50)) {
+                    db.salvaUtente(u);
+                }
+                if (db.salvaUtente(new Utente("Conteso", "conteso", "pwd"))) {
+                    conteso.incrementAndGet();
+                }
+            });
+        }
+        for (Thread t : thread) {
+            t.start();
+        }
+        for (Thread t : thread) {
+            t.join();
+        }
+
+        assertEquals(1, conteso.get(), "Lo username conteso va registrato una sola volta");
+        assertEquals(1201, db.caricaUtenti().size());
+        int totale = 0;
+        for (int i = 0; i < 8; i++) {
+            List<Utente> nelloShard = new DatabaseUtenti(new File(BASE + "." + i + "-8.xml")).caricaUtenti();
+            assertFalse(nelloShard.isEmpty(), "Ogni shard deve ricevere registrazioni");
+            for (Utente u : nelloShard) {
+                assertEquals(i, DatabaseUtentiShardato.indiceShard(u.getUsername(), 8),
+                        u.getUsername() + " è nello shard sbagliato");
+            }
+            totale += nelloShard.size();
+        }
+        assertEquals(1201, totale);
+        for (int t = 1; t <= thread.length; t++) {
+            assertEquals(1, db.cerca("user" + (10_000 * t + 49)).size());
+        }
+    }
+}
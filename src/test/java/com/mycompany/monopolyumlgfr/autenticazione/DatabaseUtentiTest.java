@@ -6,7 +6,9 @@ package com.mycompany.monopolyumlgfr.autenticazione;
 
 import org.junit.jupiter.api.*;
 import java.io.File;
+import java.io.FileWriter;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -58,15 +60,12 @@ public class DatabaseUtentiTest {
     /**
      * Pulisce l'ambiente di test dopo ogni metodo.
      * <p>
-     * Cancella il file XML temporaneo se esiste.
+     * Cancella il file XML temporaneo, con giornale e file di lock.
      * </p>
      */
     @AfterEach
     public void tearDown() {
-        File file = new File(TEST_FILE);
-        if (file.exists()) {
-            file.delete();
-        }
+        DatabaseUtenti.eliminaFile(new File(TEST_FILE));
     }
 
     /**
@@ -125,4 +124,201 @@ public class DatabaseUtentiTest {
         assertEquals(2, utenti.size(), "Devono esserci due utenti salvati");
         assertEquals("luigi", utenti.get(1).getUsername(), "Il secondo utente deve essere Luigi");
     }
+
+    /**
+     * Verifica le ricerche per username tramite l'indice in memoria.
+     * <p>
+     * - Un utente salvato è subito trovato. <br>
+     * - Una modifica esterna del file viene vista alla ricerca successiva.
+     * </p>
+     *
+     * @throws Exception se si verificano errori di I/O
+     */
+    @Test
+    public void testCercaConIndice() throws Exception {
+        db.precarica();
+        db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd1"));
+        assertEquals(1, db.cerca("mario").size(), "L'utente salvato deve essere nell'indice");
+        assertTrue(db.cerca("luigi").isEmpty());
+
+        scriviUtenti(3);
+        assertTrue(db.cerca("mario").isEmpty(), "L'indice deve seguire le modifiche esterne");
+        assertEquals("pwd2", db.cerca("user2").get(0).getPassword());
+    }
+
+    /**
+     * Verifica il controllo di unicità dello username.
+     * <p>
+     * - Un secondo salvataggio con lo stesso username viene rifiutato. <br>
+     * - Gli username duplicati in un salvataggio multiplo vengono saltati. <br>
+     * - Gli username aggiunti dall'esterno risultano esistenti.
+     * </p>
+     *
+     * @throws Exception se si verificano errori di I/O
+     */
+    @Test
+    public void testUsernameUnico() throws Exception {
+        assertTrue(db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd1")));
+        assertFalse(db.salvaUtente(new Utente("Mario Verdi", "mario", "pwd2")), "Lo username è già in uso");
+        assertEquals(1, db.salvaUtenti(List.of(
+                new Utente("Luigi Bianchi", "luigi", "pwd3"),
+                new Utente("Luigi Neri", "luigi", "pwd4"),
+                new Utente("Mario Gialli", "mario", "pwd5"))));
+        assertEquals(2, db.caricaUtenti().size());
+        assertTrue(db.esiste("mario"));
+        assertFalse(db.esiste("peach"));
+
+        scriviUtenti(5);
+        assertTrue(db.esiste("user4"), "Il filtro deve seguire le modifiche esterne");
+        assertFalse(db.salvaUtente(new Utente("Utente", "user4", "x")));
+        assertTrue(db.salvaUtente(new Utente("Utente", "user5", "x")));
+    }
+
+    /**
+     * Verifica la ricerca per prefisso e il suo aggiornamento dopo un salvataggio.
+     *
+     * @throws Exception se si verificano errori di I/O
+     */
+    @Test
+    public void testCercaPerPrefisso() throws Exception {
+        scriviUtenti(30);
+        assertEquals(List.of("user1", "user10", "user11"), db.cercaPerPrefisso("user1", 3));
+
+        db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd1"));
+        db.salvaUtente(new Utente("Marta Rossi", "marta", "pwd2"));
+        assertEquals(List.of("mario", "marta"), db.cercaPerPrefisso("mar", 10));
+        assertEquals(List.of("mario"), new Sistema(db).suggerisciUsername("mari", 5));
+    }
+
+    /**
+     * Verifica la scelta dell'archivio da configurazione.
+     */
+    @Test
+    public void testApriDaConfigurazione() {
+        db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd123"));
+        DatabaseUtenti xml = DatabaseUtenti.apri(TEST_FILE);
+        assertEquals(DatabaseUtenti.class, xml.getClass());
+        assertTrue(xml.esiste("mario"));
+
+        DatabaseUtenti shard = DatabaseUtenti.apri("shard:utenti_test_config:3");
+        try {
+            assertEquals(3, ((DatabaseUtentiShardato) shard).getNumeroShard());
+        } finally {
+            File[] file = new File(".").listFiles((d, nome) -> nome.startsWith("utenti_test_config"));
+            for (File f : file) {
+                f.delete();
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> DatabaseUtenti.apri("shard:utenti_test_config"));
+    }
+
+    /**
+     * L'indice precaricato in background risponde al primo login.
+     *
+     * @throws Exception se si verificano errori di I/O o interruzioni
+     */
+    @Test
+    public void testPrecaricaInBackground() throws Exception {
+        scriviUtenti(10);
+        DatabaseUtenti caldo = new DatabaseUtenti(TEST_FILE);
+        caldo.precaricaInBackground().get(30, TimeUnit.SECONDS);
+        assertTrue(caldo.memoriaStimata() > 0, "L'indice è già costruito");
+        assertNotNull(new Sistema(caldo).validaCredenziali("user9", "pwd9"));
+    }
+
+    /**
+     * Il file mancante non viene copiato dal costruttore ma dal precaricamento
+     * in background, prima di costruire l'indice.
+     *
+     * @throws Exception se si verificano errori di I/O o interruzioni
+     */
+    @Test
+    public void testCopiaRisorsaInBackground() throws Exception {
+        DatabaseUtenti.eliminaFile(new File(TEST_FILE));
+        DatabaseUtenti daRisorsa = new DatabaseUtenti(TEST_FILE);
+        assertFalse(new File(TEST_FILE).exists(), "Il costruttore non copia la risorsa");
+
+        daRisorsa.precaricaInBackground().get(30, TimeUnit.SECONDS);
+        assertTrue(new File(TEST_FILE).exists(), "Copiata dal precaricamento");
+        assertFalse(daRisorsa.cerca("giulioUser").isEmpty());
+        assertThrows(IllegalStateException.class, () -> new DatabaseUtenti("utenti_inesistenti.xml"));
+    }
+
+    /**
+     * Un salvataggio esterno con la stessa dimensione e la stessa data di
+     * modifica viene riconosciuto dalla versione dell'elemento radice.
+     *
+     * @throws Exception se si verificano errori di I/O
+     */
+    @Test
+    public void testStessaFirmaVersioneDiversa() throws Exception {
+        File file = new File(TEST_FILE);
+        try (FileWriter fw = new FileWriter(file)) {
+            fw.write("<utenti id=\"a\" seq=\"1\"><utente><nome>N</nome><username>mario</username>"
+                    + "<password>p</password></utente></utenti>");
+        }
+        long modificato = System.currentTimeMillis() / 1000 * 1000;
+        file.setLastModified(modificato);
+        assertEquals(1, db.cerca("mario").size());
+
+        long dimensione = file.length();
+        try (FileWriter fw = new FileWriter(file)) {
+            fw.write("<utenti id=\"a\" seq=\"2\"><utente><nome>N</nome><username>luigi</username>"
+                    + "<password>p</password></utente></utenti>");
+        }
+        file.setLastModified(modificato);
+        assertEquals(dimensione, file.length());
+
+        assertEquals(1, db.cerca("luigi").size(), "Il nuovo contenuto viene letto");
+        assertTrue(db.cerca("mario").isEmpty());
+    }
+
+    /**
+     * Benchmark di avvio: tempo per rispondere al primo login con file piccoli
+     * e molto grandi, senza precaricamento e con l'indice costruito in background
+     * mentre l'utente sceglie l'interfaccia. Escluso da {@code mvn test}: si
+     * esegue con {@code mvn test -Pbenchmark}.
+     *
+     * @throws Exception se si verificano errori di I/O o interruzioni
+     */
+    @Test
+    @Tag("benchmark")
+    public void testPrimoLoginDopoPrecarica() throws Exception {
+        for (int n : new int[]{10, 100_000}) {
+            scriviUtenti(n);
+            String ultimo = "user" + (n - 1);
+
+            long t0 = System.nanoTime();
+            Sistema freddo = new Sistema(new DatabaseUtenti(TEST_FILE));
+            assertNotNull(freddo.validaCredenziali(ultimo, "pwd" + (n - 1)));
+            long senzaPrecarica = System.nanoTime() - t0;
+
+            DatabaseUtenti caldo = new DatabaseUtenti(TEST_FILE);
+            Sistema sistema = new Sistema(caldo);
+            t0 = System.nanoTime();
+            caldo.precaricaInBackground().get(30, TimeUnit.SECONDS); // scelta dell'interfaccia
+            long precarica = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            assertNotNull(sistema.validaCredenziali(ultimo, "pwd" + (n - 1)));
+            long dopoPrecarica = System.nanoTime() - t0;
+
+            System.out.printf("%d utenti: primo login %.2f ms senza precarica, %.3f ms dopo "
+                            + "la precarica in background (%.2f ms)%n",
+                    n, senzaPrecarica / 1e6, dopoPrecarica / 1e6, precarica / 1e6);
+        }
+    }
+
+    /**
+     * Riscrive il file di test con {@code n} utenti {@code user<i>} / {@code pwd<i>}.
+     */
+    private static void scriviUtenti(int n) throws Exception {
+        try (FileWriter fw = new FileWriter(TEST_FILE)) {
+            fw.write("<utenti>");
+            for (int i = 0; i < n; i++) {
+                fw.write("<utente><nome>Utente " + i + "</nome><username>user" + i
+                        + "</username><password>pwd" + i + "</password></utente>");
+            }
+            fw.write("</utenti>");
+        }
+    }
 }
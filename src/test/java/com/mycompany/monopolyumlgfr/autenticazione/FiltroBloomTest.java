@@ -0,0 +1,64 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link FiltroBloom}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>L'assenza di falsi negativi.</li>
+ *   <li>La probabilità di falso positivo alla capacità.</li>
+ *   <li>Il dimensionamento e la validazione dei parametri.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class FiltroBloomTest {
+
+    /**
+     * Ogni elemento aggiunto deve risultare forse presente.
+     */
+    @Test
+    public void testNessunFalsoNegativo() {
+        FiltroBloom f = new FiltroBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            f.aggiungi("user" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(f.forsePresente("user" + i));
+        }
+    }
+
+    /**
+     * Alla capacità i falsi positivi restano vicini alla probabilità scelta.
+     */
+    @Test
+    public void testFalsiPositivi() {
+        FiltroBloom f = new FiltroBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            f.aggiungi("user" + i);
+        }
+        int falsi = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (f.forsePresente("altro" + i)) {
+                falsi++;
+            }
+        }
+        assertTrue(falsi < 2000, "Falsi positivi oltre il 2%: " + falsi);
+    }
+
+    /**
+     * Verifica il dimensionamento e i parametri non validi.
+     */
+    @Test
+    public void testDimensionamento() {
+        FiltroBloom f = new FiltroBloom(1000, 0.01);
+        assertTrue(f.getNumeroBit() >= 9585, "Circa 9,6 bit per elemento");
+        assertEquals(7, f.getNumeroHash());
+        assertFalse(f.forsePresente("mario"), "Un filtro vuoto esclude tutto");
+
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(10, 1.0));
+    }
+}
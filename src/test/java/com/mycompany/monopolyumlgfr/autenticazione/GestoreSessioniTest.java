@@ -0,0 +1,122 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link GestoreSessioni}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Emissione e validazione di un token.</li>
+ *   <li>Rifiuto dei token sconosciuti e chiusi.</li>
+ *   <li>Scadenza delle sessioni e rimozione tramite la timing wheel.</li>
+ *   <li>Scadenze più lunghe di un giro completo della ruota.</li>
+ *   <li>Funzionamento con un orologio di valore negativo.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class GestoreSessioniTest {
+
+    /** Orologio simulato in nanosecondi. */
+    private AtomicLong orologio;
+
+    /** Utente di test. */
+    private Utente utente;
+
+    /**
+     * Inizializza orologio e utente di test.
+     */
+    @BeforeEach
+    public void setUp() {
+        orologio = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        utente = new Utente("Mario Rossi", "mario", "pwd123");
+    }
+
+    /**
+     * Avanza l'orologio simulato.
+     */
+    private void avanza(long millis) {
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Un token appena emesso identifica l'utente; un token sconosciuto no.
+     */
+    @Test
+    public void testApriEValida() {
+        GestoreSessioni g = new GestoreSessioni(10_000, 100, orologio::get);
+        String token = g.apri(utente);
+
+        assertNotNull(token);
+        assertSame(utente, g.valida(token), "Il token deve identificare l'utente");
+        assertNull(g.valida("sconosciuto"));
+        assertNull(g.valida(null));
+        assertNotEquals(token, g.apri(utente), "Ogni sessione ha un token diverso");
+    }
+
+    /**
+     * Dopo la chiusura il token non è più valido.
+     */
+    @Test
+    public void testChiudi() {
+        GestoreSessioni g = new GestoreSessioni(10_000, 100, orologio::get);
+        String token = g.apri(utente);
+        assertTrue(g.chiudi(token));
+        assertNull(g.valida(token));
+        assertFalse(g.chiudi(token));
+    }
+
+    /**
+     * La sessione scade dopo la durata configurata e viene rimossa dalla ruota.
+     */
+    @Test
+    public void testScadenza() {
+        GestoreSessioni g = new GestoreSessioni(1_000, 100, orologio::get);
+        String token = g.apri(utente);
+
+        avanza(900);
+        assertNotNull(g.valida(token), "Prima della scadenza il token è valido");
+        avanza(200);
+        assertNull(g.valida(token), "Dopo la scadenza il token non è valido");
+        assertEquals(0, g.getSessioniAttive(), "La ruota deve aver rimosso la sessione");
+    }
+
+    /**
+     * Una durata superiore a un giro della ruota non fa scadere il token in anticipo.
+     */
+    @Test
+    public void testScadenzaOltreUnGiro() {
+        // 512 slot da 10 ms: un giro dura circa 5 s, la sessione 12 s
+        GestoreSessioni g = new GestoreSessioni(12_000, 10, orologio::get);
+        String token = g.apri(utente);
+
+        for (int i = 0; i < 11; i++) {
+            avanza(1_000);
+            assertNotNull(g.valida(token), "Il token deve restare valido fino a 12 s");
+        }
+        avanza(1_500);
+        assertNull(g.valida(token));
+        assertEquals(0, g.getSessioniAttive());
+    }
+
+    /**
+     * Un orologio negativo (consentito da {@link System#nanoTime()}) non produce
+     * indici di slot negativi.
+     */
+    @Test
+    public void testOrologioNegativo() {
+        orologio.set(-TimeUnit.HOURS.toNanos(1) - 7);
+        GestoreSessioni g = new GestoreSessioni(1_000, 100, orologio::get);
+        String token = g.apri(utente);
+
+        avanza(900);
+        assertNotNull(g.valida(token));
+        avanza(200);
+        assertNull(g.valida(token));
+        assertEquals(0, g.getSessioniAttive());
+    }
+}
@@ -0,0 +1,234 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import com.mycompany.monopolyumlgfr.metriche.Contatore;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link GiornaleUtenti} e per il coordinamento di più
+ * istanze e processi di {@link DatabaseUtenti} sullo stesso file.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Che il giornale restituisca solo salvataggi completi e contigui.</li>
+ *   <li>Che un'istanza applichi i salvataggi di un'altra dal giornale, senza rileggere il file.</li>
+ *   <li>Che i salvataggi concorrenti di più istanze non si sovrascrivano.</li>
+ *   <li>Che una modifica a mano non venga persa dietro il giornale.</li>
+ *   <li>Che più processi registrino sullo stesso file senza perdere utenti né duplicare username.</li>
+ * </ul>
+ * <!-- </p> -->
+ *
+ * @author Giulio
+ */
+public class GiornaleUtentiTest {
+
+    /** File XML di test. */
+    private static final String FILE = "utenti_giornale_test.xml";
+
+    /**
+     * Elimina i file di test.
+     */
+    @BeforeEach
+    @AfterEach
+    public void pulisci() {
+        DatabaseUtenti.eliminaFile(new File(FILE));
+        new File(FILE + ".tmp").delete();
+    }
+
+    /**
+     * Il giornale copre solo intervalli di salvataggi completi: un salvataggio
+     * interrotto, un id diverso o una sequenza precedente all'inizio del giornale
+     * rispondono "non coperto".
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @Test
+    public void testIntervalliCoperti() throws Exception {
+        Path file = Paths.get(FILE + ".giornale");
+        GiornaleUtenti giornale = new GiornaleUtenti(file);
+        assertNull(giornale.dopo("a", 0, 1), "Giornale assente");
+
+        giornale.aggiungi("a", 1, List.of(new Utente("Mario\tRossi", "mario", "p1")), false);
+        giornale.aggiungi("a", 2, List.of(new Utente("Luigi", "luigi", "p2"), new Utente("Anna", "anna", "p3")), false);
+        List<Utente> dopo = giornale.dopo("a", 0, 2);
+        assertEquals(3, dopo.size());
+        assertEquals("Mario\tRossi", dopo.get(0).getNome());
+        assertEquals(List.of("luigi", "anna"), List.of(giornale.dopo("a", 1, 2).get(0).getUsername(),
+                giornale.dopo("a", 1, 2).get(1).getUsername()));
+        assertTrue(giornale.dopo("a", 2, 2).isEmpty());
+        assertNull(giornale.dopo("b", 0, 2), "Giornale di un altro archivio");
+
+        // salvataggio 3 interrotto prima della riga di chiusura
+        Files.writeString(file, "3\tPia\tpia\tp4\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertNull(giornale.dopo("a", 2, 3));
+        giornale.aggiungi("a", 4, List.of(new Utente("Ugo", "ugo", "p5")), false);
+        assertNull(giornale.dopo("a", 2, 4), "Le voci del salvataggio interrotto non vanno restituite");
+
+        giornale.aggiungi("a", 5, List.of(new Utente("Eva", "eva", "p6")), true);
+        assertNull(giornale.dopo("a", 4, 5), "Dopo una modifica a mano il giornale riparte");
+        giornale.aggiungi("a", 6, List.of(new Utente("Leo", "leo", "p7")), false);
+        assertEquals("leo", giornale.dopo("a", 5, 6).get(0).getUsername());
+    }
+
+    /**
+     * Un'istanza applica i salvataggi di un'altra sullo stesso file leggendo il
+     * giornale; i salvataggi concorrenti delle due istanze non si sovrascrivono.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testDueIstanzeStessoFile() throws Exception {
+        DatabaseUtenti a = new DatabaseUtenti(new File(FILE));
+        DatabaseUtenti b = new DatabaseUtenti(new File(FILE));
+        // il primo salvataggio assegna l'id all'archivio
+        assertTrue(a.salvaUtente(new Utente("Mario Rossi", "mario", "pwd")));
+        b.precarica();
+
+        boolean abilitato = RegistroMetriche.isAbilitato();
+        RegistroMetriche.setAbilitato(true);
+        Contatore dalGiornale = RegistroMetriche.contatore("database.giornale");
+        long prima = dalGiornale.getValore();
+        try {
+            assertTrue(a.salvaUtente(new Utente("Luigi Bianchi", "luigi", "pwd")));
+            assertTrue(a.salvaUtente(new Utente("Anna Verdi", "anna", "pwd")));
+            assertTrue(b.esiste("luigi"));
+            assertTrue(b.esiste("anna"));
+            assertEquals(prima + 1, dalGiornale.getValore(), "B deve applicare i due salvataggi dal giornale");
+            assertFalse(b.salvaUtente(new Utente("Altro Mario", "mario", "x")), "Username già registrato da A");
+        } finally {
+            RegistroMetriche.setAbilitato(abilitato);
+        }
+
+        List<Thread> thread = new ArrayList<>();
+        List<Boolean> esiti = java.util.Collections.synchronizedList(new ArrayList<>());
+        for (DatabaseUtenti db : List.of(a, b)) {
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < 30; i++) {
+                    esiti.add(db.salvaUtente(new Utente("Utente " + i, "conteso" + i, "pwd")));
+                }
+            });
+            thread.add(t);
+            t.start();
+        }
+        for (Thread t : thread) {
+            t.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        assertEquals(30, esiti.stream().filter(e -> e).count(), "Ogni username va registrato una sola volta");
+        assertUnici(a.caricaUtenti(), 33);
+        for (int i = 0; i < 30; i++) {
+            assertTrue(a.esiste("conteso" + i));
+            assertTrue(b.esiste("conteso" + i));
+        }
+    }
+
+    /**
+     * Una modifica a mano seguita da un salvataggio di un'altra istanza non viene
+     * nascosta dal giornale: chi era indietro rilegge il file.
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @Test
+    public void testModificaAManoNonNascosta() throws Exception {
+        DatabaseUtenti a = new DatabaseUtenti(new File(FILE));
+        DatabaseUtenti b = new DatabaseUtenti(new File(FILE));
+        assertTrue(a.salvaUtente(new Utente("Mario Rossi", "mario", "pwd")));
+        assertTrue(a.salvaUtente(new Utente("Luigi Bianchi", "luigi", "pwd")));
+        b.precarica();
+        assertTrue(b.esiste("luigi"));
+
+        // account rimosso a mano, lasciando intatti gli attributi della radice
+        Path file = Paths.get(FILE);
+        String xml = Files.readString(file, StandardCharsets.UTF_8);
+        int inizio = xml.lastIndexOf("<utente>");
+        int fine = xml.indexOf("</utente>", inizio) + "</utente>".length();
+        Files.writeString(file, xml.substring(0, inizio) + xml.substring(fine), StandardCharsets.UTF_8);
+        // a salva senza aver visto la modifica come evento (stessa sequenza, firma diversa)
+        assertTrue(a.salvaUtente(new Utente("Anna Verdi", "anna", "pwd")));
+
+        assertTrue(b.esiste("anna"));
+        assertFalse(b.esiste("luigi"), "La rimozione a mano deve arrivare anche a B");
+        assertTrue(b.esiste("mario"));
+    }
+
+    /**
+     * Più processi registrano utenti sullo stesso file, ognuno con la propria
+     * cache: nessun utente va perso e ogni username compare una volta sola.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testPiùProcessi() throws Exception {
+        DatabaseUtenti db = new DatabaseUtenti(new File(FILE));
+        db.precarica();
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processi = new ArrayList<>();
+        for (int p = 0; p < 3; p++) {
+            processi.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Registra.class.getName(), FILE, "processo" + p, "20")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start());
+        }
+        for (Process p : processi) {
+            assertTrue(p.waitFor(60, TimeUnit.SECONDS), "Processo non terminato");
+            assertEquals(0, p.exitValue());
+        }
+
+        assertUnici(new DatabaseUtenti(new File(FILE)).caricaUtenti(), 3 * 20 + 1);
+        for (int p = 0; p < 3; p++) {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(db.esiste("processo" + p + "_" + i));
+            }
+        }
+        assertTrue(db.esiste("comune"));
+    }
+
+    /**
+     * Verifica che gli utenti siano {@code attesi} e con username distinti.
+     */
+    private static void assertUnici(List<Utente> utenti, int attesi) {
+        Set<String> username = new HashSet<>();
+        for (Utente u : utenti) {
+            assertTrue(username.add(u.getUsername()), "Username duplicato: " + u.getUsername());
+        }
+        assertEquals(attesi, utenti.size());
+    }
+
+    /**
+     * Processo figlio di {@link #testPiùProcessi()}: registra utenti uno alla volta
+     * e tenta di registrare lo username conteso {@code comune}.
+     */
+    public static final class Registra {
+
+        /**
+         * @param args file XML, prefisso degli username, numero di utenti
+         */
+        public static void main(String[] args) {
+            DatabaseUtenti db = new DatabaseUtenti(new File(args[0]));
+            db.precarica();
+            int n = Integer.parseInt(args[2]);
+            for (int i = 0; i < n; i++) {
+                if (!db.salvaUtente(new Utente("Utente " + i, args[1] + "_" + i, "pwd"))) {
+                    System.exit(1);
+                }
+                if (i == n / 2) {
+                    db.salvaUtente(new Utente("Comune", "comune", "pwd"));
+                }
+            }
+        }
+    }
+}
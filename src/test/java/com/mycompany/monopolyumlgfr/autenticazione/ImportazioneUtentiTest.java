@@ -0,0 +1,203 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link ImportazioneUtenti}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>L'importazione CSV con codifica delle password e scarto dei duplicati.</li>
+ *   <li>Lo scarto delle password codificate non valide o con troppe iterazioni.</li>
+ *   <li>L'importazione XML in blocchi paralleli.</li>
+ *   <li>L'esportazione e la reimportazione senza perdite.</li>
+ *   <li>Il throughput dell'importazione e dell'esportazione di un archivio grande.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class ImportazioneUtentiTest {
+
+    /** Archivio di test. */
+    private static final String FILE = "utenti_import_test.xml";
+
+    /** File CSV/XML di scambio. */
+    private static final String SCAMBIO = "utenti_import_test_scambio";
+
+    /** Archivio di test. */
+    private DatabaseUtenti db;
+
+    /**
+     * Crea un archivio con un utente.
+     */
+    @BeforeEach
+    public void setUp() {
+        pulisci();
+        db = new DatabaseUtenti(new File(FILE));
+        db.salvaUtente(new Utente("Mario Rossi", "mario", "pwd123"));
+    }
+
+    /**
+     * Elimina i file di test.
+     */
+    @AfterEach
+    public void pulisci() {
+        File[] file = new File(".").listFiles((d, nome) -> nome.startsWith("utenti_import_test"));
+        if (file != null) {
+            for (File f : file) {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Crea un importatore con una codifica rapida.
+     */
+    private ImportazioneUtenti importazione(DatabaseUtenti db) {
+        return new ImportazioneUtenti(db, new CodificaPassword(1), 4);
+    }
+
+    /**
+     * Crea un CSV con {@code n} utenti {@code user<i>} / {@code pwd<i>}.
+     */
+    private static byte[] csv(int n) {
+        StringBuilder sb = new StringBuilder(ImportazioneUtenti.INTESTAZIONE_CSV).append('\n');
+        for (int i = 0; i < n; i++) {
+            sb.append("Utente ").append(i).append(",user").append(i).append(",pwd").append(i).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Verifica l'importazione CSV: codifica, duplicati e righe non valide.
+     */
+    @Test
+    public void testImportaCsv() {
+        String dati = "nome,username,password\r\n"
+                + "Rossi, Luigi,luigi,pwd456\r\n"
+                + "Anna Verdi,anna,pwd789\n"
+                + "riga non valida\n"
+                + "Anna Bianchi,anna,altra\n"
+                + "Mario Verdi,mario,altra\n";
+
+        ImportazioneUtenti.Risultato r = importazione(db)
+                .importa(dati.getBytes(StandardCharsets.UTF_8), ImportazioneUtenti.Formato.CSV);
+
+        assertEquals(4, r.getLetti());
+        assertEquals(1, r.getScartati());
+        assertEquals(2, r.getImportati());
+        assertEquals(2, r.getDuplicati());
+        Utente luigi = db.cerca("luigi").get(0);
+        assertEquals("Rossi, Luigi", luigi.getNome(), "Il nome può contenere virgole");
+        assertTrue(CodificaPassword.isCodificata(luigi.getPassword()), "Le password devono essere codificate");
+        Sistema sistema = new Sistema(db);
+        assertNotNull(sistema.validaCredenziali("luigi", "pwd456"));
+        assertNotNull(sistema.validaCredenziali("anna", "pwd789"), "Vale la prima occorrenza");
+        assertNotNull(sistema.validaCredenziali("mario", "pwd123"), "Gli utenti esistenti restano invariati");
+    }
+
+    /**
+     * Verifica che le password già codificate siano mantenute solo entro
+     * {@link CodificaPassword#ITERAZIONI_MASSIME} iterazioni.
+     */
+    @Test
+    public void testCodificheImportate() {
+        String valida = new CodificaPassword(2).codifica("pwd456");
+        String lenta = "pbkdf2$" + (CodificaPassword.ITERAZIONI_MASSIME + 1L) + "$AAAAAAAAAAAAAAAAAAAAAA$AAAA";
+        String dati = "Luigi,luigi," + valida + "\n"
+                + "Anna,anna," + lenta + "\n"
+                + "Carla,carla,pbkdf2$non valida\n";
+
+        ImportazioneUtenti.Risultato r = importazione(db)
+                .importa(dati.getBytes(StandardCharsets.UTF_8), ImportazioneUtenti.Formato.CSV);
+
+        assertEquals(1, r.getImportati());
+        assertEquals(2, r.getScartati());
+        assertEquals(valida, db.cerca("luigi").get(0).getPassword(), "Le codifiche valide restano invariate");
+        assertFalse(db.esiste("anna"));
+        assertFalse(db.esiste("carla"));
+    }
+
+    /**
+     * Verifica l'importazione XML divisa in blocchi.
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @Test
+    public void testImportaXml() throws Exception {
+        DatabaseUtenti origine = new DatabaseUtenti(new File(SCAMBIO + ".xml"));
+        List<Utente> utenti = new java.util.ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            utenti.add(new Utente("Utente <" + i + "> & co", "user" + i, "pwd" + i));
+        }
+        origine.salvaUtenti(utenti);
+
+        ImportazioneUtenti.Risultato r = importazione(db).importa(Path.of(SCAMBIO + ".xml"));
+
+        assertEquals(500, r.getLetti());
+        assertEquals(500, r.getImportati());
+        assertEquals(501, db.caricaUtenti().size());
+        assertEquals("Utente <42> & co", db.cerca("user42").get(0).getNome());
+        assertNotNull(new Sistema(db).validaCredenziali("user499", "pwd499"));
+    }
+
+    /**
+     * Verifica che un archivio esportato e reimportato sia identico.
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @Test
+    public void testEsportaEReimporta() throws Exception {
+        importazione(db).importa(csv(300), ImportazioneUtenti.Formato.CSV);
+
+        for (String estensione : new String[]{".csv", ".xml"}) {
+            Path file = Path.of(SCAMBIO + estensione);
+            assertEquals(301, importazione(db).esporta(file));
+
+            DatabaseUtenti copia = new DatabaseUtenti(new File(SCAMBIO + "_copia.xml"));
+            ImportazioneUtenti.Risultato r = importazione(copia).importa(file);
+            assertEquals(301, r.getImportati());
+            assertEquals(db.cerca("user7").get(0).getPassword(), copia.cerca("user7").get(0).getPassword(),
+                    "Le password già codificate non devono essere ricodificate");
+            new File(SCAMBIO + "_copia.xml").delete();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        importazione(db).esporta(out, ImportazioneUtenti.Formato.CSV);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("nome,username,password\nMario Rossi,mario,"));
+    }
+
+    /**
+     * Importa ed esporta un archivio di 2.000 utenti in più blocchi. Con
+     * {@code -Dmonopoly.benchmark.utenti=<n>} diventa un benchmark su {@code n}
+     * utenti con la codifica predefinita e stampa i tempi.
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @Test
+    public void testThroughput() throws Exception {
+        Integer benchmark = Integer.getInteger("monopoly.benchmark.utenti");
+        int n = benchmark == null ? 2_000 : benchmark;
+        Files.write(Path.of(SCAMBIO + ".csv"), csv(n));
+
+        ImportazioneUtenti importazione = benchmark == null ? importazione(db) : new ImportazioneUtenti(db);
+        ImportazioneUtenti.Risultato r = importazione.importa(Path.of(SCAMBIO + ".csv"));
+        long t0 = System.nanoTime();
+        long esportati = importazione.esporta(Path.of(SCAMBIO + "_export.csv"));
+        long esportazione = System.nanoTime() - t0;
+
+        if (benchmark != null) {
+            System.out.println("Importazione di " + n + " utenti: " + r);
+            System.out.printf("Esportazione di %d utenti: %.1f ms (%.0f utenti/s)%n",
+                    esportati, esportazione / 1e6, esportati * 1e9 / esportazione);
+        }
+        assertEquals(n, r.getImportati());
+        assertEquals(n + 1, esportati);
+        assertTrue(db.esiste("user" + (n - 1)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link IndicePrefissi}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Le ricerche per prefisso e il limite dei risultati.</li>
+ *   <li>L'aggiunta di username e l'eliminazione dei duplicati.</li>
+ *   <li>Il confronto con una scansione completa su molti username.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class IndicePrefissiTest {
+
+    /**
+     * Verifica le ricerche per prefisso.
+     */
+    @Test
+    public void testCerca() {
+        IndicePrefissi indice = IndicePrefissi.di(List.of("mario", "luigi", "marco", "maria", "peach", "mario"));
+
+        assertEquals(5, indice.dimensione(), "I duplicati devono essere ignorati");
+        assertEquals(List.of("marco", "maria", "mario"), indice.cerca("mar", 10));
+        assertEquals(List.of("marco", "maria"), indice.cerca("mar", 2));
+        assertEquals(List.of("luigi"), indice.cerca("l", 10));
+        assertTrue(indice.cerca("z", 10).isEmpty());
+        assertTrue(indice.cerca("Mar", 10).isEmpty(), "Il confronto distingue le maiuscole");
+        assertEquals(5, indice.cerca("", 10).size());
+    }
+
+    /**
+     * Verifica che l'aggiunta crei un nuovo indice senza modificare il precedente.
+     */
+    @Test
+    public void testCon() {
+        IndicePrefissi prima = IndicePrefissi.di(List.of("mario", "luigi"));
+        IndicePrefissi dopo = prima.con(List.of("marta", "mario", "daisy"));
+
+        assertEquals(2, prima.dimensione());
+        assertEquals(4, dopo.dimensione());
+        assertEquals(List.of("mario", "marta"), dopo.cerca("mar", 10));
+        assertEquals(List.of("daisy"), dopo.cerca("d", 10));
+        assertSame(dopo, dopo.con(List.of()));
+        assertTrue(IndicePrefissi.VUOTO.cerca("a", 5).isEmpty());
+    }
+
+    /**
+     * Su molti username non ordinati ogni ricerca restituisce gli stessi
+     * risultati di una scansione completa: i primi {@code k} in ordine.
+     */
+    @Test
+    public void testMoltiUsername() {
+        List<String> nomi = new ArrayList<>(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            nomi.add("user" + Integer.toString(i * 7919 % 10_000, 36));
+        }
+        IndicePrefissi indice = IndicePrefissi.di(nomi);
+        assertEquals(10_000, indice.dimensione());
+
+        List<String> ordinati = new ArrayList<>(nomi);
+        Collections.sort(ordinati);
+        for (String prefisso : List.of("user", "user1", "user2s", "user7ps", "userz", "x")) {
+            List<String> attesi = new ArrayList<>();
+            for (String n : ordinati) {
+                if (n.startsWith(prefisso) && attesi.size() < 10) {
+                    attesi.add(n);
+                }
+            }
+            assertEquals(attesi, indice.cerca(prefisso, 10), "Prefisso " + prefisso);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link LimitatoreLogin}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Il burst e il ritmo sostenibile per singolo username.</li>
+ *   <li>Il limite globale indipendente dagli username.</li>
+ *   <li>Che i tentativi rifiutati dal limite globale non spendano il budget per username.</li>
+ *   <li>Il rifiuto in {@link Sistema} prima di qualsiasi accesso al database.</li>
+ *   <li>La lettura della configurazione.</li>
+ *   <li>Un test di carico: durante una raffica di login errati con username
+ *       inventati il database lavora al più al ritmo del limite globale, i login
+ *       legittimi ammessi riescono tutti e, finita la raffica, i login tornano
+ *       subito a passare.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class LimitatoreLoginTest {
+
+    /** Nome del file XML temporaneo usato dal test di carico. */
+    private static final String TEST_FILE = "utenti_limitatore_test.xml";
+
+    /** Orologio simulato in nanosecondi. */
+    private AtomicLong orologio;
+
+    /**
+     * Inizializza l'orologio simulato.
+     */
+    @BeforeEach
+    public void setUp() {
+        orologio = new AtomicLong(1_000_000_000L);
+    }
+
+    /**
+     * Cancella il file XML temporaneo.
+     */
+    @AfterEach
+    public void tearDown() {
+        DatabaseUtenti.eliminaFile(new File(TEST_FILE));
+    }
+
+    /**
+     * Il burst per username viene consumato e poi ricaricato al ritmo configurato.
+     */
+    @Test
+    public void testLimitePerUtente() {
+        LimitatoreLogin l = new LimitatoreLogin(1, 3, 1000, 1000, orologio::get);
+        assertTrue(l.consenti("mario"));
+        assertTrue(l.consenti("mario"));
+        assertTrue(l.consenti("mario"));
+        assertFalse(l.consenti("mario"), "Il quarto tentativo immediato deve essere rifiutato");
+        assertTrue(l.consenti("luigi"), "Un altro username ha il proprio budget");
+
+        orologio.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(l.consenti("mario"), "Dopo un secondo si ricarica un tentativo");
+        assertFalse(l.consenti("mario"));
+        assertEquals(2, l.getRifiutati());
+    }
+
+    /**
+     * Il limite globale vale anche con username sempre diversi.
+     */
+    @Test
+    public void testLimiteGlobale() {
+        LimitatoreLogin l = new LimitatoreLogin(100, 10, 10, 5, orologio::get);
+        int consentiti = 0;
+        for (int i = 0; i < 100; i++) {
+            if (l.consenti("attacco" + i)) {
+                consentiti++;
+            }
+        }
+        assertEquals(5, consentiti, "Solo il burst globale deve passare");
+    }
+
+    /**
+     * Con il limitatore attivo, i tentativi rifiutati non accedono al database.
+     *
+     * @throws Exception se si verificano errori di I/O
+     */
+    @Test
+    public void testRifiutoPrimaDelDatabase() throws Exception {
+        DatabaseContatore db = creaDatabase(1);
+        Sistema sistema = new Sistema(db);
+        sistema.setLimitatoreLogin(new LimitatoreLogin(1, 2, 1000, 1000, orologio::get));
+
+        assertNotNull(sistema.validaCredenziali("user0", "pwd0"));
+        assertNull(sistema.validaCredenziali("user0", "errata"));
+        long accessi = db.letture.get();
+        for (int i = 0; i < 50; i++) {
+            assertNull(sistema.validaCredenziali("user0", "errata"));
+        }
+        assertEquals(accessi, db.letture.get(), "I tentativi rifiutati non devono leggere il database");
+    }
+
+    /**
+     * I tentativi rifiutati dal limite globale non spendono il budget per username:
+     * una raffica di altri username non esaurisce quello di luigi.
+     */
+    @Test
+    public void testRifiutoGlobaleNonSpendeBudgetUtente() {
+        LimitatoreLogin l = new LimitatoreLogin(0.1, 3, 10, 5, orologio::get);
+        for (int i = 0; i < 1000; i++) {
+            l.consenti("bot" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertFalse(l.consenti("luigi"), "Limite globale esaurito");
+        }
+        orologio.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(l.consenti("luigi"), "I tentativi rifiutati dal limite globale non spendono il budget di luigi");
+        }
+        assertFalse(l.consenti("luigi"), "Budget di luigi esaurito");
+    }
+
+    /**
+     * Verifica la lettura della configurazione da proprietà di sistema.
+     */
+    @Test
+    public void testConfigurazione() {
+        LimitatoreLogin l = LimitatoreLogin.di("1, 2, 100, 50");
+        assertTrue(l.consenti("mario"));
+        assertTrue(l.consenti("mario"));
+        assertFalse(l.consenti("mario"));
+        assertThrows(IllegalArgumentException.class, () -> LimitatoreLogin.di("1,2,100"));
+        assertThrows(IllegalArgumentException.class, () -> LimitatoreLogin.di("1,2,cento,50"));
+    }
+
+    /**
+     * Test di carico: durante una raffica di login errati con username inventati
+     * almeno il 90% dei tentativi è rifiutato prima del database, il database
+     * lavora al più al ritmo del limite globale e ogni login legittimo ammesso
+     * riesce. Finita la raffica, i login legittimi passano subito.
+     *
+     * @throws Exception se si verificano errori di I/O o interruzioni
+     */
+    @Test
+    public void testLoginLegittimiSottoAttacco() throws Exception {
+        DatabaseContatore db = creaDatabase(500);
+        Sistema sistema = new Sistema(db);
+        sistema.setLimitatoreLogin(new LimitatoreLogin(1000, 100, 20, 10));
+        assertNotNull(sistema.validaCredenziali("user1", "pwd1"));
+
+        // Attacco: raffiche di 500 tentativi errati ogni 5 ms (~100.000 al secondo offerti)
+        AtomicBoolean attivo = new AtomicBoolean(true);
+        AtomicLong tentativiAttacco = new AtomicLong();
+        Thread attaccante = new Thread(() -> {
+            long n = 0;
+            while (attivo.get()) {
+                for (int i = 0; i < 500; i++) {
+                    sistema.validaCredenziali("bot" + (n++), "x");
+                }
+                tentativiAttacco.addAndGet(500);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        long letturePrima = db.letture.get();
+        long legittimePrima = db.legittime.get();
+        long inizio = System.nanoTime();
+        attaccante.start();
+        int riusciti = 0;
+        try {
+            while (tentativiAttacco.get() == 0) {
+                Thread.sleep(1);
+            }
+            for (int i = 0; i < 50; i++) {
+                if (sistema.validaCredenziali("user" + (i % 10), "pwd" + (i % 10)) != null) {
+                    riusciti++;
+                }
+                Thread.sleep(2);
+            }
+        } finally {
+            attivo.set(false);
+            attaccante.join();
+        }
+        double secondi = (System.nanoTime() - inizio) / 1e9;
+        long lettureAttacco = db.letture.get() - letturePrima;
+
+        assertEquals(db.legittime.get() - legittimePrima, riusciti,
+                "Ogni login legittimo che arriva al database deve riuscire");
+        assertTrue(tentativiAttacco.get() > 10 * lettureAttacco,
+                "La grande maggioranza dei tentativi deve essere rifiutata prima del database");
+        assertTrue(lettureAttacco <= 20 * secondi + 10 + 1,
+                "Le ricerche nel database non devono superare il limite globale");
+
+        Thread.sleep(100); // il limite globale ricarica due tentativi
+        assertNotNull(sistema.validaCredenziali("user2", "pwd2"), "Finito l'attacco i login passano");
+    }
+
+    /**
+     * Crea un file XML con {@code n} utenti e un database che conta le letture.
+     */
+    private static DatabaseContatore creaDatabase(int n) throws Exception {
+        try (FileWriter fw = new FileWriter(TEST_FILE)) {
+            fw.write("<utenti>");
+            for (int i = 0; i < n; i++) {
+                fw.write("<utente><nome>Utente " + i + "</nome><username>user" + i
+                        + "</username><password>pwd" + i + "</password></utente>");
+            }
+            fw.write("</utenti>");
+        }
+        return new DatabaseContatore();
+    }
+
+    /**
+     * Database utenti che conta letture del file e ricerche.
+     */
+    private static class DatabaseContatore extends DatabaseUtenti {
+
+        /** Numero di chiamate a {@link #caricaUtenti()}, {@link #cerca(String)} e {@link #esiste(String)}. */
+        final AtomicLong letture = new AtomicLong();
+
+        /** Ricerche di username {@code user<i>}, cioè dei login legittimi. */
+        final AtomicLong legittime = new AtomicLong();
+
+        DatabaseContatore() {
+            super(TEST_FILE);
+        }
+
+        @Override
+        public List<Utente> caricaUtenti() {
+            letture.incrementAndGet();
+            return super.caricaUtenti();
+        }
+
+        @Override
+        public List<Utente> cerca(String username) {
+            letture.incrementAndGet();
+            if (username.startsWith("user")) {
+                legittime.incrementAndGet();
+            }
+            return super.cerca(username);
+        }
+
+        @Override
+        public boolean esiste(String username) {
+            letture.incrementAndGet();
+            return super.esiste(username);
+        }
+    }
+}
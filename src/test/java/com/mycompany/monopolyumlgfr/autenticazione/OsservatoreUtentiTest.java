@@ -0,0 +1,154 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link OsservatoreUtenti} e {@link DatabaseUtenti#ricarica()}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>L'applicazione delle modifiche esterne (aggiunte, rimozioni, password cambiate).</li>
+ *   <li>Che le scritture dell'archivio stesso non siano trattate come modifiche esterne.</li>
+ *   <li>Che un file non valido lasci l'indice invariato e la ricarica vada ritentata.</li>
+ *   <li>Che una modifica esterna non ancora applicata non vada persa con un salvataggio.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class OsservatoreUtentiTest {
+
+    /** File XML di test. */
+    private static final String FILE = "utenti_osservatore_test.xml";
+
+    /** Archivio di test. */
+    private DatabaseUtenti db;
+
+    /**
+     * Crea un archivio con due utenti e ne costruisce l'indice.
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        scrivi(utente("Mario Rossi", "mario", "pwd123") + utente("Luigi Bianchi", "luigi", "pwd456"));
+        db = new DatabaseUtenti(new File(FILE));
+        db.precarica();
+    }
+
+    /**
+     * Elimina il file di test.
+     */
+    @AfterEach
+    public void tearDown() {
+        DatabaseUtenti.eliminaFile(new File(FILE));
+        new File(FILE + ".tmp").delete();
+    }
+
+    private static String utente(String nome, String username, String password) {
+        return "<utente><nome>" + nome + "</nome><username>" + username
+                + "</username><password>" + password + "</password></utente>";
+    }
+
+    /**
+     * Sostituisce il file come farebbe uno script esterno: scrittura su un
+     * file temporaneo e spostamento atomico.
+     */
+    private static void scrivi(String utenti) throws Exception {
+        Path tmp = Path.of(FILE + ".esterno");
+        Files.writeString(tmp, "<utenti>" + utenti + "</utenti>");
+        Files.move(tmp, Path.of(FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Attende al più 10 secondi che una condizione diventi vera.
+     */
+    private static boolean attendi(BooleanSupplier condizione) throws InterruptedException {
+        long limite = System.nanoTime() + 10_000_000_000L;
+        while (!condizione.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Verifica che le modifiche esterne arrivino all'indice tramite l'osservatore.
+     *
+     * @throws Exception in caso di errore di I/O o interruzione
+     */
+    @Test
+    public void testModificaEsterna() throws Exception {
+        db.cercaPerPrefisso("", 10);
+        try (OsservatoreUtenti osservatore = db.osserva()) {
+            scrivi(utente("Mario Rossi", "mario", "disabilitato") + utente("Anna Verdi", "anna", "pwd789"));
+
+            assertTrue(attendi(() -> db.esiste("anna")), "L'utente aggiunto deve comparire");
+            assertFalse(db.esiste("luigi"), "L'utente rimosso deve sparire");
+            assertEquals("disabilitato", db.cerca("mario").get(0).getPassword());
+            assertEquals(List.of("anna", "mario"), db.cercaPerPrefisso("", 10));
+            assertEquals(1, osservatore.getRicariche());
+
+            assertTrue(db.salvaUtente(new Utente("Giulia Neri", "giulia", "pwd000")));
+            assertEquals(0, db.ricarica(), "Le scritture dell'archivio non sono modifiche esterne");
+            Thread.sleep(3 * OsservatoreUtenti.QUIETE_MILLIS);
+            assertEquals(1, osservatore.getRicariche());
+        }
+    }
+
+    /**
+     * Verifica il conteggio delle differenze e che un file non valido lasci l'indice invariato.
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @Test
+    public void testRicarica() throws Exception {
+        scrivi(utente("Mario Rossi", "mario", "nuova") + utente("Luigi Bianchi", "luigi", "pwd456")
+                + utente("Anna Verdi", "anna", "pwd789"));
+        assertEquals(2, db.ricarica(), "Una password cambiata e un utente aggiunto");
+        assertEquals(0, db.ricarica());
+
+        db.osservato(true);
+        try {
+            Files.writeString(Path.of(FILE), "<utenti><utente><nome>Mario");
+            assertEquals(0, db.ricarica());
+            assertTrue(db.esiste("anna"), "Con un file non valido l'indice resta quello precedente");
+            assertTrue(db.isRicaricaFallita(), "La ricarica di un file non valido va ritentata");
+
+            scrivi(utente("Mario Rossi", "mario", "nuova"));
+            assertEquals(2, db.ricarica());
+            assertFalse(db.isRicaricaFallita());
+        } finally {
+            db.osservato(false);
+        }
+    }
+
+    /**
+     * Verifica che un salvataggio applichi prima una modifica esterna non ancora
+     * vista dall'osservatore, invece di nasconderla.
+     *
+     * @throws Exception in caso di errore di I/O
+     */
+    @Test
+    public void testSalvataggioDopoModificaEsterna() throws Exception {
+        db.osservato(true);
+        try {
+            scrivi(utente("Mario Rossi", "mario", "pwd123"));
+            assertTrue(db.esiste("luigi"), "Senza osservatore attivo la modifica non è ancora applicata");
+
+            assertTrue(db.salvaUtente(new Utente("Anna Verdi", "anna", "pwd789")));
+            assertFalse(db.esiste("luigi"));
+            assertTrue(db.esiste("anna"));
+            assertEquals(2, db.caricaUtenti().size());
+        } finally {
+            db.osservato(false);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import com.mycompany.monopolyumlgfr.metriche.Contatore;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link RegistroAccessi} e {@link LettoreRegistroAccessi}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Che le voci registrate siano rilette con i filtri per utente e per tempo.</li>
+ *   <li>La rotazione dei file e l'esclusione dei file fuori dall'intervallo cercato.</li>
+ *   <li>Il recupero dei file rimasti in scrittura da un'esecuzione interrotta.</li>
+ *   <li>Che un registro non recuperi il file in scrittura di un altro registro attivo.</li>
+ *   <li>Lo scarto delle voci oltre la capacità della coda.</li>
+ *   <li>Che {@link Sistema} annoti login e registrazioni.</li>
+ * </ul>
+ * <!-- </p> -->
+ *
+ * @author Giulio
+ */
+public class RegistroAccessiTest {
+
+    /** Cartella del registro di test. */
+    private static final Path CARTELLA = Path.of("accessi_test");
+
+    /** File XML degli utenti di test. */
+    private static final String FILE = "utenti_accessi_test.xml";
+
+    /**
+     * Elimina i file di test.
+     */
+    @BeforeEach
+    @AfterEach
+    public void pulisci() {
+        File[] file = CARTELLA.toFile().listFiles();
+        if (file != null) {
+            for (File f : file) {
+                f.delete();
+            }
+        }
+        CARTELLA.toFile().delete();
+        DatabaseUtenti.eliminaFile(new File(FILE));
+    }
+
+    /**
+     * Le voci scritte vengono rilette in ordine, filtrate per utente e per tempo.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testRegistraELeggi() throws Exception {
+        long inizio = System.currentTimeMillis();
+        try (RegistroAccessi registro = new RegistroAccessi(CARTELLA)) {
+            registro.registra(RegistroAccessi.Evento.REGISTRAZIONE, "mario");
+            registro.registra(RegistroAccessi.Evento.LOGIN_FALLITO, "mario");
+            registro.registra(RegistroAccessi.Evento.LOGIN_RIUSCITO, "luigi");
+            registro.registra(RegistroAccessi.Evento.LOGIN_RIUSCITO, "mario");
+            assertTrue(registro.sincronizza(5000));
+
+            // leggibile anche mentre il file è ancora in scrittura
+            List<RegistroAccessi.Voce> mario = LettoreRegistroAccessi.leggi(CARTELLA, "mario", Long.MIN_VALUE, Long.MAX_VALUE);
+            assertEquals(3, mario.size());
+            assertEquals(RegistroAccessi.Evento.REGISTRAZIONE, mario.get(0).getEvento());
+            assertEquals(RegistroAccessi.Evento.LOGIN_RIUSCITO, mario.get(2).getEvento());
+            assertEquals("mario", mario.get(1).getUsername());
+        }
+        long fine = System.currentTimeMillis();
+
+        assertEquals(4, LettoreRegistroAccessi.leggi(CARTELLA, null, inizio, fine).size());
+        assertEquals(1, LettoreRegistroAccessi.leggi(CARTELLA, "luigi", inizio, fine).size());
+        assertTrue(LettoreRegistroAccessi.leggi(CARTELLA, "anna", inizio, fine).isEmpty());
+        assertTrue(LettoreRegistroAccessi.leggi(CARTELLA, null, fine + 1, Long.MAX_VALUE).isEmpty());
+        assertEquals(0, CARTELLA.toFile().list((d, nome) -> nome.endsWith(".corrente.gz")).length,
+                "Alla chiusura il file prende il nome definitivo");
+    }
+
+    /**
+     * Oltre la dimensione massima il file viene ruotato; la ricerca per
+     * intervallo di tempo legge solo i file che lo intersecano.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testRotazione() throws Exception {
+        long limite;
+        try (RegistroAccessi registro = new RegistroAccessi(CARTELLA, 200, 1000)) {
+            for (int i = 0; i < 50; i++) {
+                registro.registra(RegistroAccessi.Evento.LOGIN_RIUSCITO, "utente" + i);
+            }
+            assertTrue(registro.sincronizza(5000));
+            Thread.sleep(20);
+            limite = System.currentTimeMillis();
+            Thread.sleep(20);
+            registro.registra(RegistroAccessi.Evento.LOGIN_FALLITO, "tardivo");
+        }
+
+        File[] file = CARTELLA.toFile().listFiles();
+        assertTrue(file.length > 2, "Attesi più file ruotati, trovati " + file.length);
+        assertEquals(51, LettoreRegistroAccessi.leggi(CARTELLA, null, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        List<RegistroAccessi.Voce> dopo = LettoreRegistroAccessi.leggi(CARTELLA, null, limite, Long.MAX_VALUE);
+        assertEquals(1, dopo.size());
+        assertEquals("tardivo", dopo.get(0).getUsername());
+    }
+
+    /**
+     * Un file rimasto in scrittura viene chiuso e rinominato all'apertura
+     * successiva, conservandone le voci.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testRecuperoFileInterrotto() throws Exception {
+        try (RegistroAccessi registro = new RegistroAccessi(CARTELLA)) {
+            registro.registra(RegistroAccessi.Evento.LOGIN_RIUSCITO, "mario");
+            registro.registra(RegistroAccessi.Evento.LOGIN_RIUSCITO, "luigi");
+            assertTrue(registro.sincronizza(5000));
+            // copia del file a metà scrittura, come dopo un arresto improvviso
+            File[] corrente = CARTELLA.toFile().listFiles((d, nome) -> nome.endsWith(".corrente.gz"));
+            assertEquals(1, corrente.length);
+            long altroPid = ProcessHandle.current().pid() + 1;
+            Files.copy(corrente[0].toPath(), CARTELLA.resolve("accessi-1-" + altroPid + "-1.corrente.gz"));
+        }
+
+        try (RegistroAccessi registro = new RegistroAccessi(CARTELLA)) {
+            assertEquals(0, CARTELLA.toFile().list((d, nome) -> nome.endsWith(".corrente.gz")).length);
+            assertEquals(2, LettoreRegistroAccessi.leggi(CARTELLA, "mario", Long.MIN_VALUE, Long.MAX_VALUE).size());
+            assertEquals(4, LettoreRegistroAccessi.leggi(CARTELLA, null, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        }
+    }
+
+    /**
+     * Due registri sulla stessa cartella (come due processi): aprire il secondo
+     * non chiude né rinomina il file in scrittura del primo, che continua a
+     * scriverci.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testDueRegistriAttivi() throws Exception {
+        try (RegistroAccessi primo = new RegistroAccessi(CARTELLA)) {
+            primo.registra(RegistroAccessi.Evento.LOGIN_RIUSCITO, "mario");
+            assertTrue(primo.sincronizza(5000));
+            File[] corrente = CARTELLA.toFile().listFiles((d, nome) -> nome.endsWith(".corrente.gz"));
+            assertEquals(1, corrente.length);
+
+            try (RegistroAccessi secondo = new RegistroAccessi(CARTELLA)) {
+                assertTrue(corrente[0].exists(), "Il file del registro attivo non va recuperato");
+                secondo.registra(RegistroAccessi.Evento.LOGIN_RIUSCITO, "luigi");
+                primo.registra(RegistroAccessi.Evento.LOGIN_FALLITO, "mario");
+                assertTrue(secondo.sincronizza(5000));
+                assertTrue(primo.sincronizza(5000));
+                assertEquals(2, CARTELLA.toFile().list((d, nome) -> nome.endsWith(".corrente.gz")).length);
+            }
+        }
+        assertEquals(0, CARTELLA.toFile().list((d, nome) -> nome.endsWith(".corrente.gz")).length);
+        assertEquals(2, LettoreRegistroAccessi.leggi(CARTELLA, "mario", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(3, LettoreRegistroAccessi.leggi(CARTELLA, null, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    /**
+     * Oltre la capacità della coda le voci vengono scartate e contate, senza
+     * bloccare chi registra.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testCapacità() throws Exception {
+        boolean abilitato = RegistroMetriche.isAbilitato();
+        RegistroMetriche.setAbilitato(true);
+        Contatore scartate = RegistroMetriche.contatore("accessi.scartate");
+        long prima = scartate.getValore();
+        try (RegistroAccessi registro = new RegistroAccessi(CARTELLA, RegistroAccessi.BYTE_PER_FILE_PREDEFINITI, 4)) {
+            for (int i = 0; i < 10_000; i++) {
+                registro.registra(RegistroAccessi.Evento.LOGIN_FALLITO, "utente" + i);
+            }
+            assertTrue(registro.sincronizza(5000));
+        } finally {
+            RegistroMetriche.setAbilitato(abilitato);
+        }
+        long scritte = LettoreRegistroAccessi.leggi(CARTELLA, null, Long.MIN_VALUE, Long.MAX_VALUE).size();
+        assertEquals(10_000, scritte + scartate.getValore() - prima);
+        assertTrue(scartate.getValore() > prima, "Con capacità 4 alcune voci vanno scartate");
+    }
+
+    /**
+     * {@link Sistema} annota registrazioni, login riusciti e falliti.
+     *
+     * @throws Exception in caso di errore di I/O o interruzioni
+     */
+    @Test
+    public void testEventiDelSistema() throws Exception {
+        Sistema sistema = new Sistema(new DatabaseUtenti(new File(FILE)));
+        try (RegistroAccessi registro = new RegistroAccessi(CARTELLA)) {
+            sistema.setRegistroAccessi(registro);
+            assertTrue(sistema.registraGiocatore("Mario Rossi", "mario", "pwd"));
+            assertFalse(sistema.registraGiocatore("Altro Mario", "mario", "pwd"));
+            assertNotNull(sistema.validaCredenziali("mario", "pwd"));
+            assertNull(sistema.validaCredenziali("mario", "sbagliata"));
+            assertTrue(registro.sincronizza(5000));
+
+            List<RegistroAccessi.Voce> voci = LettoreRegistroAccessi.leggi(CARTELLA, "mario", Long.MIN_VALUE, Long.MAX_VALUE);
+            assertEquals(List.of(RegistroAccessi.Evento.REGISTRAZIONE, RegistroAccessi.Evento.REGISTRAZIONE_RIFIUTATA,
+                    RegistroAccessi.Evento.LOGIN_RIUSCITO, RegistroAccessi.Evento.LOGIN_FALLITO),
+                    voci.stream().map(RegistroAccessi.Voce::getEvento).toList());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.mycompany.monopolyumlgfr.autenticazione;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link RegistroTenant}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Che ogni tenant abbia archivio e sessioni separati.</li>
+ *   <li>Lo scaricamento degli indici meno recenti oltre il limite totale.</li>
+ *   <li>Lo scaricamento per inattività e per limite del singolo tenant.</li>
+ *   <li>La chiusura dei tenant inattivi senza sessioni.</li>
+ *   <li>Il rifiuto dei nomi di tenant non validi e dei tenant inesistenti.</li>
+ * </ul>
+ * <!-- </p> -->
+ *
+ * @author Giulio
+ */
+public class RegistroTenantTest {
+
+    /** Cartella degli archivi di test. */
+    private static final Path CARTELLA = Path.of("tenant_test");
+
+    /** Orologio controllato dai test, in nanosecondi. */
+    private final AtomicLong orologio = new AtomicLong();
+
+    /**
+     * Elimina la cartella di test.
+     */
+    @BeforeEach
+    @AfterEach
+    public void pulisci() {
+        File[] file = CARTELLA.toFile().listFiles();
+        if (file != null) {
+            for (File f : file) {
+                f.delete();
+            }
+        }
+        CARTELLA.toFile().delete();
+    }
+
+    /**
+     * Lo stesso username si registra in tenant diversi; login e sessioni
+     * restano separati.
+     */
+    @Test
+    public void testTenantSeparati() {
+        RegistroTenant registro = RegistroTenant.suCartella(CARTELLA, 1 << 20, 1 << 20, 60_000);
+        registro.registra("serie-a");
+        registro.registra("serie-b");
+        assertTrue(registro.sistema("serie-a").registraGiocatore("Mario Rossi", "mario", "pwd-a"));
+        assertTrue(registro.sistema("serie-b").registraGiocatore("Mario Verdi", "mario", "pwd-b"));
+
+        assertNotNull(registro.sistema("serie-a").validaCredenziali("mario", "pwd-a"));
+        assertNull(registro.sistema("serie-a").validaCredenziali("mario", "pwd-b"));
+        assertEquals("Mario Verdi", registro.sistema("serie-b").validaCredenziali("mario", "pwd-b").getNome());
+        assertSame(registro.sistema("serie-a"), registro.sistema("serie-a"));
+        assertTrue(CARTELLA.resolve("serie-a.xml").toFile().exists());
+    }
+
+    /**
+     * Oltre il limite totale vengono scaricati gli indici dei tenant usati meno
+     * di recente; un tenant scaricato torna disponibile alla richiesta successiva.
+     */
+    @Test
+    public void testScaricamentoMenoRecenti() {
+        RegistroTenant registro = nuovoRegistro(1 << 20, 60_000);
+        long perTenant = registro.database("a").memoriaStimata();
+        assertEquals(0, perTenant, "Indice costruito solo alla prima ricerca");
+        registro.sistema("a").validaCredenziali("utente1", "pwd1");
+        perTenant = registro.getMemoriaStimata();
+        assertTrue(perTenant > 0);
+
+        registro = nuovoRegistro(perTenant + perTenant / 2, 60_000);
+        for (String t : List.of("a", "b", "c")) {
+            assertNotNull(registro.sistema(t).validaCredenziali("utente1", "pwd1"));
+        }
+        // all'arrivo di "c" erano in memoria "a" e "b", oltre il limite: "a" è il meno recente
+        assertEquals(Set.of("b", "c"), registro.getTenantCaricati());
+
+        assertEquals(1, registro.scaricaInattivi());
+        assertEquals(Set.of("c"), registro.getTenantCaricati());
+        assertNotNull(registro.sistema("a").validaCredenziali("utente2", "pwd2"));
+    }
+
+    /**
+     * I tenant inattivi o oltre il proprio limite vengono scaricati, senza
+     * perdere le sessioni aperte.
+     */
+    @Test
+    public void testInattivitàELimitePerTenant() {
+        RegistroTenant registro = nuovoRegistro(1 << 20, 1000);
+        Sistema a = registro.sistema("a");
+        String token = a.apriSessione("utente1", "pwd1");
+        assertNotNull(token);
+        registro.sistema("b").validaCredenziali("utente1", "pwd1");
+
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        registro.sistema("b");
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        registro.sistema("c").validaCredenziali("utente1", "pwd1");
+        assertEquals(Set.of("b", "c"), registro.getTenantCaricati(), "\"a\" inattivo da 1200 ms");
+        assertNotNull(a.validaSessione(token), "Le sessioni sopravvivono allo scaricamento");
+
+        registro.setLimite("b", 1);
+        registro.sistema("c");
+        assertEquals(Set.of("c"), registro.getTenantCaricati(), "\"b\" supera il proprio limite");
+        assertSame(a, registro.sistema("a"));
+    }
+
+    /**
+     * Un tenant inattivo senza sessioni viene chiuso e riaperto alla richiesta
+     * successiva; uno con sessioni aperte resta nel registro.
+     */
+    @Test
+    public void testChiusuraInattivi() {
+        RegistroTenant registro = nuovoRegistro(1 << 20, 1000);
+        Sistema a = registro.sistema("a");
+        Sistema b = registro.sistema("b");
+        String token = b.apriSessione("utente1", "pwd1");
+
+        orologio.addAndGet(TimeUnit.MILLISECONDS.toNanos(1200));
+        assertEquals(3, registro.scaricaInattivi(), "\"a\" e \"c\" chiusi, \"b\" scaricato");
+        assertNotSame(a, registro.sistema("a"), "Chiuso e riaperto con un nuovo sistema");
+        assertNotNull(registro.sistema("a").validaCredenziali("utente1", "pwd1"), "Riaperto dal file");
+        assertSame(b, registro.sistema("b"));
+        assertNotNull(b.validaSessione(token));
+    }
+
+    /**
+     * Solo i tenant con il file o registrati vengono aperti: un nome qualsiasi
+     * non crea archivi.
+     */
+    @Test
+    public void testTenantInesistenti() {
+        RegistroTenant registro = RegistroTenant.suCartella(CARTELLA, 1 << 20, 1 << 20, 60_000);
+        assertThrows(IllegalArgumentException.class, () -> registro.sistema("sconosciuto"));
+        assertFalse(CARTELLA.resolve("sconosciuto.xml").toFile().exists());
+
+        registro.registra("nuova");
+        assertTrue(registro.sistema("nuova").registraGiocatore("Mario Rossi", "mario", "pwd"));
+        RegistroTenant riaperto = RegistroTenant.suCartella(CARTELLA, 1 << 20, 1 << 20, 60_000);
+        assertNotNull(riaperto.sistema("nuova").validaCredenziali("mario", "pwd"), "Il file esiste già");
+    }
+
+    /**
+     * I nomi che potrebbero indicare file fuori dalla cartella vengono rifiutati.
+     */
+    @Test
+    public void testNomiNonValidi() {
+        RegistroTenant registro = RegistroTenant.suCartella(CARTELLA, 1 << 20, 1 << 20, 60_000);
+        for (String nome : new String[] {"../utenti", "a/b", "", "lega.xml"}) {
+            assertThrows(IllegalArgumentException.class, () -> registro.sistema(nome));
+        }
+        assertThrows(IllegalArgumentException.class, () -> registro.setLimite("a", 0));
+    }
+
+    /**
+     * Crea un registro con orologio controllato e tre tenant da 200 utenti.
+     */
+    private RegistroTenant nuovoRegistro(long limiteTotale, long inattivitàMillis) {
+        RegistroTenant registro = new RegistroTenant(
+                nome -> new DatabaseUtenti(CARTELLA.resolve(nome + ".xml").toFile()), nome -> false,
+                limiteTotale, 1 << 20, inattivitàMillis, orologio::get);
+        CARTELLA.toFile().mkdirs();
+        for (String t : List.of("a", "b", "c")) {
+            registro.registra(t);
+            DatabaseUtenti db = registro.database(t);
+            if (db.caricaUtenti().isEmpty()) {
+                List<Utente> utenti = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    utenti.add(new Utente("Utente " + i, "utente" + i, "pwd" + i));
+                }
+                db.salvaUtenti(utenti);
+            }
+            db.scarica();
+        }
+        return registro;
+    }
+}
@@ -6,9 +6,21 @@ package com.mycompany.monopolyumlgfr.autenticazione;
 
 import com.mycompany.monopolyumlgfr.gioco.Giocatore;
 import com.mycompany.monopolyumlgfr.gioco.Partita;
+import com.mycompany.monopolyumlgfr.metriche.Istogramma;
+import com.mycompany.monopolyumlgfr.metriche.RegistroMetriche;
 import org.junit.jupiter.api.*;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -17,8 +29,10 @@ import static org.junit.jupiter.api.Assertions.*;
  * Questa suite verifica le funzionalità principali del sistema di autenticazione:
  * <ul>
  *   <li>Registrazione di nuovi utenti nel database XML.</li>
- *   <li>Validazione delle credenziali (corrette ed errate).</li>
+ *   <li>Validazione delle credenziali (corrette ed errate), anche di più posti insieme.</li>
  *   <li>Alias del metodo di autenticazione.</li>
+ *   <li>Apertura, validazione e chiusura delle sessioni.</li>
+ *   <li>Registrazione e autenticazione asincrone.</li>
  *   <li>Notifica di abbandono da parte di un giocatore.</li>
  *   <li>Notifica di fine partita.</li>
  * </ul>
@@ -63,15 +77,12 @@ public class SistemaTest {
     /**
      * Pulisce l'ambiente di test dopo ogni metodo.
      * <p>
-     * Cancella il file XML temporaneo se esiste.
+     * Cancella il file XML temporaneo, con giornale e file di lock.
      * </p>
      */
     @AfterEach
     public void tearDown() {
-        File file = new File(TEST_FILE);
-        if (file.exists()) {
-            file.delete();
-        }
+        DatabaseUtenti.eliminaFile(new File(TEST_FILE));
     }
 
     /**
@@ -92,6 +103,64 @@ public class SistemaTest {
         assertEquals("mario", utenti.get(0).getUsername(), "Lo username deve corrispondere");
     }
 
+    /**
+     * Verifica che uno username già registrato non possa essere registrato di nuovo.
+     * <p>
+     * - Registra un utente. <br>
+     * - Tenta una seconda registrazione con lo stesso username. <br>
+     * - Controlla che venga rifiutata e che resti un solo utente.
+     * </p>
+     */
+    @Test
+    public void testRegistrazioneUsernameDuplicato() {
+        assertTrue(sistema.isUsernameLibero("mario"));
+        assertTrue(sistema.registraGiocatore("Mario Rossi", "mario", "pwd123"));
+        assertFalse(sistema.isUsernameLibero("mario"));
+        assertFalse(sistema.registraGiocatore("Mario Verdi", "mario", "altra"), "Lo username è già in uso");
+        assertEquals(1, db.caricaUtenti().size());
+        assertNull(sistema.validaCredenziali("mario", "altra"));
+    }
+
+    /**
+     * Verifica registrazioni e login asincroni, molti in corso insieme.
+     * <p>
+     * - Avvia 20 registrazioni (una duplicata) senza attenderle. <br>
+     * - Avvia i login degli utenti registrati. <br>
+     * - Controlla gli esiti e che il lavoro sia svolto dall'esecutore indicato.
+     * </p>
+     *
+     * @throws Exception in caso di errore o timeout
+     */
+    @Test
+    public void testOperazioniAsincrone() throws Exception {
+        AtomicInteger eseguite = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Sistema asincrono = new Sistema(db, new GestoreSessioni(), r -> {
+                eseguite.incrementAndGet();
+                pool.execute(r);
+            });
+            List<CompletableFuture<Boolean>> registrazioni = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                registrazioni.add(asincrono.registraGiocatoreAsync("Utente " + i, "user" + (i == 19 ? 0 : i), "pwd" + i));
+            }
+            CompletableFuture.allOf(registrazioni.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            long registrati = registrazioni.stream().filter(CompletableFuture::join).count();
+            assertEquals(19, registrati, "La registrazione duplicata deve essere rifiutata");
+
+            CompletableFuture<Utente> corretto = asincrono.autenticaGiocatoreAsync("user7", "pwd7");
+            CompletableFuture<Utente> errato = asincrono.autenticaGiocatoreAsync("user7", "errata");
+            assertEquals("Utente 7", corretto.get(30, TimeUnit.SECONDS).getNome());
+            assertNull(errato.get(30, TimeUnit.SECONDS));
+            assertEquals(22, eseguite.get(), "Tutte le operazioni devono passare dall'esecutore I/O");
+
+            assertTrue(sistema.registraGiocatoreAsync("Mario Rossi", "mario", "pwd123").get(30, TimeUnit.SECONDS),
+                    "Senza esecutore esplicito si usa quello condiviso");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     /**
      * Verifica la validazione di credenziali corrette.
      * <p>
@@ -124,6 +193,73 @@ public class SistemaTest {
         assertNull(u, "Credenziali errate devono restituire null");
     }
 
+    /**
+     * Verifica la validazione insieme dei posti di una lobby.
+     * <p>
+     * - Registra sei utenti. <br>
+     * - Valida insieme credenziali corrette, una password errata e uno username inesistente. <br>
+     * - Controlla che gli esiti seguano l'ordine dei posti.
+     * </p>
+     */
+    @Test
+    public void testValidaCredenzialiLobby() {
+        Map<String, String> lobby = new LinkedHashMap<>();
+        for (int i = 0; i < 6; i++) {
+            assertTrue(sistema.registraGiocatore("Utente " + i, "user" + i, "pwd" + i));
+            lobby.put("user" + i, "pwd" + i);
+        }
+        lobby.put("user3", "errata");
+        lobby.put("fantasma", "pwd");
+
+        List<Utente> esiti = sistema.validaCredenziali(lobby);
+        assertEquals(7, esiti.size());
+        for (int i = 0; i < 6; i++) {
+            if (i == 3) {
+                assertNull(esiti.get(i), "Password errata");
+            } else {
+                assertEquals("Utente " + i, esiti.get(i).getNome());
+            }
+        }
+        assertNull(esiti.get(6), "Username inesistente");
+        assertTrue(sistema.validaCredenziali(new LinkedHashMap<>()).isEmpty());
+    }
+
+    /**
+     * Verifica che le password di una lobby siano verificate sull'esecutore
+     * del sistema e che il tempo di login sia registrato per ogni posto.
+     */
+    @Test
+    public void testValidaCredenzialiLobbySuEsecutore() {
+        AtomicInteger task = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Sistema conEsecutore = new Sistema(db, new GestoreSessioni(),
+                r -> {
+                    task.incrementAndGet();
+                    pool.execute(r);
+                });
+        Map<String, String> lobby = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(conEsecutore.registraGiocatore("Utente " + i, "user" + i, "pwd" + i));
+            lobby.put("user" + i, "pwd" + i);
+        }
+        lobby.put("fantasma", "pwd");
+
+        boolean abilitato = RegistroMetriche.isAbilitato();
+        RegistroMetriche.setAbilitato(true);
+        Istogramma tempo = RegistroMetriche.istogramma("sistema.login");
+        long prima = tempo.getConteggio();
+        try {
+            List<Utente> esiti = conEsecutore.validaCredenziali(lobby);
+            assertEquals(4, esiti.stream().filter(u -> u != null).count());
+            assertNull(esiti.get(4));
+        } finally {
+            RegistroMetriche.setAbilitato(abilitato);
+            pool.shutdown();
+        }
+        assertEquals(5, task.get(), "Una verifica per posto sull'esecutore del sistema");
+        assertEquals(5, tempo.getConteggio() - prima, "Un campione di tempo per posto");
+    }
+
     /**
      * Verifica che {@code autenticaGiocatore} si comporti come {@code validaCredenziali}.
      * <p>
@@ -139,20 +275,46 @@ public class SistemaTest {
         assertNotNull(u, "AutenticaGiocatore deve comportarsi come validaCredenziali");
     }
 
+    /**
+     * Verifica il ciclo di vita di una sessione.
+     * <p>
+     * - Registra un utente e apre una sessione. <br>
+     * - Controlla che il token identifichi l'utente. <br>
+     * - Controlla che credenziali errate non aprano sessioni
+     *   e che il token chiuso non sia più valido.
+     * </p>
+     */
+    @Test
+    public void testSessione() {
+        sistema.registraGiocatore("Mario Rossi", "mario", "pwd123");
+        String token = sistema.apriSessione("mario", "pwd123");
+        assertNotNull(token, "Il login corretto deve restituire un token");
+        assertEquals("mario", sistema.validaSessione(token).getUsername());
+
+        assertNull(sistema.apriSessione("mario", "wrongpwd"), "Credenziali errate non aprono sessioni");
+
+        assertTrue(sistema.chiudiSessione(token));
+        assertNull(sistema.validaSessione(token), "Il token chiuso non deve essere valido");
+    }
+
     /**
      * Verifica la notifica di abbandono da parte di un giocatore.
      * <p>
      * - Crea un utente e un giocatore. <br>
      * - Invoca {@code notificaAbbandono}. <br>
-     * - Controlla che non vengano sollevate eccezioni.
+     * - Controlla che il messaggio vada sull'output della partita.
      * </p>
      */
     @Test
     public void testNotificaAbbandono() {
         Utente u = new Utente("Mario Rossi", "mario", "pwd123");
         Giocatore g = new Giocatore(u);
-        assertDoesNotThrow(() -> sistema.notificaAbbandono(g),
+        Partita p = new Partita(sistema);
+        ByteArrayOutputStream schermo = new ByteArrayOutputStream();
+        p.setOutput(new PrintStream(schermo, true));
+        assertDoesNotThrow(() -> sistema.notificaAbbandono(p, g),
                 "La notifica di abbandono non deve sollevare eccezioni");
+        assertTrue(schermo.toString().contains("mario ha abbandonato"), schermo.toString());
     }
 
     /**
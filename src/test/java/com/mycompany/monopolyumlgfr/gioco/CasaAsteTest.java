@@ -0,0 +1,292 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import com.mycompany.monopolyumlgfr.autenticazione.DatabaseUtenti;
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link CasaAste} e {@link Asta}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Il prezzo con rilanci automatici (seconda offerta più un rilancio).</li>
+ *   <li>Le offerte delle persone e il prolungamento dei round.</li>
+ *   <li>Migliaia di aste simultanee su un solo thread.</li>
+ *   <li>L'applicazione del risultato in partita.</li>
+ *   <li>Che con la casa d'aste chiusa il turno prosegua senza riservare la casella.</li>
+ *   <li>Che chiudendo la casa d'aste con aste aperte la casella torni libera.</li>
+ *   <li>Le offerte fatte dal menu di {@link GiocoConsole}.</li>
+ *   <li>Che senza casa d'aste la console non offra l'asta.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class CasaAsteTest {
+
+    /** Casa d'aste sotto test. */
+    private CasaAste casa;
+
+    /** Primo partecipante. */
+    private Giocatore mario;
+
+    /** Secondo partecipante. */
+    private Giocatore luigi;
+
+    /** Proprietà all'asta. */
+    private Proprietà p;
+
+    /**
+     * Crea una casa d'aste con round di 20 ms e due partecipanti.
+     */
+    @BeforeEach
+    public void setUp() {
+        casa = new CasaAste(1, 20, 10);
+        mario = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        luigi = new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd456"));
+        p = new Proprietà("Viale Test", 200, new int[]{10, 20, 30});
+    }
+
+    /**
+     * Ferma lo scheduler della casa d'aste.
+     */
+    @AfterEach
+    public void tearDown() {
+        casa.close();
+    }
+
+    /**
+     * Verifica il prezzo con rilanci automatici e la chiusura.
+     */
+    @Test
+    public void testRilanciAutomatici() throws InterruptedException {
+        CountDownLatch chiusa = new CountDownLatch(1);
+        Asta a = casa.apri(p, new Giocatore[]{mario, luigi}, new int[]{150, 120},
+                x -> chiusa.countDown());
+
+        assertSame(mario, a.getVincitore());
+        assertEquals(130, a.getPrezzo(), "Seconda offerta più il rilancio minimo");
+        assertEquals(140, a.getOffertaMinima());
+
+        assertTrue(chiusa.await(2, TimeUnit.SECONDS), "L'asta si chiude dopo un round senza offerte");
+        assertTrue(a.isChiusa());
+        assertFalse(a.offri(luigi, 500), "Un'asta chiusa non accetta offerte");
+        assertEquals(0, casa.getAsteAperte());
+    }
+
+    /**
+     * Verifica le offerte di una persona e il prolungamento dell'asta.
+     */
+    @Test
+    public void testOffertaUmana() throws InterruptedException {
+        CountDownLatch chiusa = new CountDownLatch(1);
+        Asta a = casa.apri(p, new Giocatore[]{mario, luigi}, new int[]{100, 0},
+                x -> chiusa.countDown());
+        assertEquals(10, a.getPrezzo(), "Con un solo offerente il prezzo è il rilancio minimo");
+
+        assertFalse(a.offri(luigi, 15), "Serve almeno il rilancio minimo");
+        assertTrue(a.offri(luigi, 60));
+        assertSame(mario, a.getVincitore(), "Il rilancio automatico mantiene Mario in testa");
+        assertEquals(70, a.getPrezzo());
+
+        Thread.sleep(10);
+        assertTrue(a.offri(luigi, 300));
+        assertSame(luigi, a.getVincitore());
+        assertEquals(110, a.getPrezzo());
+        assertFalse(a.offri(luigi, 2000), "Non si può offrire più del proprio denaro");
+
+        assertTrue(chiusa.await(2, TimeUnit.SECONDS));
+        assertTrue(a.getRound() >= 1, "Le offerte prolungano l'asta");
+        assertEquals(110, a.getPrezzo());
+    }
+
+    /**
+     * Verifica che migliaia di aste simultanee siano gestite da un solo thread.
+     */
+    @Test
+    public void testAsteSimultanee() throws InterruptedException {
+        int n = 5000;
+        CountDownLatch chiuse = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            casa.apri(p, new Giocatore[]{mario, luigi}, new int[]{i % 200, 100}, x -> chiuse.countDown());
+        }
+        assertTrue(casa.getAsteAperte() > 0);
+        assertTrue(chiuse.await(10, TimeUnit.SECONDS), "Tutte le aste devono chiudersi");
+        assertEquals(0, casa.getAsteAperte());
+    }
+
+    /**
+     * Verifica che in partita la proprietà rifiutata vada al vincitore dell'asta.
+     */
+    @Test
+    public void testAstaInPartita() throws InterruptedException {
+        PoliticaGiocatore soloAsta = new PoliticaAvida() {
+            @Override
+            public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+                return false;
+            }
+        };
+        mario.setPolitica(soloAsta);
+        luigi.setPolitica(soloAsta);
+
+        Partita partita = new Partita(new Sistema(new DatabaseUtenti("utenti_test.xml")));
+        partita.aggiungiGiocatore(mario);
+        partita.aggiungiGiocatore(luigi);
+        partita.setSilenziosa(true);
+        partita.setCasaAste(casa);
+        AtomicReference<Asta> aperta = new AtomicReference<>();
+        partita.setAscoltatoreAste(aperta::set);
+        partita.avviaPartita();
+
+        partita.eseguiTurno();
+        Asta a = aperta.get();
+        assertNotNull(a, "Il rifiuto apre un'asta");
+        assertTrue(mario.getProprietàPossedute().isEmpty());
+
+        while (!a.isChiusa()) {
+            Thread.sleep(5);
+        }
+        assertSame(mario, a.getVincitore(), "A parità di offerta vince chi l'ha fatta prima");
+        assertEquals(a.getProprietà().getValore(), a.getPrezzo(), "Paga l'offerta massima di Luigi");
+
+        partita.eseguiTurno();
+        assertTrue(mario.getProprietàPossedute().contains(a.getProprietà()),
+                   "Il risultato è applicato al turno successivo");
+        assertFalse(a.getProprietà().isLibera());
+    }
+
+    /**
+     * Crea una partita tra Mario e Luigi in cui nessuno compra, così ogni
+     * proprietà libera finisce all'asta.
+     *
+     * @return la partita, non ancora avviata
+     */
+    private Partita partitaSoloAste() {
+        PoliticaGiocatore soloAsta = new PoliticaAvida() {
+            @Override
+            public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+                return false;
+            }
+        };
+        mario.setPolitica(soloAsta);
+        luigi.setPolitica(soloAsta);
+
+        Partita partita = new Partita(new Sistema(new DatabaseUtenti("utenti_test.xml")));
+        partita.aggiungiGiocatore(mario);
+        partita.aggiungiGiocatore(luigi);
+        partita.setSilenziosa(true);
+        return partita;
+    }
+
+    /**
+     * Con la casa d'aste già chiusa il turno non lancia eccezioni e la casella
+     * non resta riservata: la proprietà rimane libera per i turni successivi.
+     */
+    @Test
+    public void testCasaChiusa() {
+        Partita partita = partitaSoloAste();
+        casa.close();
+        partita.setCasaAste(casa);
+        AtomicReference<Asta> aperta = new AtomicReference<>();
+        partita.setAscoltatoreAste(aperta::set);
+        partita.avviaPartita();
+
+        for (int i = 0; i < 10; i++) {
+            assertDoesNotThrow(partita::eseguiTurno);
+        }
+        assertNull(aperta.get(), "Nessuna asta con la casa chiusa");
+
+        // con una casa aperta le caselle già visitate vanno di nuovo all'asta
+        CasaAste aperte = new CasaAste(1, 20, 10);
+        partita.setCasaAste(aperte);
+        partita.eseguiTurno();
+        aperte.close();
+        assertTrue(aperta.get() != null || !giocatoreSuLibera(partita),
+                   "La casella non resta riservata dopo un'asta mai aperta");
+    }
+
+    /**
+     * Le aste interrotte dalla chiusura della casa d'aste non lasciano la casella
+     * riservata: al turno successivo la proprietà non è più all'asta.
+     */
+    @Test
+    public void testCasaChiusaConAsteAperte() {
+        Partita partita = partitaSoloAste();
+        casa.close();
+        casa = new CasaAste(1, 60_000, 10);
+        partita.setCasaAste(casa);
+        AtomicReference<Asta> aperta = new AtomicReference<>();
+        partita.setAscoltatoreAste(aperta::set);
+        partita.avviaPartita();
+
+        for (int i = 0; i < 50 && aperta.get() == null; i++) {
+            partita.eseguiTurno();
+        }
+        Asta asta = aperta.get();
+        assertNotNull(asta, "Un'asta viene aperta");
+        assertTrue(partita.isAllAsta(asta.getProprietà()));
+
+        casa.close();
+        assertTrue(asta.isInterrotta());
+        partita.eseguiTurno();
+        assertFalse(partita.isAllAsta(asta.getProprietà()), "La casella torna libera");
+    }
+
+    /**
+     * Senza casa d'aste il menu della console non mostra l'offerta all'asta.
+     */
+    @Test
+    public void testConsoleSenzaCasaAste() {
+        Partita partita = partitaSoloAste();
+        partita.avviaPartita();
+
+        ByteArrayOutputStream schermo = new ByteArrayOutputStream();
+        RendererConsole renderer = new RendererConsole(new PrintStream(schermo, true), false);
+        new GiocoConsole(partita, renderer, new Scanner("6\n0\n")).start();
+        assertFalse(schermo.toString().contains("Offri all'asta"), schermo.toString());
+        assertTrue(schermo.toString().contains("Scelta non valida."), schermo.toString());
+    }
+
+    /**
+     * Indica se il giocatore che ha appena giocato si trova su una proprietà libera.
+     *
+     * @param partita partita in corso tra due giocatori
+     * @return true se la casella del giocatore precedente è libera
+     */
+    private boolean giocatoreSuLibera(Partita partita) {
+        Giocatore ultimo = partita.getGiocatoreCorrente() == mario ? luigi : mario;
+        return partita.getTabellone().getCaselle().get(ultimo.getPosizione()).isLibera();
+    }
+
+    /**
+     * Dal menu della console un giocatore offre più della massima automatica
+     * dell'avversario e si aggiudica l'asta.
+     *
+     * @throws InterruptedException se il thread viene interrotto durante l'attesa
+     */
+    @Test
+    public void testOffertaDaConsole() throws InterruptedException {
+        Partita partita = partitaSoloAste();
+        casa.close();
+        casa = new CasaAste(1, 300, 10);
+        partita.setCasaAste(casa);
+        partita.avviaPartita();
+
+        ByteArrayOutputStream schermo = new ByteArrayOutputStream();
+        RendererConsole renderer = new RendererConsole(new PrintStream(schermo, true), false);
+        String comandi = "1\n6\n1\nluigi\n" + luigi.getDenaro() + "\n0\n";
+        new GiocoConsole(partita, renderer, new Scanner(comandi)).start();
+        assertTrue(schermo.toString().contains("Offerta accettata"), schermo.toString());
+
+        // l'offerta prolunga l'asta di un round; il risultato si applica al turno dopo
+        Thread.sleep(1000);
+        partita.eseguiTurno();
+        assertFalse(luigi.getProprietàPossedute().isEmpty(), "Luigi vince con l'offerta da console");
+    }
+}
@@ -0,0 +1,142 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Scanner;
+import com.mycompany.monopolyumlgfr.autenticazione.DatabaseUtenti;
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link GestoreCostruzioni}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>La costruzione solo su gruppi posseduti per intero.</li>
+ *   <li>La regola della costruzione uniforme.</li>
+ *   <li>Il passaggio da 4 case ad albergo e la riserva della banca.</li>
+ *   <li>La vendita degli edifici per metà del costo.</li>
+ *   <li>L'aggiornamento degli affitti in cache.</li>
+ *   <li>Le costruzioni solo su richiesta per la politica predefinita.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class GestoreCostruzioniTest {
+
+    /** Partita di prova. */
+    private Partita partita;
+
+    /** Giocatore che costruisce. */
+    private Giocatore g;
+
+    /** Caselle del tabellone. */
+    private List<Proprietà> caselle;
+
+    /** Gestore sotto test. */
+    private GestoreCostruzioni costruzioni;
+
+    /** Motore degli affitti della partita. */
+    private MotoreAffitti motore;
+
+    /**
+     * Crea una partita in cui il primo giocatore possiede i due marroni.
+     */
+    @BeforeEach
+    public void setUp() {
+        partita = new Partita(new Sistema(new DatabaseUtenti("utenti_test.xml")));
+        g = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        partita.aggiungiGiocatore(g);
+        partita.aggiungiGiocatore(new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd456")));
+        caselle = partita.getTabellone().getCaselle();
+        costruzioni = partita.getCostruzioni();
+        motore = partita.getMotoreAffitti();
+
+        motore.assegna(0, g.getPosto());
+        assertFalse(costruzioni.puòCostruire(g.getPosto(), 0), "Senza monopolio non si costruisce");
+        motore.assegna(1, g.getPosto());
+    }
+
+    /**
+     * Verifica la costruzione uniforme e l'affitto aggiornato.
+     */
+    @Test
+    public void testCostruzioneUniforme() {
+        assertTrue(costruzioni.costruisci(g, 0));
+        assertEquals(1450, g.getDenaro(), "Una casa marrone costa 50");
+        assertEquals(10, motore.calcolaAffitto(0, 7), "Affitto con una casa");
+        assertEquals(8, motore.calcolaAffitto(1, 7), "Monopolio senza edifici: affitto doppio");
+
+        assertFalse(costruzioni.costruisci(g, 0), "Non si può costruire in modo non uniforme");
+        assertTrue(costruzioni.costruisci(g, 1));
+        assertTrue(costruzioni.costruisci(g, 0));
+        assertEquals(GestoreCostruzioni.CASE - 3, costruzioni.getCaseDisponibili());
+
+        caselle.get(1).setIpotecata(true);
+        assertFalse(costruzioni.puòCostruire(g.getPosto(), 1), "Non si costruisce con ipoteche nel gruppo");
+    }
+
+    /**
+     * Verifica il passaggio ad albergo e la vendita.
+     */
+    @Test
+    public void testAlbergoEVendita() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(costruzioni.costruisci(g, 0));
+            assertTrue(costruzioni.costruisci(g, 1));
+        }
+        assertEquals(GestoreCostruzioni.CASE - 8, costruzioni.getCaseDisponibili());
+
+        assertTrue(costruzioni.costruisci(g, 0));
+        assertEquals(GestoreCostruzioni.ALBERGO, caselle.get(0).getEdifici());
+        assertEquals(GestoreCostruzioni.CASE - 4, costruzioni.getCaseDisponibili(), "L'albergo restituisce 4 case");
+        assertEquals(GestoreCostruzioni.ALBERGHI - 1, costruzioni.getAlberghiDisponibili());
+        assertEquals(250, motore.calcolaAffitto(0, 7));
+
+        int denaro = g.getDenaro();
+        assertFalse(costruzioni.vendi(g, 1), "Si vende prima dalla casella con più edifici");
+        assertTrue(costruzioni.vendiNelGruppo(g, 1));
+        assertEquals(denaro + 25, g.getDenaro(), "Gli edifici si rivendono a metà prezzo");
+        assertEquals(4, caselle.get(0).getEdifici());
+        assertEquals(160, motore.calcolaAffitto(0, 7));
+    }
+
+    /**
+     * Verifica che gli edifici tornino alla banca quando il giocatore abbandona.
+     */
+    @Test
+    public void testRestituzioneInAbbandono() {
+        assertTrue(costruzioni.costruisci(g, 0));
+        assertTrue(costruzioni.costruisci(g, 1));
+        partita.avviaPartita();
+        partita.abbandonaGiocatoreCorrente();
+
+        assertEquals(GestoreCostruzioni.CASE, costruzioni.getCaseDisponibili());
+        assertEquals(0, caselle.get(0).getEdifici());
+        assertEquals(0, motore.calcolaAffitto(0, 7));
+    }
+
+    /**
+     * Verifica che la politica predefinita non costruisca da sola e che il
+     * giocatore costruisca dal menu della console.
+     */
+    @Test
+    public void testCostruzioneSuRichiesta() {
+        partita.setSilenziosa(true);
+        partita.avviaPartita();
+        partita.eseguiTurno();
+        partita.eseguiTurno();
+        assertEquals(0, caselle.get(0).getEdifici() + caselle.get(1).getEdifici(),
+                "La politica predefinita non costruisce");
+        assertNull(PoliticaAvida.ISTANZA.scegliCostruzione(partita, g));
+        assertNotNull(PoliticaAvida.COSTRUTTRICE.scegliCostruzione(partita, g));
+
+        ByteArrayOutputStream schermo = new ByteArrayOutputStream();
+        RendererConsole renderer = new RendererConsole(new PrintStream(schermo, true), false);
+        new GiocoConsole(partita, renderer, new Scanner("5\nmario\n1\n0\n")).start();
+        assertEquals(1, caselle.get(0).getEdifici(), schermo.toString());
+        assertTrue(schermo.toString().contains("mario costruisce su"));
+    }
+}
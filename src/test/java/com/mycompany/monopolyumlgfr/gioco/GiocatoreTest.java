@@ -17,6 +17,7 @@ import static org.junit.jupiter.api.Assertions.*;
  *   <li>Movimento della pedina sul tabellone con gestione del wrap-around.</li>
  *   <li>Acquisto di proprietà con denaro sufficiente e insufficiente.</li>
  *   <li>Pagamento dell'affitto.</li>
+ *   <li>Ipoteca di una proprietà posseduta.</li>
  *   <li>Abbandono della partita e liberazione delle proprietà.</li>
  * </ul>
  * <!-- </p> -->
@@ -127,6 +128,29 @@ public class GiocatoreTest {
         assertEquals(1450, g.getDenaro(), "Il denaro deve diminuire dell'affitto (50)");
     }
 
+    /**
+     * Verifica l'ipoteca di una proprietà.
+     * <p>
+     * - Il giocatore acquista una proprietà dal valore 200. <br>
+     * - La ipoteca e riceve 100. <br>
+     * - Controlla che non si possa ipotecare due volte né ipotecare
+     *   una proprietà non posseduta.
+     * </p>
+     */
+    @Test
+    public void testIpoteca() {
+        Giocatore g = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        Proprietà p = new Proprietà("Viale Test", 200, new int[]{20,40,60});
+        g.acquistaProprietà(p);
+
+        assertTrue(g.ipoteca(p));
+        assertTrue(p.isIpotecata(), "La proprietà deve risultare ipotecata");
+        assertEquals(1400, g.getDenaro(), "Il giocatore riceve metà del valore");
+        assertFalse(g.ipoteca(p), "Non si può ipotecare due volte");
+        assertFalse(g.ipoteca(new Proprietà("Altrui", 100, new int[]{10})),
+                "Non si può ipotecare una proprietà non posseduta");
+    }
+
     /**
      * Verifica l'abbandono della partita da parte del giocatore.
      * <p>
@@ -0,0 +1,159 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import java.util.List;
+import com.mycompany.monopolyumlgfr.autenticazione.DatabaseUtenti;
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link MotoreAffitti}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>L'assegnazione e la liberazione delle caselle.</li>
+ *   <li>Il raddoppio dell'affitto sul terreno nudo in caso di monopolio.</li>
+ *   <li>L'affitto delle stazioni in base a quante se ne possiedono.</li>
+ *   <li>L'affitto delle società in base ai dadi.</li>
+ *   <li>L'aggiornamento della cache solo per il gruppo modificato.</li>
+ *   <li>Il pagamento dell'affitto al proprietario durante la partita.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class MotoreAffittiTest {
+
+    /** Caselle del tabellone standard. */
+    private List<Proprietà> caselle;
+
+    /** Motore sotto test. */
+    private MotoreAffitti motore;
+
+    /**
+     * Crea un motore sul tabellone standard.
+     */
+    @BeforeEach
+    public void setUp() {
+        caselle = new Tabellone().getCaselle();
+        motore = new MotoreAffitti(caselle);
+    }
+
+    /**
+     * Verifica assegnazione, cambio di proprietario e liberazione.
+     */
+    @Test
+    public void testAssegnaLibera() {
+        assertEquals(MotoreAffitti.NESSUNO, motore.getProprietario(0));
+        assertEquals(0, motore.calcolaAffitto(0, 7), "Una casella libera non rende affitto");
+
+        motore.assegna(0, 2);
+        motore.assegna(5, 2);
+        assertEquals(2, motore.getProprietario(0));
+        assertEquals(0b100001L, motore.getPossedute(2));
+
+        motore.assegna(0, 3);
+        assertEquals(3, motore.getProprietario(0));
+        assertEquals(0b100000L, motore.getPossedute(2), "La casella passa al nuovo proprietario");
+
+        assertEquals(0b100000L, motore.liberaTutte(2));
+        assertEquals(MotoreAffitti.NESSUNO, motore.getProprietario(5));
+        assertEquals(0L, motore.getPossedute(2));
+    }
+
+    /**
+     * Verifica il monopolio: affitto doppio sul terreno nudo, non con edifici.
+     */
+    @Test
+    public void testMonopolio() {
+        motore.assegna(0, 0);
+        assertEquals(2, motore.calcolaAffitto(0, 7), "Affitto base di Vicolo Corto");
+        assertFalse(motore.haMonopolio(0, Gruppo.MARRONE));
+
+        motore.assegna(1, 0);
+        assertTrue(motore.haMonopolio(0, Gruppo.MARRONE));
+        assertEquals(4, motore.calcolaAffitto(0, 7), "Il monopolio raddoppia l'affitto base");
+
+        caselle.get(0).setEdifici(1);
+        motore.invalida(0);
+        assertEquals(10, motore.calcolaAffitto(0, 7), "Con edifici vale la tabella degli affitti");
+
+        caselle.get(1).setIpotecata(true);
+        motore.invalida(1);
+        assertEquals(0, motore.calcolaAffitto(1, 7), "Una casella ipotecata non rende affitto");
+    }
+
+    /**
+     * Verifica l'affitto delle stazioni e delle società.
+     */
+    @Test
+    public void testStazioniESocietà() {
+        motore.assegna(22, 1);
+        assertEquals(25, motore.calcolaAffitto(22, 7));
+        motore.assegna(23, 1);
+        motore.assegna(24, 1);
+        assertEquals(100, motore.calcolaAffitto(22, 7), "Tre stazioni possedute");
+        assertEquals(3, motore.contaNelGruppo(1, Gruppo.STAZIONE));
+
+        motore.assegna(26, 1);
+        assertEquals(28, motore.calcolaAffitto(26, 7), "Una società: 4 volte i dadi");
+        motore.assegna(27, 1);
+        assertEquals(70, motore.calcolaAffitto(26, 7), "Due società: 10 volte i dadi");
+    }
+
+    /**
+     * Verifica che {@link MotoreAffitti#invalida} aggiorni solo il gruppo della casella.
+     */
+    @Test
+    public void testCacheInvalidataPerGruppo() {
+        motore.assegna(0, 0);
+        motore.assegna(2, 0);
+        caselle.get(0).setEdifici(2);
+        caselle.get(2).setEdifici(2);
+        assertEquals(2, motore.calcolaAffitto(0, 7), "Senza invalidazione resta il valore in cache");
+
+        motore.invalida(0);
+        assertEquals(30, motore.calcolaAffitto(0, 7));
+        assertEquals(6, motore.calcolaAffitto(2, 7), "Il gruppo azzurro non è stato ricalcolato");
+    }
+
+    /**
+     * Verifica che in partita l'affitto sia pagato al proprietario.
+     */
+    @Test
+    public void testAffittoPagatoAlProprietario() {
+        Partita partita = new Partita(new Sistema(new DatabaseUtenti("utenti_test.xml")));
+        Giocatore g1 = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        Giocatore g2 = new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd456"));
+        PoliticaGiocatore senzaCostruzioni = new PoliticaAvida() {
+            @Override
+            public Proprietà scegliCostruzione(Partita partita, Giocatore g) {
+                return null;
+            }
+        };
+        g1.setPolitica(senzaCostruzioni);
+        g2.setPolitica(senzaCostruzioni);
+        partita.aggiungiGiocatore(g1);
+        partita.aggiungiGiocatore(g2);
+        partita.setSilenziosa(true);
+        partita.avviaPartita();
+
+        for (int i = 0; i < 500; i++) {
+            partita.eseguiTurno();
+        }
+
+        int totale = g1.getDenaro() + g2.getDenaro();
+        int spese = 0;
+        for (Giocatore g : partita.getGiocatori()) {
+            for (Proprietà p : g.getProprietàPossedute()) {
+                spese += p.getValore() - (p.isIpotecata() ? p.getValore() / 2 : 0);
+            }
+        }
+        assertEquals(3000, totale + spese, "Gli affitti passano da un giocatore all'altro");
+
+        MotoreAffitti m = partita.getMotoreAffitti();
+        List<Proprietà> tabellone = partita.getTabellone().getCaselle();
+        for (Proprietà p : g1.getProprietàPossedute()) {
+            assertEquals(g1.getPosto(), m.getProprietario(tabellone.indexOf(p)));
+        }
+    }
+}
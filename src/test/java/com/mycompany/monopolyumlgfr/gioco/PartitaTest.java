@@ -6,6 +6,8 @@ package com.mycompany.monopolyumlgfr.gioco;
 
 import com.mycompany.monopolyumlgfr.autenticazione.*;
 import org.junit.jupiter.api.*;
+
+import java.lang.management.ManagementFactory;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -19,6 +21,8 @@ import static org.junit.jupiter.api.Assertions.*;
  *   <li>Terminazione della partita.</li>
  *   <li>Reporting dello stato dei giocatori.</li>
  *   <li>Reporting del tabellone in formato HTML.</li>
+ *   <li>Assenza di allocazioni a regime nei turni in modalità silenziosa.</li>
+ *   <li>Consultazione della politica del giocatore per gli acquisti.</li>
  * </ul>
  * <!-- </p> -->
  */
@@ -163,4 +167,83 @@ public class PartitaTest {
         String html = partita.getTabelloneAsHTML();
         assertTrue(html.startsWith("<html>"), "Il tabellone deve essere restituito in formato HTML");
     }
+
+    /**
+     * Verifica che in modalità silenziosa i turni non allochino memoria a regime.
+     * <p>
+     * - Crea una partita con due giocatori in modalità silenziosa. <br>
+     * - Esegue un riscaldamento per far acquistare tutte le proprietà e compilare il codice. <br>
+     * - Misura i byte allocati dal thread corrente su 1.000.000 di turni
+     *   tramite {@link com.sun.management.ThreadMXBean}. <br>
+     * - Controlla che restino sotto una soglia trascurabile (meno di un byte ogni 100 turni).
+     * </p>
+     */
+    @Test
+    public void testTurnoSenzaAllocazioni() {
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!mx.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        mx.setThreadAllocatedMemoryEnabled(true);
+
+        Partita p = new Partita(sistema);
+        p.aggiungiGiocatore(new Giocatore(new Utente("Mario Rossi", "mario", "pwd123")));
+        p.aggiungiGiocatore(new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd456")));
+        p.setSilenziosa(true);
+        p.avviaPartita();
+
+        for (int i = 0; i < 200_000; i++) {
+            p.eseguiTurno();
+        }
+
+        long id = Thread.currentThread().threadId();
+        long prima = mx.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 1_000_000; i++) {
+            p.eseguiTurno();
+        }
+        long allocati = mx.getThreadAllocatedBytes(id) - prima;
+
+        assertTrue(allocati < 10_000,
+                "I turni a regime non devono allocare memoria (allocati " + allocati + " byte)");
+    }
+
+    /**
+     * Verifica che la politica del giocatore decida gli acquisti.
+     * <p>
+     * - Crea una partita con due giocatori che non acquistano mai. <br>
+     * - Esegue molti turni. <br>
+     * - Controlla che nessuno possieda proprietà e che il denaro sia invariato.
+     * </p>
+     */
+    @Test
+    public void testPoliticaConsultata() {
+        PoliticaGiocatore maiAcquista = new PoliticaGiocatore() {
+            @Override
+            public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+                return false;
+            }
+
+            @Override
+            public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+                return null;
+            }
+        };
+        Partita p = new Partita(sistema);
+        Giocatore g1 = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        Giocatore g2 = new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd456"));
+        g1.setPolitica(maiAcquista);
+        g2.setPolitica(maiAcquista);
+        p.aggiungiGiocatore(g1);
+        p.aggiungiGiocatore(g2);
+        p.setSilenziosa(true);
+        p.avviaPartita();
+
+        for (int i = 0; i < 100; i++) {
+            p.eseguiTurno();
+        }
+        assertTrue(g1.getProprietàPossedute().isEmpty() && g2.getProprietàPossedute().isEmpty(),
+                   "Nessuna proprietà deve essere acquistata");
+        assertEquals(1500, g1.getDenaro(), "Senza proprietà possedute non si pagano affitti");
+    }
 }
@@ -0,0 +1,49 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link PoliticaAvida}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>L'acquisto solo se il denaro è sufficiente.</li>
+ *   <li>La scelta della proprietà non ipotecata di valore minore da ipotecare.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class PoliticaAvidaTest {
+
+    /**
+     * Acquista se il denaro copre il valore, altrimenti no.
+     */
+    @Test
+    public void testAcquista() {
+        Giocatore g = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        Proprietà p = new Proprietà("Viale Test", 200, new int[]{20});
+
+        assertTrue(PoliticaAvida.ISTANZA.acquista(null, g, p));
+        g.setDenaro(100);
+        assertFalse(PoliticaAvida.ISTANZA.acquista(null, g, p));
+    }
+
+    /**
+     * Ipoteca la proprietà meno costosa tra quelle non ancora ipotecate.
+     */
+    @Test
+    public void testScegliIpoteca() {
+        Giocatore g = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        Proprietà cara = new Proprietà("Cara", 300, new int[]{30});
+        Proprietà economica = new Proprietà("Economica", 100, new int[]{10});
+        g.acquistaProprietà(cara);
+        g.acquistaProprietà(economica);
+
+        assertSame(economica, PoliticaAvida.ISTANZA.scegliIpoteca(null, g));
+        g.ipoteca(economica);
+        assertSame(cara, PoliticaAvida.ISTANZA.scegliIpoteca(null, g));
+        g.ipoteca(cara);
+        assertNull(PoliticaAvida.ISTANZA.scegliIpoteca(null, g));
+    }
+}
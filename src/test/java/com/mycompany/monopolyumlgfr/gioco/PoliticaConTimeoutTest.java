@@ -0,0 +1,124 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link PoliticaConTimeout}.
+ * <p>
+ * Questa suite verifica che una politica lenta venga interrotta allo scadere
+ * del budget e sostituita dalla politica di riserva, mentre una politica
+ * rapida venga rispettata; che il budget sia validato e che le decisioni
+ * abbandonate non facciano crescere i thread oltre il limite.
+ * </p>
+ */
+public class PoliticaConTimeoutTest {
+
+    /**
+     * Politica che non risponde mai in tempo.
+     */
+    private static class PoliticaLenta implements PoliticaGiocatore {
+        @Override
+        public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        @Override
+        public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+            return null;
+        }
+    }
+
+    /**
+     * La politica lenta viene sostituita dalla riserva entro il budget.
+     */
+    @Test
+    public void testTimeout() {
+        Giocatore g = new Giocatore(new Utente("Bot", "bot", "pwd"));
+        Proprietà p = new Proprietà("Viale Test", 200, new int[]{20});
+        PoliticaConTimeout politica = new PoliticaConTimeout(new PoliticaLenta(), 50);
+
+        long t0 = System.nanoTime();
+        assertTrue(politica.acquista(null, g, p), "Deve decidere la riserva (avida)");
+        assertTrue((System.nanoTime() - t0) / 1_000_000 < 2_000, "La decisione deve rispettare il budget");
+    }
+
+    /**
+     * Una politica rapida decide normalmente.
+     */
+    @Test
+    public void testDelegataRapida() {
+        Giocatore g = new Giocatore(new Utente("Bot", "bot", "pwd"));
+        Proprietà p = new Proprietà("Viale Test", 200, new int[]{20});
+        PoliticaGiocatore maiAcquista = new PoliticaGiocatore() {
+            @Override
+            public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+                return false;
+            }
+
+            @Override
+            public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+                return null;
+            }
+        };
+        assertFalse(new PoliticaConTimeout(maiAcquista, 1_000).acquista(null, g, p));
+    }
+
+    /**
+     * Il budget deve essere positivo.
+     */
+    @Test
+    public void testBudgetNonValido() {
+        assertThrows(IllegalArgumentException.class, () -> new PoliticaConTimeout(PoliticaAvida.ISTANZA, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PoliticaConTimeout(PoliticaAvida.ISTANZA, -5));
+    }
+
+    /**
+     * Decisioni abbandonate che ignorano l'interruzione non fanno crescere i
+     * thread oltre il limite: oltre il limite decide subito la riserva.
+     *
+     * @throws Exception se il test viene interrotto
+     */
+    @Test
+    public void testThreadLimitati() throws Exception {
+        CountDownLatch rilascio = new CountDownLatch(1);
+        PoliticaGiocatore ostinata = new PoliticaGiocatore() {
+            @Override
+            public boolean acquista(Partita partita, Giocatore g, Proprietà p) {
+                while (true) {
+                    try {
+                        rilascio.await();
+                        return false;
+                    } catch (InterruptedException e) {
+                        // ignora l'interruzione, come un bot non fidato
+                    }
+                }
+            }
+
+            @Override
+            public Proprietà scegliIpoteca(Partita partita, Giocatore g) {
+                return null;
+            }
+        };
+        Giocatore g = new Giocatore(new Utente("Bot", "bot", "pwd"));
+        Proprietà p = new Proprietà("Viale Test", 200, new int[]{20});
+        PoliticaConTimeout politica = new PoliticaConTimeout(ostinata, 20);
+        try {
+            for (int i = 0; i < PoliticaConTimeout.MAX_THREAD + 5; i++) {
+                assertTrue(politica.acquista(null, g, p), "Deve decidere la riserva (avida)");
+            }
+            long thread = Thread.getAllStackTraces().keySet().stream()
+                    .filter(t -> t.getName().equals("politica-bot")).count();
+            assertTrue(thread <= PoliticaConTimeout.MAX_THREAD, "Thread del pool: " + thread);
+        } finally {
+            rilascio.countDown();
+        }
+    }
+}
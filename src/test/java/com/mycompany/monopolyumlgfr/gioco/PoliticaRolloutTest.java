@@ -0,0 +1,113 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.autenticazione.DatabaseUtenti;
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link PoliticaRollout}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Il rispetto del budget di tempo per decisione.</li>
+ *   <li>L'arresto dei rollout quando il thread viene interrotto.</li>
+ *   <li>Il rifiuto degli acquisti non sostenibili.</li>
+ *   <li>L'acquisto di una proprietà redditizia quando il denaro abbonda.</li>
+ *   <li>L'uso come politica in una partita.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class PoliticaRolloutTest {
+
+    /** Partita con due giocatori. */
+    private Partita partita;
+
+    /** Giocatore che decide. */
+    private Giocatore bot;
+
+    /**
+     * Crea una partita con due giocatori, il primo gestito dal bot.
+     */
+    @BeforeEach
+    public void setUp() {
+        partita = new Partita(new Sistema(new DatabaseUtenti("utenti_test.xml")));
+        bot = new Giocatore(new Utente("Bot", "bot", "pwd"));
+        partita.aggiungiGiocatore(bot);
+        partita.aggiungiGiocatore(new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd")));
+        partita.setSilenziosa(true);
+        partita.avviaPartita();
+    }
+
+    /**
+     * Con molti rollout richiesti la decisione termina comunque alla scadenza del
+     * budget: con un orologio che avanza di 1 ms a ogni lettura e un budget di
+     * 20 ms i rollout sono esattamente 20.
+     */
+    @Test
+    public void testBudgetRispettato() {
+        AtomicLong orologio = new AtomicLong();
+        AtomicInteger letture = new AtomicInteger();
+        PoliticaRollout politica = new PoliticaRollout(20, Integer.MAX_VALUE, 50, () -> {
+            letture.incrementAndGet();
+            return orologio.getAndAdd(TimeUnit.MILLISECONDS.toNanos(1));
+        });
+        Proprietà p = partita.getTabellone().getCaselle().get(10);
+
+        politica.acquista(partita, bot, p);
+
+        // una lettura per la scadenza, poi una dopo ogni rollout
+        assertEquals(21, letture.get(), "La decisione deve fermarsi alla scadenza del budget");
+    }
+
+    /**
+     * Con il thread interrotto le simulazioni si fermano subito, anche con un
+     * budget lungo.
+     */
+    @Test
+    public void testInterruzione() {
+        PoliticaRollout politica = new PoliticaRollout(60_000, Integer.MAX_VALUE, 50);
+        Proprietà p = partita.getTabellone().getCaselle().get(10);
+
+        long t0 = System.nanoTime();
+        Thread.currentThread().interrupt();
+        try {
+            politica.acquista(partita, bot, p);
+        } finally {
+            Thread.interrupted();
+        }
+        long millis = (System.nanoTime() - t0) / 1_000_000;
+        assertTrue(millis < 5_000, "L'interruzione deve fermare i rollout (durata " + millis + " ms)");
+    }
+
+    /**
+     * Senza denaro sufficiente non compra; con denaro abbondante compra una proprietà redditizia.
+     */
+    @Test
+    public void testDecisioniAcquisto() {
+        PoliticaRollout politica = new PoliticaRollout(50);
+        Proprietà parco = partita.getTabellone().getCaselle().get(21);
+
+        bot.setDenaro(100);
+        assertFalse(politica.acquista(partita, bot, parco), "Non può comprare senza denaro");
+
+        bot.setDenaro(5000);
+        assertTrue(politica.acquista(partita, bot, parco), "Con denaro abbondante conviene comprare");
+    }
+
+    /**
+     * Il bot può giocare una partita senza errori e la posizione resta valida.
+     */
+    @Test
+    public void testPartitaConBot() {
+        bot.setPolitica(new PoliticaRollout(2, 20, 5));
+        for (int i = 0; i < 200; i++) {
+            partita.eseguiTurno();
+        }
+        assertTrue(bot.getPosizione() >= 0 && bot.getPosizione() < 40);
+    }
+}
@@ -0,0 +1,97 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.autenticazione.DatabaseUtenti;
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link PoliticaUmana}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Che la domanda venga presentata e la risposta applicata.</li>
+ *   <li>Il comportamento predefinito alla scadenza del budget.</li>
+ *   <li>Le decisioni prese dal menu di {@link GiocoConsole}.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class PoliticaUmanaTest {
+
+    /** Giocatore di test. */
+    private Giocatore g;
+
+    /** Proprietà di test. */
+    private Proprietà p;
+
+    /**
+     * Crea giocatore e proprietà di test.
+     */
+    @BeforeEach
+    public void setUp() {
+        g = new Giocatore(new Utente("Mario Rossi", "mario", "pwd123"));
+        p = new Proprietà("Viale Test", 200, new int[]{20});
+    }
+
+    /**
+     * La risposta fornita da un altro thread viene applicata.
+     */
+    @Test
+    public void testRisposta() {
+        List<String> domande = new ArrayList<>();
+        PoliticaUmana[] politica = new PoliticaUmana[1];
+        politica[0] = new PoliticaUmana(5_000, domanda -> {
+            domande.add(domanda);
+            new Thread(() -> politica[0].rispondi(true)).start();
+        });
+
+        assertTrue(politica[0].acquista(null, g, p));
+        assertEquals(1, domande.size());
+        assertTrue(domande.get(0).contains("Viale Test"));
+    }
+
+    /**
+     * Senza risposta entro il budget l'acquisto è rifiutato e l'ipoteca proposta applicata.
+     */
+    @Test
+    public void testScadenza() {
+        PoliticaUmana politica = new PoliticaUmana(20, domanda -> { });
+        assertFalse(politica.acquista(null, g, p), "Senza risposta non si acquista");
+
+        g.acquistaProprietà(p);
+        assertSame(p, politica.scegliIpoteca(null, g), "Senza risposta si applica l'ipoteca proposta");
+    }
+
+    /**
+     * Dalla console la domanda di acquisto compare durante il turno e la risposta
+     * letta decide: al primo turno ogni casella è una proprietà libera.
+     */
+    @Test
+    public void testDecisioniDaConsole() {
+        for (String risposta : new String[]{"s", "n"}) {
+            Partita partita = new Partita(new Sistema(new DatabaseUtenti("utenti_test.xml")));
+            partita.aggiungiGiocatore(new Giocatore(new Utente("Mario Rossi", "mario", "pwd123")));
+            partita.aggiungiGiocatore(new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd123")));
+            partita.avviaPartita();
+            Giocatore primo = partita.getGiocatoreCorrente();
+
+            ByteArrayOutputStream schermo = new ByteArrayOutputStream();
+            RendererConsole renderer = new RendererConsole(new PrintStream(schermo, true), false);
+            GiocoConsole console = new GiocoConsole(partita, renderer, new Scanner("1\n" + risposta + "\n0\n"));
+            console.setDecisioniUmane(5_000);
+            console.start();
+
+            assertTrue(schermo.toString().contains(primo.getUtente().getUsername() + ": acquistare"),
+                       schermo.toString());
+            assertEquals("s".equals(risposta), !primo.getProprietàPossedute().isEmpty(),
+                         "Risposta " + risposta);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.autenticazione.DatabaseUtenti;
+import com.mycompany.monopolyumlgfr.autenticazione.Sistema;
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link RendererConsole}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Che una schermata arrivi alla destinazione con una sola scrittura.</li>
+ *   <li>Che in modalità ANSI vengano riscritte solo le righe cambiate del tabellone.</li>
+ *   <li>Il ridisegno completo dopo {@link RendererConsole#invalida()}.</li>
+ *   <li>Che i messaggi di abbandono e fine partita finiscano nella schermata.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class RendererConsoleTest {
+
+    /**
+     * Destinazione che conta scritture e flush.
+     */
+    private static class Destinazione extends OutputStream {
+
+        final ByteArrayOutputStream dati = new ByteArrayOutputStream();
+        int scritture;
+        int flush;
+
+        @Override
+        public void write(int b) {
+            scritture++;
+            dati.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            scritture++;
+            dati.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            flush++;
+        }
+
+        String prendi() {
+            String s = dati.toString(StandardCharsets.UTF_8);
+            dati.reset();
+            return s;
+        }
+    }
+
+    /** Destinazione delle schermate. */
+    private Destinazione dest;
+
+    /**
+     * Crea la destinazione di test.
+     */
+    @BeforeEach
+    public void setUp() {
+        dest = new Destinazione();
+    }
+
+    /**
+     * Verifica che nulla esca prima di mostra() e che la schermata esca in una scrittura.
+     */
+    @Test
+    public void testSchermataInUnaScrittura() throws IOException {
+        RendererConsole r = new RendererConsole(dest, false);
+        r.tabellone("0) Via\n1) Vicolo Corto\n");
+        for (int i = 0; i < 100; i++) {
+            r.getSchermo().println("riga " + i);
+        }
+        assertEquals(0, dest.scritture, "Niente deve uscire prima di mostra()");
+
+        r.mostra();
+        assertEquals(1, dest.scritture);
+        assertEquals(1, dest.flush);
+        String s = dest.prendi();
+        assertTrue(s.startsWith("0) Via\n1) Vicolo Corto\n"));
+        assertTrue(s.endsWith("riga 99" + System.lineSeparator()));
+
+        r.mostra();
+        assertEquals("", dest.prendi(), "Il buffer viene svuotato dopo ogni schermata");
+    }
+
+    /**
+     * Verifica che in modalità ANSI si riscrivano solo le righe cambiate.
+     */
+    @Test
+    public void testAnsiRiscriveSoloRigheCambiate() {
+        RendererConsole r = new RendererConsole(dest, true);
+        r.tabellone("0) Via [Mario]\n1) Vicolo Corto\n2) Vicolo Stretto");
+        r.getSchermo().print("Scelta: ");
+        r.mostra();
+        String prima = dest.prendi();
+        assertTrue(prima.contains("\u001b[2J"), "La prima schermata pulisce il terminale");
+        assertTrue(prima.contains("Vicolo Stretto"));
+        assertTrue(prima.endsWith("\u001b[4;1H\u001b[JScelta: "));
+
+        r.tabellone("0) Via\n1) Vicolo Corto\n2) Vicolo Stretto [Mario]");
+        r.getSchermo().print("Scelta: ");
+        r.mostra();
+        String seconda = dest.prendi();
+        assertFalse(seconda.contains("\u001b[2J"));
+        assertTrue(seconda.contains("\u001b[1;1H0) Via\u001b[K"));
+        assertTrue(seconda.contains("\u001b[3;1H2) Vicolo Stretto [Mario]\u001b[K"));
+        assertFalse(seconda.contains("Vicolo Corto"), "Le righe invariate non vengono riscritte");
+        assertEquals(2, dest.scritture);
+    }
+
+    /**
+     * Verifica il ridisegno completo dopo invalida().
+     */
+    @Test
+    public void testInvalida() {
+        RendererConsole r = new RendererConsole(dest, true);
+        r.tabellone("0) Via\n1) Vicolo Corto");
+        r.mostra();
+        dest.prendi();
+
+        r.invalida();
+        r.tabellone("0) Via\n1) Vicolo Corto");
+        r.mostra();
+        String s = dest.prendi();
+        assertTrue(s.contains("\u001b[2J"));
+        assertTrue(s.contains("Vicolo Corto"));
+    }
+
+    /**
+     * Verifica che i messaggi di {@link Giocatore} e {@link Sistema} durante un
+     * abbandono siano composti nella schermata e non scritti su {@link System#out}.
+     */
+    @Test
+    public void testMessaggiDelSistemaNellaSchermata() {
+        Partita partita = new Partita(new Sistema(new DatabaseUtenti("utenti_test.xml")));
+        partita.aggiungiGiocatore(new Giocatore(new Utente("Mario Rossi", "mario", "pwd123")));
+        partita.aggiungiGiocatore(new Giocatore(new Utente("Luigi Bianchi", "luigi", "pwd456")));
+        partita.avviaPartita();
+
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(console, true));
+        try {
+            new GiocoConsole(partita, new RendererConsole(dest, false), new Scanner("2\n0\n")).start();
+        } finally {
+            System.setOut(stdout);
+        }
+
+        String s = dest.prendi();
+        assertTrue(s.contains("Giocatore mario ha abbandonato la partita."), s);
+        assertTrue(s.contains("Sistema: Giocatore mario ha abbandonato la partita."), s);
+        assertTrue(s.contains("Sistema: La partita è terminata."), s);
+        assertEquals("", console.toString(), "Niente deve aggirare il renderer");
+    }
+}
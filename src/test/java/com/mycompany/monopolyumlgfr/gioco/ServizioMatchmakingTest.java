@@ -0,0 +1,184 @@
+package com.mycompany.monopolyumlgfr.gioco;
+
+import com.mycompany.monopolyumlgfr.autenticazione.Utente;
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link ServizioMatchmaking}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Formazione immediata di una partita completa nella stessa fascia.</li>
+ *   <li>Partite complete con lo stesso rating distribuito su più code.</li>
+ *   <li>Formazione di partite ridotte dopo l'attesa minima.</li>
+ *   <li>Allargamento della ricerca alle fasce vicine con l'attesa.</li>
+ *   <li>Rifiuto dei duplicati e rimozione dalla coda.</li>
+ *   <li>Correttezza con accodamenti concorrenti da più thread.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class ServizioMatchmakingTest {
+
+    /** Gruppi formati dal servizio. */
+    private ConcurrentLinkedQueue<List<Utente>> gruppi;
+
+    /** Servizio da testare (attesa minima 1 s, allargamento ogni 1 s). */
+    private ServizioMatchmaking servizio;
+
+    /**
+     * Crea un servizio con tempi di attesa controllati dal test.
+     */
+    @BeforeEach
+    public void setUp() {
+        gruppi = new ConcurrentLinkedQueue<>();
+        servizio = new ServizioMatchmaking(gruppi::add, 100, 32,
+                TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Crea un utente di test.
+     */
+    private static Utente utente(String username) {
+        return new Utente(username, username, "pwd");
+    }
+
+    /**
+     * Sei utenti nella stessa fascia formano subito una partita completa.
+     */
+    @Test
+    public void testPartitaCompletaImmediata() {
+        for (int i = 0; i < Partita.MAX_GIOCATORI; i++) {
+            assertTrue(servizio.accoda(utente("u" + i), 1000 + i));
+        }
+        assertEquals(1, gruppi.size(), "Deve essere formata una partita");
+        assertEquals(Partita.MAX_GIOCATORI, gruppi.peek().size());
+        assertEquals(0, servizio.getUtentiInCoda());
+    }
+
+    /**
+     * Utenti con lo stesso rating, accodati da più thread e quindi su code diverse
+     * della stessa fascia, formano partite complete dei più vecchi.
+     *
+     * @throws Exception se un thread viene interrotto
+     */
+    @Test
+    public void testStessoRatingSuPiùCode() throws Exception {
+        Thread[] thread = new Thread[4];
+        for (int t = 0; t < thread.length; t++) {
+            final int id = t;
+            thread[t] = new Thread(() -> {
+                for (int i = 0; i < 300; i++) {
+                    servizio.accoda(utente(id + "-" + i), 1200);
+                }
+            });
+            thread[t].start();
+        }
+        for (Thread t : thread) {
+            t.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        assertEquals(200, gruppi.size(), "Ogni sei accodamenti nella fascia va formata una partita");
+        assertEquals(0, servizio.getUtentiInCoda());
+        for (List<Utente> g : gruppi) {
+            assertEquals(Partita.MAX_GIOCATORI, g.size());
+        }
+
+        for (int i = 0; i < 5; i++) {
+            servizio.accoda(utente("x" + i), 1200);
+        }
+        assertEquals(200, gruppi.size(), "Cinque richieste non bastano per una partita completa");
+        servizio.accoda(utente("x5"), 1200);
+        assertEquals(List.of("x0", "x1", "x2", "x3", "x4", "x5"),
+                gruppi.stream().skip(200).findFirst().orElseThrow().stream().map(Utente::getUsername).toList());
+    }
+
+    /**
+     * Due utenti vicini vengono abbinati solo dopo l'attesa minima.
+     */
+    @Test
+    public void testPartitaRidottaDopoAttesa() {
+        servizio.accoda(utente("a"), 1500);
+        servizio.accoda(utente("b"), 1550);
+
+        assertEquals(0, servizio.abbina(System.nanoTime()), "Prima dell'attesa minima non si abbina");
+        assertEquals(1, servizio.abbina(System.nanoTime() + TimeUnit.SECONDS.toNanos(2)));
+        assertEquals(2, gruppi.peek().size());
+    }
+
+    /**
+     * Utenti in fasce lontane vengono abbinati solo quando il raggio di ricerca le copre.
+     */
+    @Test
+    public void testAllargamentoFasce() {
+        servizio.accoda(utente("a"), 1000);
+        servizio.accoda(utente("b"), 1300);
+
+        long t0 = System.nanoTime();
+        assertEquals(0, servizio.abbina(t0 + TimeUnit.MILLISECONDS.toNanos(2500)),
+                "Con raggio 1 le fasce 10 e 13 non si toccano");
+        assertEquals(1, servizio.abbina(t0 + TimeUnit.SECONDS.toNanos(5)),
+                "Con raggio 3 gli utenti devono essere abbinati");
+        assertTrue(servizio.getAttesaMassimaMillis() > 0);
+    }
+
+    /**
+     * Un utente già in coda non può essere accodato di nuovo e può essere rimosso.
+     */
+    @Test
+    public void testDuplicatiERimozione() {
+        assertTrue(servizio.accoda(utente("a"), 1000));
+        assertFalse(servizio.accoda(utente("a"), 1200), "Il duplicato deve essere rifiutato");
+        assertTrue(servizio.rimuovi("a"));
+        assertFalse(servizio.rimuovi("a"));
+        assertEquals(0, servizio.getUtentiInCoda());
+    }
+
+    /**
+     * Accodamenti concorrenti: ogni utente finisce in esattamente un gruppo valido.
+     *
+     * @throws Exception se un thread viene interrotto
+     */
+    @Test
+    public void testAccodamentiConcorrenti() throws Exception {
+        int thread = 8;
+        int perThread = 600;
+        CountDownLatch via = new CountDownLatch(1);
+        CountDownLatch fine = new CountDownLatch(thread);
+        for (int t = 0; t < thread; t++) {
+            final int id = t;
+            new Thread(() -> {
+                try {
+                    via.await();
+                    for (int i = 0; i < perThread; i++) {
+                        servizio.accoda(utente(id + "-" + i), (id * 131 + i * 17) % 3200);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    fine.countDown();
+                }
+            }).start();
+        }
+        via.countDown();
+        assertTrue(fine.await(30, TimeUnit.SECONDS));
+        servizio.abbina(System.nanoTime() + TimeUnit.SECONDS.toNanos(100));
+
+        Set<String> visti = new HashSet<>();
+        for (List<Utente> g : gruppi) {
+            assertTrue(g.size() >= Partita.MIN_GIOCATORI && g.size() <= Partita.MAX_GIOCATORI);
+            for (Utente u : g) {
+                assertTrue(visti.add(u.getUsername()), "Ogni utente in un solo gruppo");
+            }
+        }
+        assertEquals(thread * perThread, visti.size() + servizio.getUtentiInCoda());
+        assertTrue(servizio.getUtentiInCoda() < Partita.MIN_GIOCATORI);
+        assertEquals(visti.size(), servizio.getGiocatoriAbbinati());
+    }
+}
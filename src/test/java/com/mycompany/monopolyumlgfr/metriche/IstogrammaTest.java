@@ -0,0 +1,87 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link Istogramma}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>La corrispondenza tra valori e bucket su tutto l'intervallo.</li>
+ *   <li>L'errore relativo dei percentili.</li>
+ *   <li>Media, massimo e azzeramento.</li>
+ *   <li>Che da disabilitato non registri nulla.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class IstogrammaTest {
+
+    /**
+     * Abilita le metriche prima di ogni test.
+     */
+    @BeforeEach
+    public void setUp() {
+        RegistroMetriche.setAbilitato(true);
+    }
+
+    /**
+     * Ripristina lo stato predefinito (disabilitato).
+     */
+    @AfterEach
+    public void tearDown() {
+        RegistroMetriche.setAbilitato(false);
+    }
+
+    /**
+     * Ogni valore cade in un bucket il cui limite superiore lo contiene
+     * con errore relativo inferiore al 3,2%.
+     */
+    @Test
+    public void testBucket() {
+        long[] valori = {0, 1, 63, 64, 65, 1000, 123_456, 1_000_000_007L, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        int precedente = -1;
+        for (long v : valori) {
+            int i = Istogramma.indice(v);
+            assertTrue(i >= precedente, "Gli indici devono essere monotoni");
+            precedente = i;
+            long sup = Istogramma.limiteSuperiore(i);
+            assertTrue(sup >= v, "Il limite superiore deve contenere il valore " + v);
+            assertTrue(sup - v <= Math.max(1, v / 31), "Errore relativo eccessivo per " + v);
+        }
+    }
+
+    /**
+     * Percentili, media e massimo su una distribuzione uniforme 1..10000 µs.
+     */
+    @Test
+    public void testPercentili() {
+        Istogramma h = new Istogramma("test");
+        for (int i = 1; i <= 10_000; i++) {
+            h.registra(i * 1_000L);
+        }
+        assertEquals(10_000, h.getConteggio());
+        assertEquals(5.0, h.getP50Millis(), 5.0 * 0.035);
+        assertEquals(9.9, h.getP99Millis(), 9.9 * 0.035);
+        assertEquals(10.0, h.getMassimoMillis(), 1e-9);
+        assertEquals(5.0005, h.getMediaMillis(), 1e-6);
+
+        h.azzera();
+        assertEquals(0, h.getConteggio());
+        assertEquals(0, h.percentile(50));
+    }
+
+    /**
+     * Da disabilitato l'istogramma ignora i valori e {@code inizio()} restituisce 0.
+     */
+    @Test
+    public void testDisabilitato() {
+        RegistroMetriche.setAbilitato(false);
+        Istogramma h = new Istogramma("test");
+        long t0 = RegistroMetriche.inizio();
+        assertEquals(0, t0);
+        h.fine(t0);
+        h.registra(100);
+        assertEquals(0, h.getConteggio());
+    }
+}
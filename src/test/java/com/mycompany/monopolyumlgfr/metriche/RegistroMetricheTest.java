@@ -0,0 +1,81 @@
+package com.mycompany.monopolyumlgfr.metriche;
+
+import org.junit.jupiter.api.*;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per {@link RegistroMetriche}.
+ * <p>
+ * Questa suite verifica:
+ * <ul>
+ *   <li>Il riuso delle metriche con lo stesso nome e il controllo del tipo.</li>
+ *   <li>Il comportamento dei contatori da abilitati e disabilitati.</li>
+ *   <li>L'esportazione via JMX, anche per metriche create dopo l'esportazione.</li>
+ * </ul>
+ * <!-- </p> -->
+ */
+public class RegistroMetricheTest {
+
+    /**
+     * Ripristina lo stato predefinito (disabilitato).
+     */
+    @AfterEach
+    public void tearDown() {
+        RegistroMetriche.setAbilitato(false);
+    }
+
+    /**
+     * Lo stesso nome restituisce la stessa metrica; un tipo diverso è un errore.
+     */
+    @Test
+    public void testRegistrazione() {
+        Contatore c = RegistroMetriche.contatore("test.registrazione");
+        assertSame(c, RegistroMetriche.contatore("test.registrazione"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RegistroMetriche.istogramma("test.registrazione"));
+        assertTrue(RegistroMetriche.getMetriche().containsKey("test.registrazione"));
+    }
+
+    /**
+     * Il contatore incrementa solo da abilitato.
+     */
+    @Test
+    public void testContatore() {
+        Contatore c = RegistroMetriche.contatore("test.contatore");
+        c.azzera();
+        c.incrementa();
+        assertEquals(0, c.getValore(), "Da disabilitato non deve contare");
+
+        RegistroMetriche.setAbilitato(true);
+        c.incrementa();
+        c.aggiungi(4);
+        assertEquals(5, c.getValore());
+        assertTrue(RegistroMetriche.riepilogo().contains("test.contatore: 5"));
+    }
+
+    /**
+     * Le metriche sono leggibili dall'MBean server della piattaforma.
+     *
+     * @throws Exception in caso di errori JMX
+     */
+    @Test
+    public void testEsportazioneJmx() throws Exception {
+        RegistroMetriche.setAbilitato(true);
+        Istogramma h = RegistroMetriche.istogramma("test.jmx");
+        h.registra(2_000_000);
+        RegistroMetriche.esportaJmx();
+        Indicatore g = RegistroMetriche.indicatore("test.indicatore", () -> 42);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName nomeH = RegistroMetriche.nomeJmx("test.jmx", h);
+        ObjectName nomeG = RegistroMetriche.nomeJmx("test.indicatore", g);
+        assertTrue(server.isRegistered(nomeH));
+        assertEquals(1L, server.getAttribute(nomeH, "Conteggio"));
+        assertEquals(42L, server.getAttribute(nomeG, "Valore"),
+                "Le metriche create dopo l'esportazione devono essere esportate");
+    }
+}